@@ -0,0 +1,124 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import nests.Nest;
+import nests.NestsParameters;
+
+/**
+ * Builds the nest sites and colonies the JMH benchmarks of the AH-HA hot paths run on
+ * (ColonyBenchmark and NestSiteBenchmark).
+ *
+ * Everything but the colony size and the number of nest sites is NestsParameters' default. Nest
+ * site 0 is the colony's (uninhabitable) home, the others have increasing quality, and every
+ * pair of sites are neighbours: the home is 100 units from site 1, 200 from site 2 and so on, and
+ * the other sites are 200 units apart, as the default three-site landscape. Colonies have one
+ * scout per ten ants (at least one), as the default colony.
+ *
+ * The benchmarks are in the bench source folder, alongside src, so they are not part of the model.
+ * To run them, compile both folders with JMH (jmh-core and jmh-generator-annprocess, with their
+ * jopt-simple and commons-math3 dependencies, in the required libs folder's jmh-1.37, see
+ * .classpath) and the model's libraries on the class path, so that javac runs JMH's annotation
+ * processor, then run org.openjdk.jmh.Main from the same class path,
+ * optionally with a benchmark name pattern, -p colonySize=1000 to fix a parameter, or -rf csv to
+ * keep the results. Each benchmark reports the average time of one operation (one update of a
+ * colony, one update of every scout, one recruitment, and so on); compare runs on the same
+ * machine only, before and after a change.
+ *
+ */
+final class BenchmarkColonies
+{
+	/** The distance from the home nest to nest site 1 (site n is n times as far) */
+	private static final int HOME_SPACING = 100;
+
+	/**
+	 * Gets the number of scouts in a colony
+	 *
+	 * @param colonySize (> 0)
+	 *
+	 * @return number of scouts (> 0)
+	 *
+	 */
+	static int getNumScouts(int colonySize)
+	{
+		NestsParameters p = new NestsParameters();
+
+		return Math.max(1, colonySize * p.getNumScouts() / p.getColonySize());
+	}
+
+	/**
+	 * Builds a landscape of nest sites, every pair of them neighbours
+	 *
+	 * @param numNestSites (> 1, including the home nest, site 0)
+	 * @param numColonies number of colonies that will share the sites (> 0)
+	 * @param random number stream (!= null)
+	 *
+	 * @return nest sites, indexed by id
+	 *
+	 */
+	static NestSite[] buildNestSites(int numNestSites, int numColonies, RandomStream random)
+	{
+		if (numNestSites <= 1)
+		{
+			throw new IllegalArgumentException("BenchmarkColonies.buildNestSites called with numNestSites <= 1 (numNestSites == " + numNestSites + ")");
+		}
+		NestsParameters p = new NestsParameters();
+		NestSite[] nestSites = new NestSite[numNestSites];
+		int distance, l1, l2;
+
+		for (l1 = 0; l1 < numNestSites; l1++)
+		{
+			nestSites[l1] = new Nest((l1 == 0) ? p.getNest1Quality() : p.getNest2Quality() + l1 - 1, p.getNestQualityStdDev(), random.split(), numColonies);
+			nestSites[l1].setId(l1);
+		}
+		nestSites[0].setHabitable(p.getNest1Habitable());
+		for (l1 = 0; l1 < numNestSites; l1++)
+		{
+			for (l2 = l1 + 1; l2 < numNestSites; l2++)
+			{
+				distance = (l1 == 0) ? HOME_SPACING * l2 : p.getNest2ToNest3Distance();
+				nestSites[l1].addNeighbouringNestSite(nestSites[l2], distance);
+				nestSites[l2].addNeighbouringNestSite(nestSites[l1], distance);
+			}
+		}
+
+		return nestSites;
+	}
+
+	/**
+	 * Builds a colony in the home nest (site 0) of a landscape
+	 *
+	 * @param id colony's index among the colonies sharing the sites (>= 0)
+	 * @param colonySize (> 0)
+	 * @param landscape (!= null, as BenchmarkColonies.buildNestSites)
+	 * @param random number stream (!= null)
+	 * @param packedScouts (true to bit-pack the scouts off the heap, see PackedAntStore)
+	 *
+	 * @return colony
+	 *
+	 */
+	static AntColony buildColony(int id, int colonySize, Landscape landscape, RandomStream random, boolean packedScouts)
+	{
+		NestsParameters p = new NestsParameters();
+
+		return new AntColony(id, colonySize, getNumScouts(colonySize), p.getNormalQuorumThreshold(), p.getEmergencyQuorumThreshold(), p.getHostileQuorumThreshold(), p.getPreferenceSwitchProb(), p.getStartScoutingProb(), p.getStopScoutingProb(), p.getReverseTandemRunProb(), p.getChangeNestProb(), p.getMaxNestQuality(), p.getAssessmentDelay(), p.getTandemRunSpeed(), p.getCarryingSpeed(), landscape, landscape.getNestSite(0), p.getNestQualityRequirement(), p.getEnvironmentHostile(), p.getDistanceSignificant(), p.getCompareNestSiteQualities(), p.getPrattEbmEquivalent(), random.split(), packedScouts);
+	}
+
+	/**
+	 * BenchmarkColonies constructor (not used, the class only has static methods)
+	 *
+	 */
+	private BenchmarkColonies()
+	{
+	}
+}
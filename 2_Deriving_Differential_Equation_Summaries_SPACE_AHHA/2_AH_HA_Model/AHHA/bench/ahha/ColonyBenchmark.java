@@ -0,0 +1,356 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a colony's hot paths: updating the colony (every scout, only the awake ones
+ * if event driven, or every scout bit-packed off the heap), updating every scout through
+ * Ant.update, recruiting a scout to a site, and drawing a probabilistic event. See BenchmarkColonies for the landscape and how to run them.
+ *
+ * An emigration runs its course, so the update benchmarks start each invocation from a new colony
+ * 100 updates into its emigration (built outside the timing) and time the next 100 updates,
+ * reporting the average time of one. The others reuse one colony for each iteration.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class ColonyBenchmark
+{
+	/** The number of updates a colony has made before it is timed */
+	public static final int WARM_UPDATES = 100;
+	/** The number of updates timed in each invocation */
+	public static final int UPDATES = 100;
+
+	/**
+	 * A colony part way through its emigration, rebuilt for each invocation
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Emigration
+	{
+		/** The number of ants in the colony */
+		@Param({"100", "1000", "10000"})
+		public int colonySize;
+		/** The number of nest sites, including the home nest */
+		@Param({"3", "10", "50"})
+		public int numNestSites;
+		/** The colony */
+		AntColony mColony;
+		/** The number of scouts in the colony */
+		int mNumScouts;
+		/** The seed of the next colony's random number stream */
+		private long mSeed;
+
+		/**
+		 * Does the colony skip scouts that are only counting down a delay?
+		 *
+		 * @return false (every scout is updated every update)
+		 *
+		 */
+		protected boolean isEventDriven()
+		{
+			return false;
+		}
+
+		/**
+		 * Are the colony's scouts bit-packed off the heap?
+		 *
+		 * @return false (they are held in arrays)
+		 *
+		 */
+		protected boolean isPackedScouts()
+		{
+			return false;
+		}
+
+		/**
+		 * Gets the number of scouts in each of the partitions the colony updates in parallel
+		 *
+		 * @return 0 (the scouts are updated one after another)
+		 *
+		 */
+		protected int getPartitionSize()
+		{
+			return 0;
+		}
+
+		/**
+		 * Builds a new colony and starts its emigration
+		 *
+		 * @return void
+		 *
+		 */
+		@Setup(Level.Invocation)
+		public void build()
+		{
+			RandomStream random = new RandomStream(mSeed++);
+			int l1;
+
+			mColony = BenchmarkColonies.buildColony(0, colonySize, new Landscape(BenchmarkColonies.buildNestSites(numNestSites, 1, random)), random, isPackedScouts());
+			mColony.setEventDriven(isEventDriven());
+			mColony.setPartitionSize(getPartitionSize());
+			mNumScouts = BenchmarkColonies.getNumScouts(colonySize);
+			for (l1 = 0; l1 < WARM_UPDATES; l1++)
+			{
+				mColony.update();
+			}
+		}
+	}
+
+	/**
+	 * A colony part way through its emigration, parking scouts in a timing wheel
+	 *
+	 */
+	public static class EventDrivenEmigration extends Emigration
+	{
+		/**
+		 * Does the colony skip scouts that are only counting down a delay?
+		 *
+		 * @return true
+		 *
+		 */
+		protected boolean isEventDriven()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * A colony part way through its emigration, its scouts bit-packed off the heap (see PackedAntStore)
+	 *
+	 */
+	public static class PackedEmigration extends Emigration
+	{
+		/**
+		 * Are the colony's scouts bit-packed off the heap?
+		 *
+		 * @return true
+		 *
+		 */
+		protected boolean isPackedScouts()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * A colony part way through its emigration, updating its scouts in parallel partitions (see ScoutPartition)
+	 *
+	 */
+	public static class PartitionedEmigration extends Emigration
+	{
+		/**
+		 * Gets the number of scouts in each of the partitions the colony updates in parallel
+		 *
+		 * @return 128
+		 *
+		 */
+		protected int getPartitionSize()
+		{
+			return 128;
+		}
+	}
+
+	/**
+	 * A colony reused for a whole iteration
+	 *
+	 */
+	@State(Scope.Thread)
+	public static class Colony
+	{
+		/** The number of ants in the colony */
+		@Param({"100", "1000", "10000"})
+		public int colonySize;
+		/** The number of nest sites, including the home nest */
+		@Param({"3", "10", "50"})
+		public int numNestSites;
+		/** The colony */
+		AntColony mColony;
+		/** The nest site the next scout is recruited to (cycles through the sites other than the home nest) */
+		int mNextSite;
+
+		/**
+		 * Builds the colony
+		 *
+		 * @return void
+		 *
+		 */
+		@Setup(Level.Iteration)
+		public void build()
+		{
+			RandomStream random = new RandomStream(0);
+
+			mColony = BenchmarkColonies.buildColony(0, colonySize, new Landscape(BenchmarkColonies.buildNestSites(numNestSites, 1, random)), random, false);
+			mNextSite = 1;
+		}
+	}
+
+	/**
+	 * Benchmarks AntColony.update, updating every scout
+	 *
+	 * @param emigration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public void colonyUpdate(Emigration emigration)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < UPDATES; l1++)
+		{
+			emigration.mColony.update();
+		}
+	}
+
+	/**
+	 * Benchmarks AntColony.update, updating only the scouts that are not parked
+	 *
+	 * @param emigration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public void colonyUpdateEventDriven(EventDrivenEmigration emigration)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < UPDATES; l1++)
+		{
+			emigration.mColony.update();
+		}
+	}
+
+	/**
+	 * Benchmarks AntColony.update, updating every scout, with the scouts bit-packed off the heap
+	 *
+	 * @param emigration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public void colonyUpdatePacked(PackedEmigration emigration)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < UPDATES; l1++)
+		{
+			emigration.mColony.update();
+		}
+	}
+
+	/**
+	 * Benchmarks AntColony.update, updating every scout, in partitions of 128 scouts spread over the
+	 * common ForkJoinPool
+	 *
+	 * @param emigration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public void colonyUpdatePartitioned(PartitionedEmigration emigration)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < UPDATES; l1++)
+		{
+			emigration.mColony.update();
+		}
+	}
+
+	/**
+	 * Benchmarks Ant.update, updating every scout in turn (divide by the number of scouts, one
+	 * per ten ants, for the time of one scout's update)
+	 *
+	 * @param emigration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public void antUpdate(Emigration emigration)
+	{
+		Ant ant = emigration.mColony.getAnt();
+		int l1, l2;
+
+		for (l1 = 0; l1 < UPDATES; l1++)
+		{
+			for (l2 = 0; l2 < emigration.mNumScouts; l2++)
+			{
+				ant.update(l2);
+			}
+		}
+	}
+
+	/**
+	 * Benchmarks AntColony.recruitScoutToSite, by tandem run (preferring scouts without a
+	 * preference), to each of the sites other than the home nest in turn. Once every scout has a
+	 * preference, most attempts are turned down, as late in an emigration.
+	 *
+	 * @param colony (!= null)
+	 *
+	 * @return whether a scout was recruited
+	 *
+	 */
+	@Benchmark
+	public boolean recruitScoutToSite(Colony colony)
+	{
+		NestSite nestSite = colony.mColony.getNestSite(colony.mNextSite);
+
+		colony.mNextSite = (colony.mNextSite == colony.numNestSites - 1) ? 1 : colony.mNextSite + 1;
+
+		return colony.mColony.recruitScoutToSite(nestSite, false, false);
+	}
+
+	/**
+	 * Benchmarks AntColony.eventOccurs, with a probability strictly between 0 and 1 (so a number
+	 * is drawn)
+	 *
+	 * @param colony (!= null)
+	 *
+	 * @return whether the event occurred
+	 *
+	 */
+	@Benchmark
+	public boolean eventOccurs(Colony colony)
+	{
+		return colony.mColony.eventOccurs(colony.mColony.getStartScoutingProb());
+	}
+}
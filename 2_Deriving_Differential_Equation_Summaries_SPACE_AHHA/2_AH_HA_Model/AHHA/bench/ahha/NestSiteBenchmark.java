@@ -0,0 +1,186 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of a nest site's hot paths: joining and leaving a quorum, getting quorum sizes,
+ * and discovering a random neighbour, weighted by distance or not (through the landscape, as
+ * AntColony.getRandomNeighbour does). See BenchmarkColonies for the landscape and how to run them.
+ *
+ * The nest sites are shared by several colonies, as in a multi-colony run, and the operations
+ * cycle through the sites and colonies so no one site's counts stay in a register.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class NestSiteBenchmark
+{
+	/** The number of ants in each colony */
+	@Param({"100", "1000", "10000"})
+	public int colonySize;
+	/** The number of nest sites, including the home nest */
+	@Param({"3", "10", "50"})
+	public int numNestSites;
+	/** The number of colonies sharing the nest sites */
+	@Param({"1", "4"})
+	public int numColonies;
+	/** The nest sites, indexed by id */
+	private NestSite[] mNestSites;
+	/** The landscape of the nest sites */
+	private Landscape mLandscape;
+	/** The colonies */
+	private AntColony[] mColonies;
+	/** The random number stream neighbours are drawn from */
+	private RandomStream mRandom;
+	/** The nest site of the next operation */
+	private int mNextSite;
+	/** The colony of the next operation */
+	private int mNextColony;
+
+	/**
+	 * Builds the nest sites and colonies
+	 *
+	 * @return void
+	 *
+	 */
+	@Setup(Level.Trial)
+	public void build()
+	{
+		RandomStream random = new RandomStream(0);
+		int l1;
+
+		mNestSites = BenchmarkColonies.buildNestSites(numNestSites, numColonies, random);
+		mLandscape = new Landscape(mNestSites);
+		mColonies = new AntColony[numColonies];
+		for (l1 = 0; l1 < numColonies; l1++)
+		{
+			mColonies[l1] = BenchmarkColonies.buildColony(l1, colonySize, mLandscape, random, false);
+		}
+		mRandom = random.split();
+		mNextSite = 0;
+		mNextColony = 0;
+	}
+
+	/**
+	 * Gets the nest site of the next operation, and moves on to the next
+	 *
+	 * @return nest site
+	 *
+	 */
+	private NestSite nextSite()
+	{
+		NestSite nestSite = mNestSites[mNextSite];
+
+		mNextSite = (mNextSite == mNestSites.length - 1) ? 0 : mNextSite + 1;
+
+		return nestSite;
+	}
+
+	/**
+	 * Gets the colony of the next operation, and moves on to the next
+	 *
+	 * @return colony
+	 *
+	 */
+	private AntColony nextColony()
+	{
+		AntColony colony = mColonies[mNextColony];
+
+		mNextColony = (mNextColony == mColonies.length - 1) ? 0 : mNextColony + 1;
+
+		return colony;
+	}
+
+	/**
+	 * Benchmarks NestSite.incrementQuorumSize and NestSite.decrementQuorumSize, a scout joining a
+	 * nest site's quorum and leaving it again
+	 *
+	 * @return void
+	 *
+	 */
+	@Benchmark
+	public void incrementDecrementQuorumSize()
+	{
+		NestSite nestSite = nextSite();
+		AntColony colony = nextColony();
+
+		nestSite.incrementQuorumSize(colony, 1, true);
+		nestSite.decrementQuorumSize(colony, 1, true);
+	}
+
+	/**
+	 * Benchmarks NestSite.getQuorumSize, summed over the colonies
+	 *
+	 * @return quorum size
+	 *
+	 */
+	@Benchmark
+	public int getQuorumSize()
+	{
+		return nextSite().getQuorumSize();
+	}
+
+	/**
+	 * Benchmarks NestSite.getQuorumSize for one colony
+	 *
+	 * @return quorum size
+	 *
+	 */
+	@Benchmark
+	public int getColonyQuorumSize()
+	{
+		return nextSite().getQuorumSize(nextColony());
+	}
+
+	/**
+	 * Benchmarks Landscape.getRandomNeighbour (as AntColony.getRandomNeighbour), weighted by distance
+	 *
+	 * @return id of neighbour
+	 *
+	 */
+	@Benchmark
+	public int getLandscapeRandomNeighbourWeighted()
+	{
+		return mLandscape.getRandomNeighbour(nextSite().getId(), true, mRandom);
+	}
+
+	/**
+	 * Benchmarks Landscape.getRandomNeighbour (as AntColony.getRandomNeighbour), uniform over the neighbours
+	 *
+	 * @return id of neighbour
+	 *
+	 */
+	@Benchmark
+	public int getLandscapeRandomNeighbourUniform()
+	{
+		return mLandscape.getRandomNeighbour(nextSite().getId(), false, mRandom);
+	}
+}
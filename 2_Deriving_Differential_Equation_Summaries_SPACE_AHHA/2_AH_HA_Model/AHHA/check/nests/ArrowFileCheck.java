@@ -0,0 +1,509 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import ahha.RandomStream;
+
+/**
+ * Checks the Arrow IPC files ArrowFile writes by reading them back: the schema (each column's
+ * name and type), the record batches (each batch's length and its columns' lengths) and every
+ * column value.
+ *
+ * The files are read by a small reader of the Arrow IPC file format written from the format's
+ * specification, not from ArrowFile: it follows the footer to the schema and the record batch
+ * blocks, and each block to its Message and RecordBatch tables and the body's buffers. Three
+ * tables are checked: one of every column type spanning two record batches (with negative, non
+ * integral and non-ASCII values), one without any rows, and the per-tick role counts of a run,
+ * which must be the same as the run's text results.
+ *
+ */
+public class ArrowFileCheck
+{
+	/** The number of rows after the first record batch of the table of every column type */
+	private static final int EXTRA_ROWS = 1000;
+	/** The Arrow Type union ids of ArrowFile.INT, DOUBLE, BOOLEAN and STRING */
+	private static final int[] TYPE_IDS = {2, 3, 6, 5};
+	/** The Run column's value in the run's table */
+	private static final int RUN_ID = 7;
+
+	/**
+	 * A table read back from an Arrow IPC file
+	 *
+	 */
+	private static class Table
+	{
+		/** The names of the columns */
+		private final List<String> mNames = new ArrayList<String>();
+		/** The type of each column (ArrowFile.INT, DOUBLE, BOOLEAN or STRING) */
+		private final List<Integer> mTypes = new ArrayList<Integer>();
+		/** The number of rows in each record batch */
+		private final List<Long> mBatchLengths = new ArrayList<Long>();
+		/** The values of each column, over all the record batches */
+		private final List<List<Object>> mValues = new ArrayList<List<Object>>();
+	}
+
+	/**
+	 * Gets the position of a field of a FlatBuffers table
+	 *
+	 * @param buffer (!= null)
+	 * @param table position of the table
+	 * @param field index of the field in the table's vtable
+	 *
+	 * @return position of the field's value (0 if the field is absent, i.e. has its default value)
+	 *
+	 */
+	private static int getField(ByteBuffer buffer, int table, int field)
+	{
+		int vtable = table - buffer.getInt(table);
+		int offset;
+
+		if (4 + 2 * field >= (buffer.getShort(vtable) & 0xFFFF))
+		{
+			return 0;
+		}
+		offset = buffer.getShort(vtable + 4 + 2 * field) & 0xFFFF;
+
+		return (offset == 0) ? 0 : table + offset;
+	}
+
+	/**
+	 * Follows an offset (to a table, vector or string) held in a field of a FlatBuffers table
+	 *
+	 * @param buffer (!= null)
+	 * @param table position of the table
+	 * @param field index of the field (which must be present)
+	 *
+	 * @return position the offset refers to
+	 *
+	 */
+	private static int getReference(ByteBuffer buffer, int table, int field)
+	{
+		int position = getField(buffer, table, field);
+
+		Checks.check(position != 0, "missing field " + field + " of the table at " + table);
+
+		return position + buffer.getInt(position);
+	}
+
+	/**
+	 * Gets an integer field of a FlatBuffers table
+	 *
+	 * @param buffer (!= null)
+	 * @param table position of the table
+	 * @param field index of the field
+	 * @param size of the field in bytes (1, 2, 4 or 8)
+	 *
+	 * @return value (0 if the field is absent)
+	 *
+	 */
+	private static long getScalar(ByteBuffer buffer, int table, int field, int size)
+	{
+		int position = getField(buffer, table, field);
+
+		if (position == 0)
+		{
+			return 0;
+		}
+		switch (size)
+		{
+			case 1:
+				return buffer.get(position);
+			case 2:
+				return buffer.getShort(position);
+			case 4:
+				return buffer.getInt(position);
+			default:
+				return buffer.getLong(position);
+		}
+	}
+
+	/**
+	 * Gets a FlatBuffers string
+	 *
+	 * @param buffer (!= null)
+	 * @param position of the string's length
+	 *
+	 * @return string
+	 *
+	 */
+	private static String getString(ByteBuffer buffer, int position)
+	{
+		byte[] bytes = new byte[buffer.getInt(position)];
+		ByteBuffer view = buffer.duplicate();
+
+		view.position(position + 4);
+		view.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads an Arrow IPC file
+	 *
+	 * @param file (!= null)
+	 *
+	 * @return table
+	 *
+	 */
+	private static Table read(File file) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		Table table = new Table();
+		byte[] magic = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+		int size = buffer.limit(), footer, schema, fields, field, type, typeId, batches, block, l1;
+
+		for (l1 = 0; l1 < magic.length; l1++)
+		{
+			Checks.check(buffer.get(l1) == magic[l1] && buffer.get(size - magic.length + l1) == magic[l1], "file does not start and end with ARROW1");
+		}
+		footer = size - magic.length - 4 - buffer.getInt(size - magic.length - 4);
+		footer += buffer.getInt(footer);
+		schema = getReference(buffer, footer, 1);
+		checkMessage(buffer, magic.length + 2, 1);
+		// Schema {endianness, fields, ...}; Field {name, nullable, type_type, type, ...}
+		Checks.check(getScalar(buffer, schema, 0, 2) == 0, "schema is not little-endian");
+		fields = getReference(buffer, schema, 1);
+		for (l1 = 0; l1 < buffer.getInt(fields); l1++)
+		{
+			field = fields + 4 + 4 * l1;
+			field += buffer.getInt(field);
+			table.mNames.add(getString(buffer, getReference(buffer, field, 0)));
+			Checks.check(getScalar(buffer, field, 1, 1) == 0, "column " + l1 + " is nullable");
+			typeId = (int) getScalar(buffer, field, 2, 1);
+			type = getReference(buffer, field, 3);
+			for (block = 0; block < TYPE_IDS.length && TYPE_IDS[block] != typeId; block++)
+			{
+			}
+			Checks.check(block < TYPE_IDS.length, "column " + l1 + " has type id " + typeId);
+			table.mTypes.add(block);
+			if (block == ArrowFile.INT)
+			{
+				// Int {bitWidth, is_signed}
+				Checks.check(getScalar(buffer, type, 0, 4) == 32 && getScalar(buffer, type, 1, 1) == 1, "column " + l1 + " is not a signed 32-bit integer");
+			}
+			else if (block == ArrowFile.DOUBLE)
+			{
+				// FloatingPoint {precision}
+				Checks.check(getScalar(buffer, type, 0, 2) == 2, "column " + l1 + " is not double precision");
+			}
+			table.mValues.add(new ArrayList<Object>());
+		}
+		// Footer {version, schema, dictionaries, recordBatches}; Block {offset, metaDataLength, bodyLength}
+		Checks.check(buffer.getInt(getReference(buffer, footer, 2)) == 0, "file has dictionaries");
+		batches = getReference(buffer, footer, 3);
+		for (l1 = 0; l1 < buffer.getInt(batches); l1++)
+		{
+			block = batches + 4 + 24 * l1;
+			readBatch(buffer, (int) buffer.getLong(block), buffer.getInt(block + 8), buffer.getLong(block + 16), table);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Checks an encapsulated message's framing and header type
+	 *
+	 * @param buffer (!= null)
+	 * @param position of the message's continuation marker
+	 * @param headerType expected MessageHeader union id
+	 *
+	 * @return position of the Message table
+	 *
+	 */
+	private static int checkMessage(ByteBuffer buffer, int position, int headerType)
+	{
+		int message;
+
+		Checks.check(buffer.getInt(position) == 0xFFFFFFFF, "no continuation marker at " + position);
+		Checks.check(buffer.getInt(position + 4) % 8 == 0, "metadata at " + position + " is not padded to 8 bytes");
+		message = position + 8 + buffer.getInt(position + 8);
+		// Message {version, header_type, header, bodyLength}
+		Checks.check(getScalar(buffer, message, 0, 2) == 4, "message at " + position + " is not metadata version V5");
+		Checks.check(getScalar(buffer, message, 1, 1) == headerType, "message at " + position + " has header type " + getScalar(buffer, message, 1, 1));
+
+		return message;
+	}
+
+	/**
+	 * Reads a record batch, adding its rows to a table
+	 *
+	 * @param buffer (!= null)
+	 * @param position of the batch's message
+	 * @param metadataLength length of the message's framing and metadata (as given by the footer)
+	 * @param bodyLength (as given by the footer)
+	 * @param table with its schema read (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void readBatch(ByteBuffer buffer, int position, int metadataLength, long bodyLength, Table table)
+	{
+		int message = checkMessage(buffer, position, 3), body = position + metadataLength, recordBatch, nodes, buffers, next, column;
+		long length, bufferOffset;
+		int[] offsets;
+		List<Object> values;
+		int l1, l2;
+
+		Checks.check(metadataLength == 8 + buffer.getInt(position + 4), "footer's metadata length differs from the message's");
+		Checks.check(getScalar(buffer, message, 3, 8) == bodyLength, "footer's body length differs from the message's");
+		recordBatch = getReference(buffer, message, 2);
+		// RecordBatch {length, nodes, buffers}; FieldNode {length, null_count}; Buffer {offset, length}
+		length = getScalar(buffer, recordBatch, 0, 8);
+		table.mBatchLengths.add(length);
+		nodes = getReference(buffer, recordBatch, 1);
+		buffers = getReference(buffer, recordBatch, 2);
+		Checks.check(buffer.getInt(nodes) == table.mNames.size(), "batch has " + buffer.getInt(nodes) + " field nodes");
+		next = 0;
+		for (l1 = 0; l1 < table.mNames.size(); l1++)
+		{
+			Checks.check(buffer.getLong(nodes + 4 + 16 * l1) == length && buffer.getLong(nodes + 12 + 16 * l1) == 0, "column " + l1 + "'s length or null count differs from the batch's");
+			values = table.mValues.get(l1);
+			// skip the validity bitmap (there are no nulls)
+			next++;
+			offsets = new int[2];
+			for (l2 = 0; l2 < ((table.mTypes.get(l1) == ArrowFile.STRING) ? 2 : 1); l2++)
+			{
+				bufferOffset = buffer.getLong(buffers + 4 + 16 * next);
+				Checks.check(bufferOffset % 8 == 0 && bufferOffset + buffer.getLong(buffers + 12 + 16 * next) <= bodyLength, "buffer " + next + " is not aligned or lies beyond the batch's body");
+				offsets[l2] = body + (int) bufferOffset;
+				next++;
+			}
+			for (l2 = 0; l2 < length; l2++)
+			{
+				column = table.mTypes.get(l1);
+				if (column == ArrowFile.INT)
+				{
+					values.add(buffer.getInt(offsets[0] + 4 * l2));
+				}
+				else if (column == ArrowFile.DOUBLE)
+				{
+					values.add(buffer.getDouble(offsets[0] + 8 * l2));
+				}
+				else if (column == ArrowFile.BOOLEAN)
+				{
+					values.add((buffer.get(offsets[0] + (l2 >>> 3)) & (1 << (l2 & 7))) != 0);
+				}
+				else
+				{
+					values.add(getText(buffer, offsets[1] + buffer.getInt(offsets[0] + 4 * l2), buffer.getInt(offsets[0] + 4 * (l2 + 1)) - buffer.getInt(offsets[0] + 4 * l2)));
+				}
+			}
+		}
+		Checks.check(buffer.getInt(buffers) == next, "batch has " + buffer.getInt(buffers) + " buffers rather than " + next);
+	}
+
+	/**
+	 * Gets UTF-8 text from a buffer
+	 *
+	 * @param buffer (!= null)
+	 * @param position of the first byte
+	 * @param length number of bytes
+	 *
+	 * @return text
+	 *
+	 */
+	private static String getText(ByteBuffer buffer, int position, int length)
+	{
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+
+		view.position(position);
+		view.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets a value of the table of every column type
+	 *
+	 * @param column index (as ArrowFile.INT etc.)
+	 * @param row index
+	 *
+	 * @return value
+	 *
+	 */
+	private static Object getValue(int column, int row)
+	{
+		switch (column)
+		{
+			case ArrowFile.INT:
+				return row * 7 - 3;
+			case ArrowFile.DOUBLE:
+				return row / 3.0 - 1;
+			case ArrowFile.BOOLEAN:
+				return row % 3 == 0;
+			default:
+				return "row " + row + ((row % 5 == 0) ? " \u00e9\u4e2d" : "");
+		}
+	}
+
+	/**
+	 * Checks a table of every column type, spanning two record batches
+	 *
+	 * @param file to write to (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkRoundTrip(File file) throws IOException
+	{
+		ArrowFile arrow = new ArrowFile(file.getPath());
+		String[] names = {"Int", "Double", "Boolean", "String"};
+		int numRows = ArrowFile.BATCH_ROWS + EXTRA_ROWS;
+		Table table;
+		int l1, l2;
+
+		for (l1 = 0; l1 < names.length; l1++)
+		{
+			arrow.addColumn(names[l1], l1);
+		}
+		for (l1 = 0; l1 < numRows; l1++)
+		{
+			arrow.setInt(ArrowFile.INT, (Integer) getValue(ArrowFile.INT, l1));
+			arrow.setDouble(ArrowFile.DOUBLE, (Double) getValue(ArrowFile.DOUBLE, l1));
+			arrow.setBoolean(ArrowFile.BOOLEAN, (Boolean) getValue(ArrowFile.BOOLEAN, l1));
+			arrow.setString(ArrowFile.STRING, (String) getValue(ArrowFile.STRING, l1));
+			arrow.endRow();
+		}
+		arrow.close();
+		table = read(file);
+		Checks.check(table.mNames.equals(Arrays.asList(names)), "column names " + table.mNames);
+		Checks.check(table.mTypes.equals(Arrays.asList(ArrowFile.INT, ArrowFile.DOUBLE, ArrowFile.BOOLEAN, ArrowFile.STRING)), "column types " + table.mTypes);
+		Checks.check(table.mBatchLengths.equals(Arrays.asList((long) ArrowFile.BATCH_ROWS, (long) EXTRA_ROWS)), "batch lengths " + table.mBatchLengths);
+		for (l1 = 0; l1 < names.length; l1++)
+		{
+			for (l2 = 0; l2 < numRows; l2++)
+			{
+				Checks.check(table.mValues.get(l1).get(l2).equals(getValue(l1, l2)), "column " + names[l1] + " row " + l2 + " is " + table.mValues.get(l1).get(l2) + " rather than " + getValue(l1, l2));
+			}
+		}
+	}
+
+	/**
+	 * Checks a table without any rows
+	 *
+	 * @param file to write to (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkEmpty(File file) throws IOException
+	{
+		ArrowFile arrow = new ArrowFile(file.getPath());
+		Table table;
+
+		arrow.addColumn("Run", ArrowFile.INT);
+		arrow.addColumn("Outcome", ArrowFile.STRING);
+		arrow.close();
+		table = read(file);
+		Checks.check(table.mNames.equals(Arrays.asList("Run", "Outcome")), "empty table's column names " + table.mNames);
+		Checks.check(table.mBatchLengths.isEmpty(), "empty table has batches " + table.mBatchLengths);
+	}
+
+	/**
+	 * Checks a run's table of per-tick role counts against its text results
+	 *
+	 * @param file to write to (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkRun(File file) throws IOException
+	{
+		StringWriter text = new StringWriter();
+		NestsEngine engine = new NestsEngine(new NestsParameters(), RandomStream.forRun(0, 0, 0), new StringWriter(), new PrintWriter(text));
+		String[] lines, fields;
+		List<String> names;
+		Table table;
+		int l1, l2;
+
+		engine.setResultsTable(new ArrowFile(file.getPath()), RUN_ID);
+		engine.run();
+		table = read(file);
+		lines = text.toString().split("\n");
+		names = new ArrayList<String>(Arrays.asList("Run", "Tick"));
+		for (String name : lines[0].split(","))
+		{
+			if (name.trim().length() > 0)
+			{
+				names.add(name.trim());
+			}
+		}
+		Checks.check(table.mNames.equals(names), "run's column names " + table.mNames + " rather than " + names);
+		Checks.check(lines.length > 1 && table.mValues.get(0).size() == lines.length - 1 && engine.getTickCount() == lines.length - 1, "run's table has " + table.mValues.get(0).size() + " rows, text " + (lines.length - 1) + ", ticks " + engine.getTickCount());
+		for (l1 = 1; l1 < lines.length; l1++)
+		{
+			fields = lines[l1].split(",");
+			Checks.check(table.mValues.get(0).get(l1 - 1).equals(RUN_ID) && table.mValues.get(1).get(l1 - 1).equals(l1), "run's row " + l1 + " has the wrong run or tick");
+			for (l2 = 2; l2 < names.size(); l2++)
+			{
+				Checks.check(table.mValues.get(l2).get(l1 - 1).equals(Integer.parseInt(fields[l2 - 2].trim())), "run's row " + l1 + " column " + names.get(l2) + " differs from the text results");
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		File file = null;
+
+		try
+		{
+			file = File.createTempFile("ArrowFileCheck", ".arrow");
+			checkRoundTrip(file);
+			checkEmpty(file);
+			checkRun(file);
+		}
+		catch (IOException exception)
+		{
+			throw new RuntimeException("ArrowFileCheck.run: " + exception.getMessage(), exception);
+		}
+		finally
+		{
+			if (file != null)
+			{
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("ArrowFileCheck: passed");
+	}
+}
@@ -0,0 +1,136 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+/**
+ * Runs the checks of the model and its output (PartitionCheck and the others in the check source
+ * folder), reporting each one, and exits with status 1 if any fails.
+ *
+ * The checks are in the check source folder, alongside src, so they are not part of the model.
+ * They need nothing but the model's libraries: compile both folders with them on the class path,
+ * then run nests.Checks from the same class path (or a single check's own main method).
+ *
+ */
+public final class Checks
+{
+	/**
+	 * Fails a check if a condition does not hold
+	 *
+	 * @param condition that should hold
+	 * @param message describing the failure (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * Runs a check, reporting whether it passed
+	 *
+	 * @param name of the check (!= null)
+	 * @param check (!= null)
+	 *
+	 * @return true if the check passed, false otherwise
+	 *
+	 */
+	private static boolean run(String name, Runnable check)
+	{
+		try
+		{
+			check.run();
+			System.out.println(name + ": passed");
+
+			return true;
+		}
+		catch (RuntimeException exception)
+		{
+			System.out.println(name + ": FAILED (" + exception.getMessage() + ")");
+
+			return false;
+		}
+	}
+
+	/**
+	 * Runs every check
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		boolean passed = true;
+
+		passed &= run("PartitionCheck", new Runnable()
+		{
+			public void run()
+			{
+				PartitionCheck.run();
+			}
+		});
+		passed &= run("EquivalenceCheck", new Runnable()
+		{
+			public void run()
+			{
+				EquivalenceCheck.run();
+			}
+		});
+		passed &= run("ArrowFileCheck", new Runnable()
+		{
+			public void run()
+			{
+				ArrowFileCheck.run();
+			}
+		});
+		passed &= run("DeltaCodecCheck", new Runnable()
+		{
+			public void run()
+			{
+				DeltaCodecCheck.run();
+			}
+		});
+		passed &= run("SmoothingSplineCheck", new Runnable()
+		{
+			public void run()
+			{
+				SmoothingSplineCheck.run();
+			}
+		});
+		passed &= run("QuantileSketchCheck", new Runnable()
+		{
+			public void run()
+			{
+				QuantileSketchCheck.run();
+			}
+		});
+		if (!passed)
+		{
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Checks constructor (not used)
+	 *
+	 */
+	private Checks()
+	{
+	}
+}
@@ -0,0 +1,268 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import ahha.RandomStream;
+
+/**
+ * Checks that DeltaCodec.Decoder rebuilds exactly the rows DeltaCodec.Sink encodes.
+ *
+ * Three kinds of stream are checked: rows of a few columns and of thousands, mixing runs of
+ * unchanged rows with changes to a few columns or to about half of them (so the columns that
+ * changed are recorded both as lists and as bitmaps), ticks that jump or go back, and
+ * differences of any size, written in batches of several sizes; the per-tick role counts of runs on the three nests
+ * set by the nest parameters and on a landscape of hundreds of nests, which must be the same as
+ * the runs' text results; and a stream without any rows.
+ *
+ */
+public class DeltaCodecCheck
+{
+	/** The number of rows of each random stream */
+	private static final int NUM_ROWS = 5000;
+	/** The row lengths (with the tick) of the random streams, either side of where the bitmap of changed columns takes another word, up to that of a landscape of 1000 nests */
+	private static final int[] ROW_LENGTHS = {2, 14, 62, 63, 126, 127, EmigrationEngine.getRowLength(1000)};
+	/** The number of nests, besides the home nest, of the landscape run */
+	private static final int NUM_LANDSCAPE_NESTS = 300;
+	/** The sizes of the batches the rows are written in, in turn */
+	private static final int[] BATCH_SIZES = {1, 7, 100, 1000};
+
+	/**
+	 * Encodes rows
+	 *
+	 * @param rows the rows, one after another (!= null)
+	 * @param rowLength number of values in each row (with the tick)
+	 *
+	 * @return encoded stream
+	 *
+	 */
+	private static byte[] encode(int[] rows, int rowLength) throws IOException
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DeltaCodec.Sink sink = new DeltaCodec.Sink(output);
+		int first = 0, numRows, l1;
+
+		for (l1 = 0; first < rows.length; l1++)
+		{
+			numRows = Math.min(BATCH_SIZES[l1 % BATCH_SIZES.length], (rows.length - first) / rowLength);
+			sink.write(rows, first, numRows, rowLength);
+			first += numRows * rowLength;
+		}
+		sink.close();
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decodes a stream
+	 *
+	 * @param bytes encoded stream (!= null)
+	 * @param rowLength expected number of values in each row (with the tick)
+	 *
+	 * @return the rows, one after another
+	 *
+	 */
+	private static int[] decode(byte[] bytes, int rowLength) throws IOException
+	{
+		DeltaCodec.Decoder decoder = new DeltaCodec.Decoder(new ByteArrayInputStream(bytes));
+		int[] rows;
+
+		Checks.check(decoder.getRowLength() == rowLength, "decoded row length " + decoder.getRowLength() + " rather than " + rowLength);
+		rows = decoder.readAll();
+		decoder.close();
+
+		return rows;
+	}
+
+	/**
+	 * Checks a random stream
+	 *
+	 * @param rowLength number of values in each row (with the tick, >= 2)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkRandom(int rowLength) throws IOException
+	{
+		RandomStream random = new RandomStream(rowLength);
+		int[] rows = new int[NUM_ROWS * rowLength];
+		int start, kind, l1, l2;
+
+		for (l1 = 1; l1 < NUM_ROWS; l1++)
+		{
+			start = l1 * rowLength;
+			System.arraycopy(rows, start - rowLength, rows, start, rowLength);
+			rows[start]++;
+			kind = random.nextIntFromTo(0, 9);
+			if (kind == 0)
+			{
+				// the tick jumps either way
+				rows[start] += random.nextIntFromTo(-1000, 1000);
+			}
+			else if (kind == 1)
+			{
+				// a difference of any size
+				rows[start + random.nextIntFromTo(1, rowLength - 1)] = (int) random.nextLongFromTo(Integer.MIN_VALUE, Integer.MAX_VALUE);
+			}
+			else if (kind < 5)
+			{
+				// small changes to a few columns, the first and last among them
+				for (l2 = 0; l2 < kind; l2++)
+				{
+					rows[start + random.nextIntFromTo(1, rowLength - 1)] += random.nextIntFromTo(-3, 3);
+				}
+				rows[start + ((kind == 2) ? 1 : rowLength - 1)]--;
+			}
+			else if (kind == 5)
+			{
+				// changes to about half the columns
+				for (l2 = 1; l2 < rowLength; l2++)
+				{
+					rows[start + l2] += random.nextIntFromTo(0, 1);
+				}
+			}
+		}
+		Checks.check(Arrays.equals(decode(encode(rows, rowLength), rowLength), rows), "rows of " + (rowLength - 1) + " columns differ once decoded");
+	}
+
+	/**
+	 * Checks a stream without any rows
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkEmpty() throws IOException
+	{
+		Checks.check(encode(new int[0], 4).length == 0, "stream without any rows is not empty");
+	}
+
+	/**
+	 * Writes a landscape file of a home nest and nests of random qualities around it
+	 *
+	 * @param file to write to (!= null)
+	 * @param numNests number of nests besides the home nest (> 0)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void writeLandscape(File file, int numNests) throws IOException
+	{
+		RandomStream random = new RandomStream(numNests);
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		int l1;
+
+		writer.printf("site 0\n");
+		for (l1 = 0; l1 < numNests; l1++)
+		{
+			writer.printf("site %d\n", random.nextIntFromTo(1, 10));
+		}
+		for (l1 = 0; l1 < numNests; l1++)
+		{
+			writer.printf("edge 1 %d %d\n", l1 + 2, random.nextIntFromTo(5, 50));
+		}
+		writer.close();
+	}
+
+	/**
+	 * Checks a run's per-tick role counts against its text results
+	 *
+	 * @param p parameters (!= null)
+	 * @param numNests number of nests the run should have (with the home nest)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkRun(NestsParameters p, int numNests) throws IOException
+	{
+		StringWriter text = new StringWriter();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		NestsEngine engine = new NestsEngine(p, RandomStream.forRun(0, 0, 0), new StringWriter(), new PrintWriter(text));
+		String[] lines, fields;
+		int[] rows;
+		int rowLength, l1, l2;
+
+		engine.addResultsSink(new DeltaCodec.Sink(output));
+		engine.run();
+		Checks.check(engine.getNumNests() == numNests, "run has " + engine.getNumNests() + " nests rather than " + numNests);
+		rowLength = EmigrationEngine.getRowLength(engine.getNumNests());
+		rows = decode(output.toByteArray(), rowLength);
+		lines = text.toString().split("\n");
+		Checks.check(lines.length > 1 && rows.length == (lines.length - 1) * rowLength, "run's stream has " + rows.length / rowLength + " rows, text " + (lines.length - 1));
+		for (l1 = 1; l1 < lines.length; l1++)
+		{
+			fields = lines[l1].split(",");
+			Checks.check(rows[(l1 - 1) * rowLength] == l1, "run's row " + l1 + " has tick " + rows[(l1 - 1) * rowLength]);
+			for (l2 = 1; l2 < rowLength; l2++)
+			{
+				Checks.check(rows[(l1 - 1) * rowLength + l2] == Integer.parseInt(fields[l2 - 1].trim()), "run's row " + l1 + " column " + l2 + " differs from the text results");
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		NestsParameters p = new NestsParameters();
+		File landscape = null;
+
+		try
+		{
+			for (int rowLength : ROW_LENGTHS)
+			{
+				checkRandom(rowLength);
+			}
+			checkEmpty();
+			checkRun(p, 3);
+			landscape = File.createTempFile("DeltaCodecCheck", ".txt");
+			writeLandscape(landscape, NUM_LANDSCAPE_NESTS);
+			p.setLandscapeFile(landscape.getPath());
+			checkRun(p, NUM_LANDSCAPE_NESTS + 1);
+		}
+		catch (IOException exception)
+		{
+			throw new RuntimeException("DeltaCodecCheck.run: " + exception.getMessage(), exception);
+		}
+		finally
+		{
+			if (landscape != null)
+			{
+				landscape.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("DeltaCodecCheck: passed");
+	}
+}
@@ -0,0 +1,236 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import ahha.RandomStream;
+
+/**
+ * Checks that an event driven colony (see AntColony.setEventDriven) and a colony of bit-packed
+ * scouts (see PackedAntStore) give exactly the same results as a colony updating every scout each
+ * tick and holding them in arrays.
+ *
+ * Each configuration is run REPLICATES times in every mode: plain, event driven, packed, and both
+ * packed and event driven. Each run's summary and its per-tick role counts (the text results)
+ * must be the same, character for character, as the plain run from the same random stream. The
+ * configurations cover the default colony, several colonies sharing the nests, the Pratt et al EBM
+ * equivalent colony, frequent reverse tandem-runs, scouts that take time to assess nest sites,
+ * quality noise and stop scouting (so more scouts are parked by the event driven colony), scouts
+ * that do not compare nest sites' qualities (so many runs last until they are halted), and a
+ * landscape of many nests.
+ *
+ */
+public class EquivalenceCheck
+{
+	/** The number of runs of each configuration in each mode */
+	private static final int REPLICATES = 8;
+	/** The number of nests, besides the home nest, of the landscape configuration */
+	private static final int NUM_LANDSCAPE_NESTS = 30;
+	/** The configurations checked */
+	private static final int DEFAULT = 0, COLONIES = 1, PRATT = 2, REVERSE_TANDEM_RUNS = 3, ASSESSING = 4, UNCOMPARED = 5, LANDSCAPE = 6, NUM_CONFIGURATIONS = 7;
+	/** The names of the configurations (indexed as DEFAULT etc.) */
+	private static final String[] CONFIGURATION_NAMES = {"default", "three colonies", "Pratt et al EBM equivalent", "reverse tandem-runs", "assessing", "qualities not compared", "landscape"};
+	/** The modes compared with the plain one: event driven, packed, and both (indexed as {eventDriven, packedScouts}) */
+	private static final boolean[][] MODES = {{true, false}, {false, true}, {true, true}};
+
+	/**
+	 * Gets the parameters of a configuration
+	 *
+	 * @param configuration (DEFAULT etc.)
+	 * @param landscape file of the landscape configuration (!= null)
+	 *
+	 * @return parameters
+	 *
+	 */
+	private static NestsParameters getParameters(int configuration, File landscape)
+	{
+		NestsParameters p = new NestsParameters();
+
+		switch (configuration)
+		{
+			case COLONIES:
+				p.setNumColonies(3);
+				break;
+			case PRATT:
+				p.setPrattEbmEquivalent(true);
+				break;
+			case REVERSE_TANDEM_RUNS:
+				p.setReverseTandemRunProb(0.5);
+				break;
+			case ASSESSING:
+				p.setAssessmentDelay(8);
+				p.setNestQualityStdDev(3);
+				p.setStopScoutingProb(0.01);
+				break;
+			case UNCOMPARED:
+				p.setCompareNestSiteQualities(false);
+				break;
+			case LANDSCAPE:
+				p.setLandscapeFile(landscape.getPath());
+				break;
+			default:
+				break;
+		}
+
+		return p;
+	}
+
+	/**
+	 * Writes a landscape file of a home nest and nests of random qualities around it
+	 *
+	 * @param file to write to (!= null)
+	 * @param numNests number of nests besides the home nest (> 0)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void writeLandscape(File file, int numNests) throws IOException
+	{
+		RandomStream random = new RandomStream(numNests);
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		int l1;
+
+		writer.printf("site 0\n");
+		for (l1 = 0; l1 < numNests; l1++)
+		{
+			writer.printf("site %d\n", random.nextIntFromTo(1, 30));
+		}
+		for (l1 = 0; l1 < numNests; l1++)
+		{
+			writer.printf("edge 1 %d %d\n", l1 + 2, random.nextIntFromTo(20, 200));
+		}
+		writer.close();
+	}
+
+	/**
+	 * Makes a run
+	 *
+	 * @param p parameters (!= null)
+	 * @param replicate number of the run (each draws from its own random stream)
+	 *
+	 * @return run's summary, then its text results
+	 *
+	 */
+	private static String makeRun(NestsParameters p, int replicate)
+	{
+		StringWriter results = new StringWriter();
+		NestsEngine engine = new NestsEngine(p, RandomStream.forRun(0, 0, replicate), new StringWriter(), new PrintWriter(results));
+		String summary = engine.run();
+
+		return summary + "\n" + results.toString();
+	}
+
+	/**
+	 * Checks that a configuration's runs are the same in every mode
+	 *
+	 * @param configuration (DEFAULT etc.)
+	 * @param landscape file of the landscape configuration (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkConfiguration(int configuration, File landscape)
+	{
+		NestsParameters p = getParameters(configuration, landscape);
+		String expected, run;
+		int l1;
+
+		for (l1 = 0; l1 < REPLICATES; l1++)
+		{
+			expected = makeRun(p, l1);
+			for (boolean[] mode : MODES)
+			{
+				p.setEventDriven(mode[0]);
+				p.setPackedScouts(mode[1]);
+				run = makeRun(p, l1);
+				Checks.check(run.equals(expected), CONFIGURATION_NAMES[configuration] + " run " + l1 + " differs" + (mode[0] ? " event driven" : "") + (mode[1] ? " packed" : "") + " at character " + getFirstDifference(run, expected));
+			}
+			p.setEventDriven(false);
+			p.setPackedScouts(false);
+		}
+	}
+
+	/**
+	 * Gets the index of the first character at which two strings differ
+	 *
+	 * @param a (!= null)
+	 * @param b (!= null)
+	 *
+	 * @return index (the shorter string's length if one begins the other)
+	 *
+	 */
+	private static int getFirstDifference(String a, String b)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < Math.min(a.length(), b.length()); l1++)
+		{
+			if (a.charAt(l1) != b.charAt(l1))
+			{
+				break;
+			}
+		}
+
+		return l1;
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		File landscape = null;
+		int l1;
+
+		try
+		{
+			landscape = File.createTempFile("EquivalenceCheck", ".txt");
+			writeLandscape(landscape, NUM_LANDSCAPE_NESTS);
+			for (l1 = 0; l1 < NUM_CONFIGURATIONS; l1++)
+			{
+				checkConfiguration(l1, landscape);
+			}
+		}
+		catch (IOException exception)
+		{
+			throw new RuntimeException("EquivalenceCheck.run: " + exception.getMessage(), exception);
+		}
+		finally
+		{
+			if (landscape != null)
+			{
+				landscape.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("EquivalenceCheck: passed");
+	}
+}
@@ -0,0 +1,301 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import ahha.RandomStream;
+
+/**
+ * Checks the colony's parallel update (see AntColony.setPartitionSize): that its results do not
+ * depend on the number of threads, and that its emigrations are about the same as those of a
+ * sequential update.
+ *
+ * Each check runs the default colony and the Pratt et al EBM equivalent one. The partitioned runs
+ * are made on fork-join pools of 1, 2, 4 and 8 threads (the colony's partitions are updated on the
+ * pool it is updated from), and every run's summary must be the same on each. REPLICATES runs are
+ * then made each way, and the partitioned runs must not differ significantly from the sequential
+ * ones in the fraction completing their emigrations (runs ending with
+ * AntColony.emigrationCompleted, ColonySplit false in the summary): a two-proportion z-test must
+ * give |z| < MAX_Z. Nor may they differ in the mean TimeToCompletion and NumRecruitmentActs of the
+ * runs that complete by significantly more than MARGIN of the sequential mean: the difference of
+ * the means, less the margin, must be under MAX_Z standard errors (the Pratt colony makes about
+ * 1% more recruitment acts partitioned, which a bare z-test over this many runs picks up). The
+ * runs that do not complete are not compared by time: their TimeToCompletion is when their
+ * quorums last changed, and fewer partitioned runs are still changing when they stop (see
+ * AntColony.setPartitionSize).
+ *
+ */
+public class PartitionCheck
+{
+	/** The number of runs made each way to compare the emigrations */
+	private static final int REPLICATES = 1500;
+	/** The largest z allowed for a difference between the sequential and partitioned runs */
+	private static final double MAX_Z = 3;
+	/** The difference allowed between the sequential and partitioned runs' means (relative to the sequential mean) */
+	private static final double MARGIN = 0.02;
+	/** The number of runs compared across numbers of threads */
+	private static final int DETERMINISM_REPLICATES = 20;
+	/** The number of scouts in each partition of the partitioned runs */
+	private static final int PARTITION_SIZE = 3;
+	/** The numbers of threads the partitioned runs are compared across */
+	private static final int[] NUM_THREADS = {1, 2, 4, 8};
+
+	/**
+	 * Gets the parameters of a colony checked
+	 *
+	 * @param prattEbmEquivalent (true for the Pratt et al EBM equivalent colony, false for the default one)
+	 * @param partitionSize number of scouts in each partition (0 for a sequential update)
+	 *
+	 * @return parameters
+	 *
+	 */
+	private static NestsParameters getParameters(boolean prattEbmEquivalent, int partitionSize)
+	{
+		NestsParameters p = new NestsParameters();
+
+		p.setPrattEbmEquivalent(prattEbmEquivalent);
+		p.setScoutPartitionSize(partitionSize);
+
+		return p;
+	}
+
+	/**
+	 * Makes a run
+	 *
+	 * @param p parameters (!= null)
+	 * @param replicate number of the run (each draws from its own random stream)
+	 * @param completed receives whether the colony completed its emigration (!= null, length 1)
+	 *
+	 * @return run's summary
+	 *
+	 */
+	private static String makeRun(NestsParameters p, int replicate, boolean[] completed)
+	{
+		NestsEngine engine = new NestsEngine(p, RandomStream.forRun(0, 0, replicate), new StringWriter(), null);
+		String summary = engine.run();
+
+		completed[0] = engine.getAntColony().getQuorumThreshold() == 0;
+
+		return summary;
+	}
+
+	/**
+	 * Makes REPLICATES runs and sums the outcomes of those in which the colony completes its emigration
+	 *
+	 * @param p parameters (!= null)
+	 *
+	 * @return number of runs completed, then the sum and sum of squares of their TimeToCompletion, then those of their NumRecruitmentActs
+	 *
+	 */
+	private static double[] getOutcomes(NestsParameters p)
+	{
+		List<String> header = Arrays.asList(EmigrationEngine.getLogHeader().split(","));
+		int time = header.indexOf("TimeToCompletion"), acts = header.indexOf("NumRecruitmentActs");
+		double[] outcomes = new double[5];
+		boolean[] completed = new boolean[1];
+		String[] fields;
+		double value;
+		int l1;
+
+		for (l1 = 0; l1 < REPLICATES; l1++)
+		{
+			fields = makeRun(p, l1, completed).split(",");
+			if (completed[0])
+			{
+				outcomes[0]++;
+				value = Double.parseDouble(fields[time]);
+				outcomes[1] += value;
+				outcomes[2] += value * value;
+				value = Double.parseDouble(fields[acts]);
+				outcomes[3] += value;
+				outcomes[4] += value * value;
+			}
+		}
+
+		return outcomes;
+	}
+
+	/**
+	 * Gets the z statistic of the difference between two proportions of REPLICATES runs (pooled)
+	 *
+	 * @param count1 number of runs of the first proportion
+	 * @param count2 number of runs of the second proportion
+	 *
+	 * @return z (0 if neither or both proportions are of every run)
+	 *
+	 */
+	private static double getProportionZ(double count1, double count2)
+	{
+		double pooled = (count1 + count2) / (2 * REPLICATES);
+		double error = Math.sqrt(pooled * (1 - pooled) * 2 / REPLICATES);
+
+		return (error == 0) ? 0 : (count1 - count2) / REPLICATES / error;
+	}
+
+	/**
+	 * Gets the z statistic of the difference between two means beyond a margin (unpooled)
+	 *
+	 * @param n1 number of values of the first mean (> 1)
+	 * @param sum1 sum of the values of the first mean
+	 * @param sumOfSquares1 sum of their squares
+	 * @param n2 number of values of the second mean (> 1)
+	 * @param sum2 sum of the values of the second mean
+	 * @param sumOfSquares2 sum of their squares
+	 *
+	 * @return z of the size of the difference less MARGIN of the first mean (<= 0 if within the margin)
+	 *
+	 */
+	private static double getExcessZ(double n1, double sum1, double sumOfSquares1, double n2, double sum2, double sumOfSquares2)
+	{
+		double excess = Math.abs(sum1 / n1 - sum2 / n2) - MARGIN * Math.abs(sum1 / n1);
+		double variance1 = (sumOfSquares1 - sum1 * sum1 / n1) / (n1 - 1);
+		double variance2 = (sumOfSquares2 - sum2 * sum2 / n2) / (n2 - 1);
+		double error = Math.sqrt(Math.max(variance1, 0) / n1 + Math.max(variance2, 0) / n2);
+
+		if (error == 0)
+		{
+			return (excess > 0) ? Double.POSITIVE_INFINITY : 0;
+		}
+
+		return excess / error;
+	}
+
+	/**
+	 * Makes runs on a fork-join pool of a given number of threads
+	 *
+	 * @param p parameters (!= null)
+	 * @param numThreads (> 0)
+	 *
+	 * @return the runs' summaries
+	 *
+	 */
+	private static String[] runOnPool(final NestsParameters p, int numThreads)
+	{
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+		try
+		{
+			return pool.submit(new Callable<String[]>()
+			{
+				public String[] call()
+				{
+					String[] summaries = new String[DETERMINISM_REPLICATES];
+					boolean[] completed = new boolean[1];
+					int l1;
+
+					for (l1 = 0; l1 < DETERMINISM_REPLICATES; l1++)
+					{
+						summaries[l1] = makeRun(p, l1, completed);
+					}
+
+					return summaries;
+				}
+			}).get();
+		}
+		catch (InterruptedException exception)
+		{
+			throw new RuntimeException("PartitionCheck.runOnPool: interrupted");
+		}
+		catch (ExecutionException exception)
+		{
+			throw new RuntimeException("PartitionCheck.runOnPool: run failed", exception.getCause());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Checks that a colony's partitioned runs are the same on any number of threads
+	 *
+	 * @param prattEbmEquivalent (true for the Pratt et al EBM equivalent colony, false for the default one)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkDeterminism(boolean prattEbmEquivalent)
+	{
+		NestsParameters p = getParameters(prattEbmEquivalent, PARTITION_SIZE);
+		String[] expected = runOnPool(p, NUM_THREADS[0]);
+		String[] summaries;
+		int l1, l2;
+
+		for (l1 = 1; l1 < NUM_THREADS.length; l1++)
+		{
+			summaries = runOnPool(p, NUM_THREADS[l1]);
+			for (l2 = 0; l2 < expected.length; l2++)
+			{
+				Checks.check(summaries[l2].equals(expected[l2]), "run " + l2 + " (PrattEbmEquivalent " + prattEbmEquivalent + ") differs on " + NUM_THREADS[l1] + " threads");
+			}
+		}
+	}
+
+	/**
+	 * Checks that a colony's partitioned runs complete their emigrations about as often, as soon and
+	 * with as many recruitment acts as its sequential runs
+	 *
+	 * @param prattEbmEquivalent (true for the Pratt et al EBM equivalent colony, false for the default one)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkEmigrations(boolean prattEbmEquivalent)
+	{
+		double[] sequential = getOutcomes(getParameters(prattEbmEquivalent, 0));
+		double[] partitioned = getOutcomes(getParameters(prattEbmEquivalent, PARTITION_SIZE));
+		String colony = " (PrattEbmEquivalent " + prattEbmEquivalent + ")";
+		double z;
+
+		Checks.check(sequential[0] > 1 && partitioned[0] > 1, "too few emigrations completed: sequential " + sequential[0] + ", partitioned " + partitioned[0] + colony);
+		z = getProportionZ(sequential[0], partitioned[0]);
+		Checks.check(Math.abs(z) < MAX_Z, "completion rates differ (z " + z + "): sequential " + sequential[0] / REPLICATES + ", partitioned " + partitioned[0] / REPLICATES + colony);
+		z = getExcessZ(sequential[0], sequential[1], sequential[2], partitioned[0], partitioned[1], partitioned[2]);
+		Checks.check(z < MAX_Z, "times to completion differ (z " + z + "): sequential " + sequential[1] / sequential[0] + ", partitioned " + partitioned[1] / partitioned[0] + colony);
+		z = getExcessZ(sequential[0], sequential[3], sequential[4], partitioned[0], partitioned[3], partitioned[4]);
+		Checks.check(z < MAX_Z, "numbers of recruitment acts differ (z " + z + "): sequential " + sequential[3] / sequential[0] + ", partitioned " + partitioned[3] / partitioned[0] + colony);
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		checkDeterminism(false);
+		checkDeterminism(true);
+		checkEmigrations(false);
+		checkEmigrations(true);
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("PartitionCheck: passed");
+	}
+}
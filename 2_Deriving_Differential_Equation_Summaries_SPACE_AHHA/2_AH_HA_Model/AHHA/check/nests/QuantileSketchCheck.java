@@ -0,0 +1,241 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.util.Arrays;
+import ahha.RandomStream;
+
+/**
+ * Checks QuantileSketch's quantiles against the exact ones (R's quantile, type 7, of the values
+ * sorted).
+ *
+ * While there are no more distinct values than bins, the quantiles must be exact. Beyond that,
+ * they must be within the bound QuantileSketch gives, one and a half bin widths ((largest value -
+ * smallest) / bins), for values drawn uniformly, normally, exponentially and as whole numbers, and
+ * for values in ascending and descending order, at several numbers of bins. Each set of values is
+ * both added to one sketch and spread over several sketches that are then merged (as EnsembleStage
+ * merges the sketches of concurrent replicates).
+ *
+ */
+public class QuantileSketchCheck
+{
+	/** The number of values of each set checked */
+	private static final int NUM_VALUES = 20000;
+	/** The number of sets of each distribution checked */
+	private static final int NUM_SEEDS = 5;
+	/** The numbers of bins checked */
+	private static final int[] MAX_BINS = {16, QuantileSketch.DEFAULT_MAX_BINS, 64};
+	/** The number of sketches a set is spread over before they are merged */
+	private static final int NUM_PARTS = 3;
+	/** The quantiles checked are those of 0, 1 / NUM_QUANTILES, ..., 1 */
+	private static final int NUM_QUANTILES = 100;
+	/** The largest error allowed, in bin widths */
+	private static final double BOUND = 1.5;
+	/** The distributions checked */
+	private static final int UNIFORM = 0, NORMAL = 1, EXPONENTIAL = 2, WHOLE = 3, ASCENDING = 4, DESCENDING = 5, NUM_DISTRIBUTIONS = 6;
+
+	/**
+	 * Gets an exact quantile (as R's quantile, type 7)
+	 *
+	 * @param sorted values, ascending (!= null, length > 0)
+	 * @param p probability (0 to 1)
+	 *
+	 * @return quantile
+	 *
+	 */
+	private static double getQuantile(double[] sorted, double p)
+	{
+		double position = (sorted.length - 1) * p;
+		int rank = (int) Math.floor(position);
+		double upper = (rank + 1 < sorted.length) ? sorted[rank + 1] : sorted[rank];
+
+		return sorted[rank] + (position - rank) * (upper - sorted[rank]);
+	}
+
+	/**
+	 * Gets a set of values
+	 *
+	 * @param distribution (UNIFORM etc.)
+	 * @param random (!= null)
+	 *
+	 * @return values
+	 *
+	 */
+	private static double[] getValues(int distribution, RandomStream random)
+	{
+		double[] values = new double[NUM_VALUES];
+		int l1;
+
+		for (l1 = 0; l1 < NUM_VALUES; l1++)
+		{
+			switch (distribution)
+			{
+				case UNIFORM:
+					values[l1] = random.nextDouble();
+					break;
+				case NORMAL:
+					values[l1] = random.nextNormal(0, 1);
+					break;
+				case EXPONENTIAL:
+					values[l1] = -Math.log(1 - random.nextDouble());
+					break;
+				case WHOLE:
+					values[l1] = random.nextIntFromTo(0, 300);
+					break;
+				case ASCENDING:
+					values[l1] = l1;
+					break;
+				default:
+					values[l1] = NUM_VALUES - l1;
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Gets a sketch of a set of values, added to one sketch or merged from several
+	 *
+	 * @param values (!= null)
+	 * @param maxBins (> 1)
+	 * @param merged spread the values over several sketches and merge them?
+	 *
+	 * @return sketch
+	 *
+	 */
+	private static QuantileSketch getSketch(double[] values, int maxBins, boolean merged)
+	{
+		QuantileSketch sketch = new QuantileSketch(maxBins);
+		QuantileSketch[] parts = new QuantileSketch[merged ? NUM_PARTS : 1];
+		int l1;
+
+		for (l1 = 0; l1 < parts.length; l1++)
+		{
+			parts[l1] = new QuantileSketch(maxBins);
+		}
+		for (l1 = 0; l1 < values.length; l1++)
+		{
+			parts[l1 % parts.length].add(values[l1]);
+		}
+		for (QuantileSketch part : parts)
+		{
+			sketch.merge(part);
+		}
+
+		return sketch;
+	}
+
+	/**
+	 * Gets the largest error of a sketch's quantiles
+	 *
+	 * @param sketch (!= null)
+	 * @param sorted values added to the sketch, ascending (!= null)
+	 *
+	 * @return largest error
+	 *
+	 */
+	private static double getLargestError(QuantileSketch sketch, double[] sorted)
+	{
+		double error = 0;
+		int l1;
+
+		Checks.check(sketch.getCount() == sorted.length, "sketch has " + sketch.getCount() + " values rather than " + sorted.length);
+		for (l1 = 0; l1 <= NUM_QUANTILES; l1++)
+		{
+			error = Math.max(error, Math.abs(sketch.getQuantile(l1 / (double) NUM_QUANTILES) - getQuantile(sorted, l1 / (double) NUM_QUANTILES)));
+		}
+
+		return error;
+	}
+
+	/**
+	 * Checks that a sketch of no more distinct values than bins is exact
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkExact()
+	{
+		RandomStream random = new RandomStream(1);
+		double[] values = new double[NUM_VALUES], sorted;
+		int l1;
+
+		for (l1 = 0; l1 < NUM_VALUES; l1++)
+		{
+			values[l1] = random.nextIntFromTo(0, QuantileSketch.DEFAULT_MAX_BINS - 1) * 3;
+		}
+		sorted = values.clone();
+		Arrays.sort(sorted);
+		Checks.check(getLargestError(getSketch(values, QuantileSketch.DEFAULT_MAX_BINS, false), sorted) == 0, "sketch of " + QuantileSketch.DEFAULT_MAX_BINS + " distinct values is not exact");
+		Checks.check(getLargestError(getSketch(values, QuantileSketch.DEFAULT_MAX_BINS, true), sorted) == 0, "merged sketch of " + QuantileSketch.DEFAULT_MAX_BINS + " distinct values is not exact");
+		Checks.check(Double.isNaN(new QuantileSketch(2).getQuantile(0.5)), "empty sketch has a quantile");
+	}
+
+	/**
+	 * Checks that sketches of more distinct values than bins are within the bound
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkBound()
+	{
+		double[] values, sorted;
+		double width, error;
+		int distribution, seed;
+
+		for (distribution = 0; distribution < NUM_DISTRIBUTIONS; distribution++)
+		{
+			for (seed = 0; seed < NUM_SEEDS; seed++)
+			{
+				values = getValues(distribution, new RandomStream(seed));
+				sorted = values.clone();
+				Arrays.sort(sorted);
+				for (int maxBins : MAX_BINS)
+				{
+					width = (sorted[sorted.length - 1] - sorted[0]) / maxBins;
+					for (boolean merged : new boolean[] {false, true})
+					{
+						error = getLargestError(getSketch(values, maxBins, merged), sorted) / width;
+						Checks.check(error <= BOUND, "distribution " + distribution + " seed " + seed + " bins " + maxBins + (merged ? " merged" : "") + ": error of " + error + " bin widths");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		checkExact();
+		checkBound();
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("QuantileSketchCheck: passed");
+	}
+}
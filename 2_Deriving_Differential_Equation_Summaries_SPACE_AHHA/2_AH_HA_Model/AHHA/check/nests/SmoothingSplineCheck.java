@@ -0,0 +1,390 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import ahha.RandomStream;
+
+/**
+ * Checks SmoothingSpline's fits against fits worked out independently.
+ *
+ * For fewer than 50 points the knots are at all of the x, and the spline is the natural cubic
+ * spline minimising the sum of squares plus lambda times the integrated squared second derivative.
+ * That is worked out densely in Reinsch's form (Green and Silverman, Nonparametric Regression and
+ * Generalized Linear Models, 2.3), the fitted values being (I + alpha K)^-1 y, with alpha found by
+ * bisection so the trace of (I + alpha K)^-1 is the degrees of freedom asked for; SmoothingSpline
+ * must give the same fitted values. For more points (and fewer knots), the trace of the smoother
+ * matrix, worked out column by column from fits to unit series, must be the degrees of freedom
+ * asked for. At any length, a straight line must be fitted exactly, and the residuals must sum to
+ * zero and be uncorrelated with x (the penalty does not touch straight lines).
+ *
+ */
+public class SmoothingSplineCheck
+{
+	/** The lengths of the series whose fits are checked against Reinsch's form (all below 50) */
+	private static final int[] REINSCH_LENGTHS = {4, 10, 25, 49};
+	/** The lengths of the series whose smoother matrices' traces are checked (50 or more, so fewer knots) */
+	private static final int[] TRACE_LENGTHS = {50, 120};
+	/** The degrees of freedom checked */
+	private static final double[] DFS = {2.5, 4, 8};
+	/** The number of bisections of log10(alpha) over [-15, 15] */
+	private static final int NUM_BISECTIONS = 200;
+	/** The largest difference allowed between fitted values (relative to the series' largest value) */
+	private static final double TOLERANCE = 1e-6;
+
+	/**
+	 * Solves a dense system of linear equations by Gaussian elimination with partial pivoting
+	 *
+	 * @param a matrix (!= null, square, not changed)
+	 * @param b right-hand side (!= null, not changed)
+	 *
+	 * @return solution
+	 *
+	 */
+	private static double[] solve(double[][] a, double[] b)
+	{
+		int n = b.length, pivot, l1, l2, l3;
+		double[][] m = new double[n][];
+		double[] x = b.clone(), row;
+		double factor, swap;
+
+		for (l1 = 0; l1 < n; l1++)
+		{
+			m[l1] = a[l1].clone();
+		}
+		for (l1 = 0; l1 < n; l1++)
+		{
+			pivot = l1;
+			for (l2 = l1 + 1; l2 < n; l2++)
+			{
+				if (Math.abs(m[l2][l1]) > Math.abs(m[pivot][l1]))
+				{
+					pivot = l2;
+				}
+			}
+			row = m[l1];
+			m[l1] = m[pivot];
+			m[pivot] = row;
+			swap = x[l1];
+			x[l1] = x[pivot];
+			x[pivot] = swap;
+			for (l2 = l1 + 1; l2 < n; l2++)
+			{
+				factor = m[l2][l1] / m[l1][l1];
+				for (l3 = l1; l3 < n; l3++)
+				{
+					m[l2][l3] -= factor * m[l1][l3];
+				}
+				x[l2] -= factor * x[l1];
+			}
+		}
+		for (l1 = n - 1; l1 >= 0; l1--)
+		{
+			for (l2 = l1 + 1; l2 < n; l2++)
+			{
+				x[l1] -= m[l1][l2] * x[l2];
+			}
+			x[l1] /= m[l1][l1];
+		}
+
+		return x;
+	}
+
+	/**
+	 * Gets Reinsch's K = Q R^-1 Q' for points at x = 0, 1 / (n - 1), ..., 1 (as SmoothingSpline scales them)
+	 *
+	 * @param n number of points (>= 3)
+	 *
+	 * @return K (n by n)
+	 *
+	 */
+	private static double[][] getReinschK(int n)
+	{
+		double h = 1.0 / (n - 1);
+		double[][] q = new double[n][n - 2], r = new double[n - 2][n - 2], k = new double[n][n];
+		double[] column = new double[n - 2];
+		double[][] rInverseQt = new double[n][];
+		int l1, l2, l3;
+
+		for (l1 = 0; l1 < n - 2; l1++)
+		{
+			q[l1][l1] = 1 / h;
+			q[l1 + 1][l1] = -2 / h;
+			q[l1 + 2][l1] = 1 / h;
+			r[l1][l1] = 2 * h / 3;
+			if (l1 + 1 < n - 2)
+			{
+				r[l1][l1 + 1] = h / 6;
+				r[l1 + 1][l1] = h / 6;
+			}
+		}
+		// the columns of R^-1 Q' are R^-1 times the rows of Q
+		for (l1 = 0; l1 < n; l1++)
+		{
+			for (l2 = 0; l2 < n - 2; l2++)
+			{
+				column[l2] = q[l1][l2];
+			}
+			rInverseQt[l1] = solve(r, column);
+		}
+		for (l1 = 0; l1 < n; l1++)
+		{
+			for (l2 = 0; l2 < n; l2++)
+			{
+				for (l3 = 0; l3 < n - 2; l3++)
+				{
+					k[l1][l2] += q[l1][l3] * rInverseQt[l2][l3];
+				}
+			}
+		}
+
+		return k;
+	}
+
+	/**
+	 * Gets I + alpha K
+	 *
+	 * @param k (!= null)
+	 * @param alpha
+	 *
+	 * @return matrix
+	 *
+	 */
+	private static double[][] getSystem(double[][] k, double alpha)
+	{
+		double[][] system = new double[k.length][k.length];
+		int l1, l2;
+
+		for (l1 = 0; l1 < k.length; l1++)
+		{
+			for (l2 = 0; l2 < k.length; l2++)
+			{
+				system[l1][l2] = alpha * k[l1][l2] + ((l1 == l2) ? 1 : 0);
+			}
+		}
+
+		return system;
+	}
+
+	/**
+	 * Fits the natural cubic smoothing spline in Reinsch's form
+	 *
+	 * @param y series (!= null, length >= 3)
+	 * @param df equivalent degrees of freedom (> 2, < length)
+	 *
+	 * @return fitted values
+	 *
+	 */
+	private static double[] fitReinsch(double[] y, double df)
+	{
+		double[][] k = getReinschK(y.length), system;
+		double[] unit = new double[y.length];
+		double low = -15, high = 15, logAlpha = 0, trace;
+		int l1, l2;
+
+		// the trace falls as alpha rises
+		for (l1 = 0; l1 < NUM_BISECTIONS; l1++)
+		{
+			logAlpha = (low + high) / 2;
+			system = getSystem(k, Math.pow(10, logAlpha));
+			trace = 0;
+			for (l2 = 0; l2 < y.length; l2++)
+			{
+				unit[l2] = 1;
+				trace += solve(system, unit)[l2];
+				unit[l2] = 0;
+			}
+			if (trace > df)
+			{
+				low = logAlpha;
+			}
+			else
+			{
+				high = logAlpha;
+			}
+		}
+
+		return solve(getSystem(k, Math.pow(10, logAlpha)), y);
+	}
+
+	/**
+	 * Gets a noisy series
+	 *
+	 * @param n length
+	 * @param random (!= null)
+	 *
+	 * @return series
+	 *
+	 */
+	private static double[] getSeries(int n, RandomStream random)
+	{
+		double[] y = new double[n];
+		int l1;
+
+		for (l1 = 0; l1 < n; l1++)
+		{
+			y[l1] = 50 * Math.sin(l1 / 4.0) + l1 + random.nextNormal(0, 10);
+		}
+
+		return y;
+	}
+
+	/**
+	 * Gets the largest absolute value of a series
+	 *
+	 * @param y (!= null)
+	 *
+	 * @return largest absolute value
+	 *
+	 */
+	private static double getScale(double[] y)
+	{
+		double scale = 0;
+
+		for (double value : y)
+		{
+			scale = Math.max(scale, Math.abs(value));
+		}
+
+		return scale;
+	}
+
+	/**
+	 * Checks fits against Reinsch's form
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkReinsch()
+	{
+		RandomStream random = new RandomStream(1);
+		double[] y, expected, fitted;
+		int l1, l2;
+
+		for (int n : REINSCH_LENGTHS)
+		{
+			for (double df : DFS)
+			{
+				if (df >= n)
+				{
+					continue;
+				}
+				y = getSeries(n, random);
+				expected = fitReinsch(y, df);
+				fitted = SmoothingSpline.smooth(y, df);
+				for (l1 = 0; l1 < n; l1++)
+				{
+					Checks.check(Math.abs(fitted[l1] - expected[l1]) <= TOLERANCE * getScale(y), "n " + n + " df " + df + " point " + l1 + ": fitted " + fitted[l1] + " rather than " + expected[l1]);
+				}
+				for (l2 = 0; l2 < n; l2++)
+				{
+					y[l2] = n - 2.5 * l2;
+				}
+				checkLinear(y, df);
+			}
+		}
+	}
+
+	/**
+	 * Checks that the trace of the smoother matrix is the degrees of freedom asked for, where there
+	 * are fewer knots than points
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkTrace()
+	{
+		SmoothingSpline spline;
+		double[] unit, y;
+		double trace;
+		int l1;
+
+		for (int n : TRACE_LENGTHS)
+		{
+			spline = new SmoothingSpline(n);
+			unit = new double[n];
+			for (double df : DFS)
+			{
+				trace = 0;
+				for (l1 = 0; l1 < n; l1++)
+				{
+					unit[l1] = 1;
+					trace += spline.fit(unit, df)[l1];
+					unit[l1] = 0;
+				}
+				Checks.check(Math.abs(trace - df) <= TOLERANCE * df, "n " + n + " df " + df + ": smoother matrix has trace " + trace);
+				y = new double[n];
+				for (l1 = 0; l1 < n; l1++)
+				{
+					y[l1] = 7 + 0.5 * l1;
+				}
+				checkLinear(y, df);
+			}
+		}
+	}
+
+	/**
+	 * Checks that a straight line is fitted exactly, and that a noisy series' residuals sum to zero
+	 * and are uncorrelated with x
+	 *
+	 * @param line straight line (!= null)
+	 * @param df equivalent degrees of freedom (> 1)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkLinear(double[] line, double df)
+	{
+		int n = line.length;
+		double[] fitted = SmoothingSpline.smooth(line, df), y = getSeries(n, new RandomStream(n)), smoothed;
+		double sum = 0, product = 0;
+		int l1;
+
+		for (l1 = 0; l1 < n; l1++)
+		{
+			Checks.check(Math.abs(fitted[l1] - line[l1]) <= TOLERANCE * getScale(line), "n " + n + " df " + df + ": straight line fitted as " + fitted[l1] + " rather than " + line[l1] + " at point " + l1);
+		}
+		smoothed = SmoothingSpline.smooth(y, df);
+		for (l1 = 0; l1 < n; l1++)
+		{
+			sum += y[l1] - smoothed[l1];
+			product += l1 * (y[l1] - smoothed[l1]);
+		}
+		Checks.check(Math.abs(sum) <= TOLERANCE * n * getScale(y) && Math.abs(product) <= TOLERANCE * n * n * getScale(y), "n " + n + " df " + df + ": residuals sum to " + sum + ", and to " + product + " weighted by x");
+	}
+
+	/**
+	 * Runs the checks
+	 *
+	 * @return void
+	 *
+	 */
+	public static void run()
+	{
+		checkReinsch();
+		checkTrace();
+	}
+
+	/**
+	 * Runs the checks (see Checks)
+	 *
+	 * @param args (none)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args)
+	{
+		run();
+		System.out.println("SmoothingSplineCheck: passed");
+	}
+}
@@ -0,0 +1,129 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * Walker's alias method (as set out by Vose) for drawing from a fixed discrete distribution with
+ * integer weights in constant time. The table is built in integer arithmetic, so each outcome is
+ * drawn with exactly its weight / total weight probability.
+ *
+ */
+class AliasTable
+{
+	/** The total weight (each column of the table holds this much weight) */
+	private final long mTotalWeight;
+	/** The weight of each column kept by the column's own outcome (0 to mTotalWeight) */
+	private final long[] mThreshold;
+	/** The outcome each column gives the rest of its weight to */
+	private final int[] mAlias;
+
+	/**
+	 * Draws an outcome
+	 *
+	 * @param random number stream to draw from (!= null)
+	 *
+	 * @return outcome (index into the weights the table was built from)
+	 *
+	 */
+	public int next(RandomStream random)
+	{
+		int column;
+
+		column = random.nextIntFromTo(0, mThreshold.length - 1);
+		if (random.nextLongFromTo(0, mTotalWeight - 1) < mThreshold[column])
+		{
+			return column;
+		}
+		else
+		{
+			return mAlias[column];
+		}
+	}
+
+	/**
+	 * AliasTable constructor
+	 *
+	 * @param weights of the outcomes (each >= 0, at least one > 0)
+	 *
+	 */
+	public AliasTable(long[] weights)
+	{
+		if (weights == null || weights.length == 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct AliasTable with no weights");
+		}
+		long totalWeight = 0;
+		long[] scaled;
+		int[] small, large;
+		int numSmall = 0, numLarge = 0, s, l, l1;
+
+		for (l1 = 0; l1 < weights.length; l1++)
+		{
+			if (weights[l1] < 0)
+			{
+				throw new IllegalArgumentException("Attempt to construct AliasTable with weight < 0 (weights[" + l1 + "] == " + weights[l1] + ")");
+			}
+			totalWeight += weights[l1];
+		}
+		if (totalWeight == 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct AliasTable with all weights == 0");
+		}
+		mTotalWeight = totalWeight;
+		mThreshold = new long[weights.length];
+		mAlias = new int[weights.length];
+		// scale the weights so that a column's share of the total is exactly mTotalWeight
+		scaled = new long[weights.length];
+		small = new int[weights.length];
+		large = new int[weights.length];
+		for (l1 = 0; l1 < weights.length; l1++)
+		{
+			scaled[l1] = weights[l1] * weights.length;
+			mAlias[l1] = l1;
+			if (scaled[l1] < mTotalWeight)
+			{
+				small[numSmall++] = l1;
+			}
+			else
+			{
+				large[numLarge++] = l1;
+			}
+		}
+		// fill each under-full column with weight from an over-full one
+		while (numSmall > 0 && numLarge > 0)
+		{
+			s = small[--numSmall];
+			l = large[--numLarge];
+			mThreshold[s] = scaled[s];
+			mAlias[s] = l;
+			scaled[l] -= mTotalWeight - scaled[s];
+			if (scaled[l] < mTotalWeight)
+			{
+				small[numSmall++] = l;
+			}
+			else
+			{
+				large[numLarge++] = l;
+			}
+		}
+		// the remaining columns are exactly full
+		while (numLarge > 0)
+		{
+			mThreshold[large[--numLarge]] = mTotalWeight;
+		}
+		while (numSmall > 0)
+		{
+			mThreshold[small[--numSmall]] = mTotalWeight;
+		}
+	}
+}
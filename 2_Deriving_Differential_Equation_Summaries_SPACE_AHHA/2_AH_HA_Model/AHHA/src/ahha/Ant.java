@@ -24,69 +24,202 @@
 package ahha;
 
 /**
- * The class used in the collective decision making process that is at the heart of AH-HA
- *  
+ * The class used in the collective decision making process that is at the heart of AH-HA.
+ * An Ant holds no state of its own: it is the scouts' behaviour, applied to the scout with the
+ * given index in its colony's AntStore.
+ *
+ * A colony updating its scouts in parallel has an Ant for each ScoutPartition, which draws from the
+ * partition's random number stream and leaves the changes to quorums and to other scouts to the
+ * partition, to be committed once every partition has been updated.
+ *
  */
 class Ant
 {
-	/** The colony the ant is a member of */
+	/** The colony the ants are members of */
 	private final AntColony mColony;
-	/** The nest the ant considers to be the colony's current nest */
-	private NestSite mCurrentNest;
-	/** The ant's preferred nest site */
-	private NestSite mPreference;
-	/** The quality of the ant's preferred nest according to the ant's last assessment of it */
-	private int mPreferenceAssessedQuality;
-	/** The quality of the site the ant last considered according to the ant's last assessment of it */
-	private int mConsideredNewSiteAssessedQuality;
-	/** The ant's current quorum threshold (> 0 indicates ant is scouting) */
-	private int mQuorumThreshold;
-	/** The delay until an ant has finished assessing a nest site */
-	private int mAssessmentDelay;
-	/** The distance-related delay until the ant may begin recruiting to its current preference (iterations of Ant.update) */
-	private int mRecruitmentDelay;
-	/** The probability with which the ant will begin recruiting to its current preference, after its distance-related recruitment delay has expired (per iteration of Ant.update) */
-	private double mRecruitmentProb;
-	/** Ant is transporting? (false indicates ant is tandem-running) */
-	private boolean mTransporting;
-	/** The delay until the ant finishes transporting a nest mate */
-	private int mTransportDelay;
+	/** The state of the colony's scouts */
+	private final AntStore mStore;
+	/** The partition of scouts the ant updates (null indicates scouts are updated one at a time by the colony) */
+	private final ScoutPartition mPartition;
 
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
+	/**
+	 * Gets the nest site that the ant considers to be the colony's current nest site (the source of the ant's recruitment efforts)
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
+	 * @return ant's current nest site
+	 *
+	 */
+	public NestSite getCurrentNest(int ant)
+	{
+		return mColony.getNestSite(mStore.getCurrentNest(ant));
+	}
 
-	// NEW VARIABLE
+	/**
+	 * Gets the ant's preferred nest site to which it is recruiting (if any)
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
+	 * @return ant's preferred nest site (null indicates ant has no preference and is still in the current nest)
+	 *
+	 */
+	public NestSite getPreference(int ant)
+	{
+		if (mStore.getPreference(ant) < 0)
+		{
+			return null;
+		}
 
-	// To tell us if an ant is assessing or not.
-	private boolean mAssessing;
+		return mColony.getNestSite(mStore.getPreference(ant));
+	}
 
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
-	// -------------------------------------------------------------------------
-	
 	/**
-	 * Gets the nest site that the ant considers to be the colony's current nest site (the source of the ant's recruitment efforts)
-	 * 
-	 * @return ant's current nest site
-	 * 
+	 * Sets the nest site that the ant considers to be the colony's current nest site
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 * @param nestSite (!= null)
+	 *
+	 * @return void
+	 *
 	 */
-	public NestSite getCurrentNest()
+	private void setCurrentNest(int ant, NestSite nestSite)
 	{
-		return mCurrentNest;
+		mStore.setCurrentNest(ant, nestSite.getId());
 	}
 
 	/**
-	 * Gets the ant's preferred nest site to which it is recruiting (if any) 
-	 * 
-	 * @return ant's preferred nest site (null indicates ant has no preference and is still in the current nest) 
-	 * 
+	 * Sets the ant's preferred nest site
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 * @param nestSite (null indicates ant has no preference)
+	 *
+	 * @return void
+	 *
 	 */
-	public NestSite getPreference()
+	private void setPreference(int ant, NestSite nestSite)
 	{
-		return mPreference;
+		if (nestSite == null)
+		{
+			mStore.setPreference(ant, -1);
+		}
+		else
+		{
+			mStore.setPreference(ant, nestSite.getId());
+		}
+	}
+
+	/**
+	 * Determines if a probabilistic event occurs (drawing from the partition's stream, if any, see AntColony.eventOccurs)
+	 *
+	 * @param probability (0 <= probability <= 1)
+	 *
+	 * @return true if the event occurs on this occassion, false otherwise
+	 *
+	 */
+	private boolean eventOccurs(double probability)
+	{
+		if (mPartition == null)
+		{
+			return mColony.eventOccurs(probability);
+		}
+
+		return AntColony.eventOccurs(probability, mPartition.getRandom());
+	}
+
+	/**
+	 * Assesses a nest site's quality (drawing any noise from the partition's stream, if any)
+	 *
+	 * @param nestSite (!= null)
+	 *
+	 * @return site's quality as assessed by the ant
+	 *
+	 */
+	private int getSiteQuality(NestSite nestSite)
+	{
+		if (mPartition == null)
+		{
+			return nestSite.getSiteQuality(mColony);
+		}
+
+		return nestSite.getSiteQuality(mColony, mPartition.getRandom());
+	}
+
+	/**
+	 * Discovers a random neighbour of a nest site (drawing from the partition's stream, if any, see AntColony.getRandomNeighbour)
+	 *
+	 * @param nestSite (!= null)
+	 *
+	 * @return neighbouring nest site
+	 *
+	 */
+	private NestSite getRandomNeighbour(NestSite nestSite)
+	{
+		if (mPartition == null)
+		{
+			return mColony.getRandomNeighbour(nestSite);
+		}
+
+		return mColony.getRandomNeighbour(nestSite, mPartition.getRandom());
+	}
+
+	/**
+	 * Gets the colony's quorum at a nest site, with the partition's changes, if any, not yet committed
+	 *
+	 * @param nestSite (!= null)
+	 *
+	 * @return number of the colony's ants at the nest site
+	 *
+	 */
+	private int getQuorumSize(NestSite nestSite)
+	{
+		if (mPartition == null)
+		{
+			return nestSite.getQuorumSize(mColony);
+		}
+
+		return nestSite.getQuorumSize(mColony) + mPartition.getQuorumChange(nestSite.getId());
+	}
+
+	/**
+	 * Adds an ant to the colony's quorum at a nest site (in the partition's changes, if any, until they are committed)
+	 *
+	 * @param nestSite (!= null)
+	 * @param active ants flag (true if the ant is a scout, false otherwise)
+	 *
+	 * @return void
+	 *
+	 */
+	private void incrementQuorumSize(NestSite nestSite, boolean active)
+	{
+		if (mPartition == null)
+		{
+			nestSite.incrementQuorumSize(mColony, 1, active);
+		}
+		else
+		{
+			mPartition.addToQuorumSize(nestSite.getId(), 1, active);
+		}
+	}
+
+	/**
+	 * Removes an ant from the colony's quorum at a nest site (in the partition's changes, if any, until they are committed)
+	 *
+	 * @param nestSite (!= null)
+	 * @param active ants flag (true if the ant is a scout, false otherwise)
+	 *
+	 * @return void
+	 *
+	 */
+	private void decrementQuorumSize(NestSite nestSite, boolean active)
+	{
+		if (mPartition == null)
+		{
+			nestSite.decrementQuorumSize(mColony, 1, active);
+		}
+		else
+		{
+			mPartition.addToQuorumSize(nestSite.getId(), -1, active);
+		}
 	}
 
 	// -------------------------------------------------------------------------
@@ -97,15 +230,15 @@ class Ant
 	// NEW FUNCTIONS
 
 	// If the ant is in an assessing state or not.
-	public boolean getAssessing()
+	public boolean getAssessing(int ant)
 	{
-		return mAssessing;
+		return mStore.isAssessing(ant);
 	}
 
 	// Change the ant's state to assessing.
-	public void setAssessing(boolean bool_val)
+	public void setAssessing(int ant, boolean bool_val)
 	{
-		mAssessing = bool_val;
+		mStore.setAssessing(ant, bool_val);
 	}
 
 	// -------------------------------------------------------------------------
@@ -115,14 +248,15 @@ class Ant
 
 	/**
 	 * Reverse tandem-runs the ant between the specified nest site (reallocates recruitment effort)
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
 	 * @param origin of reverse tandem-run (!= null)
 	 * @param destination of reverse tandem-run (!= null)
-	 * 
+	 *
 	 * @return void
-	 * 
+	 *
 	 */
-	public void reverseTandemRunFromTo(NestSite origin, NestSite destination)
+	public void reverseTandemRunFromTo(int ant, NestSite origin, NestSite destination)
 	{
 		if (origin == null)
 		{
@@ -133,53 +267,57 @@ class Ant
 			throw new IllegalArgumentException("Ant.reverseTandemRunFromTo called with destination == null");
 		}
 
-		mCurrentNest = destination;
-		mPreference = origin;
+		setCurrentNest(ant, destination);
+		setPreference(ant, origin);
 		// TODO: re-assign mPreferenceAssessedQuality?
 	}
 
 	/**
 	 * Recruits the ant to a nest site if it has no current preference (probabilistically otherwise)
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
 	 * @param nest site to recruit ant to (!= null)
 	 * @param transported (true if the recruit was carried, false if it followed a tandem-run)
 	 *
 	 * @return true if the ant was recruited to the nest site, false otherwise
-	 * 
+	 *
 	 */
-	public boolean recruitToNestSite(NestSite nestSite, boolean transported)
+	public boolean recruitToNestSite(int ant, NestSite nestSite, boolean transported)
 	{
 		if (nestSite == null)
 		{
 			throw new IllegalArgumentException("Ant.recruitToNestSite called with nestSite == null");
 		}
-		
-		if (mPreference == null)
+		NestSite currentNest, preference;
+
+		currentNest = getCurrentNest(ant);
+		preference = getPreference(ant);
+		if (preference == null)
 		{
 			// scout has no preference
-			if (!nestSite.equals(mCurrentNest) && (!mCurrentNest.isHabitable() | chooseNewNestSite(nestSite)) && nestSite.isHabitable()) // full evaluation or-operator used because chooseNewNestSite MUST be evaluated TODO: check nest site meets colony's requirements 
+			if (!nestSite.equals(currentNest) && (!currentNest.isHabitable() | chooseNewNestSite(ant, nestSite)) && nestSite.isHabitable()) // full evaluation or-operator used because chooseNewNestSite MUST be evaluated TODO: check nest site meets colony's requirements
 			{
-				mCurrentNest.decrementQuorumSize(mColony, 1, true);
-				nestSite.incrementQuorumSize(mColony, 1, true);
+				decrementQuorumSize(currentNest, true);
+				incrementQuorumSize(nestSite, true);
 				// TODO: should a recruited scout ALWAYS assess a site and delay according to its quality? Even if carried to the site?
 				if (!transported)
 				{
-					mPreference = nestSite;
-					mPreferenceAssessedQuality = mConsideredNewSiteAssessedQuality;
-					mAssessmentDelay = mColony.getAssessmentDelay();
-					mRecruitmentDelay = 0;
-					mRecruitmentProb = calculateRecruitmentProb();
+					setPreference(ant, nestSite);
+					mStore.setPreferenceAssessedQuality(ant, mStore.getConsideredNewSiteAssessedQuality(ant));
+					mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
+					mStore.setRecruitmentDelay(ant, 0);
+					mStore.setRecruitmentProb(ant, calculateRecruitmentProb(ant));
 				}
 				else
 				{
-					mCurrentNest = nestSite;
-					mPreference = null;
-					mPreferenceAssessedQuality = mConsideredNewSiteAssessedQuality;
-					mRecruitmentDelay = 0;
-					mRecruitmentProb = 0;
-					mAssessmentDelay = mColony.getAssessmentDelay();
+					setCurrentNest(ant, nestSite);
+					setPreference(ant, null);
+					mStore.setPreferenceAssessedQuality(ant, mStore.getConsideredNewSiteAssessedQuality(ant));
+					mStore.setRecruitmentDelay(ant, 0);
+					mStore.setRecruitmentProb(ant, 0);
+					mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
 				}
-				
+
 				return true;
 			}
 			else
@@ -192,50 +330,50 @@ class Ant
 		{
 			// scout has a preference and will only switch probabilistically and after comparing the new nest site to its current preference
 			// TODO: is mPreferenceSwitchProbability the right value to use for probability of recruiting a scout? Could change to depend on quality of new nest site
-			if (AntColony.eventOccurs(mColony.getPreferenceSwitchProb()))
+			if (eventOccurs(mColony.getPreferenceSwitchProb()))
 			{
-				if (chooseNewNestSite(nestSite) && !nestSite.equals(mPreference) && nestSite.isHabitable()) // TODO: compare nest site quality against colony's requirements
+				if (chooseNewNestSite(ant, nestSite) && !nestSite.equals(preference) && nestSite.isHabitable()) // TODO: compare nest site quality against colony's requirements
 				{
-					mPreference.decrementQuorumSize(mColony, 1, true);
-					nestSite.incrementQuorumSize(mColony, 1, true);
-					if (nestSite.equals(mCurrentNest))
+					decrementQuorumSize(preference, true);
+					incrementQuorumSize(nestSite, true);
+					if (nestSite.equals(currentNest))
 					{
 						// ant has been recruited back to its origin nest so will reverse the direction of its recruitment acts
-						mCurrentNest = mPreference;
+						setCurrentNest(ant, preference);
 					}
-					else if (mPreference.getQuorumSize(mColony) > 0 && AntColony.eventOccurs(mColony.getCurrentNestSwitchProb()))
+					else if (getQuorumSize(preference) > 0 && eventOccurs(mColony.getCurrentNestSwitchProb()))
 					{
 						// ant has probabilistically changed its opinion on which is the current nest site
-						mCurrentNest = mPreference;
+						setCurrentNest(ant, preference);
 					}
 					if (!transported)
 					{
-						mPreference = nestSite;
-						mPreferenceAssessedQuality = mConsideredNewSiteAssessedQuality;
+						setPreference(ant, nestSite);
+						mStore.setPreferenceAssessedQuality(ant, mStore.getConsideredNewSiteAssessedQuality(ant));
 						// ant has spent some time assessing the site
-						mAssessmentDelay = mColony.getAssessmentDelay();
+						mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
 						// TODO: should the ant incur an additional delay before recruiting as well?
 					}
 					else
 					{
-						mCurrentNest = nestSite;
-						mPreference = null;
-						mPreferenceAssessedQuality = mConsideredNewSiteAssessedQuality;
-						mRecruitmentDelay = 0;
-						mRecruitmentProb = 0;
+						setCurrentNest(ant, nestSite);
+						setPreference(ant, null);
+						mStore.setPreferenceAssessedQuality(ant, mStore.getConsideredNewSiteAssessedQuality(ant));
+						mStore.setRecruitmentDelay(ant, 0);
+						mStore.setRecruitmentProb(ant, 0);
 						// ant has spent some time assessing the site
-						mAssessmentDelay = mColony.getAssessmentDelay();
+						mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
 						// TODO: should the ant incur an additional delay before scouting as well?
 					}
-	
+
 					return true;
 				}
 				else
 				{
 					// ant has spent some time assessing the site
-					mAssessmentDelay = mColony.getAssessmentDelay();
+					mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
 					// TODO: should the ant incur an additional delay before recruiting as well?
-					
+
 					return false;
 				}
 			}
@@ -248,13 +386,14 @@ class Ant
 
 	/**
 	 * Determines if the ant should choose the new nest site over the old one by comparing their qualities (if nest site comparison enabled)
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
 	 * @param newNestSite (!= null)
-	 * 
+	 *
 	 * @return true if the new nest site is of higher quality than the ant's last assessment of its current preference, or if nest site comparison disabled, false otherwise
-	 * 
+	 *
 	 */
-	private boolean chooseNewNestSite(NestSite newNestSite)
+	private boolean chooseNewNestSite(int ant, NestSite newNestSite)
 	{
 
 		if (newNestSite == null)
@@ -262,11 +401,11 @@ class Ant
 			throw new IllegalArgumentException("Ant.chooseNewNestSite called with newNestSite == null");
 		}
 		double acceptProbability;
-		
+
 		if (mColony.compareNestSiteQualities())
 		{
-			mConsideredNewSiteAssessedQuality = newNestSite.getSiteQuality();
-			if (mConsideredNewSiteAssessedQuality > mPreferenceAssessedQuality)
+			mStore.setConsideredNewSiteAssessedQuality(ant, getSiteQuality(newNestSite));
+			if (mStore.getConsideredNewSiteAssessedQuality(ant) > mStore.getPreferenceAssessedQuality(ant))
 			{
 				return true;
 			}
@@ -278,14 +417,14 @@ class Ant
 		else
 		{
 			// calculate normalised acceptance probability between 0.25 and 0.75 (TODO: refine)
-			mConsideredNewSiteAssessedQuality = newNestSite.getSiteQuality();
-			acceptProbability = (double) mConsideredNewSiteAssessedQuality / mColony.getMaxNestSiteQuality();
+			mStore.setConsideredNewSiteAssessedQuality(ant, getSiteQuality(newNestSite));
+			acceptProbability = (double) mStore.getConsideredNewSiteAssessedQuality(ant) / mColony.getMaxNestSiteQuality();
 			if (acceptProbability > 1.0)
 			{
 				acceptProbability = 1.0;
 			}
 			acceptProbability = (acceptProbability * 0.5) + 0.25;
-			if (AntColony.eventOccurs(acceptProbability))
+			if (eventOccurs(acceptProbability))
 			{
 				return true;
 			}
@@ -298,12 +437,12 @@ class Ant
 
 	/**
 	 * Calculates the recruitment delay for recruitment from one nest to another
-	 * 
+	 *
 	 * @param currentNest (!= null)
 	 * @param preference (!= null)
-	 * 
+	 *
 	 * @return recruitment delay from current nest to preferred nest
-	 * 
+	 *
 	 */
 	private int calculateRecruitmentDelay(NestSite currentNest, NestSite preference)
 	{
@@ -316,14 +455,14 @@ class Ant
 			throw new IllegalArgumentException("Ant.calculateRecruitmentDelay called with preference == null");
 		}
 		int recruitmentDelay;
-		
+
 		recruitmentDelay = 0;
 		if (mColony.distanceAffectsDiscovery())
 		{
 			if (!mColony.isPrattEbmEquivalent())
 			{
 				// take account of distance between current nest and preference
-				recruitmentDelay += currentNest.getDistanceToNeighbour(preference) / mColony.getCarryingSpeed();
+				recruitmentDelay += mColony.getCarryingDelay(currentNest.getId(), preference.getId());
 			}
 		}
 
@@ -332,15 +471,17 @@ class Ant
 
 	/**
 	 * Calculates the per-timestep probability of recruitment to the ant's preference
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
 	 * @return per-timestep probability of recruitment to the ant's preference
-	 * 
+	 *
 	 */
-	private double calculateRecruitmentProb()
+	private double calculateRecruitmentProb(int ant)
 	{
 		double recruitmentProb;
-		
-		recruitmentProb = (double) mPreferenceAssessedQuality / mColony.getMaxNestSiteQuality();
+
+		recruitmentProb = (double) mStore.getPreferenceAssessedQuality(ant) / mColony.getMaxNestSiteQuality();
 		if (recruitmentProb > 1)
 		{
 			recruitmentProb = 1;
@@ -348,39 +489,43 @@ class Ant
 
 		return recruitmentProb;
 	}
-	
+
 	/**
 	 * Probabalistically stop the ant scouting
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
 	 * @return void
 	 *
 	 */
-	private void considerStoppingScouting()
+	private void considerStoppingScouting(int ant)
 	{
-		if (AntColony.eventOccurs(mColony.getStopScoutingProb()))
+		if (eventOccurs(mColony.getStopScoutingProb()))
 		{
-			if (mPreference != null)
+			if (getPreference(ant) != null)
 			{
-				mPreference.decrementQuorumSize(mColony, 1, true);
+				decrementQuorumSize(getPreference(ant), true);
 			}
-			mPreference = null;
-			mCurrentNest.incrementQuorumSize(mColony, 1, true);
-			mTransporting = false;
-			mRecruitmentDelay = 0;
-			mRecruitmentProb = 0;
-			mTransportDelay = 0;
+			setPreference(ant, null);
+			incrementQuorumSize(getCurrentNest(ant), true);
+			mStore.setTransporting(ant, false);
+			mStore.setRecruitmentDelay(ant, 0);
+			mStore.setRecruitmentProb(ant, 0);
+			mStore.setTransportDelay(ant, 0);
 		}
 	}
-	
+
 	/**
 	 * Probabilistically compares another nest site against the ant's current preference
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
 	 * @return void
 	 *
 	 */
-	private void considerAlternativeNestSite()
+	private void considerAlternativeNestSite(int ant)
 	{
-		NestSite alternativeNestSite;
+		NestSite alternativeNestSite, currentNest, preference;
 		double prob;
 
 		if (mColony.isPrattEbmEquivalent())
@@ -395,63 +540,93 @@ class Ant
 		{
 			prob = 1;
 		}
-		if (AntColony.eventOccurs(prob))
+		if (eventOccurs(prob))
 		{
 			// compare another neighbouring nest site against current preference
-			alternativeNestSite = mCurrentNest.getRandomNeighbour(mColony.distanceAffectsDiscovery()); // TODO: should distance not be taken into account here?
-			if (alternativeNestSite.isHabitable() && chooseNewNestSite(alternativeNestSite) && !alternativeNestSite.equals(mCurrentNest)  && !alternativeNestSite.equals(mPreference)) // TODO: check nest site meets colony's requirements
+			currentNest = getCurrentNest(ant);
+			preference = getPreference(ant);
+			alternativeNestSite = getRandomNeighbour(currentNest); // TODO: should distance not be taken into account here?
+			if (alternativeNestSite.isHabitable() && chooseNewNestSite(ant, alternativeNestSite) && !alternativeNestSite.equals(currentNest)  && !alternativeNestSite.equals(preference)) // TODO: check nest site meets colony's requirements
 			{
 				// switch preferred nest site
-				mPreference.decrementQuorumSize(mColony, 1, true);
-				alternativeNestSite.incrementQuorumSize(mColony, 1, true);
+				decrementQuorumSize(preference, true);
+				incrementQuorumSize(alternativeNestSite, true);
 				// probabilistically change ant's opinion on which is the current nest site
-				if (mPreference.getQuorumSize(mColony) > 0 && AntColony.eventOccurs(mColony.getCurrentNestSwitchProb()))
+				if (getQuorumSize(preference) > 0 && eventOccurs(mColony.getCurrentNestSwitchProb()))
 				{
-					mCurrentNest = mPreference;
+					setCurrentNest(ant, preference);
 					//System.out.println("  (current nest site changed to old preference)");
 				}
-				mPreference = alternativeNestSite;
-				mPreferenceAssessedQuality = mConsideredNewSiteAssessedQuality;
-				mAssessmentDelay = mColony.getAssessmentDelay();
-				if (mRecruitmentDelay > 0 || mRecruitmentProb > 0)
+				setPreference(ant, alternativeNestSite);
+				mStore.setPreferenceAssessedQuality(ant, mStore.getConsideredNewSiteAssessedQuality(ant));
+				mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
+				if (mStore.getRecruitmentDelay(ant) > 0 || mStore.getRecruitmentProb(ant) > 0)
 				{
-					mRecruitmentDelay = calculateRecruitmentDelay(mCurrentNest, mPreference);
-					mRecruitmentProb = calculateRecruitmentProb();				
+					mStore.setRecruitmentDelay(ant, calculateRecruitmentDelay(getCurrentNest(ant), alternativeNestSite));
+					mStore.setRecruitmentProb(ant, calculateRecruitmentProb(ant));
 				}
 			}
 			else
 			{
 				// scout has spent some time performing the assessment
-				mAssessmentDelay = mColony.getAssessmentDelay();
+				mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
 			}
 		}
 	}
 
 	/**
 	 * Initiates a recruitment act (tandem-running or transporting) by the ant
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
 	 * @return void
 	 *
 	 */
-	private void beginRecruiting()
+	private void beginRecruiting(int ant)
 	{
-		mRecruitmentProb = 0;
+		mStore.setRecruitmentProb(ant, 0);
+		if (mPartition != null)
+		{
+			// the quorum is sensed once the partitions' quorum changes are committed
+			mPartition.beginRecruiting(ant);
+		}
+		else
+		{
+			senseQuorum(ant);
+		}
+	}
+
+	/**
+	 * Decides whether the ant carries or tandem-runs recruits, by the quorum at its preferred nest
+	 * site, and sets the delay of its recruitment act
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
+	 * @return void
+	 *
+	 */
+	void senseQuorum(int ant)
+	{
+		NestSite currentNest, preference;
+
+		currentNest = getCurrentNest(ant);
+		preference = getPreference(ant);
 		// sense quorum (TODO: moderate by non-nestmates present in preferred nest site)
-		if (mPreference.getQuorumSize(mColony) > mQuorumThreshold)
+		if (getQuorumSize(preference) > mStore.getQuorumThreshold(ant))
 		{
-			mTransporting = true; 
+			mStore.setTransporting(ant, true);
 		}
 		else
 		{
-			mTransporting = false;
+			mStore.setTransporting(ant, false);
 		}
-		if (mTransporting)
+		if (mStore.isTransporting(ant))
 		{
 			// ant is transporting to selected nest site
 			if (mColony.distanceAffectsDiscovery())
 			{
 				// only multiply delay by distance if distance is important
-				mTransportDelay = mCurrentNest.getDistanceToNeighbour(mPreference) / mColony.getCarryingSpeed();
+				mStore.setTransportDelay(ant, mColony.getCarryingDelay(currentNest.getId(), preference.getId()));
 			}
 			else
 			{
@@ -464,7 +639,7 @@ class Ant
 			if (mColony.distanceAffectsDiscovery())
 			{
 				// only multiply delay by distance if distance is important
-				mTransportDelay = mCurrentNest.getDistanceToNeighbour(mPreference) / mColony.getTandemRunSpeed();
+				mStore.setTransportDelay(ant, mColony.getTandemRunDelay(currentNest.getId(), preference.getId()));
 			}
 			else
 			{
@@ -472,29 +647,61 @@ class Ant
 			}
 		}
 	}
-	
+
+	/**
+	 * Finishes the ant's emigration to its preferred nest site, the nest site it recruited from being
+	 * empty (completing the colony's emigration if the whole colony is now there, or recording the
+	 * nest site in the partition, if any, to be checked once the update is committed)
+	 *
+	 * @param ant index of the ant in the colony's AntStore (with a preference)
+	 *
+	 * @return void
+	 *
+	 */
+	void finishEmigration(int ant)
+	{
+		NestSite preference;
+
+		preference = getPreference(ant);
+		setCurrentNest(ant, preference);
+		if (mPartition != null)
+		{
+			mPartition.finishEmigration(preference);
+		}
+		else if (preference.getQuorumSize(mColony) == mColony.getColonySize())
+		{
+			// colony has converged on a single new nest site
+			mColony.emigrationCompleted(preference);
+		}
+		setPreference(ant, null);
+		mStore.setTransporting(ant, false);
+		mStore.setRecruitmentDelay(ant, 0);
+		mStore.setRecruitmentProb(ant, 0);
+	}
+
 	/**
 	 * Updates the ant's state (assessing / recruiting to nest site, etc.)
-	 * 
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
 	 * @return void
 	 *
 	 */
-	public void update()
+	public void update(int ant)
 	{
-		NestSite alternativeNestSite;
-		Ant recruitedScout = null;
+		NestSite currentNest, preference;
 
-		if (mPreferenceAssessedQuality == 0)
+		if (mStore.getPreferenceAssessedQuality(ant) == 0)
 		{
 			// initialise ant's perception of its current nest's quality (couldn't be done in Ant constructor as random distribution hadn't been initialised then)
-			mPreferenceAssessedQuality = mCurrentNest.getSiteQuality();
+			mStore.setPreferenceAssessedQuality(ant, getSiteQuality(getCurrentNest(ant)));
 		}
 		if (mColony.getQuorumThreshold() > 0)
 		{
 			// colony is seeking to emigrate
-			if (mPreference == null)
+			if (mStore.getPreference(ant) < 0)
 			{
-				if (mAssessmentDelay > 0)
+				if (mStore.getAssessmentDelay(ant) > 0)
 				{
 				// ant is asessing the quality of its current nest
 
@@ -505,16 +712,16 @@ class Ant
 
 					// NEW FUNCTION
 
-					setAssessing(true);
+					setAssessing(ant, true);
 
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
 
-					mAssessmentDelay--;
+					mStore.setAssessmentDelay(ant, mStore.getAssessmentDelay(ant) - 1);
 				}
-				if (mAssessmentDelay == 0 && AntColony.eventOccurs(mColony.getStartScoutingProb()))
+				if (mStore.getAssessmentDelay(ant) == 0 && eventOccurs(mColony.getStartScoutingProb()))
 				{
 
 					// -------------------------------------------------------------------------
@@ -525,7 +732,7 @@ class Ant
 					// NEW FUNCTION
 
 					// Stopped assessing the site and moving on.
-					setAssessing(false);
+					setAssessing(ant, false);
 
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
@@ -533,41 +740,43 @@ class Ant
 					// -------------------------------------------------------------------------
 
 					// ant must discover a nest site
-					if (!mCurrentNest.isHabitable())
+					currentNest = getCurrentNest(ant);
+					if (!currentNest.isHabitable())
 					{
-						mQuorumThreshold = mColony.getEmergencyQuorumThreshold();
+						mStore.setQuorumThreshold(ant, mColony.getEmergencyQuorumThreshold());
 					}
 					else
 					{
 						if (mColony.isEnvironmentHostile())
 						{
-							mQuorumThreshold = mColony.getHostileQuorumThreshold();
+							mStore.setQuorumThreshold(ant, mColony.getHostileQuorumThreshold());
 						}
 						else
 						{
-							mQuorumThreshold = mColony.getNormalQuorumThreshold();
+							mStore.setQuorumThreshold(ant, mColony.getNormalQuorumThreshold());
 						}
 					}
-					mPreference = mCurrentNest.getRandomNeighbour(mColony.distanceAffectsDiscovery()); // TODO: what if colony does not have a current nest?
-					mPreferenceAssessedQuality = mPreference.getSiteQuality();
-					if (mPreference.isHabitable() && (!mCurrentNest.isHabitable() | chooseNewNestSite(mPreference))) // full evaluation or-operator used because chooseNewNestSite MUST be evaluated TODO: check nest site meets colony's requirements
+					preference = getRandomNeighbour(currentNest); // TODO: what if colony does not have a current nest?
+					setPreference(ant, preference);
+					mStore.setPreferenceAssessedQuality(ant, getSiteQuality(preference));
+					if (preference.isHabitable() && (!currentNest.isHabitable() | chooseNewNestSite(ant, preference))) // full evaluation or-operator used because chooseNewNestSite MUST be evaluated TODO: check nest site meets colony's requirements
 					{
-						mCurrentNest.decrementQuorumSize(mColony, 1, true);
-						mPreference.incrementQuorumSize(mColony, 1, true);
-						mAssessmentDelay = mColony.getAssessmentDelay();
-						mRecruitmentDelay = calculateRecruitmentDelay(mCurrentNest, mPreference);
-						mRecruitmentProb = calculateRecruitmentProb();
+						decrementQuorumSize(currentNest, true);
+						incrementQuorumSize(preference, true);
+						mStore.setAssessmentDelay(ant, mColony.getAssessmentDelay());
+						mStore.setRecruitmentDelay(ant, calculateRecruitmentDelay(currentNest, preference));
+						mStore.setRecruitmentProb(ant, calculateRecruitmentProb(ant));
 					}
 					else
 					{
-						mPreference = null;
+						setPreference(ant, null);
 					}
 				}
 			}
-			if (mPreference != null)
+			if (mStore.getPreference(ant) >= 0)
 			{
 				// ant has selected or is considering a nest site
-				if (mAssessmentDelay > 0)
+				if (mStore.getAssessmentDelay(ant) > 0)
 				{
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
@@ -576,7 +785,7 @@ class Ant
 
 					// NEW FUNCTION
 
-					setAssessing(true);
+					setAssessing(ant, true);
 
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
@@ -584,10 +793,10 @@ class Ant
 					// -------------------------------------------------------------------------
 
 					// ant is assessing a nest site
-					mAssessmentDelay--;
+					mStore.setAssessmentDelay(ant, mStore.getAssessmentDelay(ant) - 1);
 					// TODO: should scouts probabilistically consider stopping assessing?
 				}
-				else if (mRecruitmentDelay > 0 || mRecruitmentProb > 0)
+				else if (mStore.getRecruitmentDelay(ant) > 0 || mStore.getRecruitmentProb(ant) > 0)
 				{
 
 					// -------------------------------------------------------------------------
@@ -598,7 +807,7 @@ class Ant
 					// NEW FUNCTION
 
 					// Ant has assessed the site and moved on.
-					setAssessing(false);
+					setAssessing(ant, false);
 
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
@@ -606,20 +815,20 @@ class Ant
 					// -------------------------------------------------------------------------
 
 					// ant is waiting to begin recruiting
-					mRecruitmentDelay--;
-					if (mRecruitmentDelay < 0)
+					mStore.setRecruitmentDelay(ant, mStore.getRecruitmentDelay(ant) - 1);
+					if (mStore.getRecruitmentDelay(ant) < 0)
 					{
-						mRecruitmentDelay = 0;
+						mStore.setRecruitmentDelay(ant, 0);
 					}
-					if (mRecruitmentDelay == 0 && AntColony.eventOccurs(mRecruitmentProb))
+					if (mStore.getRecruitmentDelay(ant) == 0 && eventOccurs(mStore.getRecruitmentProb(ant)))
 					{
 						// ant begins recruiting to preferred nest site
-						beginRecruiting();
+						beginRecruiting(ant);
 					}
 					else
 					{
 						// probabilistically consider an alternative nest site
-						considerAlternativeNestSite();
+						considerAlternativeNestSite(ant);
 						// TODO: should scouts probabilistically consider stopping assessing?
 					}
 				}
@@ -634,7 +843,7 @@ class Ant
 					// NEW FUNCTION
 
 					// Ant has assessed the site and moved on.
-					setAssessing(false);
+					setAssessing(ant, false);
 
 					// -------------------------------------------------------------------------
 					// -------------------------------------------------------------------------
@@ -645,33 +854,45 @@ class Ant
 					// probabilistically consider an alternative nest site
 					if (!mColony.isPrattEbmEquivalent())
 					{
-//						considerAlternativeNestSite(); // TODO: should an alternative nest site be considered at this point
+//						considerAlternativeNestSite(ant); // TODO: should an alternative nest site be considered at this point
 					}
-					mTransportDelay--;
+					mStore.setTransportDelay(ant, mStore.getTransportDelay(ant) - 1);
 					// probabilistically consider stopping recruiting
-					if (!mTransporting)
+					if (!mStore.isTransporting(ant))
 					{
-						considerStoppingScouting();
+						considerStoppingScouting(ant);
 					}
-					if (mColony.isPrattEbmEquivalent() && mPreference != null)
+					// (the ant's state is re-read from here on, as recruiting other scouts may change it)
+					if (mColony.isPrattEbmEquivalent() && getPreference(ant) != null)
 					{
 						// ant can 'magically' recruit other active scouts even while carrying/tandem-running
-						mColony.recruitScoutToSite(mPreference, mTransporting, true);
+						if (mPartition == null)
+						{
+							mColony.recruitScoutToSite(getPreference(ant), mStore.isTransporting(ant), true);
+						}
+						else
+						{
+							mPartition.recruitActiveScout(getPreference(ant), mStore.isTransporting(ant));
+						}
 					}
-					if (mPreference != null && mTransportDelay <= 0)
+					if (getPreference(ant) != null && mStore.getTransportDelay(ant) <= 0)
 					{
-						if (!AntColony.eventOccurs(mColony.getReverseTandemRunProb())) // TODO: make reverse tandem-runs always take correct amount of time
+						if (!eventOccurs(mColony.getReverseTandemRunProb())) // TODO: make reverse tandem-runs always take correct amount of time
 						{
 							// normal recruitment (to preferred nest site)
-							if (mCurrentNest.getQuorumSize(mColony) > 0)
+							if (getQuorumSize(getCurrentNest(ant)) > 0)
 							{
 								// ant has moved a nest mate from the current nest to its preferred new nest site
-								if (!mColony.recruitScoutToSite(mPreference, mTransporting, false))
+								if (mPartition != null)
+								{
+									mPartition.recruit(ant, getCurrentNest(ant), getPreference(ant), mStore.isTransporting(ant));
+								}
+								else if (!mColony.recruitScoutToSite(getPreference(ant), mStore.isTransporting(ant), false))
 								{
-									if (mCurrentNest.getQuorumSize(mColony, false) > 0)
+									if (getCurrentNest(ant).getQuorumSize(mColony, false) > 0)
 									{
-										mCurrentNest.decrementQuorumSize(mColony, 1, false);
-										mPreference.incrementQuorumSize(mColony, 1, false);
+										decrementQuorumSize(getCurrentNest(ant), false);
+										incrementQuorumSize(getPreference(ant), false);
 										mColony.incrementNumRecruitmentActs();
 									}
 								}
@@ -680,29 +901,24 @@ class Ant
 									mColony.incrementNumRecruitmentActs();
 								}
 								// end of a recruitment act, so consider alternative nest site
-								considerAlternativeNestSite();
+								considerAlternativeNestSite(ant);
 								// begin recruiting to preferred nest site
-								beginRecruiting();
+								beginRecruiting(ant);
 							}
 							else
 							{
 								// emigration from original nest has been completed
-								mCurrentNest = mPreference;
-								if (mPreference.getQuorumSize(mColony) == mColony.getColonySize())
-								{
-									// colony has converged on a single new nest site
-									mColony.emigrationCompleted(mPreference);
-								}
-								mPreference = null;
-								mTransporting = false;
-								mRecruitmentDelay = 0;
-								mRecruitmentProb = 0;
+								finishEmigration(ant);
 							}
 						}
 						else
 						{
 							// reverse tandem-run
-							if (mColony.reverseTandemRunFromTo(mPreference, mCurrentNest))
+							if (mPartition != null)
+							{
+								mPartition.reverseTandemRun(getPreference(ant), getCurrentNest(ant));
+							}
+							else if (mColony.reverseTandemRunFromTo(getPreference(ant), getCurrentNest(ant)))
 							{
 								mColony.incrementNumRecruitmentActs();
 							}
@@ -714,38 +930,115 @@ class Ant
 		else
 		{
 			// colony is not seeking to emigrate, reset ant's preference and transport mode
-			mPreference = null;
-			mCurrentNest = mColony.getCurrentNest();
-			mTransporting = false;
-			mRecruitmentDelay = 0;
-			mRecruitmentProb = 0;
+			setPreference(ant, null);
+			setCurrentNest(ant, mColony.getCurrentNest());
+			mStore.setTransporting(ant, false);
+			mStore.setRecruitmentDelay(ant, 0);
+			mStore.setRecruitmentProb(ant, 0);
+		}
+	}
+
+	/**
+	 * Gets the number of the ant's coming updates that will do nothing but count down one of its
+	 * delays (no random draws, no change to its nest, preference or role), assuming nothing else
+	 * changes the ant in the meantime and the colony carries on seeking to emigrate. These are:
+	 * assessing a nest site (with or without a preference) and carrying a nest mate outside Pratt et
+	 * al EBM equivalence mode. The update in which the delay would reach 0 (or, for an ant with a
+	 * preference assessing it, the one before it) is not counted, so the counting delay stays > 0
+	 * over the updates counted (see Ant.advanceCountdown).
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 *
+	 * @return number of updates (0 indicates the ant's next update may do more)
+	 *
+	 */
+	public int getCountdown(int ant)
+	{
+		if (mStore.getPreferenceAssessedQuality(ant) == 0)
+		{
+			// the next update draws the ant's perception of its current nest's quality
+			return 0;
+		}
+		if (mStore.getPreference(ant) < 0 || mStore.getAssessmentDelay(ant) > 0)
+		{
+			// ant is assessing its current nest or its preference
+			if (!mStore.isAssessing(ant) || mStore.getAssessmentDelay(ant) < 2)
+			{
+				return 0;
+			}
+
+			return mStore.getAssessmentDelay(ant) - 1;
+		}
+		if (mStore.getRecruitmentDelay(ant) > 0 || mStore.getRecruitmentProb(ant) > 0)
+		{
+			// ant is waiting to begin recruiting, which considers alternatives every update
+			return 0;
+		}
+		if (mStore.isAssessing(ant) || !mStore.isTransporting(ant) || mColony.isPrattEbmEquivalent() || mStore.getTransportDelay(ant) < 2)
+		{
+			// tandem-runners may stop scouting every update, and Pratt et al EBM equivalent recruiters recruit every update
+			return 0;
 		}
+
+		return mStore.getTransportDelay(ant) - 1;
 	}
-	
+
+	/**
+	 * Counts down the delay the ant is waiting on by a number of updates, in place of that many
+	 * updates (see Ant.getCountdown)
+	 *
+	 * @param ant index of the ant in the colony's AntStore
+	 * @param updates number of updates to count down by (< 0 to give back updates counted down too soon)
+	 *
+	 * @return void
+	 *
+	 */
+	public void advanceCountdown(int ant, int updates)
+	{
+		if (mStore.getPreference(ant) < 0 || mStore.getAssessmentDelay(ant) > 0)
+		{
+			mStore.setAssessmentDelay(ant, mStore.getAssessmentDelay(ant) - updates);
+		}
+		else
+		{
+			mStore.setTransportDelay(ant, mStore.getTransportDelay(ant) - updates);
+		}
+	}
+
 	/**
 	 * Ant constructor
 	 *
 	 * @param colony (!= null)
-	 * 
+	 * @param store holding the state of the colony's scouts (!= null)
+	 *
+	 */
+	public Ant(AntColony colony, AntStore store)
+	{
+		this(colony, store, null);
+	}
+
+	/**
+	 * Ant constructor (for the scouts of a partition, see ScoutPartition)
+	 *
+	 * @param colony (!= null)
+	 * @param store holding the state of the colony's scouts (!= null)
+	 * @param partition of the colony's scouts the ant updates (null indicates scouts are updated one at a time by the colony)
+	 *
 	 */
-	public Ant(AntColony colony)
+	public Ant(AntColony colony, AntStore store, ScoutPartition partition)
 	{
 		if (colony == null)
 		{
 			throw new IllegalArgumentException("Attempt to construct Ant with colony == null");
 		}
-		
+		if (store == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct Ant with store == null");
+		}
+
 		mColony = colony;
-		mCurrentNest = mColony.getCurrentNest();
-		mPreference = null;
-		mPreferenceAssessedQuality = 0;
-		mConsideredNewSiteAssessedQuality = 0;
-		mQuorumThreshold = 0;
-		mTransporting = false;
-		mAssessing = false;
-		mAssessmentDelay = 0;
-		mRecruitmentDelay = 0;
-		mRecruitmentProb = 0;
+		mStore = store;
+		mPartition = partition;
 	}
 }
 
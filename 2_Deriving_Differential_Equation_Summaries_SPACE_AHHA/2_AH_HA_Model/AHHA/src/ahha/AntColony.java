@@ -23,23 +23,55 @@
 
 package ahha;
 
-import java.util.LinkedList;
-import java.util.Iterator;
-import uchicago.src.sim.util.Random;
-
 /**
  * The class that represents ant colonies.
  * In a given application, the search processes should inherit from this class.
- *  
+ * 
+ * Several colonies may share nest sites. Each colony keeps its own quorum at each nest site
+ * and draws from its own random stream, so colonies sharing nest sites may be updated
+ * concurrently (one thread per colony at a time) without affecting each other's results.
+ * 
+ * A colony may be event driven (see AntColony.setEventDriven): scouts whose next updates would do
+ * nothing but count down a delay are parked in a TimingWheel, their delay counted down in one go,
+ * and they are skipped until the delay has run out or another scout recruits them, so an update
+ * costs time in proportion to the scouts with something to do. Scouts are still updated in index
+ * order and make the same random draws, so the results are the same as updating every scout.
+ *
+ * A colony's scouts may also be bit-packed off the heap (see PackedAntStore), two longs a scout,
+ * for colonies of tens of millions of scouts; the results are the same as holding them in arrays.
+ *
+ * A colony may instead update its scouts in parallel (see AntColony.setPartitionSize), in fixed
+ * partitions on a fork-join pool (the common pool, unless the colony is updated from another
+ * pool's thread), with the scouts' interactions committed afterwards in partition order (see
+ * ScoutPartition). This is a different update scheme, not a parallel run of the sequential one:
+ * the results differ from a sequential update, but are the same for any number of threads (set
+ * with -Djava.util.concurrent.ForkJoinPool.common.parallelism).
+ *
  */
 public class AntColony
 {
+	/** The number of buckets in the timing wheel of an event driven colony (scouts with longer delays are parked more than once) */
+	private static final int WHEEL_SLOTS = 256;
+	/** The colony's index among the colonies sharing its nest sites */
+	private final int mId;
 	/** The number of ants in the colony */
 	private final int mColonySize;
 	/** The number of scouts in the colony */
 	private final int mNumScouts;
-	/** The scouts in the colony */
-	private LinkedList mScouts;
+	/** The state of the scouts in the colony */
+	private final AntStore mScouts;
+	/** The scouts' behaviour (applied to each scout in mScouts) */
+	private final Ant mAnt;
+	/** The nest sites reachable from the colony's original nest */
+	private final Landscape mLandscape;
+	/** The time taken to carry a nest mate along each edge of the landscape (see Landscape.getEdge) */
+	private final int[] mCarryingDelays;
+	/** The time taken to tandem-run a nest mate along each edge of the landscape */
+	private final int[] mTandemRunDelays;
+	/** The number of the colony's scouts present in / assessing / recruiting to each nest site (indexed by id) */
+	private final int[] mActiveQuorums;
+	/** The number of the colony's passive ants present in each nest site (indexed by id) */
+	private final int[] mPassiveQuorums;
 	/** The colony's current nest site */
 	private NestSite mCurrentNest;
 	/** The colony's nest quality requirement */
@@ -80,6 +112,24 @@ public class AntColony
 	private boolean mPrattEbmEquivalent;
 	/** The number of recruitment acts performed within the colony during the last emigration */
 	private int mNumRecruitmentActs;
+	/** The colony's random number stream (shared by its ants) */
+	private final RandomStream mRandom;
+	/** The scouts parked until their delays run out (null indicates every scout is updated every update) */
+	private TimingWheel mWheel;
+	/** The partitions the scouts are updated in, in parallel (null indicates scouts are updated one at a time) */
+	private ScoutPartition[] mPartitions;
+	/** The number of scouts in each partition (0 indicates scouts are updated one at a time) */
+	private int mPartitionSize;
+	/** The number of updates in which the colony's scouts have been updated */
+	private int mNumUpdates;
+	/** The index of the scout being updated (the number of scouts outside an update) */
+	private int mUpdatingAnt;
+	/** The number of scout updates made over the colony's life (for monitoring) */
+	private long mNumAntUpdates;
+	/** The number of recruitment acts over the colony's life, in all emigrations (for monitoring) */
+	private long mTotalRecruitmentActs;
+	/** The number of changes made to the colony's quorums (for monitoring) */
+	private long mNumQuorumOperations;
 
 	/**
 	 * General utility method to see if a probabilistic event occurs
@@ -89,7 +139,21 @@ public class AntColony
 	 * @return true if the event occurs on this occassion, false otherwise
 	 * 
 	 */
-	public static boolean eventOccurs(double probability)
+	public boolean eventOccurs(double probability)
+	{
+		return eventOccurs(probability, mRandom);
+	}
+
+	/**
+	 * General utility method to see if a probabilistic event occurs, drawing from a given stream
+	 * 
+	 * @param probability (0 <= probability <= 1)
+	 * @param random number stream (!= null)
+	 * 
+	 * @return true if the event occurs on this occassion, false otherwise
+	 * 
+	 */
+	static boolean eventOccurs(double probability, RandomStream random)
 	{
 		if (probability < 0 || probability > 1)
 		{
@@ -106,13 +170,245 @@ public class AntColony
 		}
 		else
 		{
-			return Random.uniform.nextDoubleFromTo(0, 1) <= probability;
+			return random.nextDouble() <= probability;
 		}
 	}
 
 	/**
-	 * Gets the size of the colony
+	 * Gets the colony's random number stream
+	 * 
+	 * @return colony's random number stream
+	 * 
+	 */
+	public RandomStream getRandom()
+	{
+		return mRandom;
+	}
+
+	/**
+	 * Gets the colony's index among the colonies sharing its nest sites (e.g. nests keep a noise stream per colony, indexed by it)
+	 * 
+	 * @return colony's id (>= 0)
+	 * 
+	 */
+	public int getId()
+	{
+		return mId;
+	}
+
+	/**
+	 * Gets the colony's quorum at a nest site
+	 * 
+	 * @param nestSite id of nest site (0 <= nestSite < AntColony.getNumNestSites)
+	 * @param active ants? (true if quorum of scouts is required, false if quorum of passive ants is required)
+	 * 
+	 * @return quorum size (>= 0)
+	 * 
+	 */
+	public int getQuorumSize(int nestSite, boolean active)
+	{
+		if (active)
+		{
+			return mActiveQuorums[nestSite];
+		}
+		else
+		{
+			return mPassiveQuorums[nestSite];
+		}
+	}
+
+	/**
+	 * Applies the changes to the colony's quorums recorded by a partition of its scouts (see ScoutPartition.commitQuorums)
+	 * 
+	 * @param activeChanges to the quorums of scouts, by nest site id
+	 * @param passiveChanges to the quorums of passive ants, by nest site id
+	 * @param numOperations number of changes the partition recorded (for monitoring)
+	 * 
+	 * @return void
+	 * 
+	 */
+	void commitQuorumChanges(int[] activeChanges, int[] passiveChanges, int numOperations)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < activeChanges.length; l1++)
+		{
+			mActiveQuorums[l1] += activeChanges[l1];
+			mPassiveQuorums[l1] += passiveChanges[l1];
+		}
+		mNumQuorumOperations += numOperations;
+	}
+
+	/**
+	 * Changes the colony's quorum at a nest site (see NestSite.incrementQuorumSize and NestSite.decrementQuorumSize)
+	 * 
+	 * @param nestSite id of nest site
+	 * @param numAnts to add to the quorum (< 0 to remove ants)
+	 * @param active ants flag (true if ants are scouts, false otherwise)
+	 * 
+	 * @return void
+	 * 
+	 */
+	void addToQuorumSize(int nestSite, int numAnts, boolean active)
+	{
+		mNumQuorumOperations++;
+		if (active)
+		{
+			mActiveQuorums[nestSite] += numAnts;
+		}
+		else
+		{
+			mPassiveQuorums[nestSite] += numAnts;
+		}
+	}
+
+	/**
+	 * Gets one of the nest sites reachable from the colony's original nest
+	 * 
+	 * @param id of the nest site (0 <= id < AntColony.getNumNestSites)
+	 * 
+	 * @return nest site
+	 * 
+	 */
+	public NestSite getNestSite(int id)
+	{
+		return mLandscape.getNestSite(id);
+	}
+
+	/**
+	 * Gets the number of nest sites reachable from the colony's original nest
+	 * 
+	 * @return number of nest sites (> 0)
+	 * 
+	 */
+	public int getNumNestSites()
+	{
+		return mLandscape.getNumNestSites();
+	}
+
+	/**
+	 * Gets the nest sites reachable from the colony's original nest
+	 * 
+	 * @return colony's landscape
+	 * 
+	 */
+	public Landscape getLandscape()
+	{
+		return mLandscape;
+	}
+
+	/**
+	 * Gets the time taken to carry a nest mate from one nest site to another (distance / carrying speed,
+	 * along the shortest path if they are not neighbours)
+	 * 
+	 * @param from id of nest site
+	 * @param to id of nest site (reachable from from)
+	 * 
+	 * @return carrying delay
+	 * 
+	 */
+	public int getCarryingDelay(int from, int to)
+	{
+		int edge = mLandscape.getEdge(from, to);
+
+		if (edge >= 0)
+		{
+			return mCarryingDelays[edge];
+		}
+
+		return getPathDistance(from, to) / mCarryingSpeed;
+	}
+
+	/**
+	 * Gets the time taken to tandem-run a nest mate from one nest site to another (distance / tandem-run
+	 * speed, along the shortest path if they are not neighbours)
 	 * 
+	 * @param from id of nest site
+	 * @param to id of nest site (reachable from from)
+	 * 
+	 * @return tandem-run delay
+	 * 
+	 */
+	public int getTandemRunDelay(int from, int to)
+	{
+		int edge = mLandscape.getEdge(from, to);
+
+		if (edge >= 0)
+		{
+			return mTandemRunDelays[edge];
+		}
+
+		return getPathDistance(from, to) / mTandemRunSpeed;
+	}
+
+	/**
+	 * Gets the length of the shortest path between two nest sites that are not neighbours
+	 * 
+	 * @param from id of nest site
+	 * @param to id of nest site (reachable from from)
+	 * 
+	 * @return distance
+	 * 
+	 */
+	private int getPathDistance(int from, int to)
+	{
+		int distance = mLandscape.getPathDistance(from, to);
+
+		if (distance < 0)
+		{
+			throw new IllegalArgumentException("AntColony.getPathDistance called with unreachable nest site (" + from + " to " + to + ")");
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Discovers a random neighbour of a nest site (weighted by distance if distance affects discovery)
+	 * 
+	 * @param nestSite to search from (!= null, must have at least one neighbour)
+	 * 
+	 * @return neighbouring nest site
+	 * 
+	 */
+	public NestSite getRandomNeighbour(NestSite nestSite)
+	{
+		if (nestSite == null)
+		{
+			throw new IllegalArgumentException("AntColony.getRandomNeighbour called with nestSite == null");
+		}
+
+		return getRandomNeighbour(nestSite, mRandom);
+	}
+
+	/**
+	 * Gets a random neighbour of a nest site, drawing from a given stream (see AntColony.getRandomNeighbour)
+	 * 
+	 * @param nestSite (!= null)
+	 * @param random number stream (!= null)
+	 * 
+	 * @return neighbouring nest site
+	 * 
+	 */
+	NestSite getRandomNeighbour(NestSite nestSite, RandomStream random)
+	{
+		return mLandscape.getNestSite(mLandscape.getRandomNeighbour(nestSite.getId(), mDistanceAffectsDiscovery, random));
+	}
+
+	/**
+	 * Gets the scouts' behaviour, for updating scouts one at a time outside AntColony.update
+	 * (for benchmarks; the colony must not be event driven)
+	 *
+	 * @return behaviour applied to each of the colony's scouts
+	 *
+	 */
+	Ant getAnt()
+	{
+		return mAnt;
+	}
+
+	/**
+	 * Gets the size of the colony
+	 *
 	 * @return number of ants in the colony (> 0)
 	 * 
 	 */
@@ -310,6 +606,7 @@ public class AntColony
 
 	/**
 	 * Gets the number of scouts recruiting from the specified origin to the specified destination nest site
+	 * (scouts still assessing the destination are not counted, see RoleLedger)
 	 * 
 	 * @param origin nest site (!= null)
 	 * @param destination nest site (!= null)
@@ -327,21 +624,8 @@ public class AntColony
 		{
 			throw new IllegalArgumentException("AntColony.getNumRecruitersBetweenSites called with destination == null");
 		}
-		int numRecruiters = 0;
-		Ant scout;
-		Iterator i1;
-		
-		i1 = mScouts.iterator();
-		while (i1.hasNext())
-		{
-			scout = (Ant) i1.next();
-			if (scout.getCurrentNest() != null && scout.getCurrentNest().equals(origin) && scout.getPreference() != null && scout.getPreference().equals(destination))
-			{
-				numRecruiters++;
-			}
-		}
 		
-		return numRecruiters;
+		return mScouts.getLedger().getNumRecruiters(origin.getId(), destination.getId());
 	}
 
 	// -------------------------------------------------------------------------
@@ -359,20 +643,8 @@ public class AntColony
 			throw new IllegalArgumentException("AntColony.getNumAssessingSite called with nest_site == null");
 		}
 
-		int numAssessors = 0;
-		Ant scout;
-		Iterator i1;
 		
-		i1 = mScouts.iterator();
-		while (i1.hasNext())
-		{
-			scout = (Ant) i1.next();
-			if( scout.getAssessing() && scout.getPreference() != null && scout.getPreference().equals(nest_site) ){ 
-				numAssessors++; 
-			}
-		}
-		
-		return numAssessors;
+		return mScouts.getLedger().getNumAssessors(nest_site.getId());
 	}
 
 	// -------------------------------------------------------------------------
@@ -413,6 +685,207 @@ public class AntColony
 		return mPrattEbmEquivalent;
 	}
 
+	/**
+	 * Determines if the colony skips scouts that are only counting down a delay
+	 * 
+	 * @return true if the colony is event driven, false if it updates every scout every update
+	 * 
+	 */
+	public boolean isEventDriven()
+	{
+		return mWheel != null;
+	}
+
+	/**
+	 * Sets whether the colony skips scouts that are only counting down a delay (see AntColony)
+	 * 
+	 * @param eventDriven (true to park scouts in a timing wheel, false to update every scout every update)
+	 * 
+	 * @return void
+	 *
+	 */
+	public void setEventDriven(boolean eventDriven)
+	{
+		if (eventDriven && mPartitions != null)
+		{
+			throw new IllegalStateException("AntColony.setEventDriven called while scouts are updated in parallel");
+		}
+		if (eventDriven && mWheel == null)
+		{
+			mWheel = new TimingWheel(mScouts.size(), WHEEL_SLOTS);
+		}
+		else if (!eventDriven && mWheel != null)
+		{
+			wakeAllScouts();
+			mWheel = null;
+		}
+	}
+
+	/**
+	 * Gets the number of scouts in each of the partitions the colony updates in parallel
+	 * 
+	 * @return number of scouts (0 indicates scouts are updated one at a time)
+	 * 
+	 */
+	public int getPartitionSize()
+	{
+		return mPartitionSize;
+	}
+
+	/**
+	 * Sets whether the colony updates its scouts in parallel, and in partitions of how many scouts
+	 * (see ScoutPartition). Each partition gets its own random number stream, split from the
+	 * colony's, so the results depend on the partition size but not on the number of threads.
+	 * 
+	 * Partitioning changes the model's update scheme rather than running the sequential one in
+	 * parallel: scouts do not see the changes other partitions make to the quorums until the update
+	 * is committed, and the scouts they recruit have already been updated. Colonies complete their
+	 * emigrations as often, as soon and with about as many recruitment acts as in a sequential update
+	 * (the Pratt et al EBM equivalent colony makes about 1% more), but a colony that splits stops
+	 * changing sooner (see nests.PartitionCheck).
+	 * 
+	 * @param partitionSize number of scouts in each partition (> 0, the last may have fewer), or 0 to update scouts one at a time
+	 * 
+	 * @return void
+	 *
+	 */
+	public void setPartitionSize(int partitionSize)
+	{
+		if (partitionSize < 0)
+		{
+			throw new IllegalArgumentException("AntColony.setPartitionSize called with partitionSize < 0 (partitionSize == " + partitionSize + ")");
+		}
+		if (partitionSize > 0 && mWheel != null)
+		{
+			throw new IllegalStateException("AntColony.setPartitionSize called while the colony is event driven");
+		}
+		int l1;
+
+		if (partitionSize == mPartitionSize)
+		{
+			return;
+		}
+		mPartitionSize = partitionSize;
+		if (partitionSize == 0)
+		{
+			mPartitions = null;
+
+			return;
+		}
+		mPartitions = new ScoutPartition[(mScouts.size() - 1) / partitionSize + 1];
+		for (l1 = 0; l1 < mPartitions.length; l1++)
+		{
+			mPartitions[l1] = new ScoutPartition(this, mScouts, l1 * partitionSize, Math.min((l1 + 1) * partitionSize, mScouts.size()), mRandom.split());
+		}
+	}
+
+	/**
+	 * Updates the scouts in parallel, a partition per fork-join task (on the pool the caller runs in,
+	 * or the common pool), then commits the partitions in order (see ScoutPartition). Whether the
+	 * colony has converged on a new nest site is checked once everything is committed, as the
+	 * scouts only see the quorums from the start of the update.
+	 * 
+	 * @return void
+	 *
+	 */
+	private void updatePartitions()
+	{
+		int l1;
+
+		mScouts.setBookkeepingDeferred(true);
+		try
+		{
+			new ScoutPartition.Update(mPartitions, 0, mPartitions.length).invoke();
+		}
+		finally
+		{
+			mScouts.setBookkeepingDeferred(false);
+		}
+		for (l1 = 0; l1 < mPartitions.length; l1++)
+		{
+			mPartitions[l1].commitChanges();
+		}
+		for (l1 = 0; l1 < mPartitions.length; l1++)
+		{
+			mPartitions[l1].commitQuorums();
+		}
+		for (l1 = 0; l1 < mPartitions.length; l1++)
+		{
+			mPartitions[l1].commitInteractions();
+		}
+		checkEmigrationCompleted();
+		mNumAntUpdates += mScouts.size();
+	}
+
+	/**
+	 * Completes the colony's emigration if, in the last update, a scout finished emigrating to a nest
+	 * site (see ScoutPartition.finishEmigration) that the whole colony is now in
+	 * 
+	 * @return void
+	 *
+	 */
+	private void checkEmigrationCompleted()
+	{
+		int l1, l2;
+
+		for (l1 = 0; l1 < mLandscape.getNumNestSites(); l1++)
+		{
+			if (mActiveQuorums[l1] + mPassiveQuorums[l1] == mColonySize)
+			{
+				for (l2 = 0; l2 < mPartitions.length; l2++)
+				{
+					if (mPartitions[l2].hasFinishedEmigration(l1))
+					{
+						// colony has converged on a single new nest site
+						emigrationCompleted(getNestSite(l1));
+
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wakes a parked scout early, giving back the part of its delay counted down ahead of time (nothing happens if the scout is awake)
+	 * 
+	 * @param scout index of the scout
+	 * 
+	 * @return void
+	 *
+	 */
+	private void wakeScout(int scout)
+	{
+		int wakeAt;
+
+		if (mWheel == null)
+		{
+			return;
+		}
+		wakeAt = mWheel.wake(scout);
+		if (wakeAt >= 0)
+		{
+			// the scout has missed every update since it was parked, and this one too if its turn has passed
+			mAnt.advanceCountdown(scout, -(wakeAt - mNumUpdates - (scout < mUpdatingAnt ? 1 : 0)));
+		}
+	}
+
+	/**
+	 * Wakes all parked scouts early (see AntColony.wakeScout)
+	 * 
+	 * @return void
+	 *
+	 */
+	private void wakeAllScouts()
+	{
+		int l1;
+
+		for (l1 = 0; l1 < mScouts.size(); l1++)
+		{
+			wakeScout(l1);
+		}
+	}
+
 	/**
 	 * Increments the number of recruitment acts performed within the colony during the last emigration
 	 * 
@@ -422,6 +895,64 @@ public class AntColony
 	public void incrementNumRecruitmentActs()
 	{
 		mNumRecruitmentActs++;
+		mTotalRecruitmentActs++;
+	}
+
+	/**
+	 * Gets the number of scout updates made over the colony's life (for monitoring, see nests.SweepMetrics)
+	 *
+	 * @return number of updates of single scouts
+	 *
+	 */
+	public long getNumAntUpdates()
+	{
+		return mNumAntUpdates;
+	}
+
+	/**
+	 * Gets the number of draws made from the colony's random number stream and, if it updates its
+	 * scouts in parallel, its partitions' streams (for monitoring, see nests.SweepMetrics)
+	 *
+	 * @return number of draws
+	 *
+	 */
+	public long getNumRandomDraws()
+	{
+		long numDraws = mRandom.getNumDraws();
+		int l1;
+
+		if (mPartitions != null)
+		{
+			for (l1 = 0; l1 < mPartitions.length; l1++)
+			{
+				numDraws += mPartitions[l1].getRandom().getNumDraws();
+			}
+		}
+
+		return numDraws;
+	}
+
+	/**
+	 * Gets the number of recruitment acts over the colony's life, in all its emigrations (for monitoring)
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	public long getTotalRecruitmentActs()
+	{
+		return mTotalRecruitmentActs;
+	}
+
+	/**
+	 * Gets the number of changes made to the colony's quorums (NestSite.incrementQuorumSize and
+	 * NestSite.decrementQuorumSize, for monitoring)
+	 *
+	 * @return number of quorum operations
+	 *
+	 */
+	public long getNumQuorumOperations()
+	{
+		return mNumQuorumOperations;
 	}
 
 	/**
@@ -452,38 +983,46 @@ public class AntColony
 		{
 			throw new IllegalArgumentException("AntColony.recruitScoutToSite called with nestSite == null");
 		}
-		Ant scout;
-		Iterator i1;
+		ScoutRegistry byPreference = mScouts.getByPreference();
+		int scout, numCandidates, l1;
 
 		if (!activeAntsOnly)
 		{
-			// TODO: randomise search order?
-			i1 = mScouts.iterator();
-			while (i1.hasNext())
+			// recruit a preferenceless scout, chosen at random
+			scout = byPreference.getRandom(0, mRandom);
+			if (scout >= 0)
 			{
-				scout = (Ant) i1.next();
-				if (scout.getPreference() == null)
-				{
-					return scout.recruitToNestSite(nestSite, transporting);
-				}
+				wakeScout(scout);
+				return mAnt.recruitToNestSite(scout, nestSite, transporting);
 			}
 		}
 		// no preferenceless scouts found, try and recruit a scout with an existing preference
 		if (!mPrattEbmEquivalent)
 		{
-			scout = (Ant) mScouts.get(Random.uniform.nextIntFromTo(0, mScouts.size() - 1));
-
-			return scout.recruitToNestSite(nestSite, transporting);
+			scout = mRandom.nextIntFromTo(0, mScouts.size() - 1);
+			wakeScout(scout);
+			return mAnt.recruitToNestSite(scout, nestSite, transporting);
 		}
 		else
 		{
-			i1 = mScouts.iterator();
-			while (i1.hasNext())
+			// choose at random from the scouts preferring any other site
+			numCandidates = mScouts.size() - byPreference.size(0) - byPreference.size(nestSite.getId() + 1);
+			if (numCandidates == 0)
+			{
+				return false;
+			}
+			scout = mRandom.nextIntFromTo(0, numCandidates - 1);
+			for (l1 = 0; l1 < mLandscape.getNumNestSites(); l1++)
 			{
-				scout = (Ant) i1.next();
-				if (scout.getPreference() != null && !scout.getPreference().equals(nestSite))
+				if (l1 != nestSite.getId())
 				{
-					return scout.recruitToNestSite(nestSite, transporting);
+					if (scout < byPreference.size(l1 + 1))
+					{
+						scout = byPreference.get(l1 + 1, scout);
+						wakeScout(scout);
+						return mAnt.recruitToNestSite(scout, nestSite, transporting);
+					}
+					scout -= byPreference.size(l1 + 1);
 				}
 			}
 			
@@ -510,23 +1049,31 @@ public class AntColony
 		{
 			throw new IllegalArgumentException("AntColony.reverseTandemRunScoutToNestSite called with destination == null");
 		}
-		Ant scout;
-		Iterator i1;
+		ScoutRegistry candidates = mScouts.getByPreferenceAndNest();
+		int scout, group, numCandidates, l1;
 		
-		// TODO: randomise search order?
-		i1 = mScouts.iterator();
-		while (i1.hasNext())
+		// candidates are the scouts preferring the origin (except those already based at the destination) and the preferenceless scouts in the origin
+		numCandidates = candidates.size(mScouts.getPreferenceAndNestGroup(-1, origin.getId())) + mScouts.getByPreference().size(origin.getId() + 1) - candidates.size(mScouts.getPreferenceAndNestGroup(origin.getId(), destination.getId()));
+		if (numCandidates == 0)
 		{
-			scout = (Ant) i1.next();
-			if ((scout.getPreference() != null && scout.getPreference().equals(origin) && scout.getCurrentNest() != destination) || (scout.getPreference() == null && scout.getCurrentNest().equals(origin)))
+			return false;
+		}
+		// choose a candidate at random
+		scout = mRandom.nextIntFromTo(0, numCandidates - 1);
+		group = mScouts.getPreferenceAndNestGroup(-1, origin.getId());
+		for (l1 = 0; l1 < mLandscape.getNumNestSites() && scout >= candidates.size(group); l1++)
+		{
+			if (l1 != destination.getId())
 			{
-				scout.reverseTandemRunFromTo(origin, destination);
-				
-				return true;
+				scout -= candidates.size(group);
+				group = mScouts.getPreferenceAndNestGroup(origin.getId(), l1);
 			}
 		}
+		scout = candidates.get(group, scout);
+		wakeScout(scout);
+		mAnt.reverseTandemRunFromTo(scout, origin, destination);
 
-		return false;
+		return true;
 	}
 
 	/**
@@ -537,8 +1084,7 @@ public class AntColony
 	 */
 	public void update()
 	{
-		Iterator i1;
-		Ant scout;
+		int countdown, l1;
 
 		// System.out.printf("\n\n QUORUM: %d \n\n", mQuorumThreshold);
 
@@ -551,7 +1097,7 @@ public class AntColony
 			}
 			else
 			{
-				if (mCurrentNest.getSiteQuality() < mNestQualityRequirement)
+				if (mCurrentNest.getSiteQuality(this) < mNestQualityRequirement)
 				{
 					// current nest unsatisfactory, move to improve
 					if (mEnvironmentHostile)
@@ -575,12 +1121,40 @@ public class AntColony
 		}
 		if (mQuorumThreshold > 0)
 		{
-			// TODO: randomise order of updates?
-			i1 = mScouts.iterator();
-			while (i1.hasNext())
+			mNumUpdates++;
+			if (mPartitions != null)
+			{
+				updatePartitions();
+			}
+			else if (mWheel == null)
+			{
+				// TODO: randomise order of updates?
+				for (l1 = 0; l1 < mScouts.size(); l1++)
+				{
+					mAnt.update(l1);
+				}
+				mNumAntUpdates += mScouts.size();
+			}
+			else
 			{
-				scout = (Ant) i1.next();
-				scout.update();
+				// update the awake scouts in index order (including those woken by earlier scouts), parking those with only a delay to count down
+				mWheel.expire(mNumUpdates);
+				for (l1 = mWheel.nextAwake(0); l1 >= 0; l1 = mWheel.nextAwake(l1 + 1))
+				{
+					mUpdatingAnt = l1;
+					mAnt.update(l1);
+					mNumAntUpdates++;
+					if (mQuorumThreshold > 0)
+					{
+						countdown = Math.min(mAnt.getCountdown(l1), mWheel.getMaxParkedUpdates() - 1);
+						if (countdown > 0)
+						{
+							mAnt.advanceCountdown(l1, countdown);
+							mWheel.park(l1, mNumUpdates, mNumUpdates + countdown + 1);
+						}
+					}
+				}
+				mUpdatingAnt = mScouts.size();
 			}
 		}
 	}
@@ -602,11 +1176,79 @@ public class AntColony
 		
 		mCurrentNest = newNest;
 		mQuorumThreshold = 0;
+		// the scouts still to be updated are reset (see Ant.update), so must be awake
+		wakeAllScouts();
 	}
 	
 	/**
 	 * AntColony constructor
 	 * 
+	 * @param id colony's index among the colonies sharing its nest sites (>= 0, colonies should be numbered from 0)
+	 * @param colonySize (> 0)
+	 * @param numScouts (> 0)
+	 * @param normalQuorumThreshold (> 0)
+	 * @param emergencyQuorumThreshold (> 0)
+	 * @param hostileQuorumThreshold (> 0)
+	 * @param preferenceSwitchProb (0 <= preferenceSwitchProb <= 1)
+	 * @param startScoutingProb (0 <= startScoutingProb <= 1)
+	 * @param stopScoutingProb (0 <= stopScoutingProb <= 1)
+	 * @param reverseTandemRunProb (0 <= reverseTandemRunProb <= 1)
+	 * @param currentNestSwitchProb (0 <= currentNestSwitchProb <= 1)
+	 * @param maxRecruitmentDelay (> 0)
+	 * @param assessmentDelay (>= 0)
+	 * @param tandemRunSpeed (> 0)
+	 * @param carryingSpeed (> 0)
+	 * @param currentNest (!= null, it and the nest sites reachable from it must be numbered 0 to n - 1, see NestSite.setId)
+	 * @param nestQualityRequirement (> 0)
+	 * @param environmentHostile
+	 * @param distanceAffectsDiscovery
+	 * @param compareNestSiteQualities
+	 * @param prattEbmEquivalent
+	 * @param random number stream for the colony and its ants (!= null)
+	 * 
+	 */
+	public AntColony(int id, int colonySize, int numScouts, int normalQuorumThreshold, int emergencyQuorumThreshold, int hostileQuorumThreshold, double preferenceSwitchProb, double startScoutingProb, double stopScoutingProb, double reverseTandemRunProb, double currentNestSwitchProb, int maxRecruitmentDelay, int assessmentDelay, int tandemRunSpeed, int carryingSpeed, NestSite currentNest, int nestQualityRequirement, boolean environmentHostile, boolean distanceAffectsDiscovery, boolean compareNestSiteQualities, boolean prattEbmEquivalent, RandomStream random)
+	{
+		this(id, colonySize, numScouts, normalQuorumThreshold, emergencyQuorumThreshold, hostileQuorumThreshold, preferenceSwitchProb, startScoutingProb, stopScoutingProb, reverseTandemRunProb, currentNestSwitchProb, maxRecruitmentDelay, assessmentDelay, tandemRunSpeed, carryingSpeed, Landscape.reachableFrom(currentNest), currentNest, nestQualityRequirement, environmentHostile, distanceAffectsDiscovery, compareNestSiteQualities, prattEbmEquivalent, random);
+	}
+
+	/**
+	 * AntColony constructor (for a colony in a prebuilt landscape)
+	 * 
+	 * @param id colony's index among the colonies sharing its nest sites (>= 0, colonies should be numbered from 0)
+	 * @param colonySize (> 0)
+	 * @param numScouts (> 0)
+	 * @param normalQuorumThreshold (> 0)
+	 * @param emergencyQuorumThreshold (> 0)
+	 * @param hostileQuorumThreshold (> 0)
+	 * @param preferenceSwitchProb (0 <= preferenceSwitchProb <= 1)
+	 * @param startScoutingProb (0 <= startScoutingProb <= 1)
+	 * @param stopScoutingProb (0 <= stopScoutingProb <= 1)
+	 * @param reverseTandemRunProb (0 <= reverseTandemRunProb <= 1)
+	 * @param currentNestSwitchProb (0 <= currentNestSwitchProb <= 1)
+	 * @param maxRecruitmentDelay (> 0)
+	 * @param assessmentDelay (>= 0)
+	 * @param tandemRunSpeed (> 0)
+	 * @param carryingSpeed (> 0)
+	 * @param landscape nest sites available to the colony (!= null)
+	 * @param currentNest (!= null, must be one of the landscape's nest sites)
+	 * @param nestQualityRequirement (> 0)
+	 * @param environmentHostile
+	 * @param distanceAffectsDiscovery
+	 * @param compareNestSiteQualities
+	 * @param prattEbmEquivalent
+	 * @param random number stream for the colony and its ants (!= null)
+	 * 
+	 */
+	public AntColony(int id, int colonySize, int numScouts, int normalQuorumThreshold, int emergencyQuorumThreshold, int hostileQuorumThreshold, double preferenceSwitchProb, double startScoutingProb, double stopScoutingProb, double reverseTandemRunProb, double currentNestSwitchProb, int maxRecruitmentDelay, int assessmentDelay, int tandemRunSpeed, int carryingSpeed, Landscape landscape, NestSite currentNest, int nestQualityRequirement, boolean environmentHostile, boolean distanceAffectsDiscovery, boolean compareNestSiteQualities, boolean prattEbmEquivalent, RandomStream random)
+	{
+		this(id, colonySize, numScouts, normalQuorumThreshold, emergencyQuorumThreshold, hostileQuorumThreshold, preferenceSwitchProb, startScoutingProb, stopScoutingProb, reverseTandemRunProb, currentNestSwitchProb, maxRecruitmentDelay, assessmentDelay, tandemRunSpeed, carryingSpeed, landscape, currentNest, nestQualityRequirement, environmentHostile, distanceAffectsDiscovery, compareNestSiteQualities, prattEbmEquivalent, random, false);
+	}
+
+	/**
+	 * AntColony constructor (for a colony in a prebuilt landscape, choosing how its scouts are stored)
+	 * 
+	 * @param id colony's index among the colonies sharing its nest sites (>= 0, colonies should be numbered from 0)
 	 * @param colonySize (> 0)
 	 * @param numScouts (> 0)
 	 * @param normalQuorumThreshold (> 0)
@@ -621,16 +1263,23 @@ public class AntColony
 	 * @param assessmentDelay (>= 0)
 	 * @param tandemRunSpeed (> 0)
 	 * @param carryingSpeed (> 0)
-	 * @param currentNest (!= null)
+	 * @param landscape nest sites available to the colony (!= null)
+	 * @param currentNest (!= null, must be one of the landscape's nest sites)
 	 * @param nestQualityRequirement (> 0)
 	 * @param environmentHostile
 	 * @param distanceAffectsDiscovery
 	 * @param compareNestSiteQualities
 	 * @param prattEbmEquivalent
+	 * @param random number stream for the colony and its ants (!= null)
+	 * @param packedScouts (true to bit-pack the scouts off the heap in a PackedAntStore, false to hold them in an ArrayAntStore)
 	 * 
 	 */
-	public AntColony(int colonySize, int numScouts, int normalQuorumThreshold, int emergencyQuorumThreshold, int hostileQuorumThreshold, double preferenceSwitchProb, double startScoutingProb, double stopScoutingProb, double reverseTandemRunProb, double currentNestSwitchProb, int maxRecruitmentDelay, int assessmentDelay, int tandemRunSpeed, int carryingSpeed, NestSite currentNest, int nestQualityRequirement, boolean environmentHostile, boolean distanceAffectsDiscovery, boolean compareNestSiteQualities, boolean prattEbmEquivalent)
+	public AntColony(int id, int colonySize, int numScouts, int normalQuorumThreshold, int emergencyQuorumThreshold, int hostileQuorumThreshold, double preferenceSwitchProb, double startScoutingProb, double stopScoutingProb, double reverseTandemRunProb, double currentNestSwitchProb, int maxRecruitmentDelay, int assessmentDelay, int tandemRunSpeed, int carryingSpeed, Landscape landscape, NestSite currentNest, int nestQualityRequirement, boolean environmentHostile, boolean distanceAffectsDiscovery, boolean compareNestSiteQualities, boolean prattEbmEquivalent, RandomStream random, boolean packedScouts)
 	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntColony with id < 0 (id == " + id + ")");
+		}
 		if (colonySize <= 0)
 		{
 			throw new IllegalArgumentException("Attempt to construct AntColony with colonySize <= 0 (colonySize == " + colonySize + ")");
@@ -687,24 +1336,51 @@ public class AntColony
 		{
 			throw new IllegalArgumentException("Attempt to construct AntColony with carryingSpeed <= 0 (carryingSpeed == " + carryingSpeed + ")");
 		}
+		if (landscape == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntColony with landscape == null");
+		}
 		if (currentNest == null)
 		{
 			throw new IllegalArgumentException("Attempt to construct AntColony with currentNest == null");
 		}
+		if (currentNest.getId() < 0 || currentNest.getId() >= landscape.getNumNestSites() || landscape.getNestSite(currentNest.getId()) != currentNest)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntColony with currentNest outside the landscape");
+		}
 		if (nestQualityRequirement <= 0)
 		{
 			throw new IllegalArgumentException("Attempt to construct AntColony with nestQualityRequirement <= 0 (nestQualityRequirement == " + nestQualityRequirement + ")");
 		}
+		if (random == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntColony with random == null");
+		}
 		int l1;
 		
+		mId = id;
 		mColonySize = colonySize;
 		mNumScouts = numScouts;
-		mScouts = new LinkedList();
+		mRandom = random;
 		mCurrentNest = currentNest;
-		for (l1 = 0; l1 < mNumScouts; l1++)
+		mLandscape = landscape;
+		if (packedScouts)
+		{
+			mScouts = new PackedAntStore(mNumScouts, mCurrentNest.getId(), mLandscape.getNumNestSites(), maxRecruitmentDelay, new int[] {normalQuorumThreshold, emergencyQuorumThreshold, hostileQuorumThreshold});
+		}
+		else
 		{
-			mScouts.addLast(new Ant(this));
+			mScouts = new ArrayAntStore(mNumScouts, mCurrentNest.getId(), mLandscape.getNumNestSites());
 		}
+		mAnt = new Ant(this, mScouts);
+		mWheel = null;
+		mPartitions = null;
+		mPartitionSize = 0;
+		mNumUpdates = 0;
+		mNumAntUpdates = 0;
+		mTotalRecruitmentActs = 0;
+		mNumQuorumOperations = 0;
+		mUpdatingAnt = mNumScouts;
 		mNestQualityRequirement = nestQualityRequirement;
 		mEnvironmentHostile = environmentHostile;
 		mNormalQuorumThreshold = normalQuorumThreshold;
@@ -719,9 +1395,23 @@ public class AntColony
 		mAssessmentDelay = assessmentDelay;
 		mTandemRunSpeed = tandemRunSpeed;
 		mCarryingSpeed = carryingSpeed;
+		// precompute the delays along each edge of the landscape
+		mCarryingDelays = new int[mLandscape.getNumEdges()];
+		mTandemRunDelays = new int[mLandscape.getNumEdges()];
+		for (l1 = 0; l1 < mLandscape.getNumEdges(); l1++)
+		{
+			mCarryingDelays[l1] = mLandscape.getEdgeDistance(l1) / mCarryingSpeed;
+			mTandemRunDelays[l1] = mLandscape.getEdgeDistance(l1) / mTandemRunSpeed;
+		}
 		mDistanceAffectsDiscovery = distanceAffectsDiscovery;
 		mCompareNestSiteQualities = compareNestSiteQualities;
 		mPrattEbmEquivalent = prattEbmEquivalent;
+		mActiveQuorums = new int[mLandscape.getNumNestSites()];
+		mPassiveQuorums = new int[mLandscape.getNumNestSites()];
+		for (l1 = 0; l1 < mLandscape.getNumNestSites(); l1++)
+		{
+			mLandscape.getNestSite(l1).addColony(this);
+		}
 		mCurrentNest.incrementQuorumSize(this, numScouts, true);
 		mCurrentNest.incrementQuorumSize(this, mColonySize - numScouts, false);
 		mNumRecruitmentActs = 0;
@@ -742,7 +1432,7 @@ public class AntColony
 		else
 		{
 			// colony is housed so will only emigrate opportunistically
-			if (mCurrentNest.getSiteQuality() < mNestQualityRequirement)
+			if (mCurrentNest.getSiteQuality(this) < mNestQualityRequirement)
 			{
 				// current nest unsatisfactory, move to improve
 				mQuorumThreshold = mNormalQuorumThreshold;
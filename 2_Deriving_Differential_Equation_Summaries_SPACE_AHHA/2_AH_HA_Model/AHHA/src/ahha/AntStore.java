@@ -0,0 +1,301 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * The state of a colony's scouts, indexed by ant number (0 to size - 1). ArrayAntStore holds it
+ * as one primitive array per field (structure of arrays); PackedAntStore bit-packs each ant into
+ * two longs off the heap, for colonies too large for the arrays.
+ * Nest sites are referred to by their ids (see NestSite.getId), with -1 standing for no nest site.
+ *
+ * Every change to an ant's current nest, preference or assessing flag goes through this class, so
+ * it also keeps the colony's RoleLedger and its ScoutRegistries of ants by preference (and by
+ * preference and current nest) up to date. While a colony updates its scouts in parallel, that
+ * bookkeeping is deferred (see AntStore.setBookkeepingDeferred) and each changed ant is booked
+ * afterwards, in a fixed order, by AntStore.bookDeferredChange.
+ *
+ */
+abstract class AntStore
+{
+	/** The number of ants in the store */
+	private final int mSize;
+	/** The number of nest sites in the landscape */
+	private final int mNumNestSites;
+	/** The running counts of the ants' roles */
+	private final RoleLedger mLedger;
+	/** The ants grouped by preference (group 0 holds the ants without one, group s + 1 those preferring site s) */
+	private final ScoutRegistry mByPreference;
+	/** The ants grouped by preference and current nest (see AntStore.getPreferenceAndNestGroup) */
+	private final ScoutRegistry mByPreferenceAndNest;
+	/** Are changes to ants' current nests, preferences and assessing flags left out of the ledger and registries? */
+	private boolean mBookkeepingDeferred;
+
+	/**
+	 * Gets the number of ants in the store
+	 *
+	 * @return number of ants (> 0)
+	 *
+	 */
+	public int size()
+	{
+		return mSize;
+	}
+
+	/**
+	 * Gets the number of nest sites in the landscape
+	 *
+	 * @return number of nest sites (> 0)
+	 *
+	 */
+	public int getNumNestSites()
+	{
+		return mNumNestSites;
+	}
+
+	/**
+	 * Gets the running counts of the ants' roles
+	 *
+	 * @return role ledger
+	 *
+	 */
+	public RoleLedger getLedger()
+	{
+		return mLedger;
+	}
+
+	/**
+	 * Gets the ants grouped by preference (group 0 holds the ants without one, group s + 1 those preferring site s)
+	 *
+	 * @return registry of ants by preference
+	 *
+	 */
+	public ScoutRegistry getByPreference()
+	{
+		return mByPreference;
+	}
+
+	/**
+	 * Gets the ants grouped by preference and current nest (see AntStore.getPreferenceAndNestGroup)
+	 *
+	 * @return registry of ants by preference and current nest
+	 *
+	 */
+	public ScoutRegistry getByPreferenceAndNest()
+	{
+		return mByPreferenceAndNest;
+	}
+
+	/**
+	 * Gets the group of AntStore.getByPreferenceAndNest holding the ants with the given preference and current nest
+	 *
+	 * @param preference id of nest site (-1 indicates no preference)
+	 * @param currentNest id of nest site
+	 *
+	 * @return group
+	 *
+	 */
+	public int getPreferenceAndNestGroup(int preference, int currentNest)
+	{
+		return (preference + 1) * mNumNestSites + currentNest;
+	}
+
+	/**
+	 * Sets whether changes to ants' current nests, preferences and assessing flags are left out of
+	 * the ledger and registries, so ants may be changed concurrently (each by one thread) as long as
+	 * the ledger and registries are not read; every changed ant must then be booked with
+	 * AntStore.bookDeferredChange
+	 *
+	 * @param bookkeepingDeferred
+	 *
+	 * @return void
+	 *
+	 */
+	public void setBookkeepingDeferred(boolean bookkeepingDeferred)
+	{
+		mBookkeepingDeferred = bookkeepingDeferred;
+	}
+
+	/**
+	 * Books a change to an ant made while bookkeeping was deferred, moving it in the ledger and
+	 * registries from its old state to its current one (the order in which ants are booked
+	 * determines the order of the registries' groups)
+	 *
+	 * @param ant index of the ant
+	 * @param oldCurrentNest ant's current nest when bookkeeping was deferred
+	 * @param oldPreference ant's preference when bookkeeping was deferred
+	 * @param oldAssessing ant's assessing flag when bookkeeping was deferred
+	 *
+	 * @return void
+	 *
+	 */
+	public void bookDeferredChange(int ant, int oldCurrentNest, int oldPreference, boolean oldAssessing)
+	{
+		int currentNest = getCurrentNest(ant);
+		int preference = getPreference(ant);
+
+		mLedger.remove(oldCurrentNest, oldPreference, oldAssessing);
+		mLedger.add(currentNest, preference, isAssessing(ant));
+		mByPreference.move(ant, preference + 1);
+		mByPreferenceAndNest.move(ant, getPreferenceAndNestGroup(preference, currentNest));
+	}
+
+	public abstract int getCurrentNest(int ant);
+
+	public void setCurrentNest(int ant, int nestSite)
+	{
+		if (mBookkeepingDeferred)
+		{
+			putCurrentNest(ant, nestSite);
+
+			return;
+		}
+		int preference = getPreference(ant);
+		boolean assessing = isAssessing(ant);
+
+		mLedger.remove(getCurrentNest(ant), preference, assessing);
+		putCurrentNest(ant, nestSite);
+		mLedger.add(nestSite, preference, assessing);
+		mByPreferenceAndNest.move(ant, getPreferenceAndNestGroup(preference, nestSite));
+	}
+
+	public abstract int getPreference(int ant);
+
+	public void setPreference(int ant, int nestSite)
+	{
+		if (mBookkeepingDeferred)
+		{
+			putPreference(ant, nestSite);
+
+			return;
+		}
+		int currentNest = getCurrentNest(ant);
+		boolean assessing = isAssessing(ant);
+
+		mLedger.remove(currentNest, getPreference(ant), assessing);
+		putPreference(ant, nestSite);
+		mLedger.add(currentNest, nestSite, assessing);
+		mByPreference.move(ant, nestSite + 1);
+		mByPreferenceAndNest.move(ant, getPreferenceAndNestGroup(nestSite, currentNest));
+	}
+
+	public abstract int getPreferenceAssessedQuality(int ant);
+
+	public abstract void setPreferenceAssessedQuality(int ant, int quality);
+
+	public abstract int getConsideredNewSiteAssessedQuality(int ant);
+
+	public abstract void setConsideredNewSiteAssessedQuality(int ant, int quality);
+
+	public abstract int getQuorumThreshold(int ant);
+
+	public abstract void setQuorumThreshold(int ant, int quorumThreshold);
+
+	public abstract int getAssessmentDelay(int ant);
+
+	public abstract void setAssessmentDelay(int ant, int delay);
+
+	public abstract int getRecruitmentDelay(int ant);
+
+	public abstract void setRecruitmentDelay(int ant, int delay);
+
+	public abstract int getTransportDelay(int ant);
+
+	public abstract void setTransportDelay(int ant, int delay);
+
+	public abstract double getRecruitmentProb(int ant);
+
+	public abstract void setRecruitmentProb(int ant, double probability);
+
+	public abstract boolean isTransporting(int ant);
+
+	public abstract void setTransporting(int ant, boolean transporting);
+
+	public abstract boolean isAssessing(int ant);
+
+	public void setAssessing(int ant, boolean assessing)
+	{
+		if (mBookkeepingDeferred)
+		{
+			putAssessing(ant, assessing);
+
+			return;
+		}
+		int currentNest = getCurrentNest(ant);
+		int preference = getPreference(ant);
+
+		mLedger.remove(currentNest, preference, isAssessing(ant));
+		putAssessing(ant, assessing);
+		mLedger.add(currentNest, preference, assessing);
+	}
+
+	/**
+	 * Stores an ant's current nest, leaving the ledger and registries to AntStore.setCurrentNest
+	 *
+	 * @param ant index of the ant
+	 * @param nestSite id of nest site
+	 *
+	 * @return void
+	 *
+	 */
+	protected abstract void putCurrentNest(int ant, int nestSite);
+
+	/**
+	 * Stores an ant's preference, leaving the ledger and registries to AntStore.setPreference
+	 *
+	 * @param ant index of the ant
+	 * @param nestSite id of nest site (-1 indicates no preference)
+	 *
+	 * @return void
+	 *
+	 */
+	protected abstract void putPreference(int ant, int nestSite);
+
+	/**
+	 * Stores whether an ant is assessing a nest site, leaving the ledger to AntStore.setAssessing
+	 *
+	 * @param ant index of the ant
+	 * @param assessing
+	 *
+	 * @return void
+	 *
+	 */
+	protected abstract void putAssessing(int ant, boolean assessing);
+
+	/**
+	 * AntStore constructor (all ants start in the same nest, with no preference; the subclass stores
+	 * that starting state)
+	 *
+	 * @param size number of ants (> 0)
+	 * @param currentNest id of the ants' current nest (0 <= currentNest < numNestSites)
+	 * @param numNestSites number of nest sites in the landscape (> 0)
+	 *
+	 */
+	protected AntStore(int size, int currentNest, int numNestSites)
+	{
+		if (size <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntStore with size <= 0 (size == " + size + ")");
+		}
+		if (currentNest < 0 || currentNest >= numNestSites)
+		{
+			throw new IllegalArgumentException("Attempt to construct AntStore with currentNest out of range (0 <= " + currentNest + " < " + numNestSites + ")");
+		}
+
+		mSize = size;
+		mNumNestSites = numNestSites;
+		mLedger = new RoleLedger(numNestSites);
+		mByPreference = new ScoutRegistry(size, numNestSites + 1, 0);
+		mByPreferenceAndNest = new ScoutRegistry(size, (numNestSites + 1) * numNestSites, getPreferenceAndNestGroup(-1, currentNest));
+		mBookkeepingDeferred = false;
+	}
+}
@@ -0,0 +1,185 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * An AntStore holding the state of a colony's scouts as one primitive array per field
+ * (structure of arrays), indexed by ant number.
+ *
+ */
+class ArrayAntStore extends AntStore
+{
+	/** The nest each ant considers to be the colony's current nest */
+	private final int[] mCurrentNest;
+	/** Each ant's preferred nest site (-1 indicates no preference) */
+	private final int[] mPreference;
+	/** The quality of each ant's preferred nest according to its last assessment of it */
+	private final int[] mPreferenceAssessedQuality;
+	/** The quality of the site each ant last considered according to its last assessment of it */
+	private final int[] mConsideredNewSiteAssessedQuality;
+	/** Each ant's current quorum threshold (> 0 indicates ant is scouting) */
+	private final int[] mQuorumThreshold;
+	/** The delay until each ant has finished assessing a nest site */
+	private final int[] mAssessmentDelay;
+	/** The distance-related delay until each ant may begin recruiting to its current preference */
+	private final int[] mRecruitmentDelay;
+	/** The delay until each ant finishes transporting a nest mate */
+	private final int[] mTransportDelay;
+	/** The per-update probability with which each ant will begin recruiting to its current preference */
+	private final double[] mRecruitmentProb;
+	/** Each ant is transporting? (false indicates ant is tandem-running) */
+	private final boolean[] mTransporting;
+	/** Each ant is assessing a nest site? */
+	private final boolean[] mAssessing;
+
+	public int getCurrentNest(int ant)
+	{
+		return mCurrentNest[ant];
+	}
+
+	protected void putCurrentNest(int ant, int nestSite)
+	{
+		mCurrentNest[ant] = nestSite;
+	}
+
+	public int getPreference(int ant)
+	{
+		return mPreference[ant];
+	}
+
+	protected void putPreference(int ant, int nestSite)
+	{
+		mPreference[ant] = nestSite;
+	}
+
+	public int getPreferenceAssessedQuality(int ant)
+	{
+		return mPreferenceAssessedQuality[ant];
+	}
+
+	public void setPreferenceAssessedQuality(int ant, int quality)
+	{
+		mPreferenceAssessedQuality[ant] = quality;
+	}
+
+	public int getConsideredNewSiteAssessedQuality(int ant)
+	{
+		return mConsideredNewSiteAssessedQuality[ant];
+	}
+
+	public void setConsideredNewSiteAssessedQuality(int ant, int quality)
+	{
+		mConsideredNewSiteAssessedQuality[ant] = quality;
+	}
+
+	public int getQuorumThreshold(int ant)
+	{
+		return mQuorumThreshold[ant];
+	}
+
+	public void setQuorumThreshold(int ant, int quorumThreshold)
+	{
+		mQuorumThreshold[ant] = quorumThreshold;
+	}
+
+	public int getAssessmentDelay(int ant)
+	{
+		return mAssessmentDelay[ant];
+	}
+
+	public void setAssessmentDelay(int ant, int delay)
+	{
+		mAssessmentDelay[ant] = delay;
+	}
+
+	public int getRecruitmentDelay(int ant)
+	{
+		return mRecruitmentDelay[ant];
+	}
+
+	public void setRecruitmentDelay(int ant, int delay)
+	{
+		mRecruitmentDelay[ant] = delay;
+	}
+
+	public int getTransportDelay(int ant)
+	{
+		return mTransportDelay[ant];
+	}
+
+	public void setTransportDelay(int ant, int delay)
+	{
+		mTransportDelay[ant] = delay;
+	}
+
+	public double getRecruitmentProb(int ant)
+	{
+		return mRecruitmentProb[ant];
+	}
+
+	public void setRecruitmentProb(int ant, double probability)
+	{
+		mRecruitmentProb[ant] = probability;
+	}
+
+	public boolean isTransporting(int ant)
+	{
+		return mTransporting[ant];
+	}
+
+	public void setTransporting(int ant, boolean transporting)
+	{
+		mTransporting[ant] = transporting;
+	}
+
+	public boolean isAssessing(int ant)
+	{
+		return mAssessing[ant];
+	}
+
+	protected void putAssessing(int ant, boolean assessing)
+	{
+		mAssessing[ant] = assessing;
+	}
+
+	/**
+	 * ArrayAntStore constructor (all ants start in the same nest, with no preference)
+	 *
+	 * @param size number of ants (> 0)
+	 * @param currentNest id of the ants' current nest (0 <= currentNest < numNestSites)
+	 * @param numNestSites number of nest sites in the landscape (> 0)
+	 *
+	 */
+	public ArrayAntStore(int size, int currentNest, int numNestSites)
+	{
+		super(size, currentNest, numNestSites);
+		int l1;
+
+		mCurrentNest = new int[size];
+		mPreference = new int[size];
+		mPreferenceAssessedQuality = new int[size];
+		mConsideredNewSiteAssessedQuality = new int[size];
+		mQuorumThreshold = new int[size];
+		mAssessmentDelay = new int[size];
+		mRecruitmentDelay = new int[size];
+		mTransportDelay = new int[size];
+		mRecruitmentProb = new double[size];
+		mTransporting = new boolean[size];
+		mAssessing = new boolean[size];
+		for (l1 = 0; l1 < size; l1++)
+		{
+			mCurrentNest[l1] = currentNest;
+			mPreference[l1] = -1;
+		}
+	}
+}
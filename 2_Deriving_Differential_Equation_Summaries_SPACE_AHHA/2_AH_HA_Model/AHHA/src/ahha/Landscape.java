@@ -0,0 +1,557 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+
+/**
+ * The nest sites available to a colony, indexed by id, and the (directed) edges between
+ * neighbouring nest sites. The edges are held in compressed sparse row form: the edges leaving
+ * nest site i are numbered getFirstEdge(i) to getFirstEdge(i + 1) - 1, in order of the id of the
+ * neighbour they lead to, so a landscape of n nest sites and e edges takes O(n + e) space and an
+ * edge is found by binary search of its row.
+ *
+ * A landscape can be built in one pass from lists of edges (see the bulk constructor), or from
+ * the neighbour lists of nest sites (see Landscape.reachableFrom). It is not changed once built,
+ * so colonies sharing nest sites may share their landscape.
+ *
+ * In a sparse landscape a scout may come to prefer a nest site that is not a neighbour of its
+ * current nest; the distance between them is then that of the shortest path (see
+ * Landscape.getPathDistance).
+ *
+ */
+public class Landscape
+{
+	/** The nest sites, indexed by id */
+	private final NestSite[] mNestSites;
+	/** The first edge leaving each nest site (mFirstEdge[n] is the number of edges) */
+	private final int[] mFirstEdge;
+	/** The nest site each edge leads to */
+	private final int[] mTarget;
+	/** The length of each edge */
+	private final int[] mDistance;
+	/** Alias table for distance-weighted discovery of each nest site's neighbours (null indicates discovery is uniform) */
+	private final AliasTable[] mNeighbourSamplers;
+	/** The shortest path distance from each nest site to every other (-1 indicates unreachable, null indicates not yet needed) */
+	private final int[][] mPathDistances;
+
+	/**
+	 * Gets the nest sites reachable from a nest site
+	 *
+	 * @param origin (!= null, it and the nest sites reachable from it must be numbered 0 to n - 1, see NestSite.setId)
+	 *
+	 * @return landscape of the nest sites reachable from origin (including origin)
+	 *
+	 */
+	public static Landscape reachableFrom(NestSite origin)
+	{
+		if (origin == null)
+		{
+			throw new IllegalArgumentException("Landscape.reachableFrom called with origin == null");
+		}
+		ArrayList<NestSite> nestSites = new ArrayList<NestSite>();
+		HashSet<NestSite> found = new HashSet<NestSite>();
+		NestSite[] indexed;
+		NestSite nestSite, neighbour;
+		int[] from, to, distances;
+		int numEdges = 0, l1, l2;
+
+		// breadth-first search over the neighbour lists
+		nestSites.add(origin);
+		found.add(origin);
+		for (l1 = 0; l1 < nestSites.size(); l1++)
+		{
+			nestSite = nestSites.get(l1);
+			for (l2 = 0; l2 < nestSite.getNumNeighbours(); l2++)
+			{
+				neighbour = nestSite.getNeighbour(l2);
+				if (found.add(neighbour))
+				{
+					nestSites.add(neighbour);
+				}
+			}
+			numEdges += nestSite.getNumNeighbours();
+		}
+		indexed = new NestSite[nestSites.size()];
+		from = new int[numEdges];
+		to = new int[numEdges];
+		distances = new int[numEdges];
+		numEdges = 0;
+		for (l1 = 0; l1 < nestSites.size(); l1++)
+		{
+			nestSite = nestSites.get(l1);
+			if (nestSite.getId() < 0 || nestSite.getId() >= indexed.length || indexed[nestSite.getId()] != null)
+			{
+				throw new IllegalArgumentException("Landscape.reachableFrom called with nest sites not numbered 0 to " + (indexed.length - 1) + " (id == " + nestSite.getId() + ")");
+			}
+			indexed[nestSite.getId()] = nestSite;
+			for (l2 = 0; l2 < nestSite.getNumNeighbours(); l2++)
+			{
+				from[numEdges] = nestSite.getId();
+				to[numEdges] = nestSite.getNeighbour(l2).getId();
+				distances[numEdges] = nestSite.getNeighbourDistance(l2);
+				numEdges++;
+			}
+		}
+
+		return new Landscape(indexed, from, to, distances);
+	}
+
+	/**
+	 * Gets the number of nest sites in the landscape
+	 *
+	 * @return number of nest sites (> 0)
+	 *
+	 */
+	public int getNumNestSites()
+	{
+		return mNestSites.length;
+	}
+
+	/**
+	 * Gets a nest site
+	 *
+	 * @param id of the nest site (0 <= id < Landscape.getNumNestSites)
+	 *
+	 * @return nest site
+	 *
+	 */
+	public NestSite getNestSite(int id)
+	{
+		return mNestSites[id];
+	}
+
+	/**
+	 * Gets the number of (directed) edges in the landscape
+	 *
+	 * @return number of edges (>= 0)
+	 *
+	 */
+	public int getNumEdges()
+	{
+		return mTarget.length;
+	}
+
+	/**
+	 * Gets the first edge leaving a nest site
+	 *
+	 * @param nestSite id of nest site (0 <= nestSite <= Landscape.getNumNestSites, getFirstEdge(getNumNestSites()) is the number of edges)
+	 *
+	 * @return edge number
+	 *
+	 */
+	public int getFirstEdge(int nestSite)
+	{
+		return mFirstEdge[nestSite];
+	}
+
+	/**
+	 * Gets the nest site an edge leads to
+	 *
+	 * @param edge number (0 <= edge < Landscape.getNumEdges)
+	 *
+	 * @return id of nest site
+	 *
+	 */
+	public int getTarget(int edge)
+	{
+		return mTarget[edge];
+	}
+
+	/**
+	 * Gets the length of an edge
+	 *
+	 * @param edge number (0 <= edge < Landscape.getNumEdges)
+	 *
+	 * @return distance (>= 0)
+	 *
+	 */
+	public int getEdgeDistance(int edge)
+	{
+		return mDistance[edge];
+	}
+
+	/**
+	 * Gets the number of neighbours of a nest site
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return number of neighbours (>= 0)
+	 *
+	 */
+	public int getNumNeighbours(int nestSite)
+	{
+		return mFirstEdge[nestSite + 1] - mFirstEdge[nestSite];
+	}
+
+	/**
+	 * Finds the edge from one nest site to another
+	 *
+	 * @param from id of nest site
+	 * @param to id of nest site
+	 *
+	 * @return edge number (-1 indicates the nest sites are not neighbours)
+	 *
+	 */
+	public int getEdge(int from, int to)
+	{
+		int low, high, middle;
+
+		// binary search of from's row, which is in order of target
+		low = mFirstEdge[from];
+		high = mFirstEdge[from + 1] - 1;
+		while (low <= high)
+		{
+			middle = (low + high) >>> 1;
+			if (mTarget[middle] < to)
+			{
+				low = middle + 1;
+			}
+			else if (mTarget[middle] > to)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the distance between two nest sites
+	 *
+	 * @param from id of nest site
+	 * @param to id of nest site
+	 *
+	 * @return distance (-1 indicates the nest sites are not neighbours)
+	 *
+	 */
+	public int getDistance(int from, int to)
+	{
+		int edge = getEdge(from, to);
+
+		if (edge < 0)
+		{
+			return -1;
+		}
+
+		return mDistance[edge];
+	}
+
+	/**
+	 * Gets the length of the shortest path between two nest sites (the distance, if they are neighbours)
+	 *
+	 * @param from id of nest site
+	 * @param to id of nest site
+	 *
+	 * @return distance (-1 indicates to is unreachable from from)
+	 *
+	 */
+	public int getPathDistance(int from, int to)
+	{
+		int edge = getEdge(from, to);
+
+		if (edge >= 0)
+		{
+			return mDistance[edge];
+		}
+
+		return getPathDistances(from)[to];
+	}
+
+	/**
+	 * Gets the shortest path distances from a nest site, finding them (by Dijkstra's algorithm) the first time they are needed
+	 *
+	 * @param from id of nest site
+	 *
+	 * @return distance to each nest site (-1 indicates unreachable)
+	 *
+	 */
+	private synchronized int[] getPathDistances(int from)
+	{
+		PriorityQueue<Long> queue;
+		long[] distances;
+		long entry, distance;
+		int[] pathDistances;
+		int nestSite, l1;
+
+		if (mPathDistances[from] != null)
+		{
+			return mPathDistances[from];
+		}
+		distances = new long[mNestSites.length];
+		Arrays.fill(distances, Long.MAX_VALUE);
+		distances[from] = 0;
+		// queue entries are packed as distance and nest site, so the nearest is taken first
+		queue = new PriorityQueue<Long>();
+		queue.add(Long.valueOf(from));
+		while (!queue.isEmpty())
+		{
+			entry = queue.poll().longValue();
+			nestSite = (int) (entry & 0xFFFFFFFFL);
+			if ((entry >>> 32) > distances[nestSite])
+			{
+				// superseded by a shorter path
+				continue;
+			}
+			for (l1 = mFirstEdge[nestSite]; l1 < mFirstEdge[nestSite + 1]; l1++)
+			{
+				distance = distances[nestSite] + mDistance[l1];
+				if (distance < distances[mTarget[l1]])
+				{
+					distances[mTarget[l1]] = distance;
+					queue.add(Long.valueOf((distance << 32) | mTarget[l1]));
+				}
+			}
+		}
+		pathDistances = new int[mNestSites.length];
+		for (l1 = 0; l1 < mNestSites.length; l1++)
+		{
+			if (distances[l1] == Long.MAX_VALUE)
+			{
+				pathDistances[l1] = -1;
+			}
+			else
+			{
+				pathDistances[l1] = (int) Math.min(distances[l1], Integer.MAX_VALUE);
+			}
+		}
+		mPathDistances[from] = pathDistances;
+
+		return pathDistances;
+	}
+
+	/**
+	 * Gets a random neighbour of a nest site
+	 *
+	 * @param nestSite id of nest site (must have at least one neighbour)
+	 * @param distanceAffectsDiscovery (true indicates that distance to neighbour affects chances of discovery)
+	 * @param random number stream to draw from (!= null)
+	 *
+	 * @return id of random neighbouring nest site
+	 *
+	 */
+	public int getRandomNeighbour(int nestSite, boolean distanceAffectsDiscovery, RandomStream random)
+	{
+		if (getNumNeighbours(nestSite) == 0)
+		{
+			throw new IllegalArgumentException("Landscape.getRandomNeighbour called with nest site without neighbours (nestSite == " + nestSite + ")");
+		}
+
+		if (distanceAffectsDiscovery && mNeighbourSamplers[nestSite] != null)
+		{
+			// weight probability of discovery of each neighbour by its distance
+			return mTarget[mFirstEdge[nestSite] + mNeighbourSamplers[nestSite].next(random)];
+		}
+		else
+		{
+			// sampled neighbour drawn from uniform distribution over all neighbours
+			return mTarget[random.nextIntFromTo(mFirstEdge[nestSite], mFirstEdge[nestSite + 1] - 1)];
+		}
+	}
+
+	/**
+	 * Gets the probability that Landscape.getRandomNeighbour chooses the neighbour an edge leads to
+	 *
+	 * @param nestSite id of nest site
+	 * @param edge leaving the nest site (getFirstEdge(nestSite) <= edge < getFirstEdge(nestSite + 1))
+	 * @param distanceAffectsDiscovery (true indicates that distance to neighbour affects chances of discovery)
+	 *
+	 * @return probability (0 to 1)
+	 *
+	 */
+	public double getDiscoveryProbability(int nestSite, int edge, boolean distanceAffectsDiscovery)
+	{
+		if (edge < mFirstEdge[nestSite] || edge >= mFirstEdge[nestSite + 1])
+		{
+			throw new IllegalArgumentException("Landscape.getDiscoveryProbability called with an edge not leaving the nest site (nestSite == " + nestSite + ", edge == " + edge + ")");
+		}
+		long totalDistance = 0;
+		int l1;
+
+		if (distanceAffectsDiscovery && mNeighbourSamplers[nestSite] != null)
+		{
+			// see the weights of the alias table built by the constructor
+			for (l1 = mFirstEdge[nestSite]; l1 < mFirstEdge[nestSite + 1]; l1++)
+			{
+				totalDistance += mDistance[l1];
+			}
+
+			return (double) (totalDistance - mDistance[edge]) / ((getNumNeighbours(nestSite) - 1) * (double) totalDistance);
+		}
+
+		return 1.0 / getNumNeighbours(nestSite);
+	}
+
+	/**
+	 * Landscape constructor (from the neighbour lists of the nest sites)
+	 *
+	 * @param nestSites indexed by id (!= null, no nulls, nestSites[i].getId() == i, neighbours must be in the array)
+	 *
+	 */
+	public Landscape(NestSite[] nestSites)
+	{
+		this(nestSites, neighbourLists(nestSites));
+	}
+
+	/**
+	 * Lists the edges of the nest sites' neighbour lists (helper for the neighbour list constructor)
+	 *
+	 * @param nestSites indexed by id (!= null)
+	 *
+	 * @return edges, as {from, to, distances}
+	 *
+	 */
+	private static int[][] neighbourLists(NestSite[] nestSites)
+	{
+		if (nestSites == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct Landscape with no nest sites");
+		}
+		int[][] edges;
+		int numEdges = 0, l1, l2;
+
+		for (l1 = 0; l1 < nestSites.length; l1++)
+		{
+			if (nestSites[l1] != null)
+			{
+				numEdges += nestSites[l1].getNumNeighbours();
+			}
+		}
+		edges = new int[3][numEdges];
+		numEdges = 0;
+		for (l1 = 0; l1 < nestSites.length; l1++)
+		{
+			for (l2 = 0; nestSites[l1] != null && l2 < nestSites[l1].getNumNeighbours(); l2++)
+			{
+				edges[0][numEdges] = l1;
+				edges[1][numEdges] = nestSites[l1].getNeighbour(l2).getId();
+				edges[2][numEdges] = nestSites[l1].getNeighbourDistance(l2);
+				numEdges++;
+			}
+		}
+
+		return edges;
+	}
+
+	/**
+	 * Landscape constructor (helper for the neighbour list constructor)
+	 *
+	 * @param nestSites indexed by id
+	 * @param edges as {from, to, distances}
+	 *
+	 */
+	private Landscape(NestSite[] nestSites, int[][] edges)
+	{
+		this(nestSites, edges[0], edges[1], edges[2]);
+	}
+
+	/**
+	 * Landscape constructor (bulk, from a list of directed edges in any order)
+	 *
+	 * @param nestSites indexed by id (!= null, no nulls, nestSites[i].getId() == i)
+	 * @param from id of the nest site each edge leaves (!= null)
+	 * @param to id of the nest site each edge leads to (!= null, same length as from, no edge may be listed twice or lead back to its own nest site)
+	 * @param distances length of each edge (!= null, same length as from, each >= 0)
+	 *
+	 */
+	public Landscape(NestSite[] nestSites, int[] from, int[] to, int[] distances)
+	{
+		if (nestSites == null || nestSites.length == 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct Landscape with no nest sites");
+		}
+		if (from == null || to == null || distances == null || to.length != from.length || distances.length != from.length)
+		{
+			throw new IllegalArgumentException("Attempt to construct Landscape with missing or mismatched edge lists");
+		}
+		long[] row, weights;
+		long totalDistance;
+		int[] next;
+		int n = nestSites.length, l1, l2;
+
+		mNestSites = nestSites.clone();
+		for (l1 = 0; l1 < n; l1++)
+		{
+			if (mNestSites[l1] == null || mNestSites[l1].getId() != l1)
+			{
+				throw new IllegalArgumentException("Attempt to construct Landscape with nest site " + l1 + " missing or misnumbered");
+			}
+		}
+		// count the edges leaving each nest site
+		mFirstEdge = new int[n + 1];
+		for (l1 = 0; l1 < from.length; l1++)
+		{
+			if (from[l1] < 0 || from[l1] >= n || to[l1] < 0 || to[l1] >= n)
+			{
+				throw new IllegalArgumentException("Attempt to construct Landscape with edge " + l1 + " outside the landscape (" + from[l1] + " to " + to[l1] + ")");
+			}
+			if (from[l1] == to[l1])
+			{
+				throw new IllegalArgumentException("Attempt to construct Landscape with edge " + l1 + " from nest site " + from[l1] + " to itself");
+			}
+			if (distances[l1] < 0)
+			{
+				throw new IllegalArgumentException("Attempt to construct Landscape with distance < 0 (distances[" + l1 + "] == " + distances[l1] + ")");
+			}
+			mFirstEdge[from[l1] + 1]++;
+		}
+		for (l1 = 0; l1 < n; l1++)
+		{
+			mFirstEdge[l1 + 1] += mFirstEdge[l1];
+		}
+		// place each edge in its nest site's row (packed as target and distance, so sorting a row orders it by target)
+		row = new long[from.length];
+		next = Arrays.copyOf(mFirstEdge, n);
+		for (l1 = 0; l1 < from.length; l1++)
+		{
+			row[next[from[l1]]++] = ((long) to[l1] << 32) | distances[l1];
+		}
+		mTarget = new int[from.length];
+		mDistance = new int[from.length];
+		mNeighbourSamplers = new AliasTable[n];
+		mPathDistances = new int[n][];
+		for (l1 = 0; l1 < n; l1++)
+		{
+			Arrays.sort(row, mFirstEdge[l1], mFirstEdge[l1 + 1]);
+			totalDistance = 0;
+			for (l2 = mFirstEdge[l1]; l2 < mFirstEdge[l1 + 1]; l2++)
+			{
+				mTarget[l2] = (int) (row[l2] >>> 32);
+				mDistance[l2] = (int) row[l2];
+				if (l2 > mFirstEdge[l1] && mTarget[l2] == mTarget[l2 - 1])
+				{
+					throw new IllegalArgumentException("Attempt to construct Landscape with edge from nest site " + l1 + " to " + mTarget[l2] + " listed twice");
+				}
+				totalDistance += mDistance[l2];
+			}
+			// weight each neighbour by the total distance to all neighbours less its own distance, so nearer neighbours are more likely to be discovered
+			// (the weights total (number of neighbours - 1) * total distance; if that is 0 no neighbour is nearer than any other and discovery is uniform)
+			weights = new long[mFirstEdge[l1 + 1] - mFirstEdge[l1]];
+			if (weights.length > 1 && totalDistance > 0)
+			{
+				for (l2 = 0; l2 < weights.length; l2++)
+				{
+					weights[l2] = totalDistance - mDistance[mFirstEdge[l1] + l2];
+				}
+				mNeighbourSamplers[l1] = new AliasTable(weights);
+			}
+		}
+	}
+}
@@ -23,11 +23,9 @@
 
 package ahha;
 
-import java.util.HashMap;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.lang.RuntimeException;
-import uchicago.src.sim.util.Random;
 
 /**
  * The class that represents alternatives for ant colonies to assess and choose between.
@@ -54,40 +52,86 @@ public abstract class NestSite
 		}
 	}
 
-	private class ColonyQuorum
+	/** Nest site is habitable? (true indicates it is) */
+	private boolean mIsHabitable;
+	/** The colonies whose landscapes include the nest site (the quorums are kept by the colonies, see AntColony.getQuorumSize) */
+	private AntColony[] mColonies;
+	/** The number of colonies in mColonies */
+	private int mNumColonies;
+	/** List of neighbouring nest sites */
+	private ArrayList<Neighbour> mNeighbours;
+	/** Index of each neighbouring nest site in mNeighbours, keyed by nest site */
+	private HashMap<NestSite, Integer> mNeighbourIndex;
+	/** The nest site's index within its landscape (-1 until assigned) */
+	private int mId;
+
+	/**
+	 * Gets the nest site's index within its landscape
+	 * 
+	 * @return nest site's id (-1 indicates no id has been assigned)
+	 * 
+	 */
+	public int getId()
 	{
-		/** The number of scouts in the quorum */
-		public int mActiveQuorum;
-		/** The number of passive ants in the quorum */
-		public int mPassiveQuorum;
-		
-		public ColonyQuorum()
+		return mId;
+	}
+
+	/**
+	 * Sets the nest site's index within its landscape (the nest sites of a landscape should be numbered from 0)
+	 * 
+	 * @param id (>= 0)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setId(int id)
+	{
+		if (id < 0)
 		{
-			mActiveQuorum = 0;
-			mPassiveQuorum = 0;
+			throw new IllegalArgumentException("NestSite.setId called with id < 0 (id == " + id + ")");
 		}
+
+		mId = id;
 	}
 	
-	/** Nest site is habitable? (true indicates it is) */
-	private boolean mIsHabitable;
-	/** Total number of ants present in / assesing / recruiting to nest site */
-	private int mQuorumSize;
-	/** Ants present in / assessing / recruiting to nest site from different colonies */
-	private HashMap mColonyQuorums;
-	/** List of neighbouring nest sites */
-	private ArrayList mNeighbours;
-	/** Total distance to all neighbouring nest sites */
-	private int mTotalNeighbourDistance;
-	
+	/**
+	 * Registers a colony whose landscape includes the nest site (called as the colony is constructed,
+	 * before any colony is updated)
+	 * 
+	 * @param colony (!= null)
+	 * 
+	 * @return void
+	 * 
+	 */
+	void addColony(AntColony colony)
+	{
+		AntColony[] colonies;
+
+		if (mNumColonies == mColonies.length)
+		{
+			colonies = new AntColony[Math.max(2 * mColonies.length, 1)];
+			System.arraycopy(mColonies, 0, colonies, 0, mNumColonies);
+			mColonies = colonies;
+		}
+		mColonies[mNumColonies++] = colony;
+	}
+
 	/**
 	 *Gets the total quorum size (number of ants in / assessing / recruiting to nest site) 
 	 * 
-	 * @return total quorum size (>= 0)
+	 * @return total quorum size (>= 0, the sum over all colonies)
 	 * 
 	 */
 	public int getQuorumSize()
 	{
-		return mQuorumSize;
+		int quorumSize = 0, l1;
+
+		for (l1 = 0; l1 < mNumColonies; l1++)
+		{
+			quorumSize += mColonies[l1].getQuorumSize(mId, true) + mColonies[l1].getQuorumSize(mId, false);
+		}
+
+		return quorumSize;
 	}
 	
 	/**
@@ -104,17 +148,8 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.getQuorumSize called with colony == null");
 		}
-		ColonyQuorum quorum = null;
 		
-		quorum = (ColonyQuorum) mColonyQuorums.get(colony);
-		if (quorum != null)
-		{
-			return quorum.mActiveQuorum + quorum.mPassiveQuorum;
-		}
-		else
-		{
-			return 0;
-		}
+		return colony.getQuorumSize(mId, true) + colony.getQuorumSize(mId, false);
 	}
 
 	/**
@@ -132,24 +167,8 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.getQuorumSize called with colony == null");
 		}
-		ColonyQuorum quorum = null;
 		
-		quorum = (ColonyQuorum) mColonyQuorums.get(colony);
-		if (quorum != null)
-		{
-			if (active)
-			{
-				return quorum.mActiveQuorum;
-			}
-			else
-			{
-				return quorum.mPassiveQuorum;
-			}
-		}
-		else
-		{
-			return 0;
-		}
+		return colony.getQuorumSize(mId, active);
 	}
 	
 	/**
@@ -172,34 +191,8 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.incrementQuorumSize called with numAnts < 0 (numAnts == " + numAnts + ")");
 		}
-		ColonyQuorum quorum;
 		
-		mQuorumSize += numAnts;
-		quorum = (ColonyQuorum) mColonyQuorums.get(colony);
-		if (quorum != null)
-		{
-			if (active)
-			{
-				quorum.mActiveQuorum += numAnts;
-			}
-			else
-			{
-				quorum.mPassiveQuorum += numAnts;
-			}
-		}
-		else
-		{
-			quorum = new ColonyQuorum();
-			if (active)
-			{
-				quorum.mActiveQuorum = numAnts;
-			}
-			else
-			{
-				quorum.mPassiveQuorum = numAnts;
-			}
-			mColonyQuorums.put(colony, quorum);
-		}
+		colony.addToQuorumSize(mId, numAnts, active);
 	}
 
 	/**
@@ -220,38 +213,31 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.decrementQuorumSize called with colony == null");
 		}
-		ColonyQuorum quorum;
 
-		mQuorumSize-= numAnts;
-		quorum = (ColonyQuorum) mColonyQuorums.get(colony);
-		if (quorum != null)
+		if (colony.getQuorumSize(mId, true) + colony.getQuorumSize(mId, false) > 0)
 		{
 			if (active)
 			{
-				if (quorum.mActiveQuorum >= numAnts)
+				if (colony.getQuorumSize(mId, true) >= numAnts)
 				{
-					quorum.mActiveQuorum -= numAnts;
+					colony.addToQuorumSize(mId, -numAnts, true);
 				}
-				else if (quorum.mActiveQuorum < numAnts)
+				else
 				{
 					throw new IllegalArgumentException("NestSite.decrementQuorumSize called with numAnts > NestSite.getQuorumSize(colony, true) (numAnts == " + numAnts + ")");
 				}
 			}
 			else
 			{
-				if (quorum.mPassiveQuorum >= numAnts)
+				if (colony.getQuorumSize(mId, false) >= numAnts)
 				{
-					quorum.mPassiveQuorum -= numAnts;
+					colony.addToQuorumSize(mId, -numAnts, false);
 				}
-				else if (quorum.mPassiveQuorum < numAnts)
+				else
 				{
 					throw new IllegalArgumentException("NestSite.decrementQuorumSize called with numAnts > NestSite.getQuorumSize(colony, false) (numAnts == " + numAnts + ")");
 				}
 			}
-			if (quorum.mActiveQuorum == 0 && quorum.mPassiveQuorum == 0)
-			{
-				mColonyQuorums.remove(colony);
-			}
 		}
 		else
 		{
@@ -267,6 +253,36 @@ public abstract class NestSite
 	 */
 	public abstract int getSiteQuality();
 
+	/**
+	 * Gets the site's quality as assessed by a member of a colony (colonies may be updated
+	 * concurrently, so any noise in the assessment should be drawn from a stream belonging to the colony)
+	 * 
+	 * @param colony assessing the site (!= null)
+	 * 
+	 * @return site's quality (int > 0)
+	 * 
+	 */
+	public int getSiteQuality(AntColony colony)
+	{
+		return getSiteQuality();
+	}
+
+	/**
+	 * Gets the site's quality as assessed by a member of a colony, drawing any noise in the assessment
+	 * from the given stream (scouts updated in parallel each draw from their partition's stream, see
+	 * ScoutPartition)
+	 * 
+	 * @param colony assessing the site (!= null)
+	 * @param random number stream to draw the noise from (!= null)
+	 * 
+	 * @return site's quality (int > 0)
+	 * 
+	 */
+	public int getSiteQuality(AntColony colony, RandomStream random)
+	{
+		return getSiteQuality(colony);
+	}
+
 	/**
 	 * Sets whether the nest site is habitable or not
 	 * 
@@ -299,62 +315,61 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.addNeighbouringNestSite called with distance < 0 (distance == " + distance + ")");
 		}
-		Neighbour existingNeighbour;
-		Iterator i;
 		// check if nest site is already a known neighbour
-		i = mNeighbours.iterator();
-		while (i.hasNext())
+		if (mNeighbourIndex.containsKey(neighbour))
 		{
-			existingNeighbour = (Neighbour) i.next();
-			if (existingNeighbour.mNeighbour.equals(neighbour))
-			{
-				throw new IllegalArgumentException("NestSite.addNeighbouringNestSite called with neighbour already in list of neighbours");
-			}
+			throw new IllegalArgumentException("NestSite.addNeighbouringNestSite called with neighbour already in list of neighbours");
 		}
 		
+		mNeighbourIndex.put(neighbour, Integer.valueOf(mNeighbours.size()));
 		mNeighbours.add(new Neighbour(neighbour, distance));
-		mTotalNeighbourDistance += distance;
 	}
 
-	/** 
-	 * Gets a random neighbouring NestSite
-	 *
-	 * @param distanceAffectsDiscovery (true indicates that distance to neighbour affects chances of discovery)
-	 *  
-	 * @return random neighbouring NestSite
+	/**
+	 * Gets the number of known neighbouring nest sites
+	 * 
+	 * @return number of neighbours (>= 0)
 	 * 
 	 */
-	public NestSite getRandomNeighbour(boolean distanceAffectsDiscovery)
+	public int getNumNeighbours()
 	{
-		Neighbour neighbour;
-		Iterator i1;
-		int randomInt, totalDistance = 0;
+		return mNeighbours.size();
+	}
 
-		if (distanceAffectsDiscovery)
+	/**
+	 * Gets one of the known neighbouring nest sites
+	 * 
+	 * @param index of neighbour (0 <= index < NestSite.getNumNeighbours)
+	 * 
+	 * @return neighbouring nest site
+	 * 
+	 */
+	public NestSite getNeighbour(int index)
+	{
+		if (index < 0 || index >= mNeighbours.size())
 		{
-			// TODO: should getRandomNeighbur be able to return null, e.g. if there are only very distant neighbouring nests?
-			// weight probability of discovery of each neighbour by its distance
-			randomInt = Random.uniform.nextIntFromTo(0, mTotalNeighbourDistance - 1);
-			i1 = mNeighbours.iterator();
-			while (i1.hasNext())
-			{
-				neighbour = (Neighbour) i1.next();
-				if (randomInt >= totalDistance && randomInt < totalDistance + (mTotalNeighbourDistance - neighbour.mDistance))
-				{
-					return neighbour.mNeighbour;
-				}
-				totalDistance += (mTotalNeighbourDistance - neighbour.mDistance);
-			}
-			
-			throw new RuntimeException("NestSite.getRandomNeighbour: Weighted probability calculation failed");
+			throw new IllegalArgumentException("NestSite.getNeighbour called with index out of range (0 <= " + index + " < " + mNeighbours.size() + ")");
 		}
-		else
+
+		return mNeighbours.get(index).mNeighbour;
+	}
+
+	/**
+	 * Gets the distance to one of the known neighbouring nest sites
+	 * 
+	 * @param index of neighbour (0 <= index < NestSite.getNumNeighbours)
+	 * 
+	 * @return distance to neighbour
+	 * 
+	 */
+	public int getNeighbourDistance(int index)
+	{
+		if (index < 0 || index >= mNeighbours.size())
 		{
-			// sampled neighbour drawn from uniform distribution over all neighbours
-			neighbour = (Neighbour) mNeighbours.get(Random.uniform.nextIntFromTo(0, mNeighbours.size() - 1));
+			throw new IllegalArgumentException("NestSite.getNeighbourDistance called with index out of range (0 <= " + index + " < " + mNeighbours.size() + ")");
 		}
-		
-		return neighbour.mNeighbour;
+
+		return mNeighbours.get(index).mDistance;
 	}
 
 	/**
@@ -371,20 +386,14 @@ public abstract class NestSite
 		{
 			throw new IllegalArgumentException("NestSite.getDistanceToNeighbour called with neighbour == null");
 		}
-		Iterator i1;
-		Neighbour n;
+		Integer index = mNeighbourIndex.get(neighbour);
 		
-		i1 = mNeighbours.iterator();
-		while (i1.hasNext())
+		if (index == null)
 		{
-			n = (Neighbour) i1.next();
-			if (n.mNeighbour.equals(neighbour))
-			{
-				return n.mDistance;
-			}
+			throw new IllegalArgumentException("NestSite.getDistanceToNeighbour called with non-neighbouring nest site");
 		}
 		
-		throw new IllegalArgumentException("NestSite.getDistanceToNeighbour called with non-neighbouring nest site");
+		return mNeighbours.get(index.intValue()).mDistance;
 	}
 		
 	/** Determines if the nest site is habitable or not
@@ -404,10 +413,11 @@ public abstract class NestSite
 	public NestSite()
 	{
 		mIsHabitable = true;
-		mQuorumSize = 0;
-		mColonyQuorums = new HashMap();
-		mNeighbours = new ArrayList();
-		mTotalNeighbourDistance = 0;
+		mColonies = new AntColony[1];
+		mNumColonies = 0;
+		mNeighbours = new ArrayList<Neighbour>();
+		mNeighbourIndex = new HashMap<NestSite, Integer>();
+		mId = -1;
 	}
 }
 
@@ -0,0 +1,355 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * An AntStore that bit-packs each scout's state into two longs, held off the heap in direct
+ * buffers, so a colony of tens of millions of scouts takes 16 bytes a scout (plus its
+ * ScoutRegistries) and its state is never scanned by the garbage collector.
+ *
+ * The first long holds the current nest (bits 0-11), the preference (12-23), the assessing
+ * (24) and transporting (25) flags, the quorum threshold (26-27, as an index into the colony's
+ * thresholds), the assessment delay (28-45) and the recruitment delay (46-63). The second holds
+ * the preference's assessed quality (0-15), the considered site's assessed quality (16-31), the
+ * recruitment probability (32-45, in steps of 1 / the recruitment probability scale) and the
+ * transport delay (46-63). Ids, qualities and delays are signed. Setting a value that does not
+ * fit its bits, or a quorum threshold that is not one of the colony's, throws an
+ * IllegalArgumentException rather than storing a truncated value.
+ *
+ * The recruitment probability is rounded to the nearest step; the model only ever sets it to 0
+ * or to an assessed quality over the colony's maximum nest site quality (at most 1), so with that
+ * maximum as the scale it is stored exactly and runs are identical to ArrayAntStore's.
+ *
+ * The buffers count against the JVM's direct memory limit (-XX:MaxDirectMemorySize, by default
+ * the maximum heap size), not the heap, and are freed once the store is garbage collected.
+ *
+ */
+class PackedAntStore extends AntStore
+{
+	/** The number of bits of an ant number that index the ant within its chunk */
+	private static final int CHUNK_BITS = 22;
+	/** The mask of the bits of an ant number that index the ant within its chunk */
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	/** The (first) bit and width of the current nest, in the first long */
+	private static final int CURRENT_NEST_SHIFT = 0, CURRENT_NEST_BITS = 12;
+	/** The bit and width of the preference, in the first long */
+	private static final int PREFERENCE_SHIFT = 12, PREFERENCE_BITS = 12;
+	/** The bit of the assessing flag, in the first long */
+	private static final int ASSESSING_SHIFT = 24;
+	/** The bit of the transporting flag, in the first long */
+	private static final int TRANSPORTING_SHIFT = 25;
+	/** The bit and width of the index of the quorum threshold, in the first long */
+	private static final int QUORUM_THRESHOLD_SHIFT = 26, QUORUM_THRESHOLD_BITS = 2;
+	/** The bit and width of the assessment delay, in the first long */
+	private static final int ASSESSMENT_DELAY_SHIFT = 28, ASSESSMENT_DELAY_BITS = 18;
+	/** The bit and width of the recruitment delay, in the first long */
+	private static final int RECRUITMENT_DELAY_SHIFT = 46, RECRUITMENT_DELAY_BITS = 18;
+	/** The bit and width of the preference's assessed quality, in the second long */
+	private static final int PREFERENCE_QUALITY_SHIFT = 0, PREFERENCE_QUALITY_BITS = 16;
+	/** The bit and width of the considered site's assessed quality, in the second long */
+	private static final int CONSIDERED_QUALITY_SHIFT = 16, CONSIDERED_QUALITY_BITS = 16;
+	/** The bit and width of the recruitment probability (unsigned), in the second long */
+	private static final int RECRUITMENT_PROB_SHIFT = 32, RECRUITMENT_PROB_BITS = 14;
+	/** The bit and width of the transport delay, in the second long */
+	private static final int TRANSPORT_DELAY_SHIFT = 46, TRANSPORT_DELAY_BITS = 18;
+	/** The ants' packed state, two longs per ant, in chunks of 2^CHUNK_BITS ants */
+	private final LongBuffer[] mChunks;
+	/** The number of steps of the recruitment probability from 0 to 1 */
+	private final int mRecruitmentProbScale;
+	/** The quorum thresholds an ant may have (the first, 0, indicates ant is not scouting) */
+	private final int[] mQuorumThresholds;
+
+	/**
+	 * Gets one of an ant's longs
+	 *
+	 * @param ant index of the ant
+	 * @param word 0 for the first long, 1 for the second
+	 *
+	 * @return long
+	 *
+	 */
+	private long getWord(int ant, int word)
+	{
+		return mChunks[ant >>> CHUNK_BITS].get(((ant & CHUNK_MASK) << 1) + word);
+	}
+
+	/**
+	 * Gets a signed field of an ant's state
+	 *
+	 * @param ant index of the ant
+	 * @param word 0 for the first long, 1 for the second
+	 * @param shift field's first bit
+	 * @param bits field's width
+	 *
+	 * @return field
+	 *
+	 */
+	private int getField(int ant, int word, int shift, int bits)
+	{
+		return (int) ((getWord(ant, word) << (64 - shift - bits)) >> (64 - bits));
+	}
+
+	/**
+	 * Gets an unsigned field of an ant's state
+	 *
+	 * @param ant index of the ant
+	 * @param word 0 for the first long, 1 for the second
+	 * @param shift field's first bit
+	 * @param bits field's width
+	 *
+	 * @return field (>= 0)
+	 *
+	 */
+	private int getUnsignedField(int ant, int word, int shift, int bits)
+	{
+		return (int) ((getWord(ant, word) >>> shift) & ((1L << bits) - 1));
+	}
+
+	/**
+	 * Sets a field of an ant's state (the value's sign is dropped with its high bits, see PackedAntStore.checkRange)
+	 *
+	 * @param ant index of the ant
+	 * @param word 0 for the first long, 1 for the second
+	 * @param shift field's first bit
+	 * @param bits field's width
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	private void putField(int ant, int word, int shift, int bits, int value)
+	{
+		LongBuffer chunk = mChunks[ant >>> CHUNK_BITS];
+		int index = ((ant & CHUNK_MASK) << 1) + word;
+		long mask = ((1L << bits) - 1) << shift;
+
+		chunk.put(index, (chunk.get(index) & ~mask) | (((long) value << shift) & mask));
+	}
+
+	/**
+	 * Checks that a value fits a signed field
+	 *
+	 * @param method name of the method setting the value
+	 * @param name name of the value
+	 * @param value
+	 * @param bits field's width
+	 *
+	 * @return void
+	 *
+	 */
+	private static void checkRange(String method, String name, int value, int bits)
+	{
+		if (value < -(1 << (bits - 1)) || value >= (1 << (bits - 1)))
+		{
+			throw new IllegalArgumentException("PackedAntStore." + method + " called with " + name + " out of range (" + -(1 << (bits - 1)) + " <= " + value + " < " + (1 << (bits - 1)) + ")");
+		}
+	}
+
+	/**
+	 * Gets one of an ant's flags
+	 *
+	 * @param ant index of the ant
+	 * @param shift flag's bit (in the first long)
+	 *
+	 * @return flag
+	 *
+	 */
+	private boolean getFlag(int ant, int shift)
+	{
+		return (getWord(ant, 0) & (1L << shift)) != 0;
+	}
+
+	public int getCurrentNest(int ant)
+	{
+		return getField(ant, 0, CURRENT_NEST_SHIFT, CURRENT_NEST_BITS);
+	}
+
+	protected void putCurrentNest(int ant, int nestSite)
+	{
+		putField(ant, 0, CURRENT_NEST_SHIFT, CURRENT_NEST_BITS, nestSite);
+	}
+
+	public int getPreference(int ant)
+	{
+		return getField(ant, 0, PREFERENCE_SHIFT, PREFERENCE_BITS);
+	}
+
+	protected void putPreference(int ant, int nestSite)
+	{
+		putField(ant, 0, PREFERENCE_SHIFT, PREFERENCE_BITS, nestSite);
+	}
+
+	public int getPreferenceAssessedQuality(int ant)
+	{
+		return getField(ant, 1, PREFERENCE_QUALITY_SHIFT, PREFERENCE_QUALITY_BITS);
+	}
+
+	public void setPreferenceAssessedQuality(int ant, int quality)
+	{
+		checkRange("setPreferenceAssessedQuality", "quality", quality, PREFERENCE_QUALITY_BITS);
+		putField(ant, 1, PREFERENCE_QUALITY_SHIFT, PREFERENCE_QUALITY_BITS, quality);
+	}
+
+	public int getConsideredNewSiteAssessedQuality(int ant)
+	{
+		return getField(ant, 1, CONSIDERED_QUALITY_SHIFT, CONSIDERED_QUALITY_BITS);
+	}
+
+	public void setConsideredNewSiteAssessedQuality(int ant, int quality)
+	{
+		checkRange("setConsideredNewSiteAssessedQuality", "quality", quality, CONSIDERED_QUALITY_BITS);
+		putField(ant, 1, CONSIDERED_QUALITY_SHIFT, CONSIDERED_QUALITY_BITS, quality);
+	}
+
+	public int getQuorumThreshold(int ant)
+	{
+		return mQuorumThresholds[getUnsignedField(ant, 0, QUORUM_THRESHOLD_SHIFT, QUORUM_THRESHOLD_BITS)];
+	}
+
+	public void setQuorumThreshold(int ant, int quorumThreshold)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < mQuorumThresholds.length; l1++)
+		{
+			if (mQuorumThresholds[l1] == quorumThreshold)
+			{
+				putField(ant, 0, QUORUM_THRESHOLD_SHIFT, QUORUM_THRESHOLD_BITS, l1);
+
+				return;
+			}
+		}
+		throw new IllegalArgumentException("PackedAntStore.setQuorumThreshold called with quorumThreshold not one of the colony's (quorumThreshold == " + quorumThreshold + ")");
+	}
+
+	public int getAssessmentDelay(int ant)
+	{
+		return getField(ant, 0, ASSESSMENT_DELAY_SHIFT, ASSESSMENT_DELAY_BITS);
+	}
+
+	public void setAssessmentDelay(int ant, int delay)
+	{
+		checkRange("setAssessmentDelay", "delay", delay, ASSESSMENT_DELAY_BITS);
+		putField(ant, 0, ASSESSMENT_DELAY_SHIFT, ASSESSMENT_DELAY_BITS, delay);
+	}
+
+	public int getRecruitmentDelay(int ant)
+	{
+		return getField(ant, 0, RECRUITMENT_DELAY_SHIFT, RECRUITMENT_DELAY_BITS);
+	}
+
+	public void setRecruitmentDelay(int ant, int delay)
+	{
+		checkRange("setRecruitmentDelay", "delay", delay, RECRUITMENT_DELAY_BITS);
+		putField(ant, 0, RECRUITMENT_DELAY_SHIFT, RECRUITMENT_DELAY_BITS, delay);
+	}
+
+	public int getTransportDelay(int ant)
+	{
+		return getField(ant, 1, TRANSPORT_DELAY_SHIFT, TRANSPORT_DELAY_BITS);
+	}
+
+	public void setTransportDelay(int ant, int delay)
+	{
+		checkRange("setTransportDelay", "delay", delay, TRANSPORT_DELAY_BITS);
+		putField(ant, 1, TRANSPORT_DELAY_SHIFT, TRANSPORT_DELAY_BITS, delay);
+	}
+
+	public double getRecruitmentProb(int ant)
+	{
+		return (double) getUnsignedField(ant, 1, RECRUITMENT_PROB_SHIFT, RECRUITMENT_PROB_BITS) / mRecruitmentProbScale;
+	}
+
+	public void setRecruitmentProb(int ant, double probability)
+	{
+		if (probability < 0 || probability > 1)
+		{
+			throw new IllegalArgumentException("PackedAntStore.setRecruitmentProb called with probability out of range (0 <= " + probability + " <= 1)");
+		}
+		putField(ant, 1, RECRUITMENT_PROB_SHIFT, RECRUITMENT_PROB_BITS, (int) Math.round(probability * mRecruitmentProbScale));
+	}
+
+	public boolean isTransporting(int ant)
+	{
+		return getFlag(ant, TRANSPORTING_SHIFT);
+	}
+
+	public void setTransporting(int ant, boolean transporting)
+	{
+		putField(ant, 0, TRANSPORTING_SHIFT, 1, transporting ? 1 : 0);
+	}
+
+	public boolean isAssessing(int ant)
+	{
+		return getFlag(ant, ASSESSING_SHIFT);
+	}
+
+	protected void putAssessing(int ant, boolean assessing)
+	{
+		putField(ant, 0, ASSESSING_SHIFT, 1, assessing ? 1 : 0);
+	}
+
+	/**
+	 * PackedAntStore constructor (all ants start in the same nest, with no preference)
+	 *
+	 * @param size number of ants (> 0)
+	 * @param currentNest id of the ants' current nest (0 <= currentNest < numNestSites)
+	 * @param numNestSites number of nest sites in the landscape (0 < numNestSites <= 2047)
+	 * @param recruitmentProbScale number of steps of the recruitment probability from 0 to 1 (0 < recruitmentProbScale < 16384, the colony's maximum nest site quality)
+	 * @param quorumThresholds the colony's quorum thresholds (!= null, at most 3)
+	 *
+	 */
+	public PackedAntStore(int size, int currentNest, int numNestSites, int recruitmentProbScale, int[] quorumThresholds)
+	{
+		super(size, currentNest, numNestSites);
+		if (numNestSites >= 1 << (CURRENT_NEST_BITS - 1))
+		{
+			throw new IllegalArgumentException("Attempt to construct PackedAntStore with numNestSites out of range (" + numNestSites + " < " + (1 << (CURRENT_NEST_BITS - 1)) + ")");
+		}
+		if (recruitmentProbScale <= 0 || recruitmentProbScale >= 1 << RECRUITMENT_PROB_BITS)
+		{
+			throw new IllegalArgumentException("Attempt to construct PackedAntStore with recruitmentProbScale out of range (0 < " + recruitmentProbScale + " < " + (1 << RECRUITMENT_PROB_BITS) + ")");
+		}
+		if (quorumThresholds == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct PackedAntStore with quorumThresholds == null");
+		}
+		if (quorumThresholds.length >= 1 << QUORUM_THRESHOLD_BITS)
+		{
+			throw new IllegalArgumentException("Attempt to construct PackedAntStore with too many quorumThresholds (quorumThresholds.length == " + quorumThresholds.length + ")");
+		}
+		long start;
+		int chunkSize, l1, l2;
+
+		mRecruitmentProbScale = recruitmentProbScale;
+		mQuorumThresholds = new int[quorumThresholds.length + 1];
+		mQuorumThresholds[0] = 0;
+		System.arraycopy(quorumThresholds, 0, mQuorumThresholds, 1, quorumThresholds.length);
+		// every ant starts with only its current nest and (no) preference set
+		start = ((long) currentNest << CURRENT_NEST_SHIFT) | (((1L << PREFERENCE_BITS) - 1) << PREFERENCE_SHIFT);
+		mChunks = new LongBuffer[((size - 1) >>> CHUNK_BITS) + 1];
+		for (l1 = 0; l1 < mChunks.length; l1++)
+		{
+			chunkSize = Math.min(size - (l1 << CHUNK_BITS), 1 << CHUNK_BITS);
+			mChunks[l1] = ByteBuffer.allocateDirect(chunkSize * 2 * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+			for (l2 = 0; l2 < chunkSize; l2++)
+			{
+				mChunks[l1].put(l2 << 1, start);
+			}
+		}
+	}
+}
@@ -0,0 +1,1216 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * An ant colony modelled by the number of its ants in each role, rather than ant by ant, as a
+ * continuous-time Markov chain with time measured in AntColony updates. The state is:
+ *
+ *   passive ants in each nest site
+ *   idle scouts (no preference) in each nest site
+ *   scouts assessing, waiting to recruit to, and recruiting to each neighbour of each nest site
+ *
+ * and each transition happens at the rate per update with which an AntColony scout would make it,
+ * from the colony's parameters:
+ *
+ *   discovery      an idle scout starts scouting (StartScoutingProb), discovers a neighbour (as
+ *                  Landscape.getRandomNeighbour would) and prefers it if it is better
+ *   assessment     an assessor finishes assessing (after AssessmentDelay updates on average)
+ *   recruitment    a waiting scout begins recruiting (after the carrying delay, then with
+ *                  probability quality / MaxNestSiteQuality per update)
+ *   switching      a waiting scout considers an alternative (PreferenceSwitchProb) and prefers it
+ *                  if it is better, possibly moving its idea of the current nest (ChangeNestProb)
+ *   recruitment act  a recruiter completes a tandem-run or carry (after the tandem-run or carrying
+ *                  delay, by the quorum at its preference): a reverse tandem-run
+ *                  (ReverseTandemRunProb), the recruitment of a preferenceless scout or else the
+ *                  transport of a passive ant, or, once its origin is empty, joining its preference
+ *   stopping       a tandem-runner stops scouting (StopScoutingProb)
+ *   EBM recruitment  in Pratt et al EBM equivalence mode, each recruiter recruits an active scout
+ *                  every update
+ *
+ * Fixed delays become exponential waiting times with the same mean, and a scout's noisy
+ * assessment of a site is replaced by the probability that one noisy assessment exceeds another.
+ * Scouts only hold preferences for neighbours of their current nest, and the rarer AntColony
+ * behaviours (an act's consideration of an alternative, the rebasing of other recruiters by a
+ * reverse tandem-run) are left out, so the chain approximates the agent model rather than
+ * reproducing it.
+ *
+ * The chain is simulated either exactly (Gillespie's direct method, PopulationColony.advance), at
+ * a cost per event, or by tau-leaping (PopulationColony.leap), at a cost per leap and per
+ * transition made; neither depends on the number of passive ants.
+ *
+ */
+public class PopulationColony
+{
+	/** The number of kinds of transition per edge of the landscape */
+	private static final int EDGE_TRANSITIONS = 6;
+	/** Edge transition: an assessor finishes assessing */
+	private static final int ASSESS = 0;
+	/** Edge transition: a waiting scout begins recruiting */
+	private static final int BEGIN = 1;
+	/** Edge transition: a waiting scout switches to an alternative */
+	private static final int SWITCH = 2;
+	/** Edge transition: a recruiter completes a recruitment act */
+	private static final int ACT = 3;
+	/** Edge transition: a tandem-runner stops scouting */
+	private static final int STOP = 4;
+	/** Edge transition: a recruiter recruits an active scout (Pratt et al EBM equivalence mode) */
+	private static final int EBM_RECRUIT = 5;
+	/** The colony's index among the colonies sharing its nest sites */
+	private final int mId;
+	/** The number of ants in the colony */
+	private final int mColonySize;
+	/** The number of scouts in the colony */
+	private final int mNumScouts;
+	/** The nest sites reachable from the colony's original nest */
+	private final Landscape mLandscape;
+	/** The nest site each edge of the landscape leaves */
+	private final int[] mSource;
+	/** The first entry of mIncoming for each nest site (mFirstIncoming[n] is the number of edges) */
+	private final int[] mFirstIncoming;
+	/** The edges leading to each nest site, grouped by nest site */
+	private final int[] mIncoming;
+	/** The probability of discovering the neighbour each edge leads to */
+	private final double[] mDiscoveryProbs;
+	/** The rate at which a single idle scout in each nest site, once it has started scouting, discovers and prefers a neighbour */
+	private final double[] mDiscoveryRates;
+	/** The rate at which a single scout waiting along each edge, once it has considered an alternative, prefers the alternative */
+	private final double[] mSwitchRates;
+	/** The mean quality of each nest site */
+	private final int[] mQualities;
+	/** The standard deviation of the noise in assessments of quality */
+	private final int mQualityStdDev;
+	/** The time taken to carry a nest mate along each edge */
+	private final int[] mCarryingDelays;
+	/** The time taken to tandem-run a nest mate along each edge */
+	private final int[] mTandemRunDelays;
+	/** The number of passive ants in each nest site */
+	private final int[] mPassive;
+	/** The number of idle scouts in each nest site */
+	private final int[] mIdle;
+	/** The number of scouts assessing the neighbour each edge leads to */
+	private final int[] mAssessing;
+	/** The number of scouts waiting to begin recruiting along each edge */
+	private final int[] mWaiting;
+	/** The number of scouts recruiting along each edge */
+	private final int[] mRecruiting;
+	/** The number of the colony's ants in or committed to each nest site */
+	private final int[] mQuorums;
+	/** The total number of idle scouts */
+	private int mNumIdle;
+	/** The rate of each transition (the nest sites' discoveries, then EDGE_TRANSITIONS per edge) */
+	private final double[] mRates;
+	/** The colony's current nest site (id) */
+	private int mCurrentNest;
+	/** The colony's current quorum threshold (> 0 indicates colony is house-hunting) */
+	private int mQuorumThreshold;
+	/** The probability with which an ant will evaluate another nest site against its current preference (0 to 1) */
+	private final double mPreferenceSwitchProb;
+	/** The probability with which idle scouts will start scouting when the colony is seeking to emigrate (0 to 1) */
+	private final double mStartScoutingProb;
+	/** The probability with which active scouts will stop scouting when the colony is seeking to emigrate (0 to 1) */
+	private final double mStopScoutingProb;
+	/** The probability with which recruiting scouts will initiate a reverse tandem-run */
+	private final double mReverseTandemRunProb;
+	/** The probability with which a scout will change its assessment of the current nest after switching its preference */
+	private final double mCurrentNestSwitchProb;
+	/** The maximum nest quality (that for the best possible nest site) */
+	private final int mMaxNestSiteQuality;
+	/** The time taken to assess a nest site */
+	private final int mAssessmentDelay;
+	/** Does distance to a neighbouring nest-site affect its chances of discovery? */
+	private final boolean mDistanceAffectsDiscovery;
+	/** Do ants compare nest sites against each other for quality? */
+	private final boolean mCompareNestSiteQualities;
+	/** Is the colony configured to be equivalent to the Pratt et al EBM? */
+	private final boolean mPrattEbmEquivalent;
+	/** The number of recruitment acts performed within the colony during the emigration */
+	private int mNumRecruitmentActs;
+	/** The time the chain has been simulated up to (in updates) */
+	private double mTime;
+	/** The colony's random number stream */
+	private final RandomStream mRandom;
+
+	/**
+	 * Gets the colony's index among the colonies sharing its nest sites
+	 *
+	 * @return colony's id (>= 0)
+	 *
+	 */
+	public int getId()
+	{
+		return mId;
+	}
+
+	/**
+	 * Gets the colony size
+	 *
+	 * @return colony size
+	 *
+	 */
+	public int getColonySize()
+	{
+		return mColonySize;
+	}
+
+	/**
+	 * Gets the colony's current quorum threshold
+	 *
+	 * @return quorum threshold (0 indicates colony is not house-hunting)
+	 *
+	 */
+	public int getQuorumThreshold()
+	{
+		return mQuorumThreshold;
+	}
+
+	/**
+	 * Gets the colony's current nest site
+	 *
+	 * @return id of current nest site
+	 *
+	 */
+	public int getCurrentNest()
+	{
+		return mCurrentNest;
+	}
+
+	/**
+	 * Gets the number of recruitment acts performed within the colony during the emigration
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	public int getNumRecruitmentActs()
+	{
+		return mNumRecruitmentActs;
+	}
+
+	/**
+	 * Gets the colony's random number stream
+	 *
+	 * @return colony's random number stream
+	 *
+	 */
+	public RandomStream getRandom()
+	{
+		return mRandom;
+	}
+
+	/**
+	 * Gets the time the colony has been simulated up to
+	 *
+	 * @return time (in updates)
+	 *
+	 */
+	public double getTime()
+	{
+		return mTime;
+	}
+
+	/**
+	 * Gets the number of the colony's ants in or committed to a nest site
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return quorum size
+	 *
+	 */
+	public int getQuorumSize(int nestSite)
+	{
+		return mQuorums[nestSite];
+	}
+
+	/**
+	 * Gets the number of the colony's active (scouts) or passive ants in or committed to a nest site
+	 *
+	 * @param nestSite id of nest site
+	 * @param active (true for scouts, false for passive ants)
+	 *
+	 * @return quorum size
+	 *
+	 */
+	public int getQuorumSize(int nestSite, boolean active)
+	{
+		if (active)
+		{
+			return mQuorums[nestSite] - mPassive[nestSite];
+		}
+
+		return mPassive[nestSite];
+	}
+
+	/**
+	 * Gets the number of scouts recruiting (or waiting to) from one nest site to another
+	 *
+	 * @param origin id of nest site
+	 * @param destination id of nest site
+	 *
+	 * @return number of recruiters (0 if the nest sites are not neighbours)
+	 *
+	 */
+	public int getNumRecruitersBetweenSites(int origin, int destination)
+	{
+		int edge = mLandscape.getEdge(origin, destination);
+
+		if (edge < 0)
+		{
+			return 0;
+		}
+
+		return mWaiting[edge] + mRecruiting[edge];
+	}
+
+	/**
+	 * Gets the number of scouts assessing a nest site
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return number of assessors
+	 *
+	 */
+	public int getNumAssessingSite(int nestSite)
+	{
+		int numAssessors = 0, l1;
+
+		for (l1 = mFirstIncoming[nestSite]; l1 < mFirstIncoming[nestSite + 1]; l1++)
+		{
+			numAssessors += mAssessing[mIncoming[l1]];
+		}
+
+		return numAssessors;
+	}
+
+	/**
+	 * Simulates the chain exactly (Gillespie's direct method) up to the given time, or until the emigration is completed
+	 *
+	 * @param until time to simulate up to (in updates)
+	 *
+	 * @return void
+	 *
+	 */
+	public void advance(double until)
+	{
+		double totalRate, choice;
+		int transition;
+
+		while (mQuorumThreshold > 0)
+		{
+			totalRate = updateRates();
+			if (totalRate <= 0)
+			{
+				break;
+			}
+			mTime += -Math.log(1 - mRandom.nextDouble()) / totalRate;
+			if (mTime > until)
+			{
+				// the pending transition is discarded, which the chain's lack of memory allows
+				mTime = until;
+				break;
+			}
+			choice = mRandom.nextDouble() * totalRate;
+			for (transition = 0; transition < mRates.length - 1 && choice >= mRates[transition]; transition++)
+			{
+				choice -= mRates[transition];
+			}
+			while (mRates[transition] == 0)
+			{
+				// rounding took the choice past the last possible transition
+				transition--;
+			}
+			perform(transition);
+		}
+		mTime = Math.max(mTime, until);
+	}
+
+	/**
+	 * Simulates the chain approximately (tau-leaping) up to the given time, or until the emigration is completed.
+	 * In each leap every transition is made a Poisson number of times, with the rates fixed at the start of the leap
+	 * (a transition that no longer has an ant to make it is not made).
+	 *
+	 * @param until time to simulate up to (in updates)
+	 * @param leapLength length of each leap (in updates, > 0)
+	 *
+	 * @return void
+	 *
+	 */
+	public void leap(double until, double leapLength)
+	{
+		if (leapLength <= 0)
+		{
+			throw new IllegalArgumentException("PopulationColony.leap called with leapLength <= 0 (leapLength == " + leapLength + ")");
+		}
+		double length;
+		long count, l2;
+		int l1;
+
+		while (mTime < until && mQuorumThreshold > 0)
+		{
+			length = Math.min(leapLength, until - mTime);
+			updateRates();
+			for (l1 = 0; l1 < mRates.length && mQuorumThreshold > 0; l1++)
+			{
+				count = (mRates[l1] > 0) ? mRandom.nextPoisson(mRates[l1] * length) : 0;
+				for (l2 = 0; l2 < count && mQuorumThreshold > 0; l2++)
+				{
+					if (!perform(l1))
+					{
+						break;
+					}
+				}
+			}
+			mTime += length;
+		}
+		mTime = Math.max(mTime, until);
+	}
+
+	/**
+	 * Works out the rate of every transition in the current state
+	 *
+	 * @return total rate
+	 *
+	 */
+	private double updateRates()
+	{
+		double totalRate = 0, rate, delay;
+		int numSites = mLandscape.getNumNestSites(), edge, target, base, l1;
+		boolean transporting;
+
+		for (l1 = 0; l1 < numSites; l1++)
+		{
+			mRates[l1] = (mIdle[l1] == 0) ? 0 : mIdle[l1] * mStartScoutingProb * mDiscoveryRates[l1];
+			totalRate += mRates[l1];
+		}
+		for (edge = 0; edge < mSource.length; edge++)
+		{
+			base = numSites + EDGE_TRANSITIONS * edge;
+			target = mLandscape.getTarget(edge);
+			transporting = mQuorums[target] > mQuorumThreshold;
+			mRates[base + ASSESS] = (mAssessmentDelay > 0) ? (double) mAssessing[edge] / mAssessmentDelay : 0;
+			mRates[base + BEGIN] = 0;
+			mRates[base + SWITCH] = 0;
+			if (mWaiting[edge] > 0)
+			{
+				rate = getRecruitmentProb(target);
+				if (rate > 0)
+				{
+					delay = (mDistanceAffectsDiscovery && !mPrattEbmEquivalent) ? mCarryingDelays[edge] : 0;
+					mRates[base + BEGIN] = mWaiting[edge] / (delay + 1 / rate);
+				}
+				mRates[base + SWITCH] = mWaiting[edge] * getAlternativeProb() * mSwitchRates[edge];
+			}
+			if (mDistanceAffectsDiscovery)
+			{
+				delay = Math.max(1, transporting ? mCarryingDelays[edge] : mTandemRunDelays[edge]);
+			}
+			else
+			{
+				delay = 1;
+			}
+			mRates[base + ACT] = mRecruiting[edge] / delay;
+			mRates[base + STOP] = transporting ? 0 : mRecruiting[edge] * mStopScoutingProb;
+			mRates[base + EBM_RECRUIT] = mPrattEbmEquivalent ? mRecruiting[edge] : 0;
+			for (l1 = base; l1 < base + EDGE_TRANSITIONS; l1++)
+			{
+				totalRate += mRates[l1];
+			}
+		}
+
+		return totalRate;
+	}
+
+	/**
+	 * Makes a transition
+	 *
+	 * @param transition index into mRates
+	 *
+	 * @return true if there was an ant to make the transition, false otherwise
+	 *
+	 */
+	private boolean perform(int transition)
+	{
+		int numSites = mLandscape.getNumNestSites(), edge;
+
+		if (transition < numSites)
+		{
+			return discover(transition);
+		}
+		edge = (transition - numSites) / EDGE_TRANSITIONS;
+		switch ((transition - numSites) % EDGE_TRANSITIONS)
+		{
+			case ASSESS:
+				if (mAssessing[edge] == 0)
+				{
+					return false;
+				}
+				mAssessing[edge]--;
+				mWaiting[edge]++;
+
+				return true;
+			case BEGIN:
+				if (mWaiting[edge] == 0)
+				{
+					return false;
+				}
+				mWaiting[edge]--;
+				mRecruiting[edge]++;
+
+				return true;
+			case SWITCH:
+				return switchToAlternative(edge);
+			case ACT:
+				return performRecruitmentAct(edge);
+			case STOP:
+				if (mRecruiting[edge] == 0)
+				{
+					return false;
+				}
+				mRecruiting[edge]--;
+				mQuorums[mLandscape.getTarget(edge)]--;
+				addIdle(mSource[edge], 1);
+
+				return true;
+			default:
+				if (mRecruiting[edge] == 0)
+				{
+					return false;
+				}
+				recruitActiveScout(mLandscape.getTarget(edge), mQuorums[mLandscape.getTarget(edge)] > mQuorumThreshold);
+
+				return true;
+		}
+	}
+
+	/**
+	 * An idle scout discovers a neighbour of its nest site and prefers it
+	 *
+	 * @param nestSite id of the scout's nest site
+	 *
+	 * @return true if there was a scout to do so, false otherwise
+	 *
+	 */
+	private boolean discover(int nestSite)
+	{
+		double choice;
+		int edge, l1;
+
+		if (mIdle[nestSite] == 0 || mDiscoveryRates[nestSite] == 0)
+		{
+			return false;
+		}
+		choice = mRandom.nextDouble() * mDiscoveryRates[nestSite];
+		edge = -1;
+		for (l1 = mLandscape.getFirstEdge(nestSite); l1 < mLandscape.getFirstEdge(nestSite + 1); l1++)
+		{
+			if (getDiscoveryAcceptProb(nestSite, mLandscape.getTarget(l1)) > 0)
+			{
+				// (the last possible neighbour is kept in case rounding takes the choice past it)
+				edge = l1;
+				choice -= mDiscoveryProbs[l1] * getDiscoveryAcceptProb(nestSite, mLandscape.getTarget(l1));
+				if (choice < 0)
+				{
+					break;
+				}
+			}
+		}
+		addIdle(nestSite, -1);
+		addScout(edge, false);
+
+		return true;
+	}
+
+	/**
+	 * A waiting scout considers an alternative neighbour of its current nest and prefers it
+	 *
+	 * @param edge the scout is waiting to recruit along
+	 *
+	 * @return true if there was a scout to do so, false otherwise
+	 *
+	 */
+	private boolean switchToAlternative(int edge)
+	{
+		int source = mSource[edge], target = mLandscape.getTarget(edge), alternative, newEdge, l1;
+		double choice;
+
+		if (mWaiting[edge] == 0 || mSwitchRates[edge] == 0)
+		{
+			return false;
+		}
+		choice = mRandom.nextDouble() * mSwitchRates[edge];
+		alternative = -1;
+		for (l1 = mLandscape.getFirstEdge(source); l1 < mLandscape.getFirstEdge(source + 1); l1++)
+		{
+			if (mLandscape.getTarget(l1) != target && getSwitchAcceptProb(target, mLandscape.getTarget(l1)) > 0)
+			{
+				// (the last possible alternative is kept in case rounding takes the choice past it)
+				alternative = l1;
+				choice -= mDiscoveryProbs[l1] * getSwitchAcceptProb(target, mLandscape.getTarget(l1));
+				if (choice < 0)
+				{
+					break;
+				}
+			}
+		}
+		mWaiting[edge]--;
+		mQuorums[target]--;
+		newEdge = alternative;
+		if (mQuorums[target] > 0 && eventOccurs(mCurrentNestSwitchProb))
+		{
+			// scout's idea of the current nest moves to its old preference
+			newEdge = mLandscape.getEdge(target, mLandscape.getTarget(alternative));
+			if (newEdge < 0)
+			{
+				newEdge = alternative;
+			}
+		}
+		addScout(newEdge, false);
+
+		return true;
+	}
+
+	/**
+	 * A recruiter completes a recruitment act
+	 *
+	 * @param edge the scout is recruiting along
+	 *
+	 * @return true if there was a scout to do so, false otherwise
+	 *
+	 */
+	private boolean performRecruitmentAct(int edge)
+	{
+		int source = mSource[edge], target = mLandscape.getTarget(edge), numCandidates, candidate;
+		boolean transporting = mQuorums[target] > mQuorumThreshold;
+
+		if (mRecruiting[edge] == 0)
+		{
+			return false;
+		}
+		if (eventOccurs(mReverseTandemRunProb))
+		{
+			// reverse tandem-run an idle scout from the preference back to the origin, to recruit from there
+			numCandidates = mQuorums[target] - mPassive[target] - mAssessing[edge] - mWaiting[edge] - mRecruiting[edge];
+			if (numCandidates > 0)
+			{
+				mNumRecruitmentActs++;
+				candidate = mRandom.nextIntFromTo(0, numCandidates - 1);
+				if (candidate < mIdle[target])
+				{
+					addIdle(target, -1);
+					mRecruiting[edge]++;
+					mQuorums[target]++;
+				}
+			}
+		}
+		else if (mQuorums[source] > 0)
+		{
+			if (recruitPreferencelessScout(target, transporting))
+			{
+				mNumRecruitmentActs++;
+			}
+			else if (mPassive[source] > 0)
+			{
+				mPassive[source]--;
+				mQuorums[source]--;
+				mPassive[target]++;
+				mQuorums[target]++;
+				mNumRecruitmentActs++;
+			}
+		}
+		else
+		{
+			// emigration from the origin has been completed
+			mRecruiting[edge]--;
+			mQuorums[target]--;
+			addIdle(target, 1);
+			if (mQuorums[target] == mColonySize)
+			{
+				mCurrentNest = target;
+				mQuorumThreshold = 0;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Tries to recruit a scout chosen at random from those without a preference (or, if there are none, any other scout)
+	 *
+	 * @param nestSite id of nest site to recruit to
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 *
+	 * @return true if a scout was recruited, false otherwise
+	 *
+	 */
+	private boolean recruitPreferencelessScout(int nestSite, boolean transporting)
+	{
+		int scout, nestMate, edge;
+
+		if (mNumIdle == 0)
+		{
+			if (mPrattEbmEquivalent)
+			{
+				return recruitActiveScout(nestSite, transporting);
+			}
+
+			return recruitScoutWithPreference(mRandom.nextIntFromTo(0, mNumScouts - 1), nestSite, transporting);
+		}
+		// choose the scout's nest site in proportion to the idle scouts in each
+		scout = mRandom.nextIntFromTo(0, mNumIdle - 1);
+		for (nestMate = 0; scout >= mIdle[nestMate]; nestMate++)
+		{
+			scout -= mIdle[nestMate];
+		}
+		if (nestMate == nestSite || !mLandscape.getNestSite(nestSite).isHabitable() || (mLandscape.getNestSite(nestMate).isHabitable() && !eventOccurs(getDiscoveryAcceptProb(nestMate, nestSite))))
+		{
+			return false;
+		}
+		if (transporting)
+		{
+			addIdle(nestMate, -1);
+			addIdle(nestSite, 1);
+
+			return true;
+		}
+		edge = mLandscape.getEdge(nestMate, nestSite);
+		if (edge < 0)
+		{
+			return false;
+		}
+		addIdle(nestMate, -1);
+		addScout(edge, false);
+
+		return true;
+	}
+
+	/**
+	 * Tries to recruit a scout chosen at random from those preferring another nest site (Pratt et al EBM equivalence mode)
+	 *
+	 * @param nestSite id of nest site to recruit to
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 *
+	 * @return true if a scout was recruited, false otherwise
+	 *
+	 */
+	private boolean recruitActiveScout(int nestSite, boolean transporting)
+	{
+		int numCandidates;
+
+		numCandidates = mNumScouts - mNumIdle - (mQuorums[nestSite] - mPassive[nestSite] - mIdle[nestSite]);
+		if (numCandidates <= 0)
+		{
+			return false;
+		}
+
+		return recruitScoutWithPreference(mNumIdle + mRandom.nextIntFromTo(0, numCandidates - 1), nestSite, transporting, true);
+	}
+
+	/**
+	 * Tries to recruit a scout chosen from all the colony's scouts (see PopulationColony.recruitScoutWithPreference(int, int, boolean, boolean))
+	 *
+	 * @param scout index of the scout (0 <= scout < number of scouts, idle scouts first)
+	 * @param nestSite id of nest site to recruit to
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 *
+	 * @return true if a scout was recruited, false otherwise
+	 *
+	 */
+	private boolean recruitScoutWithPreference(int scout, int nestSite, boolean transporting)
+	{
+		return recruitScoutWithPreference(scout, nestSite, transporting, false);
+	}
+
+	/**
+	 * Tries to recruit a scout with a preference, which switches probabilistically if the nest site is better than its preference
+	 *
+	 * @param scout index of the scout (counting idle scouts first, then the scouts of each edge in order)
+	 * @param nestSite id of nest site to recruit to
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 * @param skipNestSite (true if the scouts preferring the nest site are not counted)
+	 *
+	 * @return true if a scout was recruited, false otherwise
+	 *
+	 */
+	private boolean recruitScoutWithPreference(int scout, int nestSite, boolean transporting, boolean skipNestSite)
+	{
+		int edge, source, preference, newSource, newEdge;
+		boolean assessing, recruiting;
+
+		if (scout < mNumIdle)
+		{
+			// idle scouts are only recruited by PopulationColony.recruitPreferencelessScout
+			return false;
+		}
+		scout -= mNumIdle;
+		for (edge = 0; edge < mSource.length; edge++)
+		{
+			if (skipNestSite && mLandscape.getTarget(edge) == nestSite)
+			{
+				continue;
+			}
+			if (scout < mAssessing[edge] + mWaiting[edge] + mRecruiting[edge])
+			{
+				break;
+			}
+			scout -= mAssessing[edge] + mWaiting[edge] + mRecruiting[edge];
+		}
+		if (edge == mSource.length)
+		{
+			return false;
+		}
+		source = mSource[edge];
+		preference = mLandscape.getTarget(edge);
+		if (preference == nestSite || !mLandscape.getNestSite(nestSite).isHabitable() || !eventOccurs(mPreferenceSwitchProb) || !eventOccurs(getSwitchAcceptProb(preference, nestSite)))
+		{
+			return false;
+		}
+		assessing = scout < mAssessing[edge];
+		recruiting = scout >= mAssessing[edge] + mWaiting[edge];
+		newSource = source;
+		if (nestSite == source || (mQuorums[preference] > 1 && eventOccurs(mCurrentNestSwitchProb)))
+		{
+			newSource = preference;
+		}
+		newEdge = mLandscape.getEdge(newSource, nestSite);
+		if (newEdge < 0)
+		{
+			newEdge = mLandscape.getEdge(source, nestSite);
+		}
+		if (!transporting && newEdge < 0)
+		{
+			return false;
+		}
+		if (assessing)
+		{
+			mAssessing[edge]--;
+		}
+		else if (recruiting)
+		{
+			mRecruiting[edge]--;
+		}
+		else
+		{
+			mWaiting[edge]--;
+		}
+		mQuorums[preference]--;
+		if (transporting)
+		{
+			addIdle(nestSite, 1);
+		}
+		else
+		{
+			addScout(newEdge, recruiting);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Adds a scout that has just come to prefer the nest site an edge leads to (assessing it, if assessment takes time)
+	 *
+	 * @param edge from the scout's current nest to its new preference
+	 * @param recruiting (true if the scout was already recruiting, so goes straight back to recruiting once it has assessed the site)
+	 *
+	 * @return void
+	 *
+	 */
+	private void addScout(int edge, boolean recruiting)
+	{
+		if (mAssessmentDelay > 0)
+		{
+			mAssessing[edge]++;
+		}
+		else if (recruiting)
+		{
+			mRecruiting[edge]++;
+		}
+		else
+		{
+			mWaiting[edge]++;
+		}
+		mQuorums[mLandscape.getTarget(edge)]++;
+	}
+
+	/**
+	 * Adds idle scouts to a nest site
+	 *
+	 * @param nestSite id of nest site
+	 * @param numScouts to add (< 0 to remove scouts)
+	 *
+	 * @return void
+	 *
+	 */
+	private void addIdle(int nestSite, int numScouts)
+	{
+		mIdle[nestSite] += numScouts;
+		mQuorums[nestSite] += numScouts;
+		mNumIdle += numScouts;
+	}
+
+	/**
+	 * Gets the rate at which a single idle scout in a nest site, once it has started scouting, discovers and prefers a neighbour
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return rate (probability per update)
+	 *
+	 */
+	private double calculateDiscoveryRate(int nestSite)
+	{
+		double rate = 0;
+		int l1;
+
+		for (l1 = mLandscape.getFirstEdge(nestSite); l1 < mLandscape.getFirstEdge(nestSite + 1); l1++)
+		{
+			rate += mDiscoveryProbs[l1] * getDiscoveryAcceptProb(nestSite, mLandscape.getTarget(l1));
+		}
+
+		return rate;
+	}
+
+	/**
+	 * Gets the rate at which a single waiting scout, once it has considered an alternative, prefers the alternative
+	 *
+	 * @param edge the scout is waiting to recruit along
+	 *
+	 * @return rate (probability per update)
+	 *
+	 */
+	private double calculateSwitchRate(int edge)
+	{
+		int source = mSource[edge], target = mLandscape.getTarget(edge);
+		double rate = 0;
+		int l1;
+
+		for (l1 = mLandscape.getFirstEdge(source); l1 < mLandscape.getFirstEdge(source + 1); l1++)
+		{
+			if (mLandscape.getTarget(l1) != target)
+			{
+				rate += mDiscoveryProbs[l1] * getSwitchAcceptProb(target, mLandscape.getTarget(l1));
+			}
+		}
+
+		return rate;
+	}
+
+	/**
+	 * Gets the probability with which a scout considers an alternative to its preference in an update
+	 *
+	 * @return probability (doubled in Pratt et al EBM equivalence mode, as in Ant.considerAlternativeNestSite)
+	 *
+	 */
+	private double getAlternativeProb()
+	{
+		if (mPrattEbmEquivalent)
+		{
+			return Math.min(1, mPreferenceSwitchProb * 2);
+		}
+
+		return mPreferenceSwitchProb;
+	}
+
+	/**
+	 * Gets the probability with which a scout in a nest site prefers a neighbour it has discovered
+	 *
+	 * @param nestSite id of the scout's nest site
+	 * @param neighbour id of the neighbour
+	 *
+	 * @return probability (0 if the neighbour is uninhabitable, 1 if the scout's nest site is)
+	 *
+	 */
+	private double getDiscoveryAcceptProb(int nestSite, int neighbour)
+	{
+		if (!mLandscape.getNestSite(neighbour).isHabitable())
+		{
+			return 0;
+		}
+		if (!mLandscape.getNestSite(nestSite).isHabitable())
+		{
+			return 1;
+		}
+
+		return getChooseProb(nestSite, neighbour);
+	}
+
+	/**
+	 * Gets the probability with which a scout preferring a nest site switches to an alternative it has considered
+	 *
+	 * @param preference id of the scout's preference
+	 * @param alternative id of the alternative
+	 *
+	 * @return probability (0 if the alternative is uninhabitable)
+	 *
+	 */
+	private double getSwitchAcceptProb(int preference, int alternative)
+	{
+		if (!mLandscape.getNestSite(alternative).isHabitable())
+		{
+			return 0;
+		}
+
+		return getChooseProb(preference, alternative);
+	}
+
+	/**
+	 * Gets the probability with which a scout chooses a new nest site over the one it knows (see Ant.chooseNewNestSite)
+	 *
+	 * @param oldNestSite id of the nest site the scout knows
+	 * @param newNestSite id of the new nest site
+	 *
+	 * @return probability
+	 *
+	 */
+	private double getChooseProb(int oldNestSite, int newNestSite)
+	{
+		double acceptProbability;
+
+		if (mCompareNestSiteQualities)
+		{
+			// probability that one noisy assessment of the new site exceeds one of the old
+			if (mQualityStdDev == 0)
+			{
+				return (Math.max(1, mQualities[newNestSite]) > Math.max(1, mQualities[oldNestSite])) ? 1 : 0;
+			}
+
+			return normalCdf((mQualities[newNestSite] - mQualities[oldNestSite]) / (mQualityStdDev * Math.sqrt(2)));
+		}
+		acceptProbability = Math.min(1.0, (double) mQualities[newNestSite] / mMaxNestSiteQuality);
+
+		return (acceptProbability * 0.5) + 0.25;
+	}
+
+	/**
+	 * Gets the per-update probability with which a scout waiting to recruit to a nest site begins recruiting
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return probability (see Ant.calculateRecruitmentProb)
+	 *
+	 */
+	private double getRecruitmentProb(int nestSite)
+	{
+		return Math.min(1.0, (double) Math.max(1, mQualities[nestSite]) / mMaxNestSiteQuality);
+	}
+
+	/**
+	 * Standard normal cumulative distribution function (Abramowitz and Stegun 7.1.26, error < 1.5e-7)
+	 *
+	 * @param x
+	 *
+	 * @return probability that a standard normal deviate is below x
+	 *
+	 */
+	private static double normalCdf(double x)
+	{
+		double z = Math.abs(x) / Math.sqrt(2), t, erf;
+
+		t = 1 / (1 + 0.3275911 * z);
+		erf = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t + 0.254829592) * t * Math.exp(-z * z);
+
+		return (x >= 0) ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+	}
+
+	/**
+	 * Sees if a probabilistic event occurs
+	 *
+	 * @param probability (0 <= probability <= 1)
+	 *
+	 * @return true if the event occurs on this occasion, false otherwise
+	 *
+	 */
+	private boolean eventOccurs(double probability)
+	{
+		if (probability <= 0)
+		{
+			return false;
+		}
+		if (probability >= 1)
+		{
+			return true;
+		}
+
+		return mRandom.nextDouble() <= probability;
+	}
+
+	/**
+	 * PopulationColony constructor (all the colony's ants start in its current nest, the scouts idle)
+	 *
+	 * @param id colony's index among the colonies sharing its nest sites (>= 0)
+	 * @param colonySize (> 0)
+	 * @param numScouts (> 0)
+	 * @param normalQuorumThreshold (> 0)
+	 * @param emergencyQuorumThreshold (> 0)
+	 * @param hostileQuorumThreshold (> 0)
+	 * @param preferenceSwitchProb (0 <= preferenceSwitchProb <= 1)
+	 * @param startScoutingProb (0 <= startScoutingProb <= 1)
+	 * @param stopScoutingProb (0 <= stopScoutingProb <= 1)
+	 * @param reverseTandemRunProb (0 <= reverseTandemRunProb <= 1)
+	 * @param currentNestSwitchProb (0 <= currentNestSwitchProb <= 1)
+	 * @param maxNestSiteQuality (> 0)
+	 * @param assessmentDelay (>= 0)
+	 * @param tandemRunSpeed (> 0)
+	 * @param carryingSpeed (> 0)
+	 * @param landscape nest sites available to the colony (!= null)
+	 * @param currentNest id of the colony's nest site in the landscape
+	 * @param qualities mean quality of each nest site of the landscape (!= null, indexed by id)
+	 * @param qualityStdDev standard deviation of the noise in assessments of quality (>= 0)
+	 * @param nestQualityRequirement (> 0)
+	 * @param environmentHostile
+	 * @param distanceAffectsDiscovery
+	 * @param compareNestSiteQualities
+	 * @param prattEbmEquivalent
+	 * @param random number stream for the colony (!= null)
+	 *
+	 */
+	public PopulationColony(int id, int colonySize, int numScouts, int normalQuorumThreshold, int emergencyQuorumThreshold, int hostileQuorumThreshold, double preferenceSwitchProb, double startScoutingProb, double stopScoutingProb, double reverseTandemRunProb, double currentNestSwitchProb, int maxNestSiteQuality, int assessmentDelay, int tandemRunSpeed, int carryingSpeed, Landscape landscape, int currentNest, int[] qualities, int qualityStdDev, int nestQualityRequirement, boolean environmentHostile, boolean distanceAffectsDiscovery, boolean compareNestSiteQualities, boolean prattEbmEquivalent, RandomStream random)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with id < 0 (id == " + id + ")");
+		}
+		if (colonySize <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with colonySize <= 0 (colonySize == " + colonySize + ")");
+		}
+		if (numScouts <= 0 || numScouts > colonySize)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with numScouts out of range (0 < " + numScouts + " <= " + colonySize + ")");
+		}
+		if (normalQuorumThreshold <= 0 || emergencyQuorumThreshold <= 0 || hostileQuorumThreshold <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with a quorum threshold <= 0");
+		}
+		if (preferenceSwitchProb < 0 || preferenceSwitchProb > 1 || startScoutingProb < 0 || startScoutingProb > 1 || stopScoutingProb < 0 || stopScoutingProb > 1 || reverseTandemRunProb < 0 || reverseTandemRunProb > 1 || currentNestSwitchProb < 0 || currentNestSwitchProb > 1)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with a probability out of range (0 to 1)");
+		}
+		if (maxNestSiteQuality <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with maxNestSiteQuality <= 0 (maxNestSiteQuality == " + maxNestSiteQuality + ")");
+		}
+		if (assessmentDelay < 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with assessmentDelay < 0 (assessmentDelay == " + assessmentDelay + ")");
+		}
+		if (tandemRunSpeed <= 0 || carryingSpeed <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with a speed <= 0");
+		}
+		if (landscape == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with landscape == null");
+		}
+		if (currentNest < 0 || currentNest >= landscape.getNumNestSites())
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with currentNest out of range (0 <= " + currentNest + " < " + landscape.getNumNestSites() + ")");
+		}
+		if (qualities == null || qualities.length != landscape.getNumNestSites())
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony without one quality per nest site");
+		}
+		if (qualityStdDev < 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with qualityStdDev < 0 (qualityStdDev == " + qualityStdDev + ")");
+		}
+		if (nestQualityRequirement <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with nestQualityRequirement <= 0 (nestQualityRequirement == " + nestQualityRequirement + ")");
+		}
+		if (random == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationColony with random == null");
+		}
+		int numSites = landscape.getNumNestSites(), numEdges = landscape.getNumEdges(), l1, l2;
+
+		mId = id;
+		mColonySize = colonySize;
+		mNumScouts = numScouts;
+		mLandscape = landscape;
+		mQualities = qualities.clone();
+		mQualityStdDev = qualityStdDev;
+		mPreferenceSwitchProb = preferenceSwitchProb;
+		mStartScoutingProb = startScoutingProb;
+		mStopScoutingProb = stopScoutingProb;
+		mReverseTandemRunProb = reverseTandemRunProb;
+		mCurrentNestSwitchProb = currentNestSwitchProb;
+		mMaxNestSiteQuality = maxNestSiteQuality;
+		mAssessmentDelay = assessmentDelay;
+		mDistanceAffectsDiscovery = distanceAffectsDiscovery;
+		mCompareNestSiteQualities = compareNestSiteQualities;
+		mPrattEbmEquivalent = prattEbmEquivalent;
+		mRandom = random;
+		// edges by source, and (counting sort) by target
+		mSource = new int[numEdges];
+		mDiscoveryProbs = new double[numEdges];
+		mCarryingDelays = new int[numEdges];
+		mTandemRunDelays = new int[numEdges];
+		mFirstIncoming = new int[numSites + 1];
+		mIncoming = new int[numEdges];
+		for (l1 = 0; l1 < numSites; l1++)
+		{
+			for (l2 = landscape.getFirstEdge(l1); l2 < landscape.getFirstEdge(l1 + 1); l2++)
+			{
+				mSource[l2] = l1;
+				mDiscoveryProbs[l2] = landscape.getDiscoveryProbability(l1, l2, distanceAffectsDiscovery);
+				mCarryingDelays[l2] = landscape.getEdgeDistance(l2) / carryingSpeed;
+				mTandemRunDelays[l2] = landscape.getEdgeDistance(l2) / tandemRunSpeed;
+				mFirstIncoming[landscape.getTarget(l2) + 1]++;
+			}
+		}
+		for (l1 = 0; l1 < numSites; l1++)
+		{
+			mFirstIncoming[l1 + 1] += mFirstIncoming[l1];
+		}
+		int[] next = mFirstIncoming.clone();
+		for (l2 = 0; l2 < numEdges; l2++)
+		{
+			mIncoming[next[landscape.getTarget(l2)]++] = l2;
+		}
+		// (the nest sites' qualities and habitability do not change during the emigration)
+		mDiscoveryRates = new double[numSites];
+		mSwitchRates = new double[numEdges];
+		for (l1 = 0; l1 < numSites; l1++)
+		{
+			mDiscoveryRates[l1] = calculateDiscoveryRate(l1);
+		}
+		for (l2 = 0; l2 < numEdges; l2++)
+		{
+			mSwitchRates[l2] = calculateSwitchRate(l2);
+		}
+		mPassive = new int[numSites];
+		mIdle = new int[numSites];
+		mQuorums = new int[numSites];
+		mAssessing = new int[numEdges];
+		mWaiting = new int[numEdges];
+		mRecruiting = new int[numEdges];
+		mRates = new double[numSites + EDGE_TRANSITIONS * numEdges];
+		mCurrentNest = currentNest;
+		mPassive[currentNest] = colonySize - numScouts;
+		mQuorums[currentNest] = colonySize - numScouts;
+		addIdle(currentNest, numScouts);
+		mNumRecruitmentActs = 0;
+		mTime = 0;
+		// as AntColony, but judging the current nest by its mean quality
+		if (!landscape.getNestSite(currentNest).isHabitable())
+		{
+			mQuorumThreshold = environmentHostile ? hostileQuorumThreshold : emergencyQuorumThreshold;
+		}
+		else if (Math.max(1, mQualities[currentNest]) < nestQualityRequirement)
+		{
+			mQuorumThreshold = normalQuorumThreshold;
+		}
+		else
+		{
+			mQuorumThreshold = 0;
+		}
+	}
+}
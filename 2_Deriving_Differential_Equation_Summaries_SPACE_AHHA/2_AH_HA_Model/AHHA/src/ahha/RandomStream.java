@@ -0,0 +1,304 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.util.SplittableRandom;
+
+/**
+ * A stream of random numbers belonging to a single model run.
+ * Replaces the global uchicago Random distributions so that runs are independent of each other,
+ * can be performed concurrently and are reproducible from their key alone. Streams are splittable,
+ * so a run can hand independent sub-streams to its parts.
+ *
+ * A stream is not thread-safe; each thread should use its own (see RandomStream.split).
+ *
+ */
+public class RandomStream
+{
+	/** The underlying splittable generator */
+	private final SplittableRandom mGenerator;
+	/** The second normal deviate produced by the last polar transform */
+	private double mNextNormal;
+	/** Is mNextNormal waiting to be used? */
+	private boolean mHaveNextNormal;
+	/** The number of draws made from the stream (of any distribution, see RandomStream.getNumDraws) */
+	private long mNumDraws;
+
+	/**
+	 * Creates the stream for a run of a parameter sweep
+	 *
+	 * @param sweepId identifies the sweep (different sweeps get unrelated streams)
+	 * @param configIndex index of the run's parameter combination within the sweep (>= 0)
+	 * @param replicate run's replicate number within its parameter combination (>= 0)
+	 *
+	 * @return run's random stream
+	 *
+	 */
+	public static RandomStream forRun(long sweepId, int configIndex, int replicate)
+	{
+		if (configIndex < 0)
+		{
+			throw new IllegalArgumentException("RandomStream.forRun called with configIndex < 0 (configIndex == " + configIndex + ")");
+		}
+		if (replicate < 0)
+		{
+			throw new IllegalArgumentException("RandomStream.forRun called with replicate < 0 (replicate == " + replicate + ")");
+		}
+		long seed;
+
+		seed = mix(sweepId);
+		seed = mix(seed ^ (configIndex * 0x9E3779B97F4A7C15L));
+		seed = mix(seed ^ (replicate * 0xC2B2AE3D27D4EB4FL));
+
+		return new RandomStream(seed);
+	}
+
+	/**
+	 * SplitMix64 finaliser, used to turn a run's key into a well-distributed seed
+	 *
+	 * @param z
+	 *
+	 * @return mixed value
+	 *
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Splits off a new stream, independent of this one
+	 *
+	 * @return new stream
+	 *
+	 */
+	public RandomStream split()
+	{
+		return new RandomStream(mGenerator.split());
+	}
+
+	/**
+	 * Draws from the uniform distribution over [0, 1)
+	 *
+	 * @return random double
+	 *
+	 */
+	public double nextDouble()
+	{
+		mNumDraws++;
+
+		return mGenerator.nextDouble();
+	}
+
+	/**
+	 * Draws an integer uniformly from the given range
+	 *
+	 * @param from (<= to)
+	 * @param to (inclusive)
+	 *
+	 * @return random int between from and to inclusive
+	 *
+	 */
+	public int nextIntFromTo(int from, int to)
+	{
+		if (from > to)
+		{
+			throw new IllegalArgumentException("RandomStream.nextIntFromTo called with from > to (" + from + " > " + to + ")");
+		}
+		mNumDraws++;
+
+		return from + mGenerator.nextInt(to - from + 1);
+	}
+
+	/**
+	 * Draws a long integer uniformly from the given range
+	 *
+	 * @param from (<= to)
+	 * @param to (inclusive)
+	 *
+	 * @return random long between from and to inclusive
+	 *
+	 */
+	public long nextLongFromTo(long from, long to)
+	{
+		if (from > to)
+		{
+			throw new IllegalArgumentException("RandomStream.nextLongFromTo called with from > to (" + from + " > " + to + ")");
+		}
+		mNumDraws++;
+
+		return from + mGenerator.nextLong(to - from + 1);
+	}
+
+	/**
+	 * Draws from the normal distribution with the given mean and standard deviation
+	 *
+	 * @param mean
+	 * @param stdDev (>= 0)
+	 *
+	 * @return random double
+	 *
+	 */
+	public double nextNormal(double mean, double stdDev)
+	{
+		double v1, v2, s, multiplier;
+
+		mNumDraws++;
+		if (mHaveNextNormal)
+		{
+			mHaveNextNormal = false;
+
+			return mean + stdDev * mNextNormal;
+		}
+		// Marsaglia polar method, which produces two deviates at a time
+		do
+		{
+			v1 = 2 * mGenerator.nextDouble() - 1;
+			v2 = 2 * mGenerator.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		}
+		while (s >= 1 || s == 0);
+		multiplier = Math.sqrt(-2 * Math.log(s) / s);
+		mNextNormal = v2 * multiplier;
+		mHaveNextNormal = true;
+
+		return mean + stdDev * v1 * multiplier;
+	}
+
+	/**
+	 * Gets the number of draws made from the stream, for monitoring (each call of one of the next
+	 * methods counts once, however many numbers it takes from the generator; streams split off
+	 * count their own)
+	 *
+	 * @return number of draws
+	 *
+	 */
+	public long getNumDraws()
+	{
+		return mNumDraws;
+	}
+
+	/**
+	 * Draws from the Poisson distribution with the given mean
+	 *
+	 * @param mean (>= 0)
+	 *
+	 * @return random count (>= 0)
+	 *
+	 */
+	public long nextPoisson(double mean)
+	{
+		if (mean < 0 || Double.isNaN(mean))
+		{
+			throw new IllegalArgumentException("RandomStream.nextPoisson called with mean < 0 (mean == " + mean + ")");
+		}
+		double limit, product, logMean, b, a, invAlpha, vr, u, v, us;
+		long count;
+
+		mNumDraws++;
+		if (mean < 10)
+		{
+			// multiply uniform deviates until the product falls below exp(-mean)
+			limit = Math.exp(-mean);
+			product = mGenerator.nextDouble();
+			count = 0;
+			while (product > limit)
+			{
+				product *= mGenerator.nextDouble();
+				count++;
+			}
+
+			return count;
+		}
+		// Hormann's transformed rejection with squeeze (PTRS)
+		logMean = Math.log(mean);
+		b = 0.931 + 2.53 * Math.sqrt(mean);
+		a = -0.059 + 0.02483 * b;
+		invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+		vr = 0.9277 - 3.6224 / (b - 2);
+		while (true)
+		{
+			u = mGenerator.nextDouble() - 0.5;
+			v = mGenerator.nextDouble();
+			us = 0.5 - Math.abs(u);
+			count = (long) Math.floor((2 * a / us + b) * u + mean + 0.43);
+			if (us >= 0.07 && v <= vr)
+			{
+				return count;
+			}
+			if (count < 0 || (us < 0.013 && v > us))
+			{
+				continue;
+			}
+			if (Math.log(v) + Math.log(invAlpha) - Math.log(a / (us * us) + b) <= -mean + count * logMean - logFactorial(count))
+			{
+				return count;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the natural logarithm of n factorial (exactly for small n, by Stirling's series otherwise)
+	 *
+	 * @param n (>= 0)
+	 *
+	 * @return log(n!)
+	 *
+	 */
+	private static double logFactorial(long n)
+	{
+		double x, result;
+		long l1;
+
+		if (n < 16)
+		{
+			result = 0;
+			for (l1 = 2; l1 <= n; l1++)
+			{
+				result += Math.log(l1);
+			}
+
+			return result;
+		}
+		x = n;
+
+		return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x) + 1 / (12 * x) - 1 / (360 * x * x * x) + 1 / (1260 * x * x * x * x * x);
+	}
+
+	/**
+	 * RandomStream constructor
+	 *
+	 * @param generator to draw from (!= null)
+	 *
+	 */
+	private RandomStream(SplittableRandom generator)
+	{
+		mGenerator = generator;
+		mHaveNextNormal = false;
+		mNumDraws = 0;
+	}
+
+	/**
+	 * RandomStream constructor
+	 *
+	 * @param seed
+	 *
+	 */
+	public RandomStream(long seed)
+	{
+		this(new SplittableRandom(seed));
+	}
+}
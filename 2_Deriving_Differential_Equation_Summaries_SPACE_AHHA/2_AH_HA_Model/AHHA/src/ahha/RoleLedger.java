@@ -0,0 +1,139 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * Running counts of the roles of a colony's scouts, so that census queries do not need to scan
+ * the colony. Roles are exclusive: a scout with a preference is assessing it if its assessing
+ * flag is set and is recruiting to it (from its current nest) otherwise; a scout without a
+ * preference has neither role.
+ *
+ * The ledger is kept up to date by AntStore, which removes a scout's role before each change to
+ * its current nest, preference or assessing flag and adds it back afterwards.
+ *
+ */
+class RoleLedger
+{
+	/** The number of nest sites in the landscape */
+	private final int mNumNestSites;
+	/** The number of recruiters from each origin (row) to each destination (column, null indicates a row that has never had recruiters) */
+	private final int[][] mNumRecruiters;
+	/** The number of assessors at each nest site */
+	private final int[] mNumAssessors;
+
+	/**
+	 * Gets the number of scouts recruiting from one nest site to another
+	 *
+	 * @param origin id of origin nest site
+	 * @param destination id of destination nest site
+	 *
+	 * @return number of recruiters (>= 0)
+	 *
+	 */
+	public int getNumRecruiters(int origin, int destination)
+	{
+		if (mNumRecruiters[origin] == null)
+		{
+			return 0;
+		}
+
+		return mNumRecruiters[origin][destination];
+	}
+
+	/**
+	 * Gets the number of scouts assessing a nest site
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return number of assessors (>= 0)
+	 *
+	 */
+	public int getNumAssessors(int nestSite)
+	{
+		return mNumAssessors[nestSite];
+	}
+
+	/**
+	 * Counts a scout in its role
+	 *
+	 * @param currentNest id of the scout's current nest
+	 * @param preference id of the scout's preference (-1 indicates no preference, so no role)
+	 * @param assessing (true if the scout is assessing its preference)
+	 *
+	 * @return void
+	 *
+	 */
+	public void add(int currentNest, int preference, boolean assessing)
+	{
+		if (preference < 0)
+		{
+			return;
+		}
+		if (assessing)
+		{
+			mNumAssessors[preference]++;
+		}
+		else
+		{
+			if (mNumRecruiters[currentNest] == null)
+			{
+				mNumRecruiters[currentNest] = new int[mNumNestSites];
+			}
+			mNumRecruiters[currentNest][preference]++;
+		}
+	}
+
+	/**
+	 * Stops counting a scout in its role
+	 *
+	 * @param currentNest id of the scout's current nest
+	 * @param preference id of the scout's preference (-1 indicates no preference, so no role)
+	 * @param assessing (true if the scout is assessing its preference)
+	 *
+	 * @return void
+	 *
+	 */
+	public void remove(int currentNest, int preference, boolean assessing)
+	{
+		if (preference < 0)
+		{
+			return;
+		}
+		if (assessing)
+		{
+			mNumAssessors[preference]--;
+		}
+		else
+		{
+			mNumRecruiters[currentNest][preference]--;
+		}
+	}
+
+	/**
+	 * RoleLedger constructor (no scout has a role to begin with)
+	 *
+	 * @param numNestSites number of nest sites in the landscape (> 0)
+	 *
+	 */
+	public RoleLedger(int numNestSites)
+	{
+		if (numNestSites <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct RoleLedger with numNestSites <= 0 (numNestSites == " + numNestSites + ")");
+		}
+
+		mNumNestSites = numNestSites;
+		mNumRecruiters = new int[numNestSites][];
+		mNumAssessors = new int[numNestSites];
+	}
+}
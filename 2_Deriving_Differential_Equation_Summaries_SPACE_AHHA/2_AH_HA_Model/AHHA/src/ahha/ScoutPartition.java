@@ -0,0 +1,472 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A range of a colony's scouts updated together, on one thread, when the colony updates its scouts
+ * in parallel (see AntColony.setPartitionSize).
+ *
+ * An update has two phases. First every partition updates its scouts in index order, drawing from
+ * its own random number stream and seeing the colony's quorums as they were at the start of the
+ * update with the partition's own changes to them (ScoutPartition.getQuorumChange); each scout
+ * changes only its own state, and its changes to the quorums, its recruitment of other scouts, its
+ * reverse tandem-runs and the recruitment acts it begins are recorded by the partition. Then the
+ * colony commits the partitions, in order: ScoutPartition.commitChanges books the scouts' changes
+ * into the store's ledger and registries, ScoutPartition.commitQuorums applies the quorum changes,
+ * and ScoutPartition.commitInteractions makes the recorded recruitments and reverse tandem-runs
+ * (from the colony's stream, one at a time, as a sequential update would), has the scouts
+ * beginning recruitment acts sense the quorums as committed (whether they carry or tandem-run) and
+ * has scouts recruiting from a nest site emptied by an earlier recruitment finish emigrating. The
+ * nest sites scouts finished emigrating to are recorded too, and the colony checks whether it has
+ * converged on one of them against the committed quorums (see AntColony.updatePartitions). Nothing
+ * depends on which thread updates which partition, so the results are the same for any number of
+ * threads.
+ *
+ */
+class ScoutPartition
+{
+	/** An interaction: a recruitment act from one nest site to another (carrying a passive ant if no scout is recruited) */
+	private static final int RECRUIT = 0;
+	/** An interaction: a recruitment of an active scout (Pratt et al EBM equivalent recruiters) */
+	private static final int RECRUIT_ACTIVE_SCOUT = 1;
+	/** An interaction: a reverse tandem-run from one nest site to another */
+	private static final int REVERSE_TANDEM_RUN = 2;
+	/** An interaction: a scout beginning a recruitment act, which senses the quorum at its preference */
+	private static final int BEGIN_RECRUITING = 3;
+	/** The number of ints recorded for each interaction (kind, scout, origin, destination, transporting) */
+	private static final int INTERACTION_INTS = 5;
+	/** The number of ints recorded for each changed scout (index, current nest, preference, assessing) */
+	private static final int CHANGE_INTS = 4;
+	/** The colony the scouts are members of */
+	private final AntColony mColony;
+	/** The state of the colony's scouts */
+	private final AntStore mStore;
+	/** The scouts' behaviour, drawing from and recording into this partition */
+	private final Ant mAnt;
+	/** The index of the partition's first scout */
+	private final int mFirst;
+	/** The index after the partition's last scout */
+	private final int mEnd;
+	/** The partition's random number stream */
+	private final RandomStream mRandom;
+	/** The changes to the colony's quorums of scouts at each nest site since the last commit */
+	private final int[] mActiveQuorumChanges;
+	/** The changes to the colony's quorums of passive ants at each nest site since the last commit */
+	private final int[] mPassiveQuorumChanges;
+	/** The number of changes made to the quorums since the last commit */
+	private int mNumQuorumOperations;
+	/** The scouts changed since the last commit, with their state at the start of the update (CHANGE_INTS each) */
+	private int[] mChanges;
+	/** The number of ints of mChanges in use */
+	private int mChangesLength;
+	/** Has a scout finished emigrating to each nest site in the last update? (indexed by id) */
+	private final boolean[] mEmigrationsFinished;
+	/** The interactions recorded since the last commit (INTERACTION_INTS each) */
+	private int[] mInteractions;
+	/** The number of ints of mInteractions in use */
+	private int mInteractionsLength;
+
+	/**
+	 * Gets the partition's random number stream
+	 *
+	 * @return random number stream
+	 *
+	 */
+	public RandomStream getRandom()
+	{
+		return mRandom;
+	}
+
+	/**
+	 * Records a change to the colony's quorum at a nest site
+	 *
+	 * @param nestSite id of nest site
+	 * @param numAnts to add to the quorum (< 0 to remove ants)
+	 * @param active ants flag (true if ants are scouts, false otherwise)
+	 *
+	 * @return void
+	 *
+	 */
+	public void addToQuorumSize(int nestSite, int numAnts, boolean active)
+	{
+		mNumQuorumOperations++;
+		if (active)
+		{
+			mActiveQuorumChanges[nestSite] += numAnts;
+		}
+		else
+		{
+			mPassiveQuorumChanges[nestSite] += numAnts;
+		}
+	}
+
+	/**
+	 * Gets the change to the colony's quorum at a nest site made by the partition's scouts since the
+	 * last commit
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return number of ants added to the quorum (< 0 if ants were removed)
+	 *
+	 */
+	public int getQuorumChange(int nestSite)
+	{
+		return mActiveQuorumChanges[nestSite] + mPassiveQuorumChanges[nestSite];
+	}
+
+	/**
+	 * Records a recruitment act from one nest site to another (see Ant.update)
+	 *
+	 * @param ant index of the recruiter in the colony's AntStore
+	 * @param origin recruiter's current nest (!= null)
+	 * @param destination recruiter's preference (!= null)
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 *
+	 * @return void
+	 *
+	 */
+	public void recruit(int ant, NestSite origin, NestSite destination, boolean transporting)
+	{
+		addInteraction(RECRUIT, ant, origin.getId(), destination.getId(), transporting);
+	}
+
+	/**
+	 * Records a recruitment of an active scout to a nest site (see AntColony.recruitScoutToSite)
+	 *
+	 * @param destination recruiter's preference (!= null)
+	 * @param transporting (true if the recruit is carried, false if it follows a tandem-run)
+	 *
+	 * @return void
+	 *
+	 */
+	public void recruitActiveScout(NestSite destination, boolean transporting)
+	{
+		addInteraction(RECRUIT_ACTIVE_SCOUT, -1, -1, destination.getId(), transporting);
+	}
+
+	/**
+	 * Records a reverse tandem-run from one nest site to another (see AntColony.reverseTandemRunFromTo)
+	 *
+	 * @param origin of reverse tandem-run (!= null)
+	 * @param destination of reverse tandem-run (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void reverseTandemRun(NestSite origin, NestSite destination)
+	{
+		addInteraction(REVERSE_TANDEM_RUN, -1, origin.getId(), destination.getId(), false);
+	}
+
+	/**
+	 * Records that a scout has begun a recruitment act, to sense the quorum at its preference once
+	 * the update's quorum changes are committed (see Ant.senseQuorum)
+	 *
+	 * @param ant index of the scout in the colony's AntStore
+	 *
+	 * @return void
+	 *
+	 */
+	public void beginRecruiting(int ant)
+	{
+		addInteraction(BEGIN_RECRUITING, ant, -1, -1, false);
+	}
+
+	/**
+	 * Records that a scout has finished emigrating to a nest site, so the colony may have converged on
+	 * it (checked once the update is committed, see AntColony.updatePartitions)
+	 *
+	 * @param nestSite (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void finishEmigration(NestSite nestSite)
+	{
+		mEmigrationsFinished[nestSite.getId()] = true;
+	}
+
+	/**
+	 * Gets whether a scout finished emigrating to a nest site in the last update
+	 *
+	 * @param nestSite id of nest site
+	 *
+	 * @return true if a scout finished emigrating to the nest site, false otherwise
+	 *
+	 */
+	public boolean hasFinishedEmigration(int nestSite)
+	{
+		return mEmigrationsFinished[nestSite];
+	}
+
+	/**
+	 * Records an interaction
+	 *
+	 * @param kind of interaction
+	 * @param ant index of the scout interacting (-1 if not needed)
+	 * @param origin id of nest site (-1 if none)
+	 * @param destination id of nest site (-1 if none)
+	 * @param transporting
+	 *
+	 * @return void
+	 *
+	 */
+	private void addInteraction(int kind, int ant, int origin, int destination, boolean transporting)
+	{
+		if (mInteractionsLength == mInteractions.length)
+		{
+			mInteractions = Arrays.copyOf(mInteractions, mInteractions.length * 2);
+		}
+		mInteractions[mInteractionsLength++] = kind;
+		mInteractions[mInteractionsLength++] = ant;
+		mInteractions[mInteractionsLength++] = origin;
+		mInteractions[mInteractionsLength++] = destination;
+		mInteractions[mInteractionsLength++] = transporting ? 1 : 0;
+	}
+
+	/**
+	 * Updates the partition's scouts, in index order, recording the scouts that change their current
+	 * nest, preference or assessing flag (the store's bookkeeping must be deferred, see
+	 * AntStore.setBookkeepingDeferred)
+	 *
+	 * @return void
+	 *
+	 */
+	public void update()
+	{
+		int currentNest, preference, l1;
+		boolean assessing;
+
+		Arrays.fill(mEmigrationsFinished, false);
+		for (l1 = mFirst; l1 < mEnd; l1++)
+		{
+			currentNest = mStore.getCurrentNest(l1);
+			preference = mStore.getPreference(l1);
+			assessing = mStore.isAssessing(l1);
+			mAnt.update(l1);
+			if (mStore.getCurrentNest(l1) != currentNest || mStore.getPreference(l1) != preference || mStore.isAssessing(l1) != assessing)
+			{
+				if (mChangesLength == mChanges.length)
+				{
+					mChanges = Arrays.copyOf(mChanges, mChanges.length * 2);
+				}
+				mChanges[mChangesLength++] = l1;
+				mChanges[mChangesLength++] = currentNest;
+				mChanges[mChangesLength++] = preference;
+				mChanges[mChangesLength++] = assessing ? 1 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Books the scouts changed in the last update into the store's ledger and registries, in index order
+	 *
+	 * @return void
+	 *
+	 */
+	public void commitChanges()
+	{
+		int l1;
+
+		for (l1 = 0; l1 < mChangesLength; l1 += CHANGE_INTS)
+		{
+			mStore.bookDeferredChange(mChanges[l1], mChanges[l1 + 1], mChanges[l1 + 2], mChanges[l1 + 3] != 0);
+		}
+		mChangesLength = 0;
+	}
+
+	/**
+	 * Applies the changes to the colony's quorums made in the last update
+	 *
+	 * @return void
+	 *
+	 */
+	public void commitQuorums()
+	{
+		int l1;
+
+		mColony.commitQuorumChanges(mActiveQuorumChanges, mPassiveQuorumChanges, mNumQuorumOperations);
+		for (l1 = 0; l1 < mActiveQuorumChanges.length; l1++)
+		{
+			mActiveQuorumChanges[l1] = 0;
+			mPassiveQuorumChanges[l1] = 0;
+		}
+		mNumQuorumOperations = 0;
+	}
+
+	/**
+	 * Makes the recruitments and reverse tandem-runs recorded in the last update, and has the scouts
+	 * that began recruitment acts sense the quorums, in the order they were recorded (a recruitment
+	 * from a nest site emptied by an earlier one is instead taken as the recruiter finishing its
+	 * emigration, as it would be in a sequential update)
+	 *
+	 * @return void
+	 *
+	 */
+	public void commitInteractions()
+	{
+		NestSite origin, destination;
+		boolean transporting;
+		int ant, l1;
+
+		for (l1 = 0; l1 < mInteractionsLength; l1 += INTERACTION_INTS)
+		{
+			ant = mInteractions[l1 + 1];
+			if (mInteractions[l1] == BEGIN_RECRUITING)
+			{
+				// unless an earlier recruitment carried the scout, leaving it without a preference to recruit to
+				if (mStore.getPreference(ant) >= 0)
+				{
+					mAnt.senseQuorum(ant);
+				}
+				continue;
+			}
+			origin = (mInteractions[l1 + 2] < 0) ? null : mColony.getNestSite(mInteractions[l1 + 2]);
+			destination = mColony.getNestSite(mInteractions[l1 + 3]);
+			transporting = mInteractions[l1 + 4] != 0;
+			if (mInteractions[l1] == RECRUIT && origin.getQuorumSize(mColony) == 0)
+			{
+				// the origin was emptied earlier in the update, so (as in a sequential update) the recruiter has finished emigrating
+				if (mStore.getPreference(ant) >= 0)
+				{
+					mAnt.finishEmigration(ant);
+				}
+			}
+			else if (mInteractions[l1] == RECRUIT)
+			{
+				if (!mColony.recruitScoutToSite(destination, transporting, false))
+				{
+					if (origin.getQuorumSize(mColony, false) > 0)
+					{
+						origin.decrementQuorumSize(mColony, 1, false);
+						destination.incrementQuorumSize(mColony, 1, false);
+						mColony.incrementNumRecruitmentActs();
+					}
+				}
+				else
+				{
+					mColony.incrementNumRecruitmentActs();
+				}
+			}
+			else if (mInteractions[l1] == RECRUIT_ACTIVE_SCOUT)
+			{
+				mColony.recruitScoutToSite(destination, transporting, true);
+			}
+			else if (mColony.reverseTandemRunFromTo(origin, destination))
+			{
+				mColony.incrementNumRecruitmentActs();
+			}
+		}
+		mInteractionsLength = 0;
+	}
+
+	/**
+	 * ScoutPartition constructor
+	 *
+	 * @param colony (!= null)
+	 * @param store holding the state of the colony's scouts (!= null)
+	 * @param first index of the partition's first scout (>= 0)
+	 * @param end index after the partition's last scout (first < end <= store.size())
+	 * @param random the partition's random number stream (!= null)
+	 *
+	 */
+	public ScoutPartition(AntColony colony, AntStore store, int first, int end, RandomStream random)
+	{
+		if (colony == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutPartition with colony == null");
+		}
+		if (store == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutPartition with store == null");
+		}
+		if (first < 0 || first >= end || end > store.size())
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutPartition with scouts out of range (0 <= " + first + " < " + end + " <= " + store.size() + ")");
+		}
+		if (random == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutPartition with random == null");
+		}
+
+		mColony = colony;
+		mStore = store;
+		mAnt = new Ant(colony, store, this);
+		mFirst = first;
+		mEnd = end;
+		mRandom = random;
+		mActiveQuorumChanges = new int[store.getNumNestSites()];
+		mPassiveQuorumChanges = new int[store.getNumNestSites()];
+		mNumQuorumOperations = 0;
+		mChanges = new int[CHANGE_INTS * 16];
+		mChangesLength = 0;
+		mEmigrationsFinished = new boolean[store.getNumNestSites()];
+		mInteractions = new int[INTERACTION_INTS * 16];
+		mInteractionsLength = 0;
+	}
+
+	/**
+	 * Updates a range of partitions on a fork-join pool, splitting it in half until each task has one partition
+	 *
+	 */
+	static class Update extends RecursiveAction
+	{
+		/** Serialisation version (ForkJoinTask is serialisable) */
+		private static final long serialVersionUID = 1L;
+		/** The partitions */
+		private final ScoutPartition[] mPartitions;
+		/** The index of the first partition to update */
+		private final int mFrom;
+		/** The index after the last partition to update */
+		private final int mTo;
+
+		/**
+		 * Updates the partitions
+		 *
+		 * @return void
+		 *
+		 */
+		protected void compute()
+		{
+			int middle;
+
+			if (mTo - mFrom == 1)
+			{
+				mPartitions[mFrom].update();
+			}
+			else
+			{
+				middle = (mFrom + mTo) >>> 1;
+				invokeAll(new Update(mPartitions, mFrom, middle), new Update(mPartitions, middle, mTo));
+			}
+		}
+
+		/**
+		 * ScoutPartition.Update constructor
+		 *
+		 * @param partitions (!= null)
+		 * @param from index of the first partition to update
+		 * @param to index after the last partition to update (from < to <= partitions.length)
+		 *
+		 */
+		Update(ScoutPartition[] partitions, int from, int to)
+		{
+			mPartitions = partitions;
+			mFrom = from;
+			mTo = to;
+		}
+	}
+}
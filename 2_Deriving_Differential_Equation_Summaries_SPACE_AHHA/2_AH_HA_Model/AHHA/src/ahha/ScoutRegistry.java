@@ -0,0 +1,198 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * Keeps a colony's scouts (by index) sorted into numbered groups, e.g. by preference, so that a
+ * scout in a given state can be found without scanning the colony. Every scout is in exactly one
+ * group. Moving a scout between groups and drawing a random member of a group take constant time.
+ *
+ * Each group is a dense array of its members; a scout leaving a group is replaced by the group's
+ * last member, so the order of members within a group is arbitrary. Groups are stored in blocks
+ * that are only allocated once one of their groups gains a member, so a registry may have many
+ * more groups (e.g. one per pair of nest sites) than scouts.
+ *
+ */
+class ScoutRegistry
+{
+	/** The number of bits of a group number that index the group within its block */
+	private static final int BLOCK_BITS = 8;
+	/** The number of groups in a block */
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	/** The members of each group, by block (only the first size(group) entries are used, null indicates the group or its block has never had members) */
+	private final int[][][] mMembers;
+	/** The number of members of each group, by block (null indicates none of the block's groups has had members) */
+	private final int[][] mGroupSize;
+	/** The group each scout is in */
+	private final int[] mGroup;
+	/** The position of each scout within its group's members */
+	private final int[] mPosition;
+
+	/**
+	 * Gets the group a scout is in
+	 *
+	 * @param ant index of the scout
+	 *
+	 * @return scout's group
+	 *
+	 */
+	public int getGroup(int ant)
+	{
+		return mGroup[ant];
+	}
+
+	/**
+	 * Gets the number of scouts in a group
+	 *
+	 * @param group (0 <= group < number of groups)
+	 *
+	 * @return number of scouts in the group (>= 0)
+	 *
+	 */
+	public int size(int group)
+	{
+		int[] groupSize = mGroupSize[group >>> BLOCK_BITS];
+
+		if (groupSize == null)
+		{
+			return 0;
+		}
+
+		return groupSize[group & (BLOCK_SIZE - 1)];
+	}
+
+	/**
+	 * Gets a member of a group
+	 *
+	 * @param group (0 <= group < number of groups)
+	 * @param index of the member (0 <= index < ScoutRegistry.size(group))
+	 *
+	 * @return index of the scout
+	 *
+	 */
+	public int get(int group, int index)
+	{
+		return mMembers[group >>> BLOCK_BITS][group & (BLOCK_SIZE - 1)][index];
+	}
+
+	/**
+	 * Draws a member of a group uniformly at random
+	 *
+	 * @param group (0 <= group < number of groups)
+	 * @param random number stream to draw from (!= null)
+	 *
+	 * @return index of the scout (-1 indicates the group is empty)
+	 *
+	 */
+	public int getRandom(int group, RandomStream random)
+	{
+		int size = size(group);
+
+		if (size == 0)
+		{
+			return -1;
+		}
+
+		return get(group, random.nextIntFromTo(0, size - 1));
+	}
+
+	/**
+	 * Moves a scout to another group
+	 *
+	 * @param ant index of the scout
+	 * @param group to move the scout to (0 <= group < number of groups)
+	 *
+	 * @return void
+	 *
+	 */
+	public void move(int ant, int group)
+	{
+		int oldGroup, last, block, slot, size;
+		int[] members;
+
+		oldGroup = mGroup[ant];
+		if (oldGroup == group)
+		{
+			return;
+		}
+		// fill the scout's place in its old group with that group's last member
+		block = oldGroup >>> BLOCK_BITS;
+		slot = oldGroup & (BLOCK_SIZE - 1);
+		size = --mGroupSize[block][slot];
+		last = mMembers[block][slot][size];
+		mMembers[block][slot][mPosition[ant]] = last;
+		mPosition[last] = mPosition[ant];
+		// add the scout to the end of its new group
+		block = group >>> BLOCK_BITS;
+		slot = group & (BLOCK_SIZE - 1);
+		if (mGroupSize[block] == null)
+		{
+			mGroupSize[block] = new int[BLOCK_SIZE];
+			mMembers[block] = new int[BLOCK_SIZE][];
+		}
+		size = mGroupSize[block][slot];
+		members = mMembers[block][slot];
+		if (members == null || size == members.length)
+		{
+			members = new int[Math.min(Math.max(2 * size, 4), mGroup.length)];
+			if (size > 0)
+			{
+				System.arraycopy(mMembers[block][slot], 0, members, 0, size);
+			}
+			mMembers[block][slot] = members;
+		}
+		members[size] = ant;
+		mPosition[ant] = size;
+		mGroupSize[block][slot] = size + 1;
+		mGroup[ant] = group;
+	}
+
+	/**
+	 * ScoutRegistry constructor (all scouts start in the same group)
+	 *
+	 * @param numAnts number of scouts (> 0)
+	 * @param numGroups (> 0)
+	 * @param initialGroup group all the scouts start in (0 <= initialGroup < numGroups)
+	 *
+	 */
+	public ScoutRegistry(int numAnts, int numGroups, int initialGroup)
+	{
+		if (numAnts <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutRegistry with numAnts <= 0 (numAnts == " + numAnts + ")");
+		}
+		if (initialGroup < 0 || initialGroup >= numGroups)
+		{
+			throw new IllegalArgumentException("Attempt to construct ScoutRegistry with initialGroup out of range (0 <= " + initialGroup + " < " + numGroups + ")");
+		}
+		int[] members;
+		int block, l1;
+
+		mMembers = new int[(numGroups + BLOCK_SIZE - 1) >>> BLOCK_BITS][][];
+		mGroupSize = new int[mMembers.length][];
+		mGroup = new int[numAnts];
+		mPosition = new int[numAnts];
+		block = initialGroup >>> BLOCK_BITS;
+		mMembers[block] = new int[BLOCK_SIZE][];
+		mGroupSize[block] = new int[BLOCK_SIZE];
+		members = new int[numAnts];
+		for (l1 = 0; l1 < numAnts; l1++)
+		{
+			members[l1] = l1;
+			mGroup[l1] = initialGroup;
+			mPosition[l1] = l1;
+		}
+		mMembers[block][initialGroup & (BLOCK_SIZE - 1)] = members;
+		mGroupSize[block][initialGroup & (BLOCK_SIZE - 1)] = numAnts;
+	}
+}
@@ -0,0 +1,222 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package ahha;
+
+/**
+ * Sorts a colony's scouts (by index) into awake scouts, which are updated every time the colony is,
+ * and parked scouts, which sit out a known number of updates and are woken when it has passed.
+ * Updates are numbered by the colony; a scout parked during update u until update w is not updated
+ * again until update w (or until it is woken early).
+ *
+ * Parked scouts are kept in a hashed timing wheel: one bucket per update number modulo the number
+ * of slots, each a doubly linked list of scouts threaded through per-scout arrays, so parking,
+ * waking early and expiring take constant time per scout. A scout may only be parked for fewer
+ * updates than there are slots (see TimingWheel.getMaxParkedUpdates). The awake scouts are a bit
+ * set, so they can be visited in index order in time proportional to the number awake (plus one
+ * word per 64 scouts).
+ *
+ */
+class TimingWheel
+{
+	/** The update each parked scout wakes in (-1 indicates the scout is awake) */
+	private final int[] mWakeAt;
+	/** The next scout in each parked scout's bucket (-1 indicates the end of the bucket) */
+	private final int[] mNext;
+	/** The previous scout in each parked scout's bucket (-1 indicates the start of the bucket) */
+	private final int[] mPrevious;
+	/** The first scout in each bucket (-1 indicates an empty bucket) */
+	private final int[] mBuckets;
+	/** The awake scouts, one bit per scout */
+	private final long[] mAwake;
+
+	/**
+	 * Gets the longest a scout may be parked for
+	 *
+	 * @return maximum number of updates between parking a scout and it waking (> 0)
+	 *
+	 */
+	public int getMaxParkedUpdates()
+	{
+		return mBuckets.length - 1;
+	}
+
+	/**
+	 * Is the scout awake?
+	 *
+	 * @param ant index of the scout
+	 *
+	 * @return true if the scout is awake, false if it is parked
+	 *
+	 */
+	public boolean isAwake(int ant)
+	{
+		return mWakeAt[ant] < 0;
+	}
+
+	/**
+	 * Finds the first awake scout at or after the given index
+	 *
+	 * @param from index to start looking from (>= 0)
+	 *
+	 * @return index of the scout (-1 indicates no awake scout has an index >= from)
+	 *
+	 */
+	public int nextAwake(int from)
+	{
+		int word;
+		long bits;
+
+		word = from >>> 6;
+		if (word >= mAwake.length)
+		{
+			return -1;
+		}
+		bits = mAwake[word] & (-1L << (from & 63));
+		while (bits == 0)
+		{
+			word++;
+			if (word == mAwake.length)
+			{
+				return -1;
+			}
+			bits = mAwake[word];
+		}
+
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Parks an awake scout until a later update
+	 *
+	 * @param ant index of the scout (must be awake)
+	 * @param update number of the current update
+	 * @param wakeAt number of the update to wake the scout in (update < wakeAt <= update + TimingWheel.getMaxParkedUpdates)
+	 *
+	 * @return void
+	 *
+	 */
+	public void park(int ant, int update, int wakeAt)
+	{
+		if (mWakeAt[ant] >= 0)
+		{
+			throw new IllegalArgumentException("TimingWheel.park called with a scout that is already parked (ant == " + ant + ")");
+		}
+		if (wakeAt <= update || wakeAt - update > getMaxParkedUpdates())
+		{
+			throw new IllegalArgumentException("TimingWheel.park called with wakeAt out of range (" + update + " < " + wakeAt + " <= " + (update + getMaxParkedUpdates()) + ")");
+		}
+		int bucket;
+
+		bucket = wakeAt & (mBuckets.length - 1);
+		mWakeAt[ant] = wakeAt;
+		mPrevious[ant] = -1;
+		mNext[ant] = mBuckets[bucket];
+		if (mBuckets[bucket] >= 0)
+		{
+			mPrevious[mBuckets[bucket]] = ant;
+		}
+		mBuckets[bucket] = ant;
+		mAwake[ant >>> 6] &= ~(1L << (ant & 63));
+	}
+
+	/**
+	 * Wakes a scout before its time
+	 *
+	 * @param ant index of the scout
+	 *
+	 * @return number of the update the scout would have woken in (-1 indicates the scout was already awake)
+	 *
+	 */
+	public int wake(int ant)
+	{
+		int wakeAt;
+
+		wakeAt = mWakeAt[ant];
+		if (wakeAt < 0)
+		{
+			return -1;
+		}
+		if (mPrevious[ant] >= 0)
+		{
+			mNext[mPrevious[ant]] = mNext[ant];
+		}
+		else
+		{
+			mBuckets[wakeAt & (mBuckets.length - 1)] = mNext[ant];
+		}
+		if (mNext[ant] >= 0)
+		{
+			mPrevious[mNext[ant]] = mPrevious[ant];
+		}
+		mWakeAt[ant] = -1;
+		mAwake[ant >>> 6] |= 1L << (ant & 63);
+
+		return wakeAt;
+	}
+
+	/**
+	 * Wakes the scouts whose time is up
+	 *
+	 * @param update number of the update about to begin (every update must be expired in turn)
+	 *
+	 * @return void
+	 *
+	 */
+	public void expire(int update)
+	{
+		int bucket, ant;
+
+		bucket = update & (mBuckets.length - 1);
+		for (ant = mBuckets[bucket]; ant >= 0; ant = mNext[ant])
+		{
+			mWakeAt[ant] = -1;
+			mAwake[ant >>> 6] |= 1L << (ant & 63);
+		}
+		mBuckets[bucket] = -1;
+	}
+
+	/**
+	 * TimingWheel constructor (all scouts start awake)
+	 *
+	 * @param numAnts number of scouts (> 0)
+	 * @param numSlots number of buckets in the wheel (> 1, rounded up to a power of two)
+	 *
+	 */
+	public TimingWheel(int numAnts, int numSlots)
+	{
+		if (numAnts <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct TimingWheel with numAnts <= 0 (numAnts == " + numAnts + ")");
+		}
+		if (numSlots <= 1 || numSlots > (1 << 30))
+		{
+			throw new IllegalArgumentException("Attempt to construct TimingWheel with numSlots out of range (1 < " + numSlots + " <= " + (1 << 30) + ")");
+		}
+		int l1;
+
+		mWakeAt = new int[numAnts];
+		mNext = new int[numAnts];
+		mPrevious = new int[numAnts];
+		mBuckets = new int[Integer.highestOneBit(numSlots - 1) << 1];
+		mAwake = new long[(numAnts + 63) >>> 6];
+		for (l1 = 0; l1 < numAnts; l1++)
+		{
+			mWakeAt[l1] = -1;
+			mAwake[l1 >>> 6] |= 1L << (l1 & 63);
+		}
+		for (l1 = 0; l1 < mBuckets.length; l1++)
+		{
+			mBuckets[l1] = -1;
+		}
+	}
+}
@@ -0,0 +1,698 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a table to a file in the Arrow IPC file format (Arrow columnar format version 1.0,
+ * metadata version V5), which R (arrow::read_feather / read_ipc_file) and Python
+ * (pyarrow.ipc.open_file, pandas.read_feather) can memory-map without parsing.
+ *
+ * The table's columns (32-bit integers, doubles, booleans or UTF-8 strings, none nullable) are
+ * declared before the first row. Each row is given one value per column (ArrowFile.setInt etc.)
+ * and then ended (ArrowFile.endRow). Rows are buffered and written as a record batch every
+ * ArrowFile.BATCH_ROWS rows, so a table of any length takes bounded memory; the file is
+ * complete once the table is closed.
+ *
+ */
+public class ArrowFile
+{
+	/** Column type: 32-bit signed integer */
+	public static final int INT = 0;
+	/** Column type: 64-bit floating point */
+	public static final int DOUBLE = 1;
+	/** Column type: boolean */
+	public static final int BOOLEAN = 2;
+	/** Column type: UTF-8 string */
+	public static final int STRING = 3;
+	/** The number of rows in each record batch */
+	public static final int BATCH_ROWS = 65536;
+	/** The file's magic number */
+	private static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+	/** Arrow metadata version V5 */
+	private static final int METADATA_VERSION = 4;
+	/** Message header type: Schema */
+	private static final int HEADER_SCHEMA = 1;
+	/** Message header type: RecordBatch */
+	private static final int HEADER_RECORD_BATCH = 3;
+	/** The file being written */
+	private final OutputStream mOutput;
+	/** The number of bytes written to the file so far */
+	private long mPosition;
+	/** The names of the columns */
+	private final List<String> mNames;
+	/** The type of each column */
+	private final List<Integer> mTypes;
+	/** The values of each column in the current batch (int[], double[], boolean[] or String[]) */
+	private Object[] mValues;
+	/** Has each column of the current row been given its value? */
+	private boolean[] mSet;
+	/** The number of rows in the current batch */
+	private int mNumRows;
+	/** The file offset, metadata length and body length of each record batch written */
+	private final List<long[]> mBlocks;
+	/** Has the schema been written (so no more columns can be added)? */
+	private boolean mStarted;
+	/** Has the file been closed? */
+	private boolean mClosed;
+
+	/**
+	 * Adds a column (before the first row)
+	 *
+	 * @param name of the column (!= null)
+	 * @param type of the column (ArrowFile.INT, DOUBLE, BOOLEAN or STRING)
+	 *
+	 * @return index of the column
+	 *
+	 */
+	public int addColumn(String name, int type)
+	{
+		if (name == null)
+		{
+			throw new IllegalArgumentException("ArrowFile.addColumn called with name == null");
+		}
+		if (type < INT || type > STRING)
+		{
+			throw new IllegalArgumentException("ArrowFile.addColumn called with an unknown type (type == " + type + ")");
+		}
+		if (mStarted)
+		{
+			throw new IllegalStateException("ArrowFile.addColumn called after the first row");
+		}
+
+		mNames.add(name);
+		mTypes.add(type);
+
+		return mNames.size() - 1;
+	}
+
+	/**
+	 * Gets the number of columns
+	 *
+	 * @return number of columns
+	 *
+	 */
+	public int getNumColumns()
+	{
+		return mNames.size();
+	}
+
+	/**
+	 * Sets an integer column's value in the current row
+	 *
+	 * @param column index
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void setInt(int column, int value)
+	{
+		((int[]) getValues(column, INT))[mNumRows] = value;
+	}
+
+	/**
+	 * Sets a double column's value in the current row
+	 *
+	 * @param column index
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void setDouble(int column, double value)
+	{
+		((double[]) getValues(column, DOUBLE))[mNumRows] = value;
+	}
+
+	/**
+	 * Sets a boolean column's value in the current row
+	 *
+	 * @param column index
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void setBoolean(int column, boolean value)
+	{
+		((boolean[]) getValues(column, BOOLEAN))[mNumRows] = value;
+	}
+
+	/**
+	 * Sets a string column's value in the current row
+	 *
+	 * @param column index
+	 * @param value (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void setString(int column, String value)
+	{
+		if (value == null)
+		{
+			throw new IllegalArgumentException("ArrowFile.setString called with value == null");
+		}
+
+		((String[]) getValues(column, STRING))[mNumRows] = value;
+	}
+
+	/**
+	 * Gets a column's values in the current batch, marking its value in the current row as set
+	 *
+	 * @param column index
+	 * @param type the column must have
+	 *
+	 * @return column's values
+	 *
+	 */
+	private Object getValues(int column, int type)
+	{
+		if (mClosed)
+		{
+			throw new IllegalStateException("ArrowFile: attempt to add to a closed file");
+		}
+		if (column < 0 || column >= mNames.size())
+		{
+			throw new IllegalArgumentException("ArrowFile: column out of range (0 <= " + column + " < " + mNames.size() + ")");
+		}
+		if (mTypes.get(column) != type)
+		{
+			throw new IllegalArgumentException("ArrowFile: column " + mNames.get(column) + " has a different type");
+		}
+		if (!mStarted)
+		{
+			start();
+		}
+		mSet[column] = true;
+
+		return mValues[column];
+	}
+
+	/**
+	 * Ends the current row (every column must have been given its value)
+	 *
+	 * @return void
+	 *
+	 */
+	public void endRow() throws IOException
+	{
+		int l1;
+
+		if (!mStarted)
+		{
+			start();
+		}
+		for (l1 = 0; l1 < mSet.length; l1++)
+		{
+			if (!mSet[l1])
+			{
+				throw new IllegalStateException("ArrowFile.endRow called without a value for column " + mNames.get(l1));
+			}
+			mSet[l1] = false;
+		}
+		mNumRows++;
+		if (mNumRows == BATCH_ROWS)
+		{
+			writeBatch();
+		}
+	}
+
+	/**
+	 * Writes any rows not yet written and the file's footer, and closes the file
+	 *
+	 * @return void
+	 *
+	 */
+	public void close() throws IOException
+	{
+		if (mClosed)
+		{
+			return;
+		}
+		FlatBuffer footer = new FlatBuffer();
+		byte[] bytes;
+		int schema, dictionaries, recordBatches, l1;
+
+		if (!mStarted)
+		{
+			start();
+		}
+		if (mNumRows > 0)
+		{
+			writeBatch();
+		}
+		// end-of-stream marker
+		writeInt(0xFFFFFFFF);
+		writeInt(0);
+		schema = addSchema(footer);
+		footer.startVector(24, 0, 8);
+		dictionaries = footer.endVector(0);
+		footer.startVector(24, mBlocks.size(), 8);
+		for (l1 = mBlocks.size() - 1; l1 >= 0; l1--)
+		{
+			// Block struct: offset, metaDataLength (then 4 bytes of padding), bodyLength
+			footer.prep(8, 24);
+			footer.putLong(mBlocks.get(l1)[2]);
+			footer.pad(4);
+			footer.putInt((int) mBlocks.get(l1)[1]);
+			footer.putLong(mBlocks.get(l1)[0]);
+		}
+		recordBatches = footer.endVector(mBlocks.size());
+		footer.startTable(5);
+		footer.addOffset(recordBatches);
+		footer.slot(3);
+		footer.addOffset(dictionaries);
+		footer.slot(2);
+		footer.addOffset(schema);
+		footer.slot(1);
+		footer.addShort(METADATA_VERSION);
+		footer.slot(0);
+		bytes = footer.finish(footer.endTable());
+		write(bytes, bytes.length);
+		writeInt(bytes.length);
+		write(MAGIC, MAGIC.length);
+		mOutput.close();
+		mClosed = true;
+	}
+
+	/**
+	 * Starts the file: allocates the first batch and writes the magic number and schema
+	 *
+	 * @return void
+	 *
+	 */
+	private void start()
+	{
+		FlatBuffer message = new FlatBuffer();
+		int numColumns = mNames.size(), schema, l1;
+
+		mValues = new Object[numColumns];
+		mSet = new boolean[numColumns];
+		for (l1 = 0; l1 < numColumns; l1++)
+		{
+			switch (mTypes.get(l1))
+			{
+				case INT:
+					mValues[l1] = new int[BATCH_ROWS];
+					break;
+				case DOUBLE:
+					mValues[l1] = new double[BATCH_ROWS];
+					break;
+				case BOOLEAN:
+					mValues[l1] = new boolean[BATCH_ROWS];
+					break;
+				default:
+					mValues[l1] = new String[BATCH_ROWS];
+					break;
+			}
+		}
+		mStarted = true;
+		try
+		{
+			write(MAGIC, MAGIC.length);
+			pad(2);
+			schema = addSchema(message);
+			writeMessage(message, HEADER_SCHEMA, schema, 0);
+		}
+		catch (IOException exception)
+		{
+			throw new RuntimeException("ArrowFile: error writing schema", exception);
+		}
+	}
+
+	/**
+	 * Adds the table's schema to a buffer
+	 *
+	 * @param buffer (!= null)
+	 *
+	 * @return offset of the Schema table
+	 *
+	 */
+	private int addSchema(FlatBuffer buffer)
+	{
+		int[] fields = new int[mNames.size()];
+		int name, type, children, fieldVector, l1;
+
+		for (l1 = 0; l1 < fields.length; l1++)
+		{
+			name = buffer.addString(mNames.get(l1));
+			// type tables: Int {bitWidth, is_signed}, FloatingPoint {precision}, Bool {}, Utf8 {}
+			switch (mTypes.get(l1))
+			{
+				case INT:
+					buffer.startTable(2);
+					buffer.addInt(32);
+					buffer.slot(0);
+					buffer.addByte(1);
+					buffer.slot(1);
+					break;
+				case DOUBLE:
+					buffer.startTable(1);
+					buffer.addShort(2);
+					buffer.slot(0);
+					break;
+				default:
+					buffer.startTable(0);
+					break;
+			}
+			type = buffer.endTable();
+			buffer.startVector(4, 0, 4);
+			children = buffer.endVector(0);
+			// Field {name, nullable, type_type, type, dictionary, children, custom_metadata}
+			buffer.startTable(7);
+			buffer.addOffset(name);
+			buffer.slot(0);
+			buffer.addOffset(type);
+			buffer.slot(3);
+			buffer.addOffset(children);
+			buffer.slot(5);
+			buffer.addByte(0);
+			buffer.slot(1);
+			buffer.addByte(getTypeId(mTypes.get(l1)));
+			buffer.slot(2);
+			fields[l1] = buffer.endTable();
+		}
+		fieldVector = buffer.addOffsetVector(fields);
+		// Schema {endianness, fields, custom_metadata, features}
+		buffer.startTable(4);
+		buffer.addOffset(fieldVector);
+		buffer.slot(1);
+		buffer.addShort(0);
+		buffer.slot(0);
+
+		return buffer.endTable();
+	}
+
+	/**
+	 * Gets the Arrow Type union id of a column type
+	 *
+	 * @param type ArrowFile.INT, DOUBLE, BOOLEAN or STRING
+	 *
+	 * @return type id
+	 *
+	 */
+	private static int getTypeId(int type)
+	{
+		switch (type)
+		{
+			case INT:
+				return 2;
+			case DOUBLE:
+				return 3;
+			case BOOLEAN:
+				return 6;
+			default:
+				return 5;
+		}
+	}
+
+	/**
+	 * Writes the current batch as a record batch message followed by its body
+	 *
+	 * @return void
+	 *
+	 */
+	private void writeBatch() throws IOException
+	{
+		FlatBuffer message = new FlatBuffer();
+		List<byte[]> buffers = new ArrayList<byte[]>();
+		long[] block = new long[3];
+		long bodyLength = 0, bufferOffset;
+		int nodes, bufferVector, recordBatch, l1;
+
+		for (l1 = 0; l1 < mValues.length; l1++)
+		{
+			addBuffers(l1, buffers);
+		}
+		for (byte[] buffer : buffers)
+		{
+			bodyLength += padded(buffer.length);
+		}
+		// Buffer structs {offset, length}, relative to the start of the body
+		message.startVector(16, buffers.size(), 8);
+		bufferOffset = bodyLength;
+		for (l1 = buffers.size() - 1; l1 >= 0; l1--)
+		{
+			bufferOffset -= padded(buffers.get(l1).length);
+			message.prep(8, 16);
+			message.putLong(buffers.get(l1).length);
+			message.putLong(bufferOffset);
+		}
+		bufferVector = message.endVector(buffers.size());
+		// FieldNode structs {length, null_count}
+		message.startVector(16, mValues.length, 8);
+		for (l1 = mValues.length - 1; l1 >= 0; l1--)
+		{
+			message.prep(8, 16);
+			message.putLong(0);
+			message.putLong(mNumRows);
+		}
+		nodes = message.endVector(mValues.length);
+		// RecordBatch {length, nodes, buffers, compression, variadicBufferCounts}
+		message.startTable(5);
+		message.addLong(mNumRows);
+		message.slot(0);
+		message.addOffset(bufferVector);
+		message.slot(2);
+		message.addOffset(nodes);
+		message.slot(1);
+		recordBatch = message.endTable();
+		block[0] = mPosition;
+		block[1] = writeMessage(message, HEADER_RECORD_BATCH, recordBatch, bodyLength);
+		block[2] = bodyLength;
+		for (byte[] buffer : buffers)
+		{
+			write(buffer, buffer.length);
+			pad(padded(buffer.length) - buffer.length);
+		}
+		mBlocks.add(block);
+		mNumRows = 0;
+	}
+
+	/**
+	 * Adds the buffers of one of the current batch's columns: the (empty) validity bitmap, then the
+	 * values (bit-packed for booleans), or for strings, the offsets and the UTF-8 bytes
+	 *
+	 * @param column index
+	 * @param buffers to add to (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	private void addBuffers(int column, List<byte[]> buffers)
+	{
+		byte[] bytes, text;
+		int position, l1;
+
+		// every value is valid, so the validity bitmap may be left out
+		buffers.add(new byte[0]);
+		switch (mTypes.get(column))
+		{
+			case INT:
+				bytes = new byte[mNumRows * 4];
+				for (l1 = 0; l1 < mNumRows; l1++)
+				{
+					putLittleEndian(bytes, l1 * 4, ((int[]) mValues[column])[l1], 4);
+				}
+				buffers.add(bytes);
+				break;
+			case DOUBLE:
+				bytes = new byte[mNumRows * 8];
+				for (l1 = 0; l1 < mNumRows; l1++)
+				{
+					putLittleEndian(bytes, l1 * 8, Double.doubleToLongBits(((double[]) mValues[column])[l1]), 8);
+				}
+				buffers.add(bytes);
+				break;
+			case BOOLEAN:
+				bytes = new byte[(mNumRows + 7) / 8];
+				for (l1 = 0; l1 < mNumRows; l1++)
+				{
+					if (((boolean[]) mValues[column])[l1])
+					{
+						bytes[l1 >>> 3] |= 1 << (l1 & 7);
+					}
+				}
+				buffers.add(bytes);
+				break;
+			default:
+				bytes = new byte[(mNumRows + 1) * 4];
+				position = 0;
+				for (l1 = 0; l1 < mNumRows; l1++)
+				{
+					position += ((String[]) mValues[column])[l1].getBytes(StandardCharsets.UTF_8).length;
+					putLittleEndian(bytes, (l1 + 1) * 4, position, 4);
+				}
+				buffers.add(bytes);
+				text = new byte[position];
+				position = 0;
+				for (l1 = 0; l1 < mNumRows; l1++)
+				{
+					bytes = ((String[]) mValues[column])[l1].getBytes(StandardCharsets.UTF_8);
+					System.arraycopy(bytes, 0, text, position, bytes.length);
+					position += bytes.length;
+				}
+				buffers.add(text);
+				break;
+		}
+	}
+
+	/**
+	 * Writes an encapsulated message: a continuation marker, the metadata length and the Message table (padded to 8 bytes)
+	 *
+	 * @param message buffer holding the message's header table (!= null)
+	 * @param headerType MessageHeader union id
+	 * @param header offset of the header table
+	 * @param bodyLength number of bytes in the body that follows the message
+	 *
+	 * @return number of bytes written
+	 *
+	 */
+	private int writeMessage(FlatBuffer message, int headerType, int header, long bodyLength) throws IOException
+	{
+		byte[] bytes;
+		int metadataLength;
+
+		// Message {version, header_type, header, bodyLength, custom_metadata}
+		message.startTable(5);
+		message.addLong(bodyLength);
+		message.slot(3);
+		message.addOffset(header);
+		message.slot(2);
+		message.addShort(METADATA_VERSION);
+		message.slot(0);
+		message.addByte(headerType);
+		message.slot(1);
+		bytes = message.finish(message.endTable());
+		metadataLength = padded(bytes.length);
+		writeInt(0xFFFFFFFF);
+		writeInt(metadataLength);
+		write(bytes, bytes.length);
+		pad(metadataLength - bytes.length);
+
+		return 8 + metadataLength;
+	}
+
+	/**
+	 * Rounds a length up to a multiple of 8 bytes
+	 *
+	 * @param length (>= 0)
+	 *
+	 * @return padded length
+	 *
+	 */
+	private static int padded(int length)
+	{
+		return (length + 7) & ~7;
+	}
+
+	/**
+	 * Puts a little-endian value into a byte array
+	 *
+	 * @param bytes (!= null)
+	 * @param index of the first byte
+	 * @param value
+	 * @param size number of bytes
+	 *
+	 * @return void
+	 *
+	 */
+	private static void putLittleEndian(byte[] bytes, int index, long value, int size)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < size; l1++)
+		{
+			bytes[index + l1] = (byte) (value >>> (8 * l1));
+		}
+	}
+
+	/**
+	 * Writes a little-endian int to the file
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	private void writeInt(int value) throws IOException
+	{
+		byte[] bytes = new byte[4];
+
+		putLittleEndian(bytes, 0, value, 4);
+		write(bytes, 4);
+	}
+
+	/**
+	 * Writes zero bytes to the file
+	 *
+	 * @param numBytes
+	 *
+	 * @return void
+	 *
+	 */
+	private void pad(int numBytes) throws IOException
+	{
+		write(new byte[numBytes], numBytes);
+	}
+
+	/**
+	 * Writes bytes to the file
+	 *
+	 * @param bytes (!= null)
+	 * @param length number of bytes to write
+	 *
+	 * @return void
+	 *
+	 */
+	private void write(byte[] bytes, int length) throws IOException
+	{
+		mOutput.write(bytes, 0, length);
+		mPosition += length;
+		SweepMetrics.recordOutputBytes(length);
+	}
+
+	/**
+	 * ArrowFile constructor (creates the file, which is incomplete until ArrowFile.close)
+	 *
+	 * @param fileName (!= null)
+	 *
+	 */
+	public ArrowFile(String fileName) throws IOException
+	{
+		if (fileName == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ArrowFile with fileName == null");
+		}
+
+		mOutput = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16);
+		mPosition = 0;
+		mNames = new ArrayList<String>();
+		mTypes = new ArrayList<Integer>();
+		mValues = null;
+		mSet = null;
+		mNumRows = 0;
+		mBlocks = new ArrayList<long[]>();
+		mStarted = false;
+		mClosed = false;
+	}
+}
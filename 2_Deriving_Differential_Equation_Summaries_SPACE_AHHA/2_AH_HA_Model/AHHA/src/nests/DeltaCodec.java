@@ -0,0 +1,581 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact encoding of a run's per-tick rows of role counts that records only what changes.
+ *
+ * Late in an emigration most ticks change nothing, so each row is encoded against the row before
+ * it: a row in which only the tick has moved on by one is counted into a run of unchanged rows,
+ * and any other row is a record of which columns changed and by how much. Numbers are written as
+ * unsigned LEB128 varints, and signed differences are zigzag encoded first, so small changes
+ * take a byte. A changed row records which columns changed either as a bitmap or as a list,
+ * whichever is shorter, so rows may be of any length: a row of a landscape of hundreds of nests,
+ * of which a few role counts change a tick, costs in proportion to the few.
+ *
+ * A file is the magic number "AHHADLT2", then the row length (as a varint, with the tick), then
+ * records until the end of the file, each starting with a varint header:
+ *
+ *   header & 1 == 1: header >>> 1 unchanged rows follow, each one tick after the last;
+ *   header & 1 == 0: a changed row. If bit 1 is set, the difference of the tick comes first;
+ *     otherwise the tick is one after the last. If bit 2 is set, the columns (after the tick)
+ *     that changed are a bitmap: bits 3 and up of the header for the first 61 columns, then a
+ *     varint for each further 64 (or part of 64), and their differences follow in column order.
+ *     If bit 2 is clear, header >>> 3 columns changed, and for each of them, in column order,
+ *     come the number of columns from the last one that changed (or from the tick) less one and
+ *     the column's difference.
+ *
+ * The first row is encoded against a row of zeros at tick 0. DeltaCodec.Decoder rebuilds the rows,
+ * and DeltaCodec.main converts an encoded file to a text results file.
+ *
+ */
+public class DeltaCodec
+{
+	/** The magic number at the start of a file */
+	private static final byte[] MAGIC = "AHHADLT2".getBytes(StandardCharsets.US_ASCII);
+	/** The number of columns (after the tick) in the header's bitmap, so the header fits a varint of 64 bits */
+	private static final int HEADER_COLUMNS = 61;
+
+	/**
+	 * Converts an encoded file to a text results file (as EmigrationEngine.printHeader and ResultsRing.TextSink)
+	 *
+	 * @param args encoded file, text file
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Decoder decoder;
+		PrintWriter writer;
+		StringBuilder line = new StringBuilder();
+		int[] row;
+		int l1;
+
+		if (args.length < 2)
+		{
+			System.out.println("Usage: DeltaCodec <encodedfile> <textfile>");
+
+			return;
+		}
+		decoder = new Decoder(new FileInputStream(args[0]));
+		writer = new PrintWriter(args[1], "UTF-8");
+		for (String name : EmigrationEngine.getColumnNames((decoder.getRowLength() - 2) / 3))
+		{
+			line.append(name).append(", ");
+		}
+		writer.printf("%s\n", line);
+		while ((row = decoder.next()) != null)
+		{
+			line.setLength(0);
+			for (l1 = 1; l1 < row.length; l1++)
+			{
+				line.append(row[l1]).append(", ");
+			}
+			writer.printf("%s\n", line);
+		}
+		decoder.close();
+		writer.close();
+	}
+
+	/**
+	 * Results sink encoding a run's rows to a stream
+	 *
+	 */
+	public static class Sink implements ResultsRing.Sink
+	{
+		/** The encoded stream */
+		private final OutputStream mOutput;
+		/** The last row written (the tick, then the role counts; null until the first row) */
+		private int[] mLast;
+		/** The number of unchanged rows not yet written */
+		private long mNumUnchanged;
+		/** The bitmap of the columns that changed in the row being written (the header's, then each further 64) */
+		private long[] mBitmap;
+		/** The bytes of the batch being written */
+		private byte[] mBytes;
+		/** The number of bytes of mBytes in use */
+		private int mLength;
+
+		/**
+		 * Encodes a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength) throws IOException
+		{
+			long flags, bitmapHeader, listHeader;
+			int start, numChanged, bitmapLength, listLength, previous, l1, l2;
+
+			if (mLast == null)
+			{
+				mLast = new int[rowLength];
+				mBytes = new byte[1024];
+				putBytes(MAGIC);
+				putVarint(rowLength);
+				mBitmap = new long[1 + (Math.max(rowLength - 1 - HEADER_COLUMNS, 0) + 63) / 64];
+			}
+			for (l1 = 0; l1 < numRows; l1++)
+			{
+				start = first + l1 * rowLength;
+				numChanged = 0;
+				listLength = 0;
+				previous = 0;
+				Arrays.fill(mBitmap, 0);
+				for (l2 = 1; l2 < rowLength; l2++)
+				{
+					if (rows[start + l2] != mLast[l2])
+					{
+						numChanged++;
+						listLength += getVarintLength(l2 - previous - 1);
+						previous = l2;
+						if (l2 <= HEADER_COLUMNS)
+						{
+							mBitmap[0] |= 1L << (l2 - 1);
+						}
+						else
+						{
+							mBitmap[1 + (l2 - 1 - HEADER_COLUMNS) / 64] |= 1L << ((l2 - 1 - HEADER_COLUMNS) % 64);
+						}
+					}
+				}
+				if (numChanged == 0 && rows[start] == mLast[0] + 1)
+				{
+					mNumUnchanged++;
+					mLast[0]++;
+					continue;
+				}
+				flushUnchanged();
+				flags = (rows[start] != mLast[0] + 1) ? 2 : 0;
+				// whichever of the bitmap and the list is shorter
+				bitmapHeader = (mBitmap[0] << 3) | 4 | flags;
+				listHeader = ((long) numChanged << 3) | flags;
+				bitmapLength = getVarintLength(bitmapHeader);
+				for (l2 = 1; l2 < mBitmap.length; l2++)
+				{
+					bitmapLength += getVarintLength(mBitmap[l2]);
+				}
+				listLength += getVarintLength(listHeader);
+				if (bitmapLength <= listLength)
+				{
+					putVarint(bitmapHeader);
+				}
+				else
+				{
+					putVarint(listHeader);
+				}
+				if (flags != 0)
+				{
+					putVarint(zigzag(rows[start] - mLast[0]));
+				}
+				if (bitmapLength <= listLength)
+				{
+					for (l2 = 1; l2 < mBitmap.length; l2++)
+					{
+						putVarint(mBitmap[l2]);
+					}
+				}
+				previous = 0;
+				for (l2 = 1; l2 < rowLength; l2++)
+				{
+					if (rows[start + l2] != mLast[l2])
+					{
+						if (bitmapLength > listLength)
+						{
+							putVarint(l2 - previous - 1);
+						}
+						putVarint(zigzag(rows[start + l2] - mLast[l2]));
+						previous = l2;
+					}
+				}
+				System.arraycopy(rows, start, mLast, 0, rowLength);
+			}
+			mOutput.write(mBytes, 0, mLength);
+			SweepMetrics.recordOutputBytes(mLength);
+			mLength = 0;
+		}
+
+		/**
+		 * Writes the run of unchanged rows, if any
+		 *
+		 * @return void
+		 *
+		 */
+		private void flushUnchanged()
+		{
+			if (mNumUnchanged > 0)
+			{
+				putVarint((mNumUnchanged << 1) | 1);
+				mNumUnchanged = 0;
+			}
+		}
+
+		/**
+		 * Adds bytes to the batch
+		 *
+		 * @param bytes (!= null)
+		 *
+		 * @return void
+		 *
+		 */
+		private void putBytes(byte[] bytes)
+		{
+			int l1;
+
+			for (l1 = 0; l1 < bytes.length; l1++)
+			{
+				putByte(bytes[l1]);
+			}
+		}
+
+		/**
+		 * Adds a byte to the batch
+		 *
+		 * @param value
+		 *
+		 * @return void
+		 *
+		 */
+		private void putByte(int value)
+		{
+			if (mLength == mBytes.length)
+			{
+				mBytes = Arrays.copyOf(mBytes, mBytes.length * 2);
+			}
+			mBytes[mLength++] = (byte) value;
+		}
+
+		/**
+		 * Adds an unsigned varint to the batch
+		 *
+		 * @param value (treated as unsigned)
+		 *
+		 * @return void
+		 *
+		 */
+		private void putVarint(long value)
+		{
+			while ((value & ~0x7FL) != 0)
+			{
+				putByte((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			putByte((int) value);
+		}
+
+		/**
+		 * Writes any unchanged rows not yet written and closes the stream
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			if (mLast != null)
+			{
+				flushUnchanged();
+				mOutput.write(mBytes, 0, mLength);
+				SweepMetrics.recordOutputBytes(mLength);
+				mLength = 0;
+			}
+			mOutput.close();
+		}
+
+		/**
+		 * Sink constructor
+		 *
+		 * @param output to write the encoded rows to (!= null, owned by the sink from now on)
+		 *
+		 */
+		public Sink(OutputStream output)
+		{
+			if (output == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct DeltaCodec.Sink with output == null");
+			}
+
+			mOutput = new BufferedOutputStream(output);
+			mLast = null;
+			mNumUnchanged = 0;
+			mBitmap = null;
+			mBytes = null;
+			mLength = 0;
+		}
+
+		/**
+		 * Sink constructor
+		 *
+		 * @param fileName of the file to write the encoded rows to (!= null)
+		 *
+		 */
+		public Sink(String fileName) throws IOException
+		{
+			this(new FileOutputStream(fileName));
+		}
+	}
+
+	/**
+	 * Rebuilds the rows of an encoded stream, one at a time
+	 *
+	 */
+	public static class Decoder
+	{
+		/** The encoded stream */
+		private final InputStream mInput;
+		/** The number of values in each row (with the tick) */
+		private final int mRowLength;
+		/** The last row decoded (a row of zeros at tick 0 before the first) */
+		private final int[] mLast;
+		/** The number of unchanged rows still to come from the current run */
+		private long mNumUnchanged;
+		/** The bitmap of the columns that changed in the row being decoded (as DeltaCodec.Sink) */
+		private final long[] mBitmap;
+
+		/**
+		 * Gets the number of values in each row
+		 *
+		 * @return row length (with the tick)
+		 *
+		 */
+		public int getRowLength()
+		{
+			return mRowLength;
+		}
+
+		/**
+		 * Decodes the next row
+		 *
+		 * @return the tick, then the role counts (a new array), or null at the end of the stream
+		 *
+		 */
+		public int[] next() throws IOException
+		{
+			long header, column;
+			int l1;
+
+			if (mNumUnchanged == 0)
+			{
+				header = getVarint(true);
+				if (header == -1)
+				{
+					return null;
+				}
+				if ((header & 1) != 0)
+				{
+					mNumUnchanged = header >>> 1;
+				}
+				else
+				{
+					mLast[0] += ((header & 2) != 0) ? unzigzag(getVarint(false)) : 1;
+					if ((header & 4) != 0)
+					{
+						mBitmap[0] = header >>> 3;
+						for (l1 = 1; l1 < mBitmap.length; l1++)
+						{
+							mBitmap[l1] = getVarint(false);
+						}
+						for (l1 = 1; l1 < mRowLength; l1++)
+						{
+							if ((l1 <= HEADER_COLUMNS) ? (mBitmap[0] & (1L << (l1 - 1))) != 0 : (mBitmap[1 + (l1 - 1 - HEADER_COLUMNS) / 64] & (1L << ((l1 - 1 - HEADER_COLUMNS) % 64))) != 0)
+							{
+								mLast[l1] += unzigzag(getVarint(false));
+							}
+						}
+					}
+					else
+					{
+						column = 0;
+						for (l1 = 0; l1 < header >>> 3; l1++)
+						{
+							column += getVarint(false) + 1;
+							if (column <= 0 || column >= mRowLength)
+							{
+								throw new IOException("DeltaCodec.Decoder: changed column out of range (" + column + ")");
+							}
+							mLast[(int) column] += unzigzag(getVarint(false));
+						}
+					}
+
+					return mLast.clone();
+				}
+			}
+			mNumUnchanged--;
+			mLast[0]++;
+
+			return mLast.clone();
+		}
+
+		/**
+		 * Decodes every remaining row
+		 *
+		 * @return rows, one after another
+		 *
+		 */
+		public int[] readAll() throws IOException
+		{
+			int[] rows = new int[mRowLength * 1024], row;
+			int length = 0;
+
+			while ((row = next()) != null)
+			{
+				if (length + mRowLength > rows.length)
+				{
+					rows = Arrays.copyOf(rows, rows.length * 2);
+				}
+				System.arraycopy(row, 0, rows, length, mRowLength);
+				length += mRowLength;
+			}
+
+			return Arrays.copyOf(rows, length);
+		}
+
+		/**
+		 * Reads an unsigned varint
+		 *
+		 * @param endAllowed may the stream end before the varint?
+		 *
+		 * @return value (-1 if the stream has ended and endAllowed)
+		 *
+		 */
+		private long getVarint(boolean endAllowed) throws IOException
+		{
+			long value = 0;
+			int shift = 0, next;
+
+			while (true)
+			{
+				next = mInput.read();
+				if (next == -1)
+				{
+					if (endAllowed && shift == 0)
+					{
+						return -1;
+					}
+					throw new EOFException("DeltaCodec.Decoder: stream ends part way through a record");
+				}
+				if (shift > 63)
+				{
+					throw new IOException("DeltaCodec.Decoder: varint too long");
+				}
+				value |= (long) (next & 0x7F) << shift;
+				if ((next & 0x80) == 0)
+				{
+					return value;
+				}
+				shift += 7;
+			}
+		}
+
+		/**
+		 * Closes the stream
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			mInput.close();
+		}
+
+		/**
+		 * Decoder constructor (reads the stream's magic number and row length)
+		 *
+		 * @param input encoded stream (!= null, owned by the decoder from now on)
+		 *
+		 */
+		public Decoder(InputStream input) throws IOException
+		{
+			if (input == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct DeltaCodec.Decoder with input == null");
+			}
+			long rowLength;
+			int l1;
+
+			mInput = new BufferedInputStream(input);
+			for (l1 = 0; l1 < MAGIC.length; l1++)
+			{
+				if (mInput.read() != MAGIC[l1])
+				{
+					throw new IOException("DeltaCodec.Decoder: not an encoded trajectory");
+				}
+			}
+			rowLength = getVarint(false);
+			if (rowLength < 1 || rowLength > Integer.MAX_VALUE)
+			{
+				throw new IOException("DeltaCodec.Decoder: row length out of range (" + rowLength + ")");
+			}
+			mRowLength = (int) rowLength;
+			mLast = new int[mRowLength];
+			mNumUnchanged = 0;
+			mBitmap = new long[1 + (Math.max(mRowLength - 1 - HEADER_COLUMNS, 0) + 63) / 64];
+		}
+	}
+
+	/**
+	 * Gets the number of bytes of an unsigned varint
+	 *
+	 * @param value (treated as unsigned)
+	 *
+	 * @return number of bytes
+	 *
+	 */
+	private static int getVarintLength(long value)
+	{
+		return (64 - Long.numberOfLeadingZeros(value | 1) + 6) / 7;
+	}
+
+	/**
+	 * Zigzag encodes a difference, so small differences of either sign are small
+	 *
+	 * @param value
+	 *
+	 * @return encoded value
+	 *
+	 */
+	private static long zigzag(int value)
+	{
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Decodes a zigzag encoded difference
+	 *
+	 * @param value
+	 *
+	 * @return difference
+	 *
+	 */
+	private static int unzigzag(long value)
+	{
+		return (int) (value >>> 1) ^ -(int) (value & 1);
+	}
+}
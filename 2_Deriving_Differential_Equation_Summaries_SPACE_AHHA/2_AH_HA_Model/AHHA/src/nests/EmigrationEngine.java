@@ -0,0 +1,1011 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import ahha.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a single AH-HA nest selection emigration, leaving how the colonies are represented and
+ * updated to its subclasses: NestsEngine follows each ant, PopulationEngine only the number of
+ * ants in each role. This class builds the nests, owns the tick loop, halts the run, writes the
+ * summary and passes the per-tick role counts to the results writer, table, store and other stages.
+ *
+ * The nests are the three set by the nest parameters (nest 3 being the best), or those read from
+ * the landscape file (the best being the one of highest quality other than nest 1). Each tick the
+ * role counts are recorded, then the colonies are updated. The run halts once every colony has
+ * completed its emigration, or once it has taken as long as it would take one scout to tandem-run
+ * the entire colony to the most distant nest site. Each colony's outcome is summarised on its own
+ * line, in colony order.
+ *
+ */
+public abstract class EmigrationEngine
+{
+	/** The run's parameters */
+	private final NestsParameters mParameters;
+	/** The run's random number stream */
+	private final RandomStream mRandom;
+	/** The run's nests (nest 1 is the colonies' original nest, index 0 is unused; null before EmigrationEngine.begin) */
+	private Nest[] mNests;
+	/** The mean quality of each nest site (indexed by nest site id, i.e. nest number - 1) */
+	private int[] mQualities;
+	/** The number of the best nest (the one an optimal decision chooses) */
+	private int mBestNest;
+	/** The distance from the original nest to the most distant of its neighbours */
+	private int mMaxNestDistance;
+	/** The current timestep (0 before the first update) */
+	private int mTickCount;
+	/** Has the run halted? */
+	private boolean mFinished;
+	/** The time taken for each colony to vacate its original nest (0 indicates it has not yet) */
+	private int[] mTimeToVacation;
+	/** The time taken for each colony to complete its emigration (0 indicates it has not yet) */
+	private int[] mTimeToCompletion;
+	/** The number of colonies that have completed their emigration */
+	private int mNumColoniesCompleted;
+	/** The quorum size in each nest on the last timestep (indexed by nest number) */
+	private int[] mLastTickQuorumSizes;
+	/** The number of timesteps since a change in the quorum levels in the different nests */
+	private int mNumTicksSinceQuorumSizeChange;
+	/** The number of recruitment acts during the current emigration, for each colony */
+	private int[] mNumRecruitmentActs;
+	/** The run's summary (null until the run has halted) */
+	private String mSummary;
+	/** The log file the summary is written to (null indicates send summary to stdout) */
+	private final Writer mLogFile;
+	/** Per-tick role counts are written here (null if they are not needed) */
+	private final PrintWriter mResultsWriter;
+	/** Per-tick role counts are added to this Arrow table (null if they are not needed) */
+	private ArrowFile mResultsTable;
+	/** Per-tick role counts are appended to this trajectory store (null if they are not needed) */
+	private TrajectoryStore mResultsStore;
+	/** Further stages the per-tick role counts are passed to */
+	private final List<ResultsRing.Sink> mOtherSinks;
+	/** The run's id, for the Arrow table, trajectory store and live metrics */
+	private int mRunId;
+	/** Takes the per-tick role counts to the results writer, table, store and other stages (null if none is needed) */
+	private ResultsRing mRing;
+	/** Which ticks' rows are written, and which role counts they hold */
+	private OutputPolicy mOutputPolicy;
+	/** The chosen role counts (indices into EmigrationEngine.getColumnNames) */
+	private int[] mOutputColumns;
+	/** The row put into mRing (the tick, then the chosen role counts; holds the last row written) */
+	private int[] mOutputRow;
+	/** The tick of the last row written (-1 if none has been) */
+	private int mLastOutputTick;
+	/** Each nest's quorum size at the last tick (indexed by nest number, for adaptive output) */
+	private int[] mOutputQuorumSizes;
+	/** The run's live metrics (null if SweepMetrics has not been registered) */
+	private SweepMetrics.Run mMetricsRun;
+
+	/**
+	 * Gets the header line for the run summaries
+	 *
+	 * @return comma-separated summary column names
+	 *
+	 */
+	public static String getLogHeader()
+	{
+		return new String("ColonySize,NumScouts,NormalQuorumThreshold," +
+			"HostileQuorumThreshold,EmergencyQuorumThreshold,PreferenceSwitchProb," +
+			"StartScoutingProb,StopScoutingProb,ReverseTandemRunProb,ChangeNestProb,MaxNestSiteQuality,AssessmentDelay," +
+			"TandemRunSpeed,CarryingSpeed,NestQualityRequirement,PrattEbmEquivalent,EnvironmentHostile," +
+			"DistanceSignificant,CompareNestSiteQualities,Nest1ToNest2Distance,Nest1ToNest3Distance," +
+			"Nest2ToNest3Distance,Nest1Habitable,Nest1Quality,Nest2Quality,Nest3Quality," +
+			"NestQualityStdDev,ColonySplit,FinalDecisionOptimal,TimeToVacation,TimeToCompletion," +
+			"NumRecruitmentActs,Nest1QuorumSize,Nest2QuorumSize,Nest3QuorumSize");
+	}
+
+	/**
+	 * Gets the parameter columns of a run summary
+	 *
+	 * @param p run's parameters (!= null)
+	 *
+	 * @return comma-separated parameter values, in the order of EmigrationEngine.getLogHeader
+	 *
+	 */
+	public static String getParameterString(NestsParameters p)
+	{
+		return new String(p.getColonySize() + "," + p.getNumScouts() + ","
+			+ p.getNormalQuorumThreshold() + "," + p.getHostileQuorumThreshold() + ","
+			+ p.getEmergencyQuorumThreshold() + "," + p.getPreferenceSwitchProb() + ","
+			+ p.getStartScoutingProb() + "," + p.getStopScoutingProb() + "," + p.getReverseTandemRunProb() + ","
+			+ p.getChangeNestProb() + "," + p.getMaxNestQuality() + "," + p.getAssessmentDelay() + ","
+			+ p.getTandemRunSpeed() + "," + p.getCarryingSpeed() + ","
+			+ p.getNestQualityRequirement() + "," + p.getPrattEbmEquivalent() + "," + p.getEnvironmentHostile() + ","
+			+ p.getDistanceSignificant() + "," + p.getCompareNestSiteQualities() + ","
+			+ p.getNest1ToNest2Distance() + "," + p.getNest1ToNest3Distance() + ","
+			+ p.getNest2ToNest3Distance() + "," + p.getNest1Habitable() + ","
+			+ p.getNest1Quality() + "," + p.getNest2Quality() + "," + p.getNest3Quality() + ","
+			+ p.getNestQualityStdDev());
+	}
+
+	/**
+	 * Gets the names of the role counts in a row (after the tick, see EmigrationEngine.printInfo):
+	 * N, Q and S, then P_0... for the passive ants in each nest, R_1... for the recruiters from nest 1
+	 * to each other nest and A_1... for the assessors of each other nest (numbered from 0, as nest
+	 * site ids)
+	 *
+	 * @param numNests number of nests (with the home nest, > 0)
+	 *
+	 * @return names, in the order of EmigrationEngine.getRoleCount
+	 *
+	 */
+	public static String[] getColumnNames(int numNests)
+	{
+		List<String> names = new ArrayList<String>();
+		int l1;
+
+		names.add("N");
+		names.add("Q");
+		names.add("S");
+		for (l1 = 0; l1 < numNests; l1++)
+		{
+			names.add("P_" + l1);
+		}
+		for (l1 = 1; l1 < numNests; l1++)
+		{
+			names.add("R_" + l1);
+		}
+		for (l1 = 1; l1 < numNests; l1++)
+		{
+			names.add("A_" + l1);
+		}
+
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Gets the length of a row of all the role counts, with the tick first
+	 *
+	 * @param numNests number of nests (with the home nest, > 0)
+	 *
+	 * @return number of values in a row (one more than the names of EmigrationEngine.getColumnNames)
+	 *
+	 */
+	public static int getRowLength(int numNests)
+	{
+		return 4 + numNests + 2 * (numNests - 1);
+	}
+
+	/**
+	 * Adds an Arrow results table's columns: the run and tick, then all the role counts (as
+	 * EmigrationEngine.getColumnNames)
+	 *
+	 * @param table (!= null, without columns)
+	 * @param numNests number of nests (with the home nest, > 0)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void addColumns(ArrowFile table, int numNests)
+	{
+		addColumns(table, getColumnNames(numNests));
+	}
+
+	/**
+	 * Adds an Arrow results table's columns: the run and tick, then the named role counts (as an
+	 * output policy chooses, see OutputPolicy.getColumnNames)
+	 *
+	 * @param table (!= null, without columns)
+	 * @param names of the role counts (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void addColumns(ArrowFile table, String[] names)
+	{
+		table.addColumn("Run", ArrowFile.INT);
+		table.addColumn("Tick", ArrowFile.INT);
+		for (String name : names)
+		{
+			table.addColumn(name, ArrowFile.INT);
+		}
+	}
+
+	/**
+	 * Builds the run's colonies, each starting in nest 1 (called by EmigrationEngine.begin once the
+	 * nests are built, drawing the colonies' random streams from EmigrationEngine.getRandom)
+	 *
+	 * @param landscape of the run's nests (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	abstract void createColonies(Landscape landscape);
+
+	/**
+	 * Updates the colonies for one timestep (a colony that has completed its emigration need not be
+	 * updated, see EmigrationEngine.hasCompletedEmigration)
+	 *
+	 * @return void
+	 *
+	 */
+	abstract void updateColonies();
+
+	/**
+	 * Gets the number of the colonies' ants in or committed to one of the run's nests
+	 *
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 *
+	 * @return quorum size (over all colonies)
+	 *
+	 */
+	public abstract int getQuorumSize(int nestNumber);
+
+	/**
+	 * Gets the number of a colony's ants in or committed to one of the run's nests
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 * @param active (true for all the colony's ants, false for its passive ants only)
+	 *
+	 * @return quorum size
+	 *
+	 */
+	abstract int getColonyQuorumSize(int colony, int nestNumber, boolean active);
+
+	/**
+	 * Gets a colony's quorum threshold
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return quorum threshold (0 once the colony has completed its emigration)
+	 *
+	 */
+	abstract int getColonyQuorumThreshold(int colony);
+
+	/**
+	 * Gets the number of a colony's recruitment acts so far
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	abstract int getColonyRecruitmentActs(int colony);
+
+	/**
+	 * Works out one role count over all colonies
+	 *
+	 * @param column index of the role count (as EmigrationEngine.getColumnNames)
+	 *
+	 * @return role count
+	 *
+	 */
+	abstract int getRoleCount(int column);
+
+	/**
+	 * Passes a tick's time and the colonies' running totals to the run's live metrics
+	 *
+	 * @param metricsRun (!= null)
+	 * @param nanos time taken by the tick
+	 *
+	 * @return void
+	 *
+	 */
+	abstract void recordTickMetrics(SweepMetrics.Run metricsRun, long nanos);
+
+	/**
+	 * Gets the run's parameters
+	 *
+	 * @return run's parameters
+	 *
+	 */
+	public NestsParameters getParameters()
+	{
+		return mParameters;
+	}
+
+	/**
+	 * Gets the run's random number stream (the nests' and colonies' streams are split from it)
+	 *
+	 * @return random number stream
+	 *
+	 */
+	RandomStream getRandom()
+	{
+		return mRandom;
+	}
+
+	/**
+	 * Gets the quorum threshold of the colonies still emigrating (the colonies share their
+	 * parameters, but a colony's threshold is 0 once it has completed its emigration, so this is the
+	 * largest of the colonies' thresholds)
+	 *
+	 * @return quorum threshold (0 once every colony has completed its emigration)
+	 *
+	 */
+	public int getQuorumThreshold()
+	{
+		int quorumThreshold = 0, l1;
+
+		for (l1 = 0; l1 < getNumColonies(); l1++)
+		{
+			quorumThreshold = Math.max(quorumThreshold, getColonyQuorumThreshold(l1));
+		}
+
+		return quorumThreshold;
+	}
+
+	/**
+	 * Gets the number of the run's colonies
+	 *
+	 * @return number of colonies (> 0)
+	 *
+	 */
+	public int getNumColonies()
+	{
+		return mParameters.getNumColonies();
+	}
+
+	/**
+	 * Gets the number of the run's nests
+	 *
+	 * @return number of nests (3 unless the nests are read from a landscape file)
+	 *
+	 */
+	public int getNumNests()
+	{
+		return mNests.length - 1;
+	}
+
+	/**
+	 * Gets one of the run's nests
+	 *
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests, 1 is the colonies' original nest)
+	 *
+	 * @return nest
+	 *
+	 */
+	public Nest getNest(int nestNumber)
+	{
+		if (nestNumber < 1 || nestNumber >= mNests.length)
+		{
+			throw new IllegalArgumentException("EmigrationEngine.getNest called with nestNumber out of range (1 <= " + nestNumber + " <= " + (mNests.length - 1) + ")");
+		}
+
+		return mNests[nestNumber];
+	}
+
+	/**
+	 * Gets the mean quality of each of the run's nest sites
+	 *
+	 * @return qualities (indexed by nest site id, i.e. nest number - 1; not to be changed)
+	 *
+	 */
+	int[] getNestQualities()
+	{
+		return mQualities;
+	}
+
+	/**
+	 * Gets the current timestep
+	 *
+	 * @return number of updates performed so far
+	 *
+	 */
+	public int getTickCount()
+	{
+		return mTickCount;
+	}
+
+	/**
+	 * Determines if the run has halted (emigration completed, stalled or overrun)
+	 *
+	 * @return true if the run has halted, false otherwise
+	 *
+	 */
+	public boolean isFinished()
+	{
+		return mFinished;
+	}
+
+	/**
+	 * Determines if a colony has completed its emigration
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return true if it has, false otherwise
+	 *
+	 */
+	boolean hasCompletedEmigration(int colony)
+	{
+		return mTimeToCompletion[colony] > 0;
+	}
+
+	/**
+	 * Gets the run's summary lines (same columns as EmigrationEngine.getLogHeader)
+	 *
+	 * @return run's summary (null if the run has not halted yet)
+	 *
+	 */
+	public String getSummary()
+	{
+		return mSummary;
+	}
+
+	/**
+	 * Gets the total number of a colony's ants in or committed to all nests (should equal the colony size)
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return colony's total quorum size
+	 *
+	 */
+	private int getTotalQuorumSize(int colony)
+	{
+		int totalQuorumSize = 0, l1;
+
+		for (l1 = 1; l1 < mNests.length; l1++)
+		{
+			totalQuorumSize += getColonyQuorumSize(colony, l1, true);
+		}
+
+		return totalQuorumSize;
+	}
+
+	/**
+	 * Gets a colony's quorum size in one of the first three nests, for the run's summary
+	 *
+	 * @param nestNumber (1 to 3)
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return quorum size (0 if the run has fewer nests)
+	 *
+	 */
+	private int getSummaryQuorumSize(int nestNumber, int colony)
+	{
+		if (nestNumber >= mNests.length)
+		{
+			return 0;
+		}
+
+		return getColonyQuorumSize(colony, nestNumber, true);
+	}
+
+	/**
+	 * Sends the per-tick role counts to an Arrow table as well as (or instead of) the results writer
+	 * (see EmigrationEngine.addColumns for its columns)
+	 *
+	 * @param resultsTable (with no columns yet, closed when the run halts; null indicates no table)
+	 * @param runId recorded in the table's Run column
+	 *
+	 * @return void
+	 *
+	 */
+	public void setResultsTable(ArrowFile resultsTable, int runId)
+	{
+		if (mNests != null)
+		{
+			throw new IllegalStateException("EmigrationEngine.setResultsTable called after EmigrationEngine.begin");
+		}
+
+		mResultsTable = resultsTable;
+		mRunId = runId;
+	}
+
+	/**
+	 * Sends the per-tick role counts to a trajectory store shared by the whole sweep, as well as (or
+	 * instead of) the results writer and table
+	 *
+	 * @param resultsStore (the run's rows are appended when the run halts, and the store is left open
+	 *   for other runs; null indicates no store)
+	 * @param runId the run's id in the store
+	 *
+	 * @return void
+	 *
+	 */
+	public void setResultsStore(TrajectoryStore resultsStore, int runId)
+	{
+		if (mNests != null)
+		{
+			throw new IllegalStateException("EmigrationEngine.setResultsStore called after EmigrationEngine.begin");
+		}
+
+		mResultsStore = resultsStore;
+		mRunId = runId;
+	}
+
+	/**
+	 * Sets which ticks' role counts are written, and which role counts (to the results writer,
+	 * table, store and other stages alike)
+	 *
+	 * @param outputPolicy (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void setOutputPolicy(OutputPolicy outputPolicy)
+	{
+		if (outputPolicy == null)
+		{
+			throw new IllegalArgumentException("EmigrationEngine.setOutputPolicy called with outputPolicy == null");
+		}
+		if (mNests != null)
+		{
+			throw new IllegalStateException("EmigrationEngine.setOutputPolicy called after EmigrationEngine.begin");
+		}
+
+		mOutputPolicy = outputPolicy;
+	}
+
+	/**
+	 * Passes the per-tick role counts (the tick, then the counts) to a further stage, such as SmoothingStage
+	 *
+	 * @param sink (!= null, closed when the run halts)
+	 *
+	 * @return void
+	 *
+	 */
+	public void addResultsSink(ResultsRing.Sink sink)
+	{
+		if (sink == null)
+		{
+			throw new IllegalArgumentException("EmigrationEngine.addResultsSink called with sink == null");
+		}
+		if (mNests != null)
+		{
+			throw new IllegalStateException("EmigrationEngine.addResultsSink called after EmigrationEngine.begin");
+		}
+
+		mOtherSinks.add(sink);
+	}
+
+	/**
+	 * Writes the column names of the per-tick role counts: the passive ants in each nest, then the
+	 * recruiters from nest 1 to and the assessors of each other nest (numbered from 0, so P_0 is
+	 * nest 1; only the role counts chosen by the output policy are written, after the tick unless
+	 * the policy is every tick)
+	 *
+	 * @return void
+	 *
+	 */
+	private void printHeader()
+	{
+		mResultsWriter.printf("%s", mOutputPolicy.getHeader(mNests.length - 1));
+	}
+
+	/**
+	 * Records the role counts over all colonies: the colony size, the quorum threshold of the
+	 * colonies still emigrating (see EmigrationEngine.getQuorumThreshold), the scouts neither
+	 * recruiting from nest 1 nor assessing, the passive ants in each nest, then the recruiters from
+	 * nest 1 to and the assessors of each other nest. Only the role counts and ticks the output
+	 * policy chooses are worked out and passed on, and nothing is allocated.
+	 *
+	 * @return void
+	 *
+	 */
+	private void printInfo()
+	{
+		boolean changed = (mLastOutputTick < 0);
+		int value, l1;
+
+		if (!mOutputPolicy.isDue(mTickCount, mLastOutputTick, getQuorumsChanging()))
+		{
+			return;
+		}
+		mOutputRow[0] = mTickCount;
+		for (l1 = 0; l1 < mOutputColumns.length; l1++)
+		{
+			value = getRoleCount(mOutputColumns[l1]);
+			changed |= (value != mOutputRow[1 + l1]);
+			mOutputRow[1 + l1] = value;
+		}
+		// (mOutputRow still holds the last row written, so an unchanged row can be dropped)
+		if (mOutputPolicy.getMode() == OutputPolicy.CHANGE && !changed)
+		{
+			return;
+		}
+		mLastOutputTick = mTickCount;
+		mRing.put(mOutputRow);
+	}
+
+	/**
+	 * Has any nest's quorum size changed since the last tick? (Only tracked for adaptive output.)
+	 *
+	 * @return true if one has, false otherwise
+	 *
+	 */
+	private boolean getQuorumsChanging()
+	{
+		boolean changing = false;
+		int size, l1;
+
+		if (mOutputPolicy.getMode() != OutputPolicy.ADAPTIVE)
+		{
+			return false;
+		}
+		for (l1 = 1; l1 < mNests.length; l1++)
+		{
+			size = getQuorumSize(l1);
+			changing |= (size != mOutputQuorumSizes[l1]);
+			mOutputQuorumSizes[l1] = size;
+		}
+
+		return changing;
+	}
+
+	/**
+	 * Starts the ring that takes the per-tick role counts to the results writer, table, store and
+	 * other stages (their headers must already have been written)
+	 *
+	 * @return void
+	 *
+	 */
+	private void createRing()
+	{
+		List<ResultsRing.Sink> sinks = new ArrayList<ResultsRing.Sink>();
+
+		if (mResultsWriter != null)
+		{
+			sinks.add(new ResultsRing.TextSink(mResultsWriter, mOutputPolicy.getMode() != OutputPolicy.EVERY));
+		}
+		if (mResultsTable != null)
+		{
+			sinks.add(new ResultsRing.ArrowSink(mResultsTable, mRunId));
+		}
+		if (mResultsStore != null)
+		{
+			sinks.add(new TrajectoryStore.Sink(mResultsStore, mRunId));
+		}
+		sinks.addAll(mOtherSinks);
+		mOutputColumns = mOutputPolicy.getColumns(mNests.length - 1);
+		mOutputRow = new int[1 + mOutputColumns.length];
+		mLastOutputTick = -1;
+		mOutputQuorumSizes = new int[mNests.length];
+		mRing = new ResultsRing(mOutputRow.length, ResultsRing.DEFAULT_CAPACITY, sinks.toArray(new ResultsRing.Sink[sinks.size()]));
+	}
+
+	/**
+	 * Builds the run's nests and colonies ready for the first update
+	 *
+	 * @return void
+	 *
+	 */
+	public void begin()
+	{
+		NestsParameters p = mParameters;
+		Landscape landscape;
+		LandscapeFile file;
+		NestSite[] nestSites;
+		int l1;
+
+		if (p.getLandscapeFile().length() > 0)
+		{
+			try
+			{
+				file = LandscapeFile.get(p.getLandscapeFile());
+			}
+			catch (IOException exception)
+			{
+				throw new RuntimeException("EmigrationEngine.begin: error reading landscape file " + p.getLandscapeFile());
+			}
+			if (file.getNumSites() < 2)
+			{
+				throw new IllegalArgumentException("EmigrationEngine.begin: landscape file " + p.getLandscapeFile() + " has fewer than two sites");
+			}
+			mNests = new Nest[file.getNumSites() + 1];
+			mQualities = new int[file.getNumSites()];
+			nestSites = new NestSite[file.getNumSites()];
+			mBestNest = 2;
+			for (l1 = 1; l1 < mNests.length; l1++)
+			{
+				mNests[l1] = new Nest(file.getQuality(l1), p.getNestQualityStdDev(), mRandom.split(), p.getNumColonies());
+				mNests[l1].setId(l1 - 1);
+				mQualities[l1 - 1] = file.getQuality(l1);
+				nestSites[l1 - 1] = mNests[l1];
+				if (l1 > 2 && file.getQuality(l1) > file.getQuality(mBestNest))
+				{
+					mBestNest = l1;
+				}
+			}
+			mNests[1].setHabitable(p.getNest1Habitable());
+			landscape = file.build(nestSites);
+		}
+		else
+		{
+			buildNests();
+			landscape = Landscape.reachableFrom(mNests[1]);
+			mBestNest = 3;
+		}
+		mMaxNestDistance = 0;
+		for (l1 = landscape.getFirstEdge(0); l1 < landscape.getFirstEdge(1); l1++)
+		{
+			mMaxNestDistance = Math.max(mMaxNestDistance, landscape.getEdgeDistance(l1));
+		}
+		mLastTickQuorumSizes = new int[mNests.length];
+		mNumRecruitmentActs = new int[p.getNumColonies()];
+		mTimeToVacation = new int[p.getNumColonies()];
+		mTimeToCompletion = new int[p.getNumColonies()];
+		mNumColoniesCompleted = 0;
+		createColonies(landscape);
+		mTickCount = 0;
+		mFinished = false;
+		mSummary = null;
+		if (mResultsWriter != null)
+		{
+			printHeader();
+		}
+		if (mResultsTable != null)
+		{
+			addColumns(mResultsTable, mOutputPolicy.getColumnNames(mNests.length - 1));
+		}
+		if (mResultsWriter != null || mResultsTable != null || mResultsStore != null || !mOtherSinks.isEmpty())
+		{
+			createRing();
+		}
+		if (SweepMetrics.get() != null)
+		{
+			mMetricsRun = SweepMetrics.get().startRun(mRunId);
+		}
+	}
+
+	/**
+	 * Builds the three nests set by the nest parameters
+	 *
+	 * @return void
+	 *
+	 */
+	private void buildNests()
+	{
+		NestsParameters p = mParameters;
+
+		mNests = new Nest[4];
+		mNests[1] = new Nest(p.getNest1Quality(), p.getNestQualityStdDev(), mRandom.split(), p.getNumColonies());
+		mNests[1].setHabitable(p.getNest1Habitable());
+		mNests[2] = new Nest(p.getNest2Quality(), p.getNestQualityStdDev(), mRandom.split(), p.getNumColonies());
+		mNests[3] = new Nest(p.getNest3Quality(), p.getNestQualityStdDev(), mRandom.split(), p.getNumColonies());
+		mNests[1].setId(0);
+		mNests[2].setId(1);
+		mNests[3].setId(2);
+		mNests[1].addNeighbouringNestSite(mNests[2], p.getNest1ToNest2Distance());
+		mNests[1].addNeighbouringNestSite(mNests[3], p.getNest1ToNest3Distance());
+		mNests[2].addNeighbouringNestSite(mNests[1], p.getNest1ToNest2Distance());
+		mNests[2].addNeighbouringNestSite(mNests[3], p.getNest2ToNest3Distance());
+		mNests[3].addNeighbouringNestSite(mNests[1], p.getNest1ToNest3Distance());
+		mNests[3].addNeighbouringNestSite(mNests[2], p.getNest2ToNest3Distance());
+		mQualities = new int[] {p.getNest1Quality(), p.getNest2Quality(), p.getNest3Quality()};
+	}
+
+	/**
+	 * Performs one timestep of the run: records the role counts, updates the colonies and halts
+	 * the run if the emigration has been completed, stalled, or not been completed in the time it
+	 * would take one scout to tandem-run the entire colony to the most distant nest site
+	 *
+	 * @return true if the run is still going, false if it has halted
+	 *
+	 */
+	public boolean step()
+	{
+		if (mNests == null)
+		{
+			throw new IllegalStateException("EmigrationEngine.step called before EmigrationEngine.begin");
+		}
+		if (mFinished)
+		{
+			return false;
+		}
+		NestsParameters p = mParameters;
+		boolean quorumSizesChanged = false;
+		long tickStart = (mMetricsRun != null) ? System.nanoTime() : 0;
+		int l1;
+
+		mTickCount++;
+		if (mRing != null)
+		{
+			printInfo();
+		}
+		updateColonies();
+		for (l1 = 0; l1 < mTimeToVacation.length; l1++)
+		{
+			if (mTimeToVacation[l1] == 0 && getColonyQuorumSize(l1, 1, true) == 0)
+			{
+				mTimeToVacation[l1] = mTickCount;
+			}
+		}
+		for (l1 = 1; l1 < mNests.length && !quorumSizesChanged; l1++)
+		{
+			quorumSizesChanged = Math.abs(getQuorumSize(l1) - mLastTickQuorumSizes[l1]) > 2; // TODO: remove magic numbers
+		}
+		if (quorumSizesChanged)
+		{
+			for (l1 = 1; l1 < mNests.length; l1++)
+			{
+				mLastTickQuorumSizes[l1] = getQuorumSize(l1);
+			}
+			mNumTicksSinceQuorumSizeChange = 0;
+			for (l1 = 0; l1 < mTimeToCompletion.length; l1++)
+			{
+				if (mTimeToCompletion[l1] == 0)
+				{
+					mNumRecruitmentActs[l1] = getColonyRecruitmentActs(l1);
+				}
+			}
+		}
+		for (l1 = 0; l1 < mTimeToCompletion.length; l1++)
+		{
+			if (mTimeToCompletion[l1] == 0 && getColonyQuorumSize(l1, 1, true) == 0 && getTotalQuorumSize(l1) == p.getColonySize())
+			{
+				mTimeToCompletion[l1] = mTickCount;
+				mNumColoniesCompleted++;
+			}
+		}
+		if (mMetricsRun != null)
+		{
+			recordTickMetrics(mMetricsRun, System.nanoTime() - tickStart);
+		}
+		// halt simulation if emigration has been completed, stalled, or not been completed in the time it would take one scout to tandem-run the entire colony to the most distant nest site
+		if (mNumColoniesCompleted == mTimeToCompletion.length || mTickCount >= (((double) mMaxNestDistance / p.getTandemRunSpeed()) * p.getColonySize()))
+		{
+			finish();
+		}
+
+		return !mFinished;
+	}
+
+	/**
+	 * Runs the emigration from start to finish
+	 *
+	 * @return run's summary
+	 *
+	 */
+	public String run()
+	{
+		begin();
+		while (step())
+		{
+		}
+
+		return mSummary;
+	}
+
+	/**
+	 * Records the outcome of the emigration, writes the run's summary and closes the per-tick output
+	 *
+	 * @return void
+	 *
+	 */
+	private void finish()
+	{
+		NestsParameters p = mParameters;
+		String[] summaries = new String[mTimeToCompletion.length];
+		boolean colonySplit, finalDecisionOptimal, passiveAntsElsewhere;
+		int l1, l2;
+
+		for (l1 = 0; l1 < summaries.length; l1++)
+		{
+			if (getColonyQuorumThreshold(l1) == 0)
+			{
+				mNumTicksSinceQuorumSizeChange = 0;
+				mNumRecruitmentActs[l1] = getColonyRecruitmentActs(l1);
+				colonySplit = false;
+				finalDecisionOptimal = getColonyQuorumSize(l1, mBestNest, true) == p.getColonySize();
+			}
+			else
+			{
+				passiveAntsElsewhere = false;
+				for (l2 = 1; l2 < mNests.length; l2++)
+				{
+					if (l2 != mBestNest && getColonyQuorumSize(l1, l2, false) != 0)
+					{
+						passiveAntsElsewhere = true;
+					}
+				}
+				if (passiveAntsElsewhere)
+				{
+					mNumTicksSinceQuorumSizeChange = 0;
+					mNumRecruitmentActs[l1] = getColonyRecruitmentActs(l1);
+				}
+				colonySplit = true;
+				// optimal if more of the colony is in the best nest than in any other alternative
+				finalDecisionOptimal = true;
+				for (l2 = 2; l2 < mNests.length; l2++)
+				{
+					if (l2 != mBestNest && getColonyQuorumSize(l1, mBestNest, true) <= getColonyQuorumSize(l1, l2, true))
+					{
+						finalDecisionOptimal = false;
+					}
+				}
+			}
+			summaries[l1] = getParameterString(p) + "," + colonySplit + "," + finalDecisionOptimal + ",";
+		}
+		for (l1 = 0; l1 < summaries.length; l1++)
+		{
+			// TimeToCompletion is a double, as it was when read from the Repast controller's clock
+			summaries[l1] += mTimeToVacation[l1] + "," + ((double) (mTimeToCompletion[l1] > 0 ? mTimeToCompletion[l1] : mTickCount) - mNumTicksSinceQuorumSizeChange) + ","
+				+ mNumRecruitmentActs[l1] + "," + getSummaryQuorumSize(1, l1) + ","
+				+ getSummaryQuorumSize(2, l1) + "," + getSummaryQuorumSize(3, l1);
+		}
+		mSummary = String.join("\n", summaries);
+		if (mLogFile == null)
+		{
+			System.out.println(mSummary);
+		}
+		else
+		{
+			try
+			{
+				mLogFile.write(mSummary + "\n");
+				mLogFile.flush();
+			}
+			catch (IOException exception)
+			{
+				throw new RuntimeException("EmigrationEngine.finish: error writing to log file");
+			}
+		}
+		mFinished = true;
+		// (waits for the writer thread, which closes the results writer and table)
+		if (mRing != null)
+		{
+			mRing.close();
+		}
+		if (mMetricsRun != null)
+		{
+			mMetricsRun.finish();
+			mMetricsRun = null;
+		}
+	}
+
+	/**
+	 * EmigrationEngine constructor
+	 *
+	 * @param parameters for the run (!= null, copied so later changes do not affect the run)
+	 * @param random number stream for the run (!= null, e.g. from RandomStream.forRun)
+	 * @param logFile to write the run's summary to (null indicates send summary to stdout)
+	 * @param resultsWriter to write the per-tick role counts to (null indicates they are not recorded, closed when the run halts)
+	 *
+	 */
+	EmigrationEngine(NestsParameters parameters, RandomStream random, Writer logFile, PrintWriter resultsWriter)
+	{
+		if (parameters == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct EmigrationEngine with parameters == null");
+		}
+		if (random == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct EmigrationEngine with random == null");
+		}
+
+		mParameters = new NestsParameters(parameters);
+		mRandom = random;
+		mLogFile = logFile;
+		mResultsWriter = resultsWriter;
+		mResultsTable = null;
+		mResultsStore = null;
+		mOtherSinks = new ArrayList<ResultsRing.Sink>();
+		mRunId = 0;
+		mRing = null;
+		mOutputPolicy = OutputPolicy.DEFAULT;
+		mOutputColumns = null;
+		mOutputRow = null;
+		mLastOutputTick = -1;
+		mOutputQuorumSizes = null;
+		mMetricsRun = null;
+		mNests = null;
+		mQualities = null;
+		mTickCount = 0;
+		mFinished = false;
+		mTimeToVacation = null;
+		mTimeToCompletion = null;
+		mNumColoniesCompleted = 0;
+		mLastTickQuorumSizes = null;
+		mNumTicksSinceQuorumSizeChange = 0;
+		mNumRecruitmentActs = null;
+		mSummary = null;
+	}
+}
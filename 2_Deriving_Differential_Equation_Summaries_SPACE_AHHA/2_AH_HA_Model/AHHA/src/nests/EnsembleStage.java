@@ -0,0 +1,475 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Gathers statistics across each configuration's replicates, tick by tick, as the replicates run:
+ * for each tick and role count, the mean and variance (by Welford's method) and quantiles (from a
+ * QuantileSketch). The rows of concurrent replicates are added as they are written, and when a
+ * configuration's last replicate finishes its statistics are written to
+ * <directory>/AHHA_ensemble_config_<config>.txt and dropped.
+ *
+ * The memory taken for a tick does not grow with the number of replicates. A replicate that has
+ * finished is taken as staying at its last values for the later ticks of the others (as in
+ * SmoothingStage), so every tick's statistics are over all the replicates. The statistics of the
+ * finished replicates' last values are kept as one more set, from which the statistics of ticks
+ * not yet reached are started.
+ *
+ * Replicates are added in whatever order they run, so the statistics may differ in their last
+ * digits from one sweep to another.
+ *
+ */
+public class EnsembleStage
+{
+	/** The probabilities of the quantiles written */
+	public static final double[] PROBABILITIES = {0.05, 0.25, 0.5, 0.75, 0.95};
+	/** The directory the statistics are written to */
+	private final String mDirectory;
+	/** The number of bins of each quantile sketch */
+	private final int mMaxBins;
+	/** The configuration of each run (by run index) */
+	private final HashMap<Integer, Integer> mConfigs;
+	/** The statistics of each configuration whose replicates have not all finished */
+	private final HashMap<Integer, Ensemble> mEnsembles;
+
+	/**
+	 * The statistics of each role count at one tick
+	 *
+	 */
+	private static class Statistics
+	{
+		/** The number of replicates added */
+		private long mCount;
+		/** The mean of each role count */
+		private final double[] mMeans;
+		/** The sum of squared differences from the mean of each role count (Welford's M2) */
+		private final double[] mSquares;
+		/** The distribution of each role count */
+		private final QuantileSketch[] mSketches;
+
+		/**
+		 * Adds a replicate's role counts
+		 *
+		 * @param row ring row holding the role counts after the tick (!= null)
+		 * @param first index of the row's tick
+		 *
+		 * @return void
+		 *
+		 */
+		public void add(int[] row, int first)
+		{
+			double delta;
+			int l1;
+
+			mCount++;
+			for (l1 = 0; l1 < mMeans.length; l1++)
+			{
+				delta = row[first + 1 + l1] - mMeans[l1];
+				mMeans[l1] += delta / mCount;
+				mSquares[l1] += delta * (row[first + 1 + l1] - mMeans[l1]);
+				mSketches[l1].add(row[first + 1 + l1]);
+			}
+		}
+
+		/**
+		 * Adds the replicates of other statistics (Chan et al's pairwise combination)
+		 *
+		 * @param other (!= null)
+		 *
+		 * @return void
+		 *
+		 */
+		public void merge(Statistics other)
+		{
+			long count = mCount + other.mCount;
+			double delta;
+			int l1;
+
+			if (other.mCount == 0)
+			{
+				return;
+			}
+			for (l1 = 0; l1 < mMeans.length; l1++)
+			{
+				delta = other.mMeans[l1] - mMeans[l1];
+				mMeans[l1] += delta * other.mCount / count;
+				mSquares[l1] += other.mSquares[l1] + delta * delta * mCount * other.mCount / count;
+				mSketches[l1].merge(other.mSketches[l1]);
+			}
+			mCount = count;
+		}
+
+		/**
+		 * Statistics constructor
+		 *
+		 * @param numVariables number of role counts
+		 * @param maxBins of each quantile sketch
+		 *
+		 */
+		public Statistics(int numVariables, int maxBins)
+		{
+			int l1;
+
+			mCount = 0;
+			mMeans = new double[numVariables];
+			mSquares = new double[numVariables];
+			mSketches = new QuantileSketch[numVariables];
+			for (l1 = 0; l1 < numVariables; l1++)
+			{
+				mSketches[l1] = new QuantileSketch(maxBins);
+			}
+		}
+
+		/**
+		 * Statistics copy constructor
+		 *
+		 * @param other (!= null)
+		 *
+		 */
+		public Statistics(Statistics other)
+		{
+			int l1;
+
+			mCount = other.mCount;
+			mMeans = other.mMeans.clone();
+			mSquares = other.mSquares.clone();
+			mSketches = new QuantileSketch[other.mSketches.length];
+			for (l1 = 0; l1 < mSketches.length; l1++)
+			{
+				mSketches[l1] = new QuantileSketch(other.mSketches[l1]);
+			}
+		}
+	}
+
+	/**
+	 * The statistics of one configuration's replicates
+	 *
+	 */
+	private class Ensemble
+	{
+		/** The configuration */
+		private final int mConfig;
+		/** The number of replicates still to finish */
+		private int mRemaining;
+		/** The number of role counts in a row (0 until the first row) */
+		private int mNumVariables;
+		/** The statistics of each tick (by tick; null for ticks with no rows) */
+		private final List<Statistics> mTicks;
+		/** The statistics of the last values of the replicates finished so far (null if none has) */
+		private Statistics mFinished;
+
+		/**
+		 * Gets the statistics of a tick, starting them from those of the finished replicates if the tick has not been reached
+		 *
+		 * @param tick (>= 0)
+		 *
+		 * @return statistics
+		 *
+		 */
+		private Statistics getTick(int tick)
+		{
+			Statistics statistics;
+			boolean reached = tick < mTicks.size();
+
+			while (mTicks.size() <= tick)
+			{
+				mTicks.add(null);
+			}
+			statistics = mTicks.get(tick);
+			if (statistics == null)
+			{
+				statistics = (reached || mFinished == null) ? new Statistics(mNumVariables, mMaxBins) : new Statistics(mFinished);
+				mTicks.set(tick, statistics);
+			}
+
+			return statistics;
+		}
+
+		/**
+		 * Adds a batch of a replicate's rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's tick
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public synchronized void add(int[] rows, int first, int numRows, int rowLength)
+		{
+			int l1;
+
+			mNumVariables = rowLength - 1;
+			for (l1 = 0; l1 < numRows; l1++)
+			{
+				getTick(rows[first + l1 * rowLength]).add(rows, first + l1 * rowLength);
+			}
+		}
+
+		/**
+		 * Records that a replicate has finished, writing the statistics if it was the last
+		 *
+		 * @param lastRow the replicate's last row (null if it had none)
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public synchronized void finish(int[] lastRow, int rowLength) throws IOException
+		{
+			Statistics last;
+			int l1;
+
+			if (lastRow != null)
+			{
+				// the replicate stays at its last values over the ticks the others have reached since
+				for (l1 = lastRow[0] + 1; l1 < mTicks.size(); l1++)
+				{
+					if (mTicks.get(l1) != null)
+					{
+						mTicks.get(l1).add(lastRow, 0);
+					}
+				}
+				last = new Statistics(rowLength - 1, mMaxBins);
+				last.add(lastRow, 0);
+				if (mFinished == null)
+				{
+					mFinished = last;
+				}
+				else
+				{
+					mFinished.merge(last);
+				}
+			}
+			mRemaining--;
+			if (mRemaining == 0)
+			{
+				write();
+				synchronized (mEnsembles)
+				{
+					mEnsembles.remove(mConfig);
+				}
+			}
+		}
+
+		/**
+		 * Writes the statistics, a line per tick and role count
+		 *
+		 * @return void
+		 *
+		 */
+		private void write() throws IOException
+		{
+			String fileName = mDirectory + "/AHHA_ensemble_config_" + mConfig + ".txt";
+			PrintWriter writer = new PrintWriter(fileName, "UTF-8");
+			String[] names = EmigrationEngine.getColumnNames((mNumVariables - 1) / 3);
+			StringBuilder line = new StringBuilder();
+			Statistics statistics;
+			int tick, l1;
+
+			line.append("Tick, Variable, Count, Mean, Variance");
+			for (double p : PROBABILITIES)
+			{
+				line.append(", Q").append(Math.round(p * 100));
+			}
+			writer.printf("%s\n", line);
+			for (tick = 0; tick < mTicks.size(); tick++)
+			{
+				statistics = mTicks.get(tick);
+				if (statistics == null)
+				{
+					continue;
+				}
+				for (l1 = 0; l1 < mNumVariables; l1++)
+				{
+					line.setLength(0);
+					line.append(tick).append(", ").append(names[l1]).append(", ").append(statistics.mCount);
+					line.append(", ").append(statistics.mMeans[l1]);
+					line.append(", ").append((statistics.mCount > 1) ? statistics.mSquares[l1] / (statistics.mCount - 1) : Double.NaN);
+					for (double p : PROBABILITIES)
+					{
+						line.append(", ").append(statistics.mSketches[l1].getQuantile(p));
+					}
+					writer.printf("%s\n", line);
+				}
+			}
+			writer.close();
+			if (writer.checkError())
+			{
+				throw new IOException("EnsembleStage: error writing " + fileName);
+			}
+		}
+
+		/**
+		 * Ensemble constructor
+		 *
+		 * @param config
+		 * @param numReplicates (> 0)
+		 *
+		 */
+		public Ensemble(int config, int numReplicates)
+		{
+			mConfig = config;
+			mRemaining = numReplicates;
+			mNumVariables = 0;
+			mTicks = new ArrayList<Statistics>();
+			mFinished = null;
+		}
+	}
+
+	/**
+	 * Results sink for a single run: adds the run's rows to its configuration's statistics as they are written
+	 *
+	 */
+	public static class Sink implements ResultsRing.Sink
+	{
+		/** The statistics of the run's configuration */
+		private final Ensemble mEnsemble;
+		/** The run's last row so far (null until the first row) */
+		private int[] mLastRow;
+		/** The number of values in each row */
+		private int mRowLength;
+
+		/**
+		 * Adds a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength)
+		{
+			if (numRows == 0)
+			{
+				return;
+			}
+			mEnsemble.add(rows, first, numRows, rowLength);
+			if (mLastRow == null)
+			{
+				mLastRow = new int[rowLength];
+			}
+			System.arraycopy(rows, first + (numRows - 1) * rowLength, mLastRow, 0, rowLength);
+			mRowLength = rowLength;
+		}
+
+		/**
+		 * Records that the run has finished
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			mEnsemble.finish(mLastRow, mRowLength);
+		}
+
+		/**
+		 * Sink constructor
+		 *
+		 * @param stage (!= null)
+		 * @param run index of the run (one of those given to the stage on construction)
+		 *
+		 */
+		public Sink(EnsembleStage stage, int run)
+		{
+			if (stage == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct EnsembleStage.Sink with stage == null");
+			}
+
+			mEnsemble = stage.getEnsemble(run);
+			mLastRow = null;
+			mRowLength = 0;
+		}
+	}
+
+	/**
+	 * Gets the statistics of a run's configuration
+	 *
+	 * @param run index of the run (one of those given on construction)
+	 *
+	 * @return statistics
+	 *
+	 */
+	private Ensemble getEnsemble(int run)
+	{
+		if (!mConfigs.containsKey(run))
+		{
+			throw new IllegalArgumentException("EnsembleStage.getEnsemble called with an unknown run (run == " + run + ")");
+		}
+		Ensemble ensemble;
+
+		synchronized (mEnsembles)
+		{
+			ensemble = mEnsembles.get(mConfigs.get(run));
+		}
+		if (ensemble == null)
+		{
+			throw new IllegalStateException("EnsembleStage.getEnsemble called for a configuration already finished (run == " + run + ")");
+		}
+
+		return ensemble;
+	}
+
+	/**
+	 * EnsembleStage constructor
+	 *
+	 * @param directory to write the statistics to (!= null, must exist)
+	 * @param runs of the sweep (!= null; a configuration's statistics are written once all its runs have finished)
+	 * @param maxBins number of bins of each quantile sketch (> 1)
+	 *
+	 */
+	public EnsembleStage(String directory, List<ParameterFile.Run> runs, int maxBins)
+	{
+		if (directory == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct EnsembleStage with directory == null");
+		}
+		if (runs == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct EnsembleStage with runs == null");
+		}
+		if (maxBins <= 1)
+		{
+			throw new IllegalArgumentException("Attempt to construct EnsembleStage with maxBins <= 1 (maxBins == " + maxBins + ")");
+		}
+		HashMap<Integer, Integer> numReplicates = new HashMap<Integer, Integer>();
+		Integer count;
+
+		mDirectory = directory;
+		mMaxBins = maxBins;
+		mConfigs = new HashMap<Integer, Integer>();
+		mEnsembles = new HashMap<Integer, Ensemble>();
+		for (ParameterFile.Run run : runs)
+		{
+			mConfigs.put(run.getRunIndex(), run.getConfigIndex());
+			count = numReplicates.get(run.getConfigIndex());
+			numReplicates.put(run.getConfigIndex(), (count == null) ? 1 : count + 1);
+		}
+		for (Integer config : numReplicates.keySet())
+		{
+			mEnsembles.put(config, new Ensemble(config, numReplicates.get(config)));
+		}
+	}
+}
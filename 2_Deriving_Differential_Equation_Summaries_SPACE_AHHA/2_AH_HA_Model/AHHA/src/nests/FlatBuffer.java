@@ -0,0 +1,406 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds a FlatBuffers buffer, as used for the metadata of Arrow IPC files (see ArrowFile).
+ * Only what the Arrow messages need is supported: tables of scalars and offsets, strings,
+ * vectors of offsets and vectors of structs.
+ *
+ * As in the FlatBuffers library, the buffer is built back to front: objects are added before
+ * the objects that refer to them, and are identified by their offset from the end of the buffer.
+ * A table is built by FlatBuffer.startTable, then adding its fields (largest first, for the least
+ * padding) and FlatBuffer.endTable. A vector is built by FlatBuffer.startVector, adding its elements
+ * last first, and FlatBuffer.endVector.
+ *
+ */
+class FlatBuffer
+{
+	/** The buffer (the data is at the end, from mHead on) */
+	private byte[] mBytes;
+	/** The index of the first byte of data in mBytes */
+	private int mHead;
+	/** The largest alignment of anything in the buffer */
+	private int mMinAlign;
+	/** The offset of each field of the table being built (0 indicates the field is absent) */
+	private int[] mVtable;
+	/** The offset of the end of the table being built */
+	private int mTableStart;
+
+	/**
+	 * Gets the offset of the data added so far (i.e. of the last thing added)
+	 *
+	 * @return offset from the end of the buffer
+	 *
+	 */
+	public int offset()
+	{
+		return mBytes.length - mHead;
+	}
+
+	/**
+	 * Makes room for a value, padding so that it will be aligned once further bytes have been added after it
+	 *
+	 * @param size of the value (a power of two, and its alignment)
+	 * @param additional number of bytes that will be added after the value (but before it, in the buffer)
+	 *
+	 * @return void
+	 *
+	 */
+	public void prep(int size, int additional)
+	{
+		int alignSize, newLength;
+		byte[] bytes;
+
+		if (size > mMinAlign)
+		{
+			mMinAlign = size;
+		}
+		alignSize = (~(offset() + additional) + 1) & (size - 1);
+		while (mHead < alignSize + size + additional)
+		{
+			newLength = mBytes.length * 2;
+			bytes = new byte[newLength];
+			System.arraycopy(mBytes, mHead, bytes, newLength - offset(), offset());
+			mHead += newLength - mBytes.length;
+			mBytes = bytes;
+		}
+		pad(alignSize);
+	}
+
+	/**
+	 * Adds zero bytes
+	 *
+	 * @param numBytes
+	 *
+	 * @return void
+	 *
+	 */
+	public void pad(int numBytes)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < numBytes; l1++)
+		{
+			mBytes[--mHead] = 0;
+		}
+	}
+
+	/**
+	 * Puts a byte without aligning (room must have been made by FlatBuffer.prep)
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void putByte(int value)
+	{
+		mBytes[--mHead] = (byte) value;
+	}
+
+	/**
+	 * Puts a little-endian short without aligning
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void putShort(int value)
+	{
+		putByte(value >>> 8);
+		putByte(value);
+	}
+
+	/**
+	 * Puts a little-endian int without aligning
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void putInt(int value)
+	{
+		putShort(value >>> 16);
+		putShort(value);
+	}
+
+	/**
+	 * Puts a little-endian long without aligning
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void putLong(long value)
+	{
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+	/**
+	 * Adds a byte
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void addByte(int value)
+	{
+		prep(1, 0);
+		putByte(value);
+	}
+
+	/**
+	 * Adds a short
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void addShort(int value)
+	{
+		prep(2, 0);
+		putShort(value);
+	}
+
+	/**
+	 * Adds an int
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void addInt(int value)
+	{
+		prep(4, 0);
+		putInt(value);
+	}
+
+	/**
+	 * Adds a long
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void addLong(long value)
+	{
+		prep(8, 0);
+		putLong(value);
+	}
+
+	/**
+	 * Adds a reference to an object already added
+	 *
+	 * @param target offset of the object
+	 *
+	 * @return void
+	 *
+	 */
+	public void addOffset(int target)
+	{
+		prep(4, 0);
+		putInt(offset() - target + 4);
+	}
+
+	/**
+	 * Adds a string (UTF-8, null-terminated)
+	 *
+	 * @param value (!= null)
+	 *
+	 * @return offset of the string
+	 *
+	 */
+	public int addString(String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		prep(4, bytes.length + 1);
+		putByte(0);
+		mHead -= bytes.length;
+		System.arraycopy(bytes, 0, mBytes, mHead, bytes.length);
+		putInt(bytes.length);
+
+		return offset();
+	}
+
+	/**
+	 * Starts a vector (its elements are then added last first)
+	 *
+	 * @param elementSize size of each element in bytes
+	 * @param numElements
+	 * @param alignment of the elements
+	 *
+	 * @return void
+	 *
+	 */
+	public void startVector(int elementSize, int numElements, int alignment)
+	{
+		prep(4, elementSize * numElements);
+		prep(alignment, elementSize * numElements);
+	}
+
+	/**
+	 * Ends a vector
+	 *
+	 * @param numElements
+	 *
+	 * @return offset of the vector
+	 *
+	 */
+	public int endVector(int numElements)
+	{
+		putInt(numElements);
+
+		return offset();
+	}
+
+	/**
+	 * Adds a vector of references to objects already added
+	 *
+	 * @param targets offsets of the objects (!= null)
+	 *
+	 * @return offset of the vector
+	 *
+	 */
+	public int addOffsetVector(int[] targets)
+	{
+		int l1;
+
+		startVector(4, targets.length, 4);
+		for (l1 = targets.length - 1; l1 >= 0; l1--)
+		{
+			addOffset(targets[l1]);
+		}
+
+		return endVector(targets.length);
+	}
+
+	/**
+	 * Starts a table
+	 *
+	 * @param numFields number of fields in the table's schema
+	 *
+	 * @return void
+	 *
+	 */
+	public void startTable(int numFields)
+	{
+		mVtable = new int[numFields];
+		mTableStart = offset();
+	}
+
+	/**
+	 * Records that the value just added is one of the table's fields
+	 *
+	 * @param field index of the field in the table's schema
+	 *
+	 * @return void
+	 *
+	 */
+	public void slot(int field)
+	{
+		mVtable[field] = offset();
+	}
+
+	/**
+	 * Ends a table, adding its vtable (the list of where its fields are)
+	 *
+	 * @return offset of the table
+	 *
+	 */
+	public int endTable()
+	{
+		int objectOffset, numFields, vtableOffset, l1;
+
+		addInt(0);
+		objectOffset = offset();
+		numFields = mVtable.length;
+		while (numFields > 0 && mVtable[numFields - 1] == 0)
+		{
+			numFields--;
+		}
+		for (l1 = numFields - 1; l1 >= 0; l1--)
+		{
+			addShort((mVtable[l1] != 0) ? objectOffset - mVtable[l1] : 0);
+		}
+		addShort(objectOffset - mTableStart);
+		addShort((numFields + 2) * 2);
+		vtableOffset = offset();
+		// the table starts with the (signed) distance back to its vtable
+		writeInt(mBytes.length - objectOffset, vtableOffset - objectOffset);
+		mVtable = null;
+
+		return objectOffset;
+	}
+
+	/**
+	 * Overwrites an int already in the buffer
+	 *
+	 * @param index into mBytes
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	private void writeInt(int index, int value)
+	{
+		mBytes[index] = (byte) value;
+		mBytes[index + 1] = (byte) (value >>> 8);
+		mBytes[index + 2] = (byte) (value >>> 16);
+		mBytes[index + 3] = (byte) (value >>> 24);
+	}
+
+	/**
+	 * Finishes the buffer with a reference to its root table
+	 *
+	 * @param root offset of the root table
+	 *
+	 * @return finished buffer
+	 *
+	 */
+	public byte[] finish(int root)
+	{
+		byte[] bytes;
+
+		prep(mMinAlign, 4);
+		addOffset(root);
+		bytes = new byte[offset()];
+		System.arraycopy(mBytes, mHead, bytes, 0, bytes.length);
+
+		return bytes;
+	}
+
+	/**
+	 * FlatBuffer constructor
+	 *
+	 */
+	public FlatBuffer()
+	{
+		mBytes = new byte[1024];
+		mHead = mBytes.length;
+		mMinAlign = 1;
+		mVtable = null;
+		mTableStart = 0;
+	}
+}
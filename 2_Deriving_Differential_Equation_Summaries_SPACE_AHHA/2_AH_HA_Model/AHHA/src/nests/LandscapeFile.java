@@ -0,0 +1,300 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import ahha.*;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.StringTokenizer;
+
+/**
+ * A landscape of any number of nest sites read from a text file, for emigrations with more than
+ * the three nests set by the nest parameters. Each line of the file is one of
+ *
+ *   site quality               a nest site (numbered from 1 in the order listed, site 1 is the colony's original nest)
+ *   edge from to distance      an undirected edge between two sites
+ *   distances                  followed by one row per site of the distance to each site (-1 or the diagonal indicate no edge)
+ *
+ * Blank lines and anything after a '#' are ignored. Sites must be listed before the edges that
+ * use them. A file is read once and shared by all the runs that use it, which each build their
+ * own nests from it (see LandscapeFile.build).
+ *
+ */
+public class LandscapeFile
+{
+	/** The files read so far, keyed by file name */
+	private static final HashMap<String, LandscapeFile> mFiles = new HashMap<String, LandscapeFile>();
+	/** The quality of each site (index 0 is site 1) */
+	private int[] mQualities;
+	/** The number of sites */
+	private int mNumSites;
+	/** The site each (directed) edge leaves (index 0 is site 1) */
+	private int[] mFrom;
+	/** The site each edge leads to */
+	private int[] mTo;
+	/** The length of each edge */
+	private int[] mDistances;
+	/** The number of (directed) edges */
+	private int mNumEdges;
+
+	/**
+	 * Gets a landscape file, reading it if it has not been read before
+	 *
+	 * @param fileName (!= null)
+	 *
+	 * @return landscape file
+	 *
+	 */
+	public static synchronized LandscapeFile get(String fileName) throws IOException
+	{
+		if (fileName == null)
+		{
+			throw new IllegalArgumentException("LandscapeFile.get called with fileName == null");
+		}
+		LandscapeFile file = mFiles.get(fileName);
+
+		if (file == null)
+		{
+			file = new LandscapeFile(new FileReader(fileName));
+			mFiles.put(fileName, file);
+		}
+
+		return file;
+	}
+
+	/**
+	 * Gets the number of sites in the landscape
+	 *
+	 * @return number of sites (> 0)
+	 *
+	 */
+	public int getNumSites()
+	{
+		return mNumSites;
+	}
+
+	/**
+	 * Gets the quality of a site
+	 *
+	 * @param site number (1 to LandscapeFile.getNumSites)
+	 *
+	 * @return site's quality
+	 *
+	 */
+	public int getQuality(int site)
+	{
+		if (site < 1 || site > mNumSites)
+		{
+			throw new IllegalArgumentException("LandscapeFile.getQuality called with site out of range (1 <= " + site + " <= " + mNumSites + ")");
+		}
+
+		return mQualities[site - 1];
+	}
+
+	/**
+	 * Builds the landscape over a run's nest sites
+	 *
+	 * @param nestSites one per site, indexed by id (!= null, nestSites[i] is site i + 1 and has id i)
+	 *
+	 * @return landscape
+	 *
+	 */
+	public Landscape build(NestSite[] nestSites)
+	{
+		if (nestSites == null || nestSites.length != mNumSites)
+		{
+			throw new IllegalArgumentException("LandscapeFile.build called without one nest site per site");
+		}
+
+		return new Landscape(nestSites, Arrays.copyOf(mFrom, mNumEdges), Arrays.copyOf(mTo, mNumEdges), Arrays.copyOf(mDistances, mNumEdges));
+	}
+
+	/**
+	 * Adds a directed edge
+	 *
+	 * @param from site (index from 0)
+	 * @param to site (index from 0)
+	 * @param distance (>= 0)
+	 *
+	 * @return void
+	 *
+	 */
+	private void addEdge(int from, int to, int distance)
+	{
+		if (mNumEdges == mFrom.length)
+		{
+			mFrom = Arrays.copyOf(mFrom, 2 * mFrom.length);
+			mTo = Arrays.copyOf(mTo, 2 * mTo.length);
+			mDistances = Arrays.copyOf(mDistances, 2 * mDistances.length);
+		}
+		mFrom[mNumEdges] = from;
+		mTo[mNumEdges] = to;
+		mDistances[mNumEdges] = distance;
+		mNumEdges++;
+	}
+
+	/**
+	 * Reads the next whole number on a line
+	 *
+	 * @param tokens rest of the line
+	 * @param lineNumber for error messages
+	 *
+	 * @return number
+	 *
+	 */
+	private static int nextInt(StringTokenizer tokens, int lineNumber)
+	{
+		if (!tokens.hasMoreTokens())
+		{
+			throw new IllegalArgumentException("LandscapeFile: missing number on line " + lineNumber);
+		}
+		String token = tokens.nextToken();
+
+		try
+		{
+			return Integer.parseInt(token);
+		}
+		catch (NumberFormatException exception)
+		{
+			throw new IllegalArgumentException("LandscapeFile: expected a whole number on line " + lineNumber + " (found " + token + ")");
+		}
+	}
+
+	/**
+	 * Reads the next site number on a line
+	 *
+	 * @param tokens rest of the line
+	 * @param lineNumber for error messages
+	 *
+	 * @return site (index from 0)
+	 *
+	 */
+	private int nextSite(StringTokenizer tokens, int lineNumber)
+	{
+		int site = nextInt(tokens, lineNumber);
+
+		if (site < 1 || site > mNumSites)
+		{
+			throw new IllegalArgumentException("LandscapeFile: unknown site " + site + " on line " + lineNumber);
+		}
+
+		return site - 1;
+	}
+
+	/**
+	 * LandscapeFile constructor
+	 *
+	 * @param reader to read the file from (!= null, closed once read)
+	 *
+	 */
+	public LandscapeFile(Reader reader) throws IOException
+	{
+		if (reader == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct LandscapeFile with reader == null");
+		}
+		BufferedReader lines = new BufferedReader(reader);
+		StringTokenizer tokens;
+		String line, keyword;
+		int lineNumber = 0, quality, from, to, distance, l1, l2;
+
+		mQualities = new int[16];
+		mFrom = new int[16];
+		mTo = new int[16];
+		mDistances = new int[16];
+		try
+		{
+			while ((line = lines.readLine()) != null)
+			{
+				lineNumber++;
+				if (line.indexOf('#') >= 0)
+				{
+					line = line.substring(0, line.indexOf('#'));
+				}
+				tokens = new StringTokenizer(line);
+				if (!tokens.hasMoreTokens())
+				{
+					continue;
+				}
+				keyword = tokens.nextToken();
+				if (keyword.equals("site"))
+				{
+					quality = nextInt(tokens, lineNumber);
+					if (quality < 0)
+					{
+						throw new IllegalArgumentException("LandscapeFile: site quality < 0 on line " + lineNumber);
+					}
+					if (mNumSites == mQualities.length)
+					{
+						mQualities = Arrays.copyOf(mQualities, 2 * mQualities.length);
+					}
+					mQualities[mNumSites++] = quality;
+				}
+				else if (keyword.equals("edge"))
+				{
+					from = nextSite(tokens, lineNumber);
+					to = nextSite(tokens, lineNumber);
+					distance = nextInt(tokens, lineNumber);
+					if (distance < 0)
+					{
+						throw new IllegalArgumentException("LandscapeFile: distance < 0 on line " + lineNumber);
+					}
+					addEdge(from, to, distance);
+					addEdge(to, from, distance);
+				}
+				else if (keyword.equals("distances"))
+				{
+					// one row per site, read across as many lines as it takes
+					tokens = new StringTokenizer("");
+					for (l1 = 0; l1 < mNumSites; l1++)
+					{
+						for (l2 = 0; l2 < mNumSites; l2++)
+						{
+							while (!tokens.hasMoreTokens())
+							{
+								line = lines.readLine();
+								lineNumber++;
+								if (line == null)
+								{
+									throw new IllegalArgumentException("LandscapeFile: distance matrix ends early on line " + lineNumber);
+								}
+								tokens = new StringTokenizer(line);
+							}
+							distance = nextInt(tokens, lineNumber);
+							if (distance >= 0 && l1 != l2)
+							{
+								addEdge(l1, l2, distance);
+							}
+						}
+					}
+				}
+				else
+				{
+					throw new IllegalArgumentException("LandscapeFile: unknown keyword " + keyword + " on line " + lineNumber);
+				}
+			}
+		}
+		finally
+		{
+			lines.close();
+		}
+		if (mNumSites == 0)
+		{
+			throw new IllegalArgumentException("LandscapeFile: no sites");
+		}
+	}
+}
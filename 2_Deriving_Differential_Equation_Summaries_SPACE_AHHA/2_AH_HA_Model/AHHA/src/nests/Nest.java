@@ -24,7 +24,6 @@
 package nests;
 
 import ahha.*;
-import uchicago.src.sim.util.Random;
 
 /**
  * The nest class for the AH-HA nest selection model
@@ -36,18 +35,60 @@ public class Nest extends NestSite
 	private int mSiteQuality;
 	/** The standard deviation of the noise in measurements of quality of the nest site */
 	private int mSiteStdDev;
+	/** The random number streams the noise is drawn from, one per colony (indexed by AntColony.getId) */
+	private final RandomStream[] mRandoms;
 	
 	/**
-	 * Gets the nest site's quality (with noise)
+	 * Gets the nest site's quality (with noise, drawn from the first colony's stream)
 	 * 
 	 * @return nest site's quality (with noise, >= 1)
 	 * 
 	 */
 	public int getSiteQuality()
+	{
+		return sampleSiteQuality(mRandoms[0]);
+	}
+	
+	/**
+	 * Gets the nest site's quality as assessed by a member of a colony (with noise, drawn from the colony's stream)
+	 * 
+	 * @param colony (!= null, colony.getId() < number of colonies the nest was constructed for)
+	 * 
+	 * @return nest site's quality (with noise, >= 1)
+	 * 
+	 */
+	public int getSiteQuality(AntColony colony)
+	{
+		return sampleSiteQuality(mRandoms[colony.getId()]);
+	}
+	
+	/**
+	 * Gets the nest site's quality as assessed by a member of a colony (with noise, drawn from the given stream)
+	 * 
+	 * @param colony (!= null)
+	 * @param random number stream to draw the noise from (!= null)
+	 * 
+	 * @return nest site's quality (with noise, >= 1)
+	 * 
+	 */
+	public int getSiteQuality(AntColony colony, RandomStream random)
+	{
+		return sampleSiteQuality(random);
+	}
+	
+	/**
+	 * Samples the nest site's quality
+	 * 
+	 * @param random number stream to draw the noise from
+	 * 
+	 * @return nest site's quality (with noise, >= 1)
+	 * 
+	 */
+	private int sampleSiteQuality(RandomStream random)
 	{
 		int sampledSiteQuality;
 		
-		sampledSiteQuality = mSiteQuality + (int) Random.normal.nextDouble(0, mSiteStdDev);
+		sampledSiteQuality = mSiteQuality + (int) random.nextNormal(0, mSiteStdDev);
 		if (sampledSiteQuality <= 0)
 		{
 			sampledSiteQuality = 1;
@@ -61,9 +102,24 @@ public class Nest extends NestSite
 	 * 
 	 * @param siteQuality (>= 0)
 	 * @param siteStdDev (>= 0)
+	 * @param random number stream for the noise in measurements of quality (!= null)
 	 * 
 	 */
-	public Nest(int siteQuality, int siteStdDev)
+	public Nest(int siteQuality, int siteStdDev, RandomStream random)
+	{
+		this(siteQuality, siteStdDev, random, 1);
+	}
+	
+	/**
+	 * Nest constructor (for a nest shared by several colonies)
+	 * 
+	 * @param siteQuality (>= 0)
+	 * @param siteStdDev (>= 0)
+	 * @param random number stream for the noise in measurements of quality (!= null, used by the first colony, the others' streams are split from it)
+	 * @param numColonies number of colonies sharing the nest (> 0)
+	 * 
+	 */
+	public Nest(int siteQuality, int siteStdDev, RandomStream random, int numColonies)
 	{
 		if (siteQuality < 0)
 		{
@@ -73,9 +129,24 @@ public class Nest extends NestSite
 		{
 			throw new IllegalArgumentException("Attempt to construct Nest with siteStdDev < 0 (siteStdDev == " + siteStdDev + ")");
 		}
+		if (random == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct Nest with random == null");
+		}
+		if (numColonies <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct Nest with numColonies <= 0 (numColonies == " + numColonies + ")");
+		}
+		int l1;
 
 		mSiteQuality = siteQuality;
 		mSiteStdDev = siteStdDev;
+		mRandoms = new RandomStream[numColonies];
+		mRandoms[0] = random;
+		for (l1 = 1; l1 < numColonies; l1++)
+		{
+			mRandoms[l1] = random.split();
+		}
 	}
 }
 /*********************************************************************************************
@@ -34,7 +34,6 @@ import uchicago.src.sim.engine.SimInit;
 import uchicago.src.sim.engine.SimModelImpl;
 import uchicago.src.sim.engine.Schedule;
 import uchicago.src.sim.analysis.OpenSequenceGraph;
-import uchicago.src.sim.util.Random;
 import cern.jet.random.engine.RandomSeedTable;
 
 // -------------------------------------------------------------------------
@@ -59,78 +58,12 @@ import java.io.File;
  */
 public class Nests extends SimModelImpl
 {
-	/** The model's ant colony */
-	private AntColony mAntColony;
-	/** The colony's size */
-	private int mColonySize;
-	/** The number of scouts in the colony */
-	private int mNumScouts;
-	/** The colony's normal quorum threshold */
-	private int mNormalQuorumThreshold;
-	/** The colony's hostile environment quorum threshold */
-	private int mHostileQuorumThreshold;
-	/** The colony's emergency quorum threshold */
-	private int mEmergencyQuorumThreshold;
-	/** The colony scouts' preference switching probability */
-	private double mPreferenceSwitchProb;
-	/** The colony scouts' probability to start scouting */
-	private double mStartScoutingProb;
-	/** The colony scouts' probability to stop scouting */
-	private double mStopScoutingProb;
-	/** The colony scouts' probability to lead reverse tandem-runs */
-	private double mReverseTandemRunProb;
-	/** The colony scouts' probability to change their current nest */
-	private double mChangeNestProb;
-	/** The maximum nest quality (for the best possible nest site) */
-	private int mMaxNestQuality;
-	/** The time the colony's scouts take to assess a site */
-	private int mAssessmentDelay;
-	/** The colony scouts' tandem-running speed */
-	private int mTandemRunSpeed;
-	/** The colony scouts' carrying speed */
-	private int mCarryingSpeed;
-	/** The colony's nest quality requirement */
-	private int mNestQualityRequirement;
-	/** Is the colony's environment hostile? */
-	private boolean mEnvironmentHostile;
-	/** Is distance significant for the colony? */
-	private boolean mDistanceSignificant;
-	/** Do ants compare nest sites against each other for quality? */
-	private boolean mCompareNestSiteQualities;
-	/** Is the model configured to be equivalent to the Pratt et al EBM? */
-	private boolean mPrattEbmEquivalent;
+	/** The model's parameters */
+	private NestsParameters mParameters;
+	/** The engine running the current emigration (null before the model has begun) */
+	private NestsEngine mEngine;
 	/** Is the model running in batch mode? */
 	private boolean mBatch;
-	/** The model's nests */
-	private Nest[] mNests;
-	/** The distance between nests 1 and 2 */
-	private int mNest1ToNest2Distance;
-	/** The distance between nests 1 and 3 */
-	private int mNest1ToNest3Distance;
-	/** The distance between nests 2 and 3 */
-	private int mNest2ToNest3Distance;
-	/** Is nest 1 habitable? */
-	private boolean mNest1Habitable;
-	/** The quality of nest 1 */
-	private int mNest1Quality;
-	/** The quality of nest 2 */
-	private int mNest2Quality;
-	/** The quality of nest 3 */
-	private int mNest3Quality;
-	/** The standard deviation of the noise in measurements of nest quality */
-	private int mNestQualityStdDev;
-	/** The time taken for the colony to vacate its original nest */
-	private int mTimeToVacation;
-	/** The quorum size in nest 1 on the last timestep */
-	private int mLastTickNest1QuorumSize;
-	/** The quorum size in nest 2 on the last timestep */
-	private int mLastTickNest2QuorumSize;
-	/** The quorum size in nest 3 on the last timestep */
-	private int mLastTickNest3QuorumSize;
-	/** The number of timesteps since a change in the quorum levels in the different nests */
-	private int mNumTicksSinceQuorumSizeChange;
-	/** The number of recruitment acts during the current emigration */
-	private int mNumRecruitmentActs;
 	/** The model's schedule */
 	private Schedule mSchedule;
 	/** The model's quorum graph  */
@@ -139,10 +72,6 @@ public class Nests extends SimModelImpl
 	private OpenSequenceGraph mRecruitmentGraph;
 	/** The model's log file */
 	private FileWriter mLogFile;
-	/** The model's random seed */
-	private static long mRandomSeed = 0; // TODO: random number seed sequence doesn't work for batch mode
-	/** The model's next random seed */
-	private static long mNextRandomSeed = 0;
 	/** The model (nasty hack to allow model to stop itself during update action) */
 	private Nests mThis;
 
@@ -205,21 +134,6 @@ public class Nests extends SimModelImpl
 		init.loadModel(nests, inputFile, batch);
 	}
 
-	/**
-	 * Initialises the random distribution used by the model with the given random seed
-	 * 
-	 * @param seed
-	 * 
-	 * @return void
-	 * 
-	 */
-	public static void initialiseDistribution(long seed)
-	{
-		Random.setSeed(seed);
-		Random.createUniform();
-		Random.createNormal(0, 5);
-	}
-	
 	/**
 	 * Gets the name of the model
 	 * 
@@ -239,7 +153,7 @@ public class Nests extends SimModelImpl
 	 */
 	public String[] getInitParam()
 	{
-		return new String[] {"ColonySize", "NumScouts", "NormalQuorumThreshold", "HostileQuorumThreshold", "EmergencyQuorumThreshold", "PreferenceSwitchProb", "StartScoutingProb", "StopScoutingProb", "ReverseTandemRunProb", "ChangeNestProb", "MaxNestQuality", "AssessmentDelay", "TandemRunSpeed", "CarryingSpeed", "NestQualityRequirement", "EnvironmentHostile", "DistanceSignificant", "CompareNestSiteQualities", "PrattEbmEquivalent", "Nest1Habitable", "Nest1Quality", "Nest2Quality", "Nest3Quality", "NestQualityStdDev", "Nest1ToNest2Distance", "Nest1ToNest3Distance", "Nest2ToNest3Distance"};
+		return NestsParameters.getInitParam();
 	}
 
 	/**
@@ -262,7 +176,7 @@ public class Nests extends SimModelImpl
 	 * 
 	 */
 	public int getCarryingSpeed() {
-		return mCarryingSpeed;
+		return mParameters.getCarryingSpeed();
 	}
 
 	/**
@@ -273,7 +187,7 @@ public class Nests extends SimModelImpl
 	 */
 	public double getChangeNestProb()
 	{
-		return mChangeNestProb;
+		return mParameters.getChangeNestProb();
 	}
 
 	/**
@@ -284,7 +198,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getColonySize()
 	{
-		return mColonySize;
+		return mParameters.getColonySize();
 	}
 
 	/**
@@ -295,7 +209,7 @@ public class Nests extends SimModelImpl
 	 */
 	public boolean getCompareNestSiteQualities()
 	{
-		return mCompareNestSiteQualities;
+		return mParameters.getCompareNestSiteQualities();
 	}
 
 	/**
@@ -306,7 +220,7 @@ public class Nests extends SimModelImpl
 	 */
 	public boolean getPrattEbmEquivalent()
 	{
-		return mPrattEbmEquivalent;
+		return mParameters.getPrattEbmEquivalent();
 	}
 
 	/**
@@ -317,7 +231,7 @@ public class Nests extends SimModelImpl
 	 */
 	public boolean getDistanceSignificant()
 	{
-		return mDistanceSignificant;
+		return mParameters.getDistanceSignificant();
 	}
 
 	/**
@@ -328,7 +242,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getEmergencyQuorumThreshold()
 	{
-		return mEmergencyQuorumThreshold;
+		return mParameters.getEmergencyQuorumThreshold();
 	}
 
 	/**
@@ -339,7 +253,7 @@ public class Nests extends SimModelImpl
 	 */
 	public boolean getEnvironmentHostile()
 	{
-		return mEnvironmentHostile;
+		return mParameters.getEnvironmentHostile();
 	}
 
 	/**
@@ -350,7 +264,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getHostileQuorumThreshold()
 	{
-		return mHostileQuorumThreshold;
+		return mParameters.getHostileQuorumThreshold();
 	}
 
 	/**
@@ -361,7 +275,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getMaxNestQuality()
 	{
-		return mMaxNestQuality;
+		return mParameters.getMaxNestQuality();
 	}
 
 	/**
@@ -372,7 +286,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getAssessmentDelay()
 	{
-		return mAssessmentDelay;
+		return mParameters.getAssessmentDelay();
 	}
 
 	/**
@@ -383,7 +297,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNestQualityRequirement()
 	{
-		return mNestQualityRequirement;
+		return mParameters.getNestQualityRequirement();
 	}
 
 	/**
@@ -394,7 +308,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNormalQuorumThreshold()
 	{
-		return mNormalQuorumThreshold;
+		return mParameters.getNormalQuorumThreshold();
 	}
 
 	/**
@@ -405,7 +319,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumScouts()
 	{
-		return mNumScouts;
+		return mParameters.getNumScouts();
 	}
 
 	/**
@@ -416,7 +330,7 @@ public class Nests extends SimModelImpl
 	 */
 	public double getPreferenceSwitchProb()
 	{
-		return mPreferenceSwitchProb;
+		return mParameters.getPreferenceSwitchProb();
 	}
 
 	/**
@@ -427,7 +341,7 @@ public class Nests extends SimModelImpl
 	 */
 	public double getReverseTandemRunProb()
 	{
-		return mReverseTandemRunProb;
+		return mParameters.getReverseTandemRunProb();
 	}
 
 	/**
@@ -438,7 +352,7 @@ public class Nests extends SimModelImpl
 	 */
 	public double getStartScoutingProb()
 	{
-		return mStartScoutingProb;
+		return mParameters.getStartScoutingProb();
 	}
 
 	/**
@@ -449,7 +363,7 @@ public class Nests extends SimModelImpl
 	 */
 	public double getStopScoutingProb()
 	{
-		return mStopScoutingProb;
+		return mParameters.getStopScoutingProb();
 	}
 
 	/**
@@ -460,7 +374,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getTandemRunSpeed()
 	{
-		return mTandemRunSpeed;
+		return mParameters.getTandemRunSpeed();
 	}
 
 	/**
@@ -473,7 +387,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setCarryingSpeed(int carryingSpeed)
 	{
-		mCarryingSpeed = carryingSpeed;
+		mParameters.setCarryingSpeed(carryingSpeed);
 	}
 
 	/**
@@ -486,7 +400,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setChangeNestProb(double changeNestProb)
 	{
-		mChangeNestProb = changeNestProb;
+		mParameters.setChangeNestProb(changeNestProb);
 	}
 
 	/**
@@ -499,7 +413,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setColonySize(int colonySize)
 	{
-		mColonySize = colonySize;
+		mParameters.setColonySize(colonySize);
 	}
 
 	/**
@@ -512,7 +426,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setCompareNestSiteQualities(boolean compareNestSiteQualities)
 	{
-		mCompareNestSiteQualities = compareNestSiteQualities;
+		mParameters.setCompareNestSiteQualities(compareNestSiteQualities);
 	}
 
 	/**
@@ -525,7 +439,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setPrattEbmEquivalent(boolean prattEbmEquivalent)
 	{
-		mPrattEbmEquivalent = prattEbmEquivalent;
+		mParameters.setPrattEbmEquivalent(prattEbmEquivalent);
 	}
 
 	/**
@@ -538,7 +452,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setDistanceSignificant(boolean distanceSignificant)
 	{
-		mDistanceSignificant = distanceSignificant;
+		mParameters.setDistanceSignificant(distanceSignificant);
 	}
 
 	/**
@@ -551,7 +465,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setEmergencyQuorumThreshold(int emergencyQuorumThreshold)
 	{
-		mEmergencyQuorumThreshold = emergencyQuorumThreshold;
+		mParameters.setEmergencyQuorumThreshold(emergencyQuorumThreshold);
 	}
 
 	/**
@@ -564,7 +478,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setEnvironmentHostile(boolean environmentHostile)
 	{
-		mEnvironmentHostile = environmentHostile;
+		mParameters.setEnvironmentHostile(environmentHostile);
 	}
 
 	/**
@@ -577,7 +491,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setHostileQuorumThreshold(int hostileQuorumThreshold)
 	{
-		mHostileQuorumThreshold = hostileQuorumThreshold;
+		mParameters.setHostileQuorumThreshold(hostileQuorumThreshold);
 	}
 
 	/**
@@ -590,7 +504,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setMaxNestQuality(int maxNestQuality)
 	{
-		mMaxNestQuality = maxNestQuality;
+		mParameters.setMaxNestQuality(maxNestQuality);
 	}
 
 	/**
@@ -603,7 +517,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setAssessmentDelay(int assessmentDelay)
 	{
-		mAssessmentDelay = assessmentDelay;
+		mParameters.setAssessmentDelay(assessmentDelay);
 	}
 
 	/**
@@ -616,7 +530,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNestQualityRequirement(int nestQualityRequirement)
 	{
-		mNestQualityRequirement = nestQualityRequirement;
+		mParameters.setNestQualityRequirement(nestQualityRequirement);
 	}
 
 	/**
@@ -629,7 +543,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNormalQuorumThreshold(int normalQuorumThreshold)
 	{
-		mNormalQuorumThreshold = normalQuorumThreshold;
+		mParameters.setNormalQuorumThreshold(normalQuorumThreshold);
 	}
 
 	/**
@@ -642,7 +556,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNumScouts(int numScouts)
 	{
-		mNumScouts = numScouts;
+		mParameters.setNumScouts(numScouts);
 	}
 
 	/**
@@ -655,7 +569,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setPreferenceSwitchProb(double prefSwitchProb)
 	{
-		mPreferenceSwitchProb = prefSwitchProb;
+		mParameters.setPreferenceSwitchProb(prefSwitchProb);
 	}
 
 	/**
@@ -668,7 +582,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setReverseTandemRunProb(double reverseTandemRunProb)
 	{
-		mReverseTandemRunProb = reverseTandemRunProb;
+		mParameters.setReverseTandemRunProb(reverseTandemRunProb);
 	}
 
 	/**
@@ -681,7 +595,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setStartScoutingProb(double startScoutingProb)
 	{
-		mStartScoutingProb = startScoutingProb;
+		mParameters.setStartScoutingProb(startScoutingProb);
 	}
 
 	/**
@@ -694,7 +608,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setStopScoutingProb(double stopScoutingProb)
 	{
-		mStopScoutingProb = stopScoutingProb;
+		mParameters.setStopScoutingProb(stopScoutingProb);
 	}
 
 	/**
@@ -707,7 +621,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setTandemRunSpeed(int tandemRunSpeed)
 	{
-		mTandemRunSpeed = tandemRunSpeed;
+		mParameters.setTandemRunSpeed(tandemRunSpeed);
 	}
 
 	// Nests getters and setters follow...
@@ -720,7 +634,7 @@ public class Nests extends SimModelImpl
 	 */
 	public boolean getNest1Habitable()
 	{
-		return mNest1Habitable;
+		return mParameters.getNest1Habitable();
 	}
 
 	/**
@@ -731,7 +645,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest1Quality()
 	{
-		return mNest1Quality;
+		return mParameters.getNest1Quality();
 	}
 
 	/**
@@ -742,7 +656,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest1ToNest2Distance()
 	{
-		return mNest1ToNest2Distance;
+		return mParameters.getNest1ToNest2Distance();
 	}
 
 	/**
@@ -753,7 +667,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest1ToNest3Distance()
 	{
-		return mNest1ToNest3Distance;
+		return mParameters.getNest1ToNest3Distance();
 	}
 
 	/**
@@ -764,7 +678,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest2Quality()
 	{
-		return mNest2Quality;
+		return mParameters.getNest2Quality();
 	}
 
 	/**
@@ -775,7 +689,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest2ToNest3Distance()
 	{
-		return mNest2ToNest3Distance;
+		return mParameters.getNest2ToNest3Distance();
 	}
 
 	/**
@@ -786,7 +700,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNest3Quality()
 	{
-		return mNest3Quality;
+		return mParameters.getNest3Quality();
 	}
 
 	/**
@@ -797,7 +711,84 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNestQualityStdDev()
 	{
-		return mNestQualityStdDev;
+		return mParameters.getNestQualityStdDev();
+	}
+
+	/**
+	 * Gets the number of colonies sharing the nests
+	 * 
+	 * @return number of colonies
+	 * 
+	 */
+	public int getNumColonies()
+	{
+		return mParameters.getNumColonies();
+	}
+
+	/**
+	 * Gets the file the nest sites and distances are read from
+	 * 
+	 * @return name of landscape file ("" indicates the three nests set by the nest parameters)
+	 * 
+	 */
+	public String getLandscapeFile()
+	{
+		return mParameters.getLandscapeFile();
+	}
+
+	/**
+	 * Determines if the colonies skip scouts that are only counting down a delay
+	 * 
+	 * @return true if the colonies are event driven, false otherwise
+	 * 
+	 */
+	public boolean getEventDriven()
+	{
+		return mParameters.getEventDriven();
+	}
+
+	/**
+	 * Determines if the colonies' scouts are bit-packed off the heap
+	 * 
+	 * @return true if the scouts are packed, false otherwise
+	 * 
+	 */
+	public boolean getPackedScouts()
+	{
+		return mParameters.getPackedScouts();
+	}
+
+	/**
+	 * Gets the number of scouts in each partition a colony updates in parallel
+	 * 
+	 * @return number of scouts (0 indicates scouts are updated one at a time)
+	 * 
+	 */
+	public int getScoutPartitionSize()
+	{
+		return mParameters.getScoutPartitionSize();
+	}
+
+	/**
+	 * Gets the engine that performs the runs (the Repast model always uses the agent engine)
+	 * 
+	 * @return "agent", "gillespie" or "tauleap"
+	 * 
+	 */
+	public String getEngine()
+	{
+		return mParameters.getEngine();
+	}
+
+	/**
+	 * Gets the length of each tau-leap
+	 * 
+	 * @return leap length (in updates)
+	 * 
+	 */
+	public double getLeapLength()
+	{
+		return mParameters.getLeapLength();
 	}
 
 	/**
@@ -810,7 +801,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest1Habitable(boolean habitable)
 	{
-		mNest1Habitable = habitable;
+		mParameters.setNest1Habitable(habitable);
 	}
 
 	/**
@@ -823,7 +814,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest1Quality(int quality)
 	{
-		mNest1Quality = quality;
+		mParameters.setNest1Quality(quality);
 	}
 
 	/**
@@ -836,7 +827,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest1ToNest2Distance(int distance)
 	{
-		mNest1ToNest2Distance = distance;
+		mParameters.setNest1ToNest2Distance(distance);
 	}
 
 	/**
@@ -849,7 +840,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest1ToNest3Distance(int distance)
 	{
-		mNest1ToNest3Distance = distance;
+		mParameters.setNest1ToNest3Distance(distance);
 	}
 
 	/**
@@ -862,7 +853,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest2Quality(int quality)
 	{
-		mNest2Quality = quality;
+		mParameters.setNest2Quality(quality);
 	}
 
 	/**
@@ -875,7 +866,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest2ToNest3Distance(int distance)
 	{
-		mNest2ToNest3Distance = distance;
+		mParameters.setNest2ToNest3Distance(distance);
 	}
 
 	/**
@@ -888,7 +879,7 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNest3Quality(int quality)
 	{
-		mNest3Quality = quality;
+		mParameters.setNest3Quality(quality);
 	}
 
 	/**
@@ -901,7 +892,98 @@ public class Nests extends SimModelImpl
 	 */
 	public void setNestQualityStdDev(int stdDev)
 	{
-		mNestQualityStdDev = stdDev;
+		mParameters.setNestQualityStdDev(stdDev);
+	}
+
+	/**
+	 * Sets the number of colonies sharing the nests
+	 * 
+	 * @param numColonies
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNumColonies(int numColonies)
+	{
+		mParameters.setNumColonies(numColonies);
+	}
+
+	/**
+	 * Sets the file the nest sites and distances are read from
+	 * 
+	 * @param fileName ("" indicates the three nests set by the nest parameters)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setLandscapeFile(String fileName)
+	{
+		mParameters.setLandscapeFile(fileName);
+	}
+
+	/**
+	 * Sets whether the colonies skip scouts that are only counting down a delay
+	 * 
+	 * @param eventDriven
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEventDriven(boolean eventDriven)
+	{
+		mParameters.setEventDriven(eventDriven);
+	}
+
+	/**
+	 * Sets whether the colonies' scouts are bit-packed off the heap
+	 * 
+	 * @param packedScouts
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setPackedScouts(boolean packedScouts)
+	{
+		mParameters.setPackedScouts(packedScouts);
+	}
+
+	/**
+	 * Sets the number of scouts in each partition a colony updates in parallel
+	 * 
+	 * @param scoutPartitionSize (>= 0, 0 to update scouts one at a time)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setScoutPartitionSize(int scoutPartitionSize)
+	{
+		mParameters.setScoutPartitionSize(scoutPartitionSize);
+	}
+
+	/**
+	 * Sets the engine that performs the runs
+	 * 
+	 * @param engine ("agent", "gillespie" or "tauleap")
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEngine(String engine)
+	{
+		mParameters.setEngine(engine);
+	}
+
+	/**
+	 * Sets the length of each tau-leap
+	 * 
+	 * @param leapLength (in updates, > 0)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setLeapLength(double leapLength)
+	{
+		mParameters.setLeapLength(leapLength);
 	}
 
 	/**
@@ -912,16 +994,6 @@ public class Nests extends SimModelImpl
 	 */
 	public void setup()
 	{
-		if (mRandomSeed == 0)
-		{
-			mRandomSeed = Random.getSeed();
-		}
-		else
-		{
-			mRandomSeed = mNextRandomSeed;
-		}
-		initialiseDistribution(mRandomSeed);
-		mNextRandomSeed = RandomSeedTable.getSeedAtRowColumn(Random.uniform.nextIntFromTo(0, Integer.MAX_VALUE), Random.uniform.nextIntFromTo(0, Integer.MAX_VALUE));
 		mSchedule = new Schedule();
 		if (mQuorumGraph != null)
 		{
@@ -938,7 +1010,7 @@ public class Nests extends SimModelImpl
 			mRecruitmentGraph = new OpenSequenceGraph("Recruitment Between Nests", this);
 			this.registerMediaProducer("Recruitment Graph", mRecruitmentGraph);
 		}
-		mTimeToVacation = 0;
+		mEngine = null;
 	}
 	
 	/**
@@ -949,7 +1021,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites1and2()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[1], mNests[2]);
+		return mEngine.getNumRecruitersBetweenSites(1, 2);
 	}
 
 	/**
@@ -960,7 +1032,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites1and3()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[1], mNests[3]);
+		return mEngine.getNumRecruitersBetweenSites(1, 3);
 	}
 
 	/**
@@ -971,7 +1043,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites2and1()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[2], mNests[1]);
+		return mEngine.getNumRecruitersBetweenSites(2, 1);
 	}
 
 	/**
@@ -982,7 +1054,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites2and3()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[2], mNests[3]);
+		return mEngine.getNumRecruitersBetweenSites(2, 3);
 	}
 
 	/**
@@ -993,7 +1065,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites3and1()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[3], mNests[1]);
+		return mEngine.getNumRecruitersBetweenSites(3, 1);
 	}
 
 	/**
@@ -1004,7 +1076,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getNumRecruitersBetweenSites3and2()
 	{
-		return mAntColony.getNumRecruitersBetweenSites(mNests[3], mNests[2]);
+		return mEngine.getNumRecruitersBetweenSites(3, 2);
 	}
 
 	// -------------------------------------------------------------------------
@@ -1018,34 +1090,25 @@ public class Nests extends SimModelImpl
 	// of the active ants - ants in different roles.
 	public int getNewNumScouts()
 	{
-		int num_scouts = getNumScouts() - getNumRecruitersBetweenSites1and2() -
-										  getNumRecruitersBetweenSites1and3() -
-										  getNumAssessingSite( mNests[2] ) -
-										  getNumAssessingSite( mNests[3] );
-		
-		return(num_scouts);
+		return( mEngine.getNewNumScouts() );
 	}
 
 	// Number of passive ants in the individual sites.
 	public int getNumPassiveSite(Nest nest_site)
 	{
-		int num_passive_ants = nest_site.getQuorumSize(mAntColony, false);
-		
-		return(num_passive_ants);
+		return( mEngine.getNumPassiveSite(nest_site) );
 	}
 
-	// The quorum threshold used in the emigration.
+	// The quorum threshold of the colonies still emigrating.
 	public int getQuorumThreshold()
 	{
-		return( mAntColony.getQuorumThreshold() );
+		return( mEngine.getQuorumThreshold() );
 	}
 
 	// Number of assessing ants in the individual sites.
 	public int getNumAssessingSite(Nest nest_site)
 	{
-		int num_assessors = mAntColony.getNumAssessingSite(nest_site);
-
-		return(num_assessors);
+		return( mEngine.getNumAssessingSite(nest_site) );
 	}
 
 	// -------------------------------------------------------------------------
@@ -1061,7 +1124,7 @@ public class Nests extends SimModelImpl
 	 */
 	public int getTotalQuorumSize()
 	{
-		return mNests[1].getQuorumSize() + mNests[2].getQuorumSize() + mNests[3].getQuorumSize();
+		return mEngine.getTotalQuorumSize();
 	}
 
 	/**
@@ -1074,8 +1137,7 @@ public class Nests extends SimModelImpl
 	{
 		ActionGroup updateActionGroup;
 		BasicAction updateAction;
-		OpenSequenceGraph graph;
-		Iterator i1;
+		RandomStream random;
 		int l1;
 
 		// -------------------------------------------------------------------------
@@ -1090,36 +1152,33 @@ public class Nests extends SimModelImpl
 		create_file(file_number);
 		++file_number;
 
+		// each run has its own random stream, keyed by the model's seed and the run number
+		random = RandomStream.forRun(getRngSeed(), file_number - 1, 0);
+
 		// -------------------------------------------------------------------------
 		// -------------------------------------------------------------------------
 		// -------------------------------------------------------------------------
 		// -------------------------------------------------------------------------
 		
-		mNests = new Nest[4];
-		mNests[1] = new Nest(mNest1Quality, mNestQualityStdDev);
-		mNests[1].setHabitable(mNest1Habitable);
-		mNests[2] = new Nest(mNest2Quality, mNestQualityStdDev);
-		mNests[3] = new Nest(mNest3Quality, mNestQualityStdDev);
-		mNests[1].addNeighbouringNestSite(mNests[2], mNest1ToNest2Distance);
-		mNests[1].addNeighbouringNestSite(mNests[3], mNest1ToNest3Distance);
-		mNests[2].addNeighbouringNestSite(mNests[1], mNest1ToNest2Distance);
-		mNests[2].addNeighbouringNestSite(mNests[3], mNest2ToNest3Distance);
-		mNests[3].addNeighbouringNestSite(mNests[1], mNest1ToNest3Distance);
-		mNests[3].addNeighbouringNestSite(mNests[2], mNest2ToNest3Distance);
-		mAntColony = new AntColony(mColonySize, mNumScouts, mNormalQuorumThreshold, mEmergencyQuorumThreshold, mHostileQuorumThreshold, mPreferenceSwitchProb, mStartScoutingProb, mStopScoutingProb, mReverseTandemRunProb, mChangeNestProb, mMaxNestQuality, mAssessmentDelay, mTandemRunSpeed, mCarryingSpeed, mNests[1], mNestQualityRequirement, mEnvironmentHostile, mDistanceSignificant, mCompareNestSiteQualities, mPrattEbmEquivalent);
+		mEngine = new NestsEngine(mParameters, random, mLogFile, writer);
+		mEngine.begin();
 		if (!mBatch)
 		{
-			for (l1 = 1; l1 <= 3; l1++)
+			for (l1 = 1; l1 <= mEngine.getNumNests(); l1++)
 			{
-				mQuorumGraph.createSequence("Nest " + l1, mNests[l1], "getQuorumSize");
+				mQuorumGraph.createSequence("Nest " + l1, mEngine.getNest(l1), "getQuorumSize");
 			}
 			mQuorumGraph.createSequence("All Nests", this, "getTotalQuorumSize");
-			mRecruitmentGraph.createSequence("1 to 2", this, "getNumRecruitersBetweenSites1and2");
-			mRecruitmentGraph.createSequence("1 to 3", this, "getNumRecruitersBetweenSites1and3");
-			mRecruitmentGraph.createSequence("2 to 1", this, "getNumRecruitersBetweenSites2and1");
-			mRecruitmentGraph.createSequence("2 to 3", this, "getNumRecruitersBetweenSites2and3");
-			mRecruitmentGraph.createSequence("3 to 1", this, "getNumRecruitersBetweenSites3and1");
-			mRecruitmentGraph.createSequence("3 to 2", this, "getNumRecruitersBetweenSites3and2");
+			// the recruitment graph shows the traffic between the first three nests
+			if (mEngine.getNumNests() >= 3)
+			{
+				mRecruitmentGraph.createSequence("1 to 2", this, "getNumRecruitersBetweenSites1and2");
+				mRecruitmentGraph.createSequence("1 to 3", this, "getNumRecruitersBetweenSites1and3");
+				mRecruitmentGraph.createSequence("2 to 1", this, "getNumRecruitersBetweenSites2and1");
+				mRecruitmentGraph.createSequence("2 to 3", this, "getNumRecruitersBetweenSites2and3");
+				mRecruitmentGraph.createSequence("3 to 1", this, "getNumRecruitersBetweenSites3and1");
+				mRecruitmentGraph.createSequence("3 to 2", this, "getNumRecruitersBetweenSites3and2");
+			}
 			mQuorumGraph.setAxisTitles("Time", "");
 			mRecruitmentGraph.setAxisTitles("Time", "");
 		}
@@ -1127,164 +1186,18 @@ public class Nests extends SimModelImpl
 		{
 			public void execute()
 			{
-				OpenSequenceGraph graph;
-				Iterator i1;
-				String logString;
-				int l1;
-				
-//				Call the function which outputs the data we need for the project.
-				print_info();
-				
-				if (Random.getSeed() != mRandomSeed)
-				{
-					mRandomSeed = Random.getSeed();
-					initialiseDistribution(mRandomSeed);
-					mNextRandomSeed = RandomSeedTable.getSeedAtRowColumn(Random.uniform.nextIntFromTo(0, Integer.MAX_VALUE), Random.uniform.nextIntFromTo(0, Integer.MAX_VALUE));
-				}
-				mAntColony.update();
+				// the engine keeps its own tick count, which matches the schedule's as the action runs every tick from tick 1
+				mEngine.step();
 				if (!mBatch)
 				{
 					mQuorumGraph.step();
 					mRecruitmentGraph.step();
 				}
-				if (mTimeToVacation == 0 && mNests[1].getQuorumSize() == 0)
+				if (mEngine.isFinished())
 				{
-					mTimeToVacation = (int) mThis.getTickCount();
-				}
-				if (Math.abs(mNests[1].getQuorumSize() - mLastTickNest1QuorumSize) <= 2 && Math.abs(mNests[2].getQuorumSize() - mLastTickNest2QuorumSize) <= 2 && Math.abs(mNests[3].getQuorumSize() - mLastTickNest3QuorumSize) <= 2) // TODO: remove magic numbers
-				{
-//					mNumTicksSinceQuorumSizeChange++;
-				}
-				else
-				{
-					mLastTickNest1QuorumSize = mNests[1].getQuorumSize();
-					mLastTickNest2QuorumSize = mNests[2].getQuorumSize();
-					mLastTickNest3QuorumSize = mNests[3].getQuorumSize();
-					mNumTicksSinceQuorumSizeChange = 0;
-					mNumRecruitmentActs = mAntColony.getNumRecruitmentActs();
-				}
-//				if (mAntColony.getQuorumThreshold() == 0 || mNumTicksSinceQuorumSizeChange >= 100) // TODO: remove magic number
-				// halt simulation if emigration has been completed, stalled, or not been completed in the time it would take one scout to tandem-run the entire colony to the most distant nest site
-				if ((mNests[1].getQuorumSize() == 0 && getTotalQuorumSize() == mAntColony.getColonySize()) || mThis.getTickCount() >= (((double) Math.max(mNest1ToNest2Distance, mNest1ToNest3Distance) / mTandemRunSpeed) * mColonySize))
-				{
-					boolean colonySplit, finalDecisionOptimal;
-					if (mAntColony.getQuorumThreshold() == 0)
-					{
-						mNumTicksSinceQuorumSizeChange = 0;
-						mNumRecruitmentActs = mAntColony.getNumRecruitmentActs();
-						colonySplit = false;
-						if (mNests[3].getQuorumSize() == mColonySize)
-						{
-							finalDecisionOptimal = true;
-						}
-						else
-						{
-							finalDecisionOptimal = false;
-						}
-					}
-					else
-					{
-						if (!(mNests[1].getQuorumSize(mAntColony, false) == 0 && mNests[2].getQuorumSize(mAntColony, false) == 0))
-						{
-							mNumTicksSinceQuorumSizeChange = 0;
-							mNumRecruitmentActs = mAntColony.getNumRecruitmentActs();
-						}
-						colonySplit = true;
-						if (mNests[3].getQuorumSize() > mNests[2].getQuorumSize())
-						{
-							finalDecisionOptimal = true;
-						}
-						else
-						{
-							finalDecisionOptimal = false;
-						}
-					}
-					logString = new String(mColonySize + "," + mNumScouts + ","
-						+ mNormalQuorumThreshold + "," + mHostileQuorumThreshold + ","
-						+ mEmergencyQuorumThreshold + "," + mPreferenceSwitchProb + ","
-						+ mStartScoutingProb + "," + mStopScoutingProb + "," + mReverseTandemRunProb + ","
-						+ mChangeNestProb + "," + mMaxNestQuality + "," + mAssessmentDelay + ","
-						+ mTandemRunSpeed + "," + mCarryingSpeed + ","
-						+ mNestQualityRequirement + "," + mPrattEbmEquivalent + "," + mEnvironmentHostile + ","
-						+ mDistanceSignificant + "," + mCompareNestSiteQualities + ","
-						+ mNest1ToNest2Distance + "," + mNest1ToNest3Distance) + ","
-						+ mNest2ToNest3Distance + "," + mNest1Habitable + ","
-						+ mNest1Quality + "," + mNest2Quality + "," + mNest3Quality + ","
-						+ mNestQualityStdDev + "," + colonySplit + "," + finalDecisionOptimal + ","
-						+ mTimeToVacation + "," + (mThis.getController().getCurrentTime() - mNumTicksSinceQuorumSizeChange) + ","
-						+ mNumRecruitmentActs + "," + mNests[1].getQuorumSize() + ","
-						+ mNests[2].getQuorumSize() + "," + mNests[3].getQuorumSize(); 
-					if (mLogFile == null)
-					{
-						System.out.println(logString);
-					}
-					else
-					{
-						try
-						{
-							mLogFile.write(logString + "\n");
-							mLogFile.flush();
-						}
-						catch (IOException exception)
-						{
-							throw new RuntimeException("Nests.execute: error writing to log file");
-						}
-					}
 					mThis.getController().stopSim();
-
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
-
-					// NEW FUNCTIONS
-
-					writer.close();
-
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
-					// -------------------------------------------------------------------------
 				}
 			}
-			
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-
-			// NEW FUNCTIONS
-
-			// Writes the new info to a file
-			public void print_info()
-			{
-				int[] variable_vals = new int[]{getColonySize(),
-												getQuorumThreshold(),
-												getNewNumScouts(),
-												getNumPassiveSite( mNests[1] ),
-												getNumPassiveSite( mNests[2] ),
-												getNumPassiveSite( mNests[3] ),
-												getNumRecruitersBetweenSites1and2(),
-												getNumRecruitersBetweenSites1and3(),
-												getNumAssessingSite( mNests[2] ),
-												getNumAssessingSite( mNests[3] )
-												};
-
-				write_line(variable_vals);
-			}
-
-			public void write_line(int[] variable_vals)
-			{
-				for(int value : variable_vals){ writer.printf("%d, ", value); }
-
-				writer.printf("\n");
-			}
-
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-			// -------------------------------------------------------------------------
-			
 		};
 		updateActionGroup = new ActionGroup();
 		updateActionGroup.addAction(updateAction);
@@ -1323,53 +1236,13 @@ public class Nests extends SimModelImpl
 		// -------------------------------------------------------------------------
 		
 		mThis = this;
-		mAntColony = null;
-		mColonySize = 100;
-		mNumScouts = 10;
-		mNormalQuorumThreshold = 20;
-		mHostileQuorumThreshold = 15;
-		mEmergencyQuorumThreshold = 10;
-		mPreferenceSwitchProb = 0.5;
-		mStartScoutingProb = 0.1;
-		mStopScoutingProb = 0.0;
-		mReverseTandemRunProb = 0.1;
-		mChangeNestProb = 1.0;
-		mMaxNestQuality = 100;
-		mAssessmentDelay = 0;
-		mTandemRunSpeed = 5;
-		mCarryingSpeed= 15;
-		mNestQualityRequirement = 20;
-		mEnvironmentHostile = false;
-		mDistanceSignificant = true;
-		mCompareNestSiteQualities = true;
-		mPrattEbmEquivalent = false;
+		mParameters = new NestsParameters();
+		mEngine = null;
 		mBatch = batch;
-		mNests = null;
-		mNest1ToNest2Distance = 100;
-		mNest1ToNest3Distance = 200;
-		mNest2ToNest3Distance = 200;
-		mNest1Habitable = false;
-		mNest1Quality = 10;
-		mNest2Quality = 20;
-		mNest3Quality = 21;
-		mNestQualityStdDev = 0;
-		mTimeToVacation = 0;
-		mLastTickNest1QuorumSize = 0;
-		mLastTickNest2QuorumSize = 0;
-		mLastTickNest3QuorumSize = 0;
-		mNumTicksSinceQuorumSizeChange = 0;
-		mNumRecruitmentActs = 0;
 		mSchedule = null;
 		mQuorumGraph = null;
 		mRecruitmentGraph = null;
-		logString = new String("ColonySize,NumScouts,NormalQuorumThreshold," +
-			"HostileQuorumThreshold,EmergencyQuorumThreshold,PreferenceSwitchProb," +
-			"StartScoutingProb,StopScoutingProb,ReverseTandemRunProb,ChangeNestProb,MaxNestSiteQuality,AssessmentDelay," +
-			"TandemRunSpeed,CarryingSpeed,NestQualityRequirement,PrattEbmEquivalent,EnvironmentHostile," +
-			"DistanceSignificant,CompareNestSiteQualities,Nest1ToNest2Distance,Nest1ToNest3Distance," +
-			"Nest2ToNest3Distance,Nest1Habitable,Nest1Quality,Nest2Quality,Nest3Quality," +
-			"NestQualityStdDev,ColonySplit,FinalDecisionOptimal,TimeToVacation,TimeToCompletion," +
-			"NumRecruitmentActs,Nest1QuorumSize,Nest2QuorumSize,Nest3QuorumSize"); 
+		logString = EmigrationEngine.getLogHeader();
 		if (logFileName != null)
 		{
 			try
@@ -1414,50 +1287,19 @@ public class Nests extends SimModelImpl
 	// Creates a folder for the AH-HA results.
 	public void create_folder()
 	{
-        File new_dir = new File("ahha_results");
-
-        if (!new_dir.exists()) {
-
-            try{
-                new_dir.mkdir();
-            } 
-            catch(SecurityException se){ 
-            	System.out.println("Error creating directory.");
-            	System.exit(-1);
-            }
-        }
+		NestsEngine.create_folder();
 	}
 
 	// Empties the folder if it's there.
-	public void delete_directory() {
-
-		File directory = new File("ahha_results");
-
-	    if(directory.exists()){
-	        File[] files = directory.listFiles();
-	        if(null!=files){
-	            for(int i=0; i<files.length; i++) {
-	                   files[i].delete();
-	                }
-	            }
-	     }
-	    
+	public void delete_directory()
+	{
+		NestsEngine.delete_directory();
 	}
 
 	// Creates a file to write the results to.
 	public void create_file(int file_number)
 	{
-		try{
-			writer = new PrintWriter("ahha_results/results_" + file_number + ".txt", "UTF-8");
-
-			writer.printf("N, Q, S, P_0, P_1, P_2, R_1, R_2, A_1, A_2, \n");
-		}
-		catch(Exception e){
-
-			System.out.printf("\n\nError creating file.\n\n");
-			System.exit(1);
-
-		}
+		writer = NestsEngine.create_file(file_number);
 	}
 
 	public void close_file()
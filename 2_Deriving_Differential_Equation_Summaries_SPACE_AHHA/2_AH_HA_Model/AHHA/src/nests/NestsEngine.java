@@ -0,0 +1,430 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import ahha.*;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs a single AH-HA nest selection emigration without Repast's scheduler or controller,
+ * following each ant (see EmigrationEngine for the tick loop, halting and output). The engine can
+ * be driven directly (e.g. by a batch sweep), or one tick at a time by the Repast model (Nests),
+ * which is an adapter over it.
+ *
+ * A run may have several identical colonies (see NestsParameters.getNumColonies), all starting
+ * in nest 1 and sharing the nests. Colonies keep their own quorums and random streams, so
+ * within a tick they are updated in parallel and the results do not depend on the number of
+ * cores. A colony that has completed its emigration is no longer updated.
+ *
+ */
+public class NestsEngine extends EmigrationEngine
+{
+	/** The threads shared by all runs for updating colonies in parallel (null until first needed) */
+	private static ExecutorService mColonyExecutor = null;
+	/** The run's ant colonies (null before EmigrationEngine.begin) */
+	private AntColony[] mAntColonies;
+
+	/**
+	 * Gets the run's (first) ant colony
+	 *
+	 * @return run's ant colony (null before NestsEngine.begin)
+	 *
+	 */
+	public AntColony getAntColony()
+	{
+		if (mAntColonies == null)
+		{
+			return null;
+		}
+
+		return mAntColonies[0];
+	}
+
+	/**
+	 * Gets one of the run's ant colonies
+	 *
+	 * @param colony index (0 <= colony < NestsEngine.getNumColonies)
+	 *
+	 * @return ant colony
+	 *
+	 */
+	public AntColony getAntColony(int colony)
+	{
+		if (colony < 0 || colony >= mAntColonies.length)
+		{
+			throw new IllegalArgumentException("NestsEngine.getAntColony called with colony out of range (0 <= " + colony + " < " + mAntColonies.length + ")");
+		}
+
+		return mAntColonies[colony];
+	}
+
+	/**
+	 * Gets the number of recruiters between two of the run's nests (over all colonies)
+	 *
+	 * @param origin nest number (1 to EmigrationEngine.getNumNests)
+	 * @param destination nest number (1 to EmigrationEngine.getNumNests)
+	 *
+	 * @return number of recruiters between the nests
+	 *
+	 */
+	public int getNumRecruitersBetweenSites(int origin, int destination)
+	{
+		int numRecruiters = 0, l1;
+
+		for (l1 = 0; l1 < mAntColonies.length; l1++)
+		{
+			numRecruiters += mAntColonies[l1].getNumRecruitersBetweenSites(getNest(origin), getNest(destination));
+		}
+
+		return numRecruiters;
+	}
+
+	/**
+	 * Gets the total number of ants in or commited to all nests (should equal the colony size)
+	 *
+	 * @return total quorum size
+	 *
+	 */
+	public int getTotalQuorumSize()
+	{
+		int totalQuorumSize = 0, l1;
+
+		for (l1 = 1; l1 <= getNumNests(); l1++)
+		{
+			totalQuorumSize += getNest(l1).getQuorumSize();
+		}
+
+		return totalQuorumSize;
+	}
+
+	/**
+	 * Gets the number of the colonies' ants in or committed to one of the run's nests
+	 *
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 *
+	 * @return quorum size (over all colonies)
+	 *
+	 */
+	public int getQuorumSize(int nestNumber)
+	{
+		return getNest(nestNumber).getQuorumSize();
+	}
+
+	/**
+	 * Gets the number of a colony's ants in or committed to one of the run's nests
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 * @param active (true for all the colony's ants, false for its passive ants only)
+	 *
+	 * @return quorum size
+	 *
+	 */
+	int getColonyQuorumSize(int colony, int nestNumber, boolean active)
+	{
+		if (active)
+		{
+			return getNest(nestNumber).getQuorumSize(mAntColonies[colony]);
+		}
+
+		return getNest(nestNumber).getQuorumSize(mAntColonies[colony], false);
+	}
+
+	/**
+	 * Gets a colony's quorum threshold
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return quorum threshold (0 once the colony has completed its emigration)
+	 *
+	 */
+	int getColonyQuorumThreshold(int colony)
+	{
+		return mAntColonies[colony].getQuorumThreshold();
+	}
+
+	/**
+	 * Gets the number of a colony's recruitment acts during the current emigration
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	int getColonyRecruitmentActs(int colony)
+	{
+		return mAntColonies[colony].getNumRecruitmentActs();
+	}
+
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+
+	// NEW FUNCTIONS
+
+	// Number of scouts in the individual sites. We classify this as all
+	// of the active ants - ants in different roles (the roles are exclusive,
+	// so this is never negative). Counts are over all the colonies.
+	public int getNewNumScouts()
+	{
+		int num_scouts = getParameters().getNumScouts() * mAntColonies.length;
+
+		for (int nest = 2; nest <= getNumNests(); nest++)
+		{
+			num_scouts -= getNumRecruitersBetweenSites(1, nest) + getNumAssessingSite( getNest(nest) );
+		}
+
+		return(num_scouts);
+	}
+
+	// Number of passive ants in the individual sites.
+	public int getNumPassiveSite(Nest nest_site)
+	{
+		int num_passive_ants = 0;
+
+		for (AntColony colony : mAntColonies){ num_passive_ants += nest_site.getQuorumSize(colony, false); }
+
+		return(num_passive_ants);
+	}
+
+	// Number of assessing ants in the individual sites.
+	public int getNumAssessingSite(Nest nest_site)
+	{
+		int num_assessors = 0;
+
+		for (AntColony colony : mAntColonies){ num_assessors += colony.getNumAssessingSite(nest_site); }
+
+		return(num_assessors);
+	}
+
+	// Works out one role count, by its index in getColumnNames (the
+	// rows of role counts are recorded by EmigrationEngine).
+	int getRoleCount(int column)
+	{
+		int num_nests = getNumNests();
+
+		if (column == 0){ return(getParameters().getColonySize() * mAntColonies.length); }
+		if (column == 1){ return(getQuorumThreshold()); }
+		if (column == 2){ return(getNewNumScouts()); }
+		if (column < 3 + num_nests){ return(getNumPassiveSite( getNest(column - 2) )); }
+		if (column < 2 + 2 * num_nests){ return(getNumRecruitersBetweenSites(1, column - 1 - num_nests)); }
+
+		return(getNumAssessingSite( getNest(column - 2 * num_nests) ));
+	}
+
+	// Passes a tick's time and the colonies' running totals to the run's
+	// live metrics (see SweepMetrics).
+	void recordTickMetrics(SweepMetrics.Run metrics_run, long tick_time)
+	{
+		long ant_updates = 0, random_draws = 0, recruitment_acts = 0, quorum_operations = 0;
+
+		for (AntColony colony : mAntColonies)
+		{
+			ant_updates += colony.getNumAntUpdates();
+			random_draws += colony.getNumRandomDraws();
+			recruitment_acts += colony.getTotalRecruitmentActs();
+			quorum_operations += colony.getNumQuorumOperations();
+		}
+
+		metrics_run.tick(tick_time, ant_updates, random_draws, recruitment_acts, quorum_operations);
+	}
+
+	// Creates a folder for the AH-HA results.
+	public static void create_folder()
+	{
+        File new_dir = new File("ahha_results");
+
+        if (!new_dir.exists()) {
+
+            try{
+                new_dir.mkdir();
+            } 
+            catch(SecurityException se){ 
+            	System.out.println("Error creating directory.");
+            	System.exit(-1);
+            }
+        }
+	}
+
+	// Empties the folder if it's there.
+	public static void delete_directory() {
+
+		File directory = new File("ahha_results");
+
+	    if(directory.exists()){
+	        File[] files = directory.listFiles();
+	        if(null!=files){
+	            for(int i=0; i<files.length; i++) {
+	                   files[i].delete();
+	                }
+	            }
+	     }
+	    
+	}
+
+	// Creates a file to write the results to (the header is written by
+	// EmigrationEngine.printHeader once the number of nests is known).
+	public static PrintWriter create_file(int file_number)
+	{
+		PrintWriter writer = null;
+
+		try{
+			writer = new PrintWriter("ahha_results/results_" + file_number + ".txt", "UTF-8");
+		}
+		catch(Exception e){
+
+			System.out.printf("\n\nError creating file.\n\n");
+			System.exit(1);
+
+		}
+
+		return writer;
+	}
+
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Builds the run's ant colonies, each starting in nest 1
+	 *
+	 * @param landscape of the run's nests (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	void createColonies(Landscape landscape)
+	{
+		NestsParameters p = getParameters();
+		int l1;
+
+		mAntColonies = new AntColony[p.getNumColonies()];
+		for (l1 = 0; l1 < mAntColonies.length; l1++)
+		{
+			mAntColonies[l1] = new AntColony(l1, p.getColonySize(), p.getNumScouts(), p.getNormalQuorumThreshold(), p.getEmergencyQuorumThreshold(), p.getHostileQuorumThreshold(), p.getPreferenceSwitchProb(), p.getStartScoutingProb(), p.getStopScoutingProb(), p.getReverseTandemRunProb(), p.getChangeNestProb(), p.getMaxNestQuality(), p.getAssessmentDelay(), p.getTandemRunSpeed(), p.getCarryingSpeed(), landscape, getNest(1), p.getNestQualityRequirement(), p.getEnvironmentHostile(), p.getDistanceSignificant(), p.getCompareNestSiteQualities(), p.getPrattEbmEquivalent(), getRandom().split(), p.getPackedScouts());
+			mAntColonies[l1].setEventDriven(p.getEventDriven());
+			mAntColonies[l1].setPartitionSize(p.getScoutPartitionSize());
+		}
+	}
+
+	/**
+	 * Updates the colonies, in parallel if there are several (they share nothing that changes within a tick)
+	 *
+	 * @return void
+	 *
+	 */
+	void updateColonies()
+	{
+		List<Callable<Object>> updates;
+		ExecutorService executor;
+
+		if (mAntColonies.length == 1)
+		{
+			mAntColonies[0].update();
+
+			return;
+		}
+		updates = new ArrayList<Callable<Object>>();
+		for (int l1 = 0; l1 < mAntColonies.length; l1++)
+		{
+			if (hasCompletedEmigration(l1))
+			{
+				// colony has completed its emigration
+				continue;
+			}
+			final AntColony colony = mAntColonies[l1];
+
+			updates.add(new Callable<Object>()
+			{
+				public Object call()
+				{
+					colony.update();
+
+					return null;
+				}
+			});
+		}
+		executor = getColonyExecutor();
+		try
+		{
+			for (Future<Object> update : executor.invokeAll(updates))
+			{
+				update.get();
+			}
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("NestsEngine.updateColonies: interrupted");
+		}
+		catch (ExecutionException exception)
+		{
+			throw new RuntimeException("NestsEngine.updateColonies: colony update failed", exception.getCause());
+		}
+	}
+
+	/**
+	 * Gets the threads for updating colonies in parallel, starting them the first time they are needed
+	 * (one per core, shared by all runs, and not keeping the JVM alive)
+	 *
+	 * @return executor
+	 *
+	 */
+	private static synchronized ExecutorService getColonyExecutor()
+	{
+		if (mColonyExecutor == null)
+		{
+			mColonyExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "colony-update");
+
+					thread.setDaemon(true);
+
+					return thread;
+				}
+			});
+		}
+
+		return mColonyExecutor;
+	}
+
+	/**
+	 * NestsEngine constructor
+	 *
+	 * @param parameters for the run (!= null, copied so later changes do not affect the run)
+	 * @param random number stream for the run (!= null, e.g. from RandomStream.forRun)
+	 * @param logFile to write the run's summary to (null indicates send summary to stdout)
+	 * @param resultsWriter to write the per-tick role counts to (null indicates they are not recorded, closed when the run halts)
+	 *
+	 */
+	public NestsEngine(NestsParameters parameters, RandomStream random, Writer logFile, PrintWriter resultsWriter)
+	{
+		super(parameters, random, logFile, resultsWriter);
+
+		mAntColonies = null;
+	}
+}
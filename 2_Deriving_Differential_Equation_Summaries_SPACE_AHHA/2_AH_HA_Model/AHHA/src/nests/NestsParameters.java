@@ -0,0 +1,1042 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the 
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+/**
+ * The parameters of a single run of the AH-HA nest selection model, as set from the GUI, a
+ * batch parameter file or directly when the model is used as a library
+ * 
+ */
+public class NestsParameters
+{
+	/** The colony's size */
+	private int mColonySize;
+	/** The number of scouts in the colony */
+	private int mNumScouts;
+	/** The colony's normal quorum threshold */
+	private int mNormalQuorumThreshold;
+	/** The colony's hostile environment quorum threshold */
+	private int mHostileQuorumThreshold;
+	/** The colony's emergency quorum threshold */
+	private int mEmergencyQuorumThreshold;
+	/** The colony scouts' preference switching probability */
+	private double mPreferenceSwitchProb;
+	/** The colony scouts' probability to start scouting */
+	private double mStartScoutingProb;
+	/** The colony scouts' probability to stop scouting */
+	private double mStopScoutingProb;
+	/** The colony scouts' probability to lead reverse tandem-runs */
+	private double mReverseTandemRunProb;
+	/** The colony scouts' probability to change their current nest */
+	private double mChangeNestProb;
+	/** The maximum nest quality (for the best possible nest site) */
+	private int mMaxNestQuality;
+	/** The time the colony's scouts take to assess a site */
+	private int mAssessmentDelay;
+	/** The colony scouts' tandem-running speed */
+	private int mTandemRunSpeed;
+	/** The colony scouts' carrying speed */
+	private int mCarryingSpeed;
+	/** The colony's nest quality requirement */
+	private int mNestQualityRequirement;
+	/** Is the colony's environment hostile? */
+	private boolean mEnvironmentHostile;
+	/** Is distance significant for the colony? */
+	private boolean mDistanceSignificant;
+	/** Do ants compare nest sites against each other for quality? */
+	private boolean mCompareNestSiteQualities;
+	/** Is the model configured to be equivalent to the Pratt et al EBM? */
+	private boolean mPrattEbmEquivalent;
+	/** The distance between nests 1 and 2 */
+	private int mNest1ToNest2Distance;
+	/** The distance between nests 1 and 3 */
+	private int mNest1ToNest3Distance;
+	/** The distance between nests 2 and 3 */
+	private int mNest2ToNest3Distance;
+	/** Is nest 1 habitable? */
+	private boolean mNest1Habitable;
+	/** The quality of nest 1 */
+	private int mNest1Quality;
+	/** The quality of nest 2 */
+	private int mNest2Quality;
+	/** The quality of nest 3 */
+	private int mNest3Quality;
+	/** The standard deviation of the noise in measurements of nest quality */
+	private int mNestQualityStdDev;
+	/** The number of colonies sharing the nests */
+	private int mNumColonies;
+	/** The file to read the nest sites and distances from ("" indicates the three nests set by the nest parameters, see LandscapeFile) */
+	private String mLandscapeFile;
+	/** Are the colonies event driven (see AntColony.setEventDriven)? */
+	private boolean mEventDriven;
+	/** Are the colonies' scouts bit-packed off the heap (see PackedAntStore)? */
+	private boolean mPackedScouts;
+	/** The number of scouts in each partition a colony updates in parallel (0 indicates scouts are updated one at a time, see AntColony.setPartitionSize) */
+	private int mScoutPartitionSize;
+	/** The engine that performs the runs ("agent", or "gillespie" or "tauleap" for a PopulationEngine) */
+	private String mEngine;
+	/** The length of each tau-leap (in updates, see PopulationColony.leap) */
+	private double mLeapLength;
+
+	/**
+	 * Gets the names of the model's parameters (Repast's naming, i.e. each has a getter and setter)
+	 * 
+	 * @return names of the model's parameters
+	 * 
+	 */
+	public static String[] getInitParam()
+	{
+		return new String[] {"ColonySize", "NumScouts", "NormalQuorumThreshold", "HostileQuorumThreshold", "EmergencyQuorumThreshold", "PreferenceSwitchProb", "StartScoutingProb", "StopScoutingProb", "ReverseTandemRunProb", "ChangeNestProb", "MaxNestQuality", "AssessmentDelay", "TandemRunSpeed", "CarryingSpeed", "NestQualityRequirement", "EnvironmentHostile", "DistanceSignificant", "CompareNestSiteQualities", "PrattEbmEquivalent", "Nest1Habitable", "Nest1Quality", "Nest2Quality", "Nest3Quality", "NestQualityStdDev", "Nest1ToNest2Distance", "Nest1ToNest3Distance", "Nest2ToNest3Distance", "LandscapeFile", "NumColonies", "EventDriven", "PackedScouts", "ScoutPartitionSize", "Engine", "LeapLength"};
+	}
+
+	/**
+	 * Gets the distance between the original nest and the most distant alternative nest site
+	 * 
+	 * @return distance to the most distant nest site
+	 * 
+	 */
+	public int getMaxNestDistance()
+	{
+		return Math.max(mNest1ToNest2Distance, mNest1ToNest3Distance);
+	}
+
+	// AH-HA getters and setters follow...
+	
+	/**
+	 * Gets the colony scouts' carrying speed
+	 * 
+	 * @return colony scouts' carrying speed
+	 * 
+	 */
+	public int getCarryingSpeed() {
+		return mCarryingSpeed;
+	}
+
+	/**
+	 * Gets the colony scouts' probability to change their current nest
+	 * 
+	 * @return colony scouts' probability to change their current nest
+	 * 
+	 */
+	public double getChangeNestProb()
+	{
+		return mChangeNestProb;
+	}
+
+	/**
+	 * Gets the colony's size
+	 * 
+	 * @return colony's size
+	 * 
+	 */
+	public int getColonySize()
+	{
+		return mColonySize;
+	}
+
+	/**
+	 * Do ants in the colony compare nest sites with each other for quality?
+	 * 
+	 * @return ants in the colony compare nest sites with each other for quality (true / false)
+	 * 
+	 */
+	public boolean getCompareNestSiteQualities()
+	{
+		return mCompareNestSiteQualities;
+	}
+
+	/**
+	 * Is the model configured to be equivalent to the Pratt et al EBM?
+	 * 
+	 * @return true if the model is configured to be equivalent to the Pratt et al EBM, false otherwise
+	 * 
+	 */
+	public boolean getPrattEbmEquivalent()
+	{
+		return mPrattEbmEquivalent;
+	}
+
+	/**
+	 * Is distance significant for the colony?
+	 * 
+	 * @return distance significant for the colony (true / false)
+	 * 
+	 */
+	public boolean getDistanceSignificant()
+	{
+		return mDistanceSignificant;
+	}
+
+	/**
+	 * Gets the colony's emergency quorum threshold
+	 * 
+	 * @return colony's emergency quorum threshold
+	 * 
+	 */
+	public int getEmergencyQuorumThreshold()
+	{
+		return mEmergencyQuorumThreshold;
+	}
+
+	/**
+	 * Is the colony's environment hostile?
+	 * 
+	 * @return colony's environment hostile (true / false)
+	 * 
+	 */
+	public boolean getEnvironmentHostile()
+	{
+		return mEnvironmentHostile;
+	}
+
+	/**
+	 * Gets the colony's hostile environment quorum threshold
+	 * 
+	 * @return colony's hostile environment quorum threshold
+	 * 
+	 */
+	public int getHostileQuorumThreshold()
+	{
+		return mHostileQuorumThreshold;
+	}
+
+	/**
+	 * Gets the maximum nest quality (for the best possible nest site)
+	 * 
+	 * @return maximum nest quality
+	 * 
+	 */
+	public int getMaxNestQuality()
+	{
+		return mMaxNestQuality;
+	}
+
+	/**
+	 * Gets the time the colony's scouts take to assess a nest site
+	 * 
+	 * @return time the colony's scouts take to assess a nest site
+	 * 
+	 */
+	public int getAssessmentDelay()
+	{
+		return mAssessmentDelay;
+	}
+
+	/**
+	 * Gets the colony's nest quality requirement
+	 * 
+	 * @return colony's nest quality requirement
+	 * 
+	 */
+	public int getNestQualityRequirement()
+	{
+		return mNestQualityRequirement;
+	}
+
+	/**
+	 * Gets the colony's normal quorum threshold
+	 * 
+	 * @return colony's normal quorum threshold
+	 * 
+	 */
+	public int getNormalQuorumThreshold()
+	{
+		return mNormalQuorumThreshold;
+	}
+
+	/**
+	 * Gets the number of scouts in the colony
+	 * 
+	 * @return number of scouts in the colony
+	 * 
+	 */
+	public int getNumScouts()
+	{
+		return mNumScouts;
+	}
+
+	/**
+	 * Gets the colony scouts' preference switch probability
+	 * 
+	 * @return colony scouts' preference switch probability
+	 * 
+	 */
+	public double getPreferenceSwitchProb()
+	{
+		return mPreferenceSwitchProb;
+	}
+
+	/**
+	 * Gets the colony scouts' probability of leading a reverse tandem-run
+	 * 
+	 * @return colony scouts' probability of leading a reverse tandem-run
+	 * 
+	 */
+	public double getReverseTandemRunProb()
+	{
+		return mReverseTandemRunProb;
+	}
+
+	/**
+	 * Gets the colony scouts' probability of starting scouting
+	 * 
+	 * @return colony scouts' probability of starting scouting
+	 * 
+	 */
+	public double getStartScoutingProb()
+	{
+		return mStartScoutingProb;
+	}
+
+	/**
+	 * Gets the colony scouts' probability of stoppinh scouting
+	 * 
+	 * @return colony scouts' probability of stopping scouting
+	 * 
+	 */
+	public double getStopScoutingProb()
+	{
+		return mStopScoutingProb;
+	}
+
+	/**
+	 * Gets the colony scouts' reverse tandem-running speed
+	 * 
+	 * @return colony scouts' reverse tandem-running speed
+	 * 
+	 */
+	public int getTandemRunSpeed()
+	{
+		return mTandemRunSpeed;
+	}
+
+	/**
+	 * Sets the colony scouts' carrying speed
+	 * 
+	 * @param carryingSpeed
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setCarryingSpeed(int carryingSpeed)
+	{
+		mCarryingSpeed = carryingSpeed;
+	}
+
+	/**
+	 * Sets the colony scouts' probability of changing their current nest after switching preference (i.e. changing the origin of their recruitment efforts)
+	 *
+	 * @param changeNestProb
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setChangeNestProb(double changeNestProb)
+	{
+		mChangeNestProb = changeNestProb;
+	}
+
+	/**
+	 * Sets the colony's size
+	 * 
+	 * @param colonySize
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setColonySize(int colonySize)
+	{
+		mColonySize = colonySize;
+	}
+
+	/**
+	 * Sets whether the colony scouts directly compare nest site qualities
+	 * 
+	 * @param compareNestSiteQualities
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setCompareNestSiteQualities(boolean compareNestSiteQualities)
+	{
+		mCompareNestSiteQualities = compareNestSiteQualities;
+	}
+
+	/**
+	 * Configures the model to be equivalent or not to the Pratt et al EBM
+	 * 
+	 * @param prattEbmEquivalent
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setPrattEbmEquivalent(boolean prattEbmEquivalent)
+	{
+		mPrattEbmEquivalent = prattEbmEquivalent;
+	}
+
+	/**
+	 * Sets whether distance is significant in the colony scouts' discovery and recruitment rates
+	 * 
+	 * @param distanceSignificant
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setDistanceSignificant(boolean distanceSignificant)
+	{
+		mDistanceSignificant = distanceSignificant;
+	}
+
+	/**
+	 * Sets the colony's emergency quorum threshold
+	 * 
+	 * @param colony's emergency quorum threshold
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEmergencyQuorumThreshold(int emergencyQuorumThreshold)
+	{
+		mEmergencyQuorumThreshold = emergencyQuorumThreshold;
+	}
+
+	/**
+	 * Sets whether the colony's environment is hostile
+	 * 
+	 * @param environmentHostile
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEnvironmentHostile(boolean environmentHostile)
+	{
+		mEnvironmentHostile = environmentHostile;
+	}
+
+	/**
+	 * Sets the colony scouts' hostile quorum threshold
+	 * 
+	 * @param hostileQuorumThreshold
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setHostileQuorumThreshold(int hostileQuorumThreshold)
+	{
+		mHostileQuorumThreshold = hostileQuorumThreshold;
+	}
+
+	/**
+	 * Sets the maximum nest quality (for the best possible nest site)
+	 * 
+	 * @param maxNestQuality
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setMaxNestQuality(int maxNestQuality)
+	{
+		mMaxNestQuality = maxNestQuality;
+	}
+
+	/**
+	 * Sets the colony scouts' assessment delay
+	 * 
+	 * @param assessmentDelay
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setAssessmentDelay(int assessmentDelay)
+	{
+		mAssessmentDelay = assessmentDelay;
+	}
+
+	/**
+	 * Sets the colony's nest quality requirement
+	 * 
+	 * @param nestQualityRequirement
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNestQualityRequirement(int nestQualityRequirement)
+	{
+		mNestQualityRequirement = nestQualityRequirement;
+	}
+
+	/**
+	 * Sets the colony scouts' normal quorum threshold
+	 * 
+	 * @param normalQuorumThreshold
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNormalQuorumThreshold(int normalQuorumThreshold)
+	{
+		mNormalQuorumThreshold = normalQuorumThreshold;
+	}
+
+	/**
+	 * Set the colony's number of scouts
+	 * 
+	 * @param numScouts
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNumScouts(int numScouts)
+	{
+		mNumScouts = numScouts;
+	}
+
+	/**
+	 * Sets the colony scouts' preference switch probability
+	 * 
+	 * @param prefSwitchProb
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setPreferenceSwitchProb(double prefSwitchProb)
+	{
+		mPreferenceSwitchProb = prefSwitchProb;
+	}
+
+	/**
+	 * Sets the colony scouts' reverse tandem run probability
+	 * 
+	 * @param reverseTandemRunProb
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setReverseTandemRunProb(double reverseTandemRunProb)
+	{
+		mReverseTandemRunProb = reverseTandemRunProb;
+	}
+
+	/**
+	 * Set the colony scouts' start scouting probability
+	 * 
+	 * @param startScoutingProb
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setStartScoutingProb(double startScoutingProb)
+	{
+		mStartScoutingProb = startScoutingProb;
+	}
+
+	/**
+	 * Sets the colony scouts' stop scouting probability
+	 * 
+	 * @param stopScoutingProb
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setStopScoutingProb(double stopScoutingProb)
+	{
+		mStopScoutingProb = stopScoutingProb;
+	}
+
+	/**
+	 * Set the colony scouts' tandem run speed
+	 * 
+	 * @param tandemRunSpeed
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setTandemRunSpeed(int tandemRunSpeed)
+	{
+		mTandemRunSpeed = tandemRunSpeed;
+	}
+
+	// Nests getters and setters follow...
+	
+	/**
+	 * Gets the habitability of nest 1
+	 * 
+	 * @return is nest 1 habitable? (true / false)
+	 * 
+	 */
+	public boolean getNest1Habitable()
+	{
+		return mNest1Habitable;
+	}
+
+	/**
+	 * Gets nest 1's quality
+	 * 
+	 * @return nest 1's quality
+	 * 
+	 */
+	public int getNest1Quality()
+	{
+		return mNest1Quality;
+	}
+
+	/**
+	 * Gets the distance between nests 1 and 2
+	 * 
+	 * @return distance between nests 1 and 2
+	 * 
+	 */
+	public int getNest1ToNest2Distance()
+	{
+		return mNest1ToNest2Distance;
+	}
+
+	/**
+	 * Gets the distance between nests 1 and 3
+	 * 
+	 * @return distance between nests 1 and 3
+	 * 
+	 */
+	public int getNest1ToNest3Distance()
+	{
+		return mNest1ToNest3Distance;
+	}
+
+	/**
+	 * Gets nest 2's quality
+	 * 
+	 * @return nest 2's quality
+	 * 
+	 */
+	public int getNest2Quality()
+	{
+		return mNest2Quality;
+	}
+
+	/**
+	 * Gets the distance between nests 2 and 3
+	 * 
+	 * @return distance between nests 2 and 3
+	 * 
+	 */
+	public int getNest2ToNest3Distance()
+	{
+		return mNest2ToNest3Distance;
+	}
+
+	/**
+	 * Gets nest 3's quality
+	 * 
+	 * @return nest 3's quality
+	 * 
+	 */
+	public int getNest3Quality()
+	{
+		return mNest3Quality;
+	}
+
+	/**
+	 * Gets the standard deviation in measurements of nest quality
+	 * 
+	 * @return standard deviation in measurements of nest quality
+	 * 
+	 */
+	public int getNestQualityStdDev()
+	{
+		return mNestQualityStdDev;
+	}
+
+	/**
+	 * Gets the number of colonies sharing the nests
+	 * 
+	 * @return number of colonies
+	 * 
+	 */
+	public int getNumColonies()
+	{
+		return mNumColonies;
+	}
+
+	/**
+	 * Gets the file the nest sites and distances are read from
+	 * 
+	 * @return name of landscape file ("" indicates the three nests set by the nest parameters)
+	 * 
+	 */
+	public String getLandscapeFile()
+	{
+		return mLandscapeFile;
+	}
+
+	/**
+	 * Determines if the colonies skip scouts that are only counting down a delay (the results are the same either way)
+	 * 
+	 * @return true if the colonies are event driven, false otherwise
+	 * 
+	 */
+	public boolean getEventDriven()
+	{
+		return mEventDriven;
+	}
+
+	/**
+	 * Determines if the colonies' scouts are bit-packed off the heap, for colonies too large to hold
+	 * as objects or arrays (the results are the same either way)
+	 * 
+	 * @return true if the scouts are packed, false otherwise
+	 * 
+	 */
+	public boolean getPackedScouts()
+	{
+		return mPackedScouts;
+	}
+
+	/**
+	 * Gets the number of scouts in each partition a colony updates in parallel (a different update
+	 * scheme from updating scouts one at a time, not a parallel run of it: the results depend on the
+	 * partition size, but not on the number of threads, see AntColony.setPartitionSize)
+	 * 
+	 * @return number of scouts (0 indicates scouts are updated one at a time)
+	 * 
+	 */
+	public int getScoutPartitionSize()
+	{
+		return mScoutPartitionSize;
+	}
+
+	/**
+	 * Gets the engine that performs the runs
+	 * 
+	 * @return "agent" (NestsEngine), or "gillespie" or "tauleap" (PopulationEngine)
+	 * 
+	 */
+	public String getEngine()
+	{
+		return mEngine;
+	}
+
+	/**
+	 * Gets the length of each tau-leap (used by the "tauleap" engine)
+	 * 
+	 * @return leap length (in updates)
+	 * 
+	 */
+	public double getLeapLength()
+	{
+		return mLeapLength;
+	}
+
+	/**
+	 * Sets the habitability of nest 1
+	 * 
+	 * @param habitable
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest1Habitable(boolean habitable)
+	{
+		mNest1Habitable = habitable;
+	}
+
+	/**
+	 * Sets the quality of nest 1
+	 * 
+	 * @param quality
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest1Quality(int quality)
+	{
+		mNest1Quality = quality;
+	}
+
+	/**
+	 * Sets the distance from nest 1 to nest 2
+	 * 
+	 * @param distance
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest1ToNest2Distance(int distance)
+	{
+		mNest1ToNest2Distance = distance;
+	}
+
+	/**
+	 * Sets the distance from nest 1 to nest 3
+	 * 
+	 * @param distance
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest1ToNest3Distance(int distance)
+	{
+		mNest1ToNest3Distance = distance;
+	}
+
+	/**
+	 * Sets the quality of nest 2
+	 * 
+	 * @param quality
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest2Quality(int quality)
+	{
+		mNest2Quality = quality;
+	}
+
+	/**
+	 * Sets the distance from nest 2 to nest 3
+	 * 
+	 * @param distance
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest2ToNest3Distance(int distance)
+	{
+		mNest2ToNest3Distance = distance;
+	}
+
+	/**
+	 * Sets the quality of nest 3
+	 * 
+	 * @param quality
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNest3Quality(int quality)
+	{
+		mNest3Quality = quality;
+	}
+
+	/**
+	 * Sets the standard deviation of noise in nest assessments
+	 * 
+	 * @param stdDev
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNestQualityStdDev(int stdDev)
+	{
+		mNestQualityStdDev = stdDev;
+	}
+
+	/**
+	 * Sets the number of colonies sharing the nests
+	 * 
+	 * @param numColonies
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setNumColonies(int numColonies)
+	{
+		mNumColonies = numColonies;
+	}
+
+	/**
+	 * Sets the file the nest sites and distances are read from
+	 * 
+	 * @param fileName ("" or null indicates the three nests set by the nest parameters)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setLandscapeFile(String fileName)
+	{
+		mLandscapeFile = (fileName == null) ? "" : fileName;
+	}
+
+	/**
+	 * Sets whether the colonies skip scouts that are only counting down a delay
+	 * 
+	 * @param eventDriven
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEventDriven(boolean eventDriven)
+	{
+		mEventDriven = eventDriven;
+	}
+
+	/**
+	 * Sets whether the colonies' scouts are bit-packed off the heap
+	 * 
+	 * @param packedScouts
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setPackedScouts(boolean packedScouts)
+	{
+		mPackedScouts = packedScouts;
+	}
+
+	/**
+	 * Sets the number of scouts in each partition a colony updates in parallel (a different update
+	 * scheme from updating scouts one at a time, not a parallel run of it: partitioned scouts see
+	 * other partitions' changes only once each update is committed, see AntColony.setPartitionSize)
+	 * 
+	 * @param scoutPartitionSize (>= 0, 0 to update scouts one at a time)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setScoutPartitionSize(int scoutPartitionSize)
+	{
+		if (scoutPartitionSize < 0)
+		{
+			throw new IllegalArgumentException("NestsParameters.setScoutPartitionSize called with scoutPartitionSize < 0 (scoutPartitionSize == " + scoutPartitionSize + ")");
+		}
+
+		mScoutPartitionSize = scoutPartitionSize;
+	}
+
+	/**
+	 * Sets the engine that performs the runs
+	 * 
+	 * @param engine ("agent", "gillespie" or "tauleap")
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setEngine(String engine)
+	{
+		if (!"agent".equals(engine) && !"gillespie".equals(engine) && !"tauleap".equals(engine))
+		{
+			throw new IllegalArgumentException("NestsParameters.setEngine called with an unknown engine (engine == " + engine + ")");
+		}
+
+		mEngine = engine;
+	}
+
+	/**
+	 * Sets the length of each tau-leap
+	 * 
+	 * @param leapLength (in updates, > 0)
+	 * 
+	 * @return void
+	 * 
+	 */
+	public void setLeapLength(double leapLength)
+	{
+		if (leapLength <= 0)
+		{
+			throw new IllegalArgumentException("NestsParameters.setLeapLength called with leapLength <= 0 (leapLength == " + leapLength + ")");
+		}
+
+		mLeapLength = leapLength;
+	}
+
+	/**
+	 * NestsParameters constructor (model defaults)
+	 *
+	 */
+	public NestsParameters()
+	{
+		mColonySize = 100;
+		mNumScouts = 10;
+		mNormalQuorumThreshold = 20;
+		mHostileQuorumThreshold = 15;
+		mEmergencyQuorumThreshold = 10;
+		mPreferenceSwitchProb = 0.5;
+		mStartScoutingProb = 0.1;
+		mStopScoutingProb = 0.0;
+		mReverseTandemRunProb = 0.1;
+		mChangeNestProb = 1.0;
+		mMaxNestQuality = 100;
+		mAssessmentDelay = 0;
+		mTandemRunSpeed = 5;
+		mCarryingSpeed = 15;
+		mNestQualityRequirement = 20;
+		mEnvironmentHostile = false;
+		mDistanceSignificant = true;
+		mCompareNestSiteQualities = true;
+		mPrattEbmEquivalent = false;
+		mNest1ToNest2Distance = 100;
+		mNest1ToNest3Distance = 200;
+		mNest2ToNest3Distance = 200;
+		mNest1Habitable = false;
+		mNest1Quality = 10;
+		mNest2Quality = 20;
+		mNest3Quality = 21;
+		mNestQualityStdDev = 0;
+		mNumColonies = 1;
+		mLandscapeFile = "";
+		mEventDriven = false;
+		mPackedScouts = false;
+		mScoutPartitionSize = 0;
+		mEngine = "agent";
+		mLeapLength = 1.0;
+	}
+
+	/**
+	 * NestsParameters copy constructor
+	 *
+	 * @param parameters to copy (!= null)
+	 * 
+	 */
+	public NestsParameters(NestsParameters parameters)
+	{
+		if (parameters == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct NestsParameters with parameters == null");
+		}
+
+		mColonySize = parameters.mColonySize;
+		mNumScouts = parameters.mNumScouts;
+		mNormalQuorumThreshold = parameters.mNormalQuorumThreshold;
+		mHostileQuorumThreshold = parameters.mHostileQuorumThreshold;
+		mEmergencyQuorumThreshold = parameters.mEmergencyQuorumThreshold;
+		mPreferenceSwitchProb = parameters.mPreferenceSwitchProb;
+		mStartScoutingProb = parameters.mStartScoutingProb;
+		mStopScoutingProb = parameters.mStopScoutingProb;
+		mReverseTandemRunProb = parameters.mReverseTandemRunProb;
+		mChangeNestProb = parameters.mChangeNestProb;
+		mMaxNestQuality = parameters.mMaxNestQuality;
+		mAssessmentDelay = parameters.mAssessmentDelay;
+		mTandemRunSpeed = parameters.mTandemRunSpeed;
+		mCarryingSpeed = parameters.mCarryingSpeed;
+		mNestQualityRequirement = parameters.mNestQualityRequirement;
+		mEnvironmentHostile = parameters.mEnvironmentHostile;
+		mDistanceSignificant = parameters.mDistanceSignificant;
+		mCompareNestSiteQualities = parameters.mCompareNestSiteQualities;
+		mPrattEbmEquivalent = parameters.mPrattEbmEquivalent;
+		mNest1ToNest2Distance = parameters.mNest1ToNest2Distance;
+		mNest1ToNest3Distance = parameters.mNest1ToNest3Distance;
+		mNest2ToNest3Distance = parameters.mNest2ToNest3Distance;
+		mNest1Habitable = parameters.mNest1Habitable;
+		mNest1Quality = parameters.mNest1Quality;
+		mNest2Quality = parameters.mNest2Quality;
+		mNest3Quality = parameters.mNest3Quality;
+		mNestQualityStdDev = parameters.mNestQualityStdDev;
+		mNumColonies = parameters.mNumColonies;
+		mLandscapeFile = parameters.mLandscapeFile;
+		mEventDriven = parameters.mEventDriven;
+		mPackedScouts = parameters.mPackedScouts;
+		mScoutPartitionSize = parameters.mScoutPartitionSize;
+		mEngine = parameters.mEngine;
+		mLeapLength = parameters.mLeapLength;
+	}
+}
@@ -0,0 +1,609 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import ahha.RandomStream;
+
+/**
+ * Runs a whole parameter sweep (a Repast batch parameter file) headlessly, with independent
+ * model instances running in parallel on all available cores.
+ *
+ * Each run writes its per-tick role counts to ahha_results/results_<run>.txt, numbered as in
+ * Repast's batch mode, and ahha_results/runs.txt maps each run to its configuration and
+ * replicate. Run summaries are written to the log file in run order, whatever order the runs
+ * finish in. Each run draws from its own random stream, keyed by the sweep id, its
+ * configuration and its replicate, so results do not depend on the number of threads.
+ *
+ * In Arrow format, the role counts go to ahha_results/results_<run>.arrow instead (with the run
+ * and tick, see EmigrationEngine.addColumns), and the summaries also go to ahha_results/summaries.arrow,
+ * one row per colony: the run, its configuration, replicate and colony, every parameter (see
+ * NestsParameters.getInitParam) and the outcome columns of EmigrationEngine.getLogHeader.
+ *
+ * In store format, there are no per-run results files: every run's role counts (with the tick)
+ * are appended to the one memory-mapped file ahha_results/trajectories.bin, and
+ * ahha_results/trajectories.idx gives where each run's rows are (see TrajectoryStore). In delta
+ * format, each run's role counts go to ahha_results/results_<run>.delta, recording only the
+ * changes from tick to tick (see DeltaCodec, which also converts them back to text). In format
+ * none, no role counts are written.
+ *
+ * If smoothing is on, each run's role counts are also smoothed as it finishes (as
+ * 5_Smoothing_AHHA/Smoothing_all_data.R), to ahha_results/AHHA_smoothed_<run>.txt, and the
+ * average of each configuration's smoothed replicates goes to
+ * ahha_results/AHHA_smoothed_config_<config>.txt (see SmoothingStage). If ensemble statistics
+ * are on, the mean, variance and quantiles of each role count across each configuration's
+ * replicates are gathered tick by tick as the replicates run, and go to
+ * ahha_results/AHHA_ensemble_config_<config>.txt when the last finishes (see EnsembleStage).
+ *
+ * By default every role count is recorded every tick. An output policy (see OutputPolicy) can
+ * instead record a row every so many ticks, only when the role counts change, or densely only
+ * while quorums are moving, and only some of the role counts; smoothing, ensemble statistics and
+ * delta format need every role count every tick.
+ *
+ * With the metrics option, the sweep's progress (runs in flight and completed, ticks per second,
+ * tick times, and counts of ant updates, random draws, recruitment acts, quorum operations and
+ * bytes written) is published over JMX while it runs (see SweepMetrics).
+ *
+ */
+public class NestsSweep
+{
+	/** The runs of the sweep */
+	private final List<ParameterFile.Run> mRuns;
+	/** The number of runs performed at once */
+	private final int mNumThreads;
+	/** The sweep's id (the root of all its runs' random streams) */
+	private final long mSweepId;
+	/** Record per-tick role counts? */
+	private final boolean mWriteResults;
+	/** The format of the results ("text", "arrow" for Arrow IPC, see ArrowFile, "store", see TrajectoryStore, "delta", see DeltaCodec, or "none") */
+	private final String mFormat;
+	/** Every run's role counts, in store format (null until the sweep runs, and otherwise) */
+	private TrajectoryStore mStore;
+	/** Smooth each run's role counts as it finishes? */
+	private boolean mSmoothResults;
+	/** Smooths each run's role counts (null until the sweep runs, and otherwise) */
+	private SmoothingStage mSmoothing;
+	/** Gather statistics across each configuration's replicates? */
+	private boolean mEnsembleResults;
+	/** Gathers statistics across each configuration's replicates (null until the sweep runs, and otherwise) */
+	private EnsembleStage mEnsemble;
+	/** Which ticks' role counts are recorded, and which role counts */
+	private OutputPolicy mOutputPolicy;
+	/** The names of the outcome columns at the end of each summary line */
+	private static final String[] OUTCOMES = {"ColonySplit", "FinalDecisionOptimal", "TimeToVacation", "TimeToCompletion", "NumRecruitmentActs", "Nest1QuorumSize", "Nest2QuorumSize", "Nest3QuorumSize"};
+	/** The type of each outcome column */
+	private static final int[] OUTCOME_TYPES = {ArrowFile.BOOLEAN, ArrowFile.BOOLEAN, ArrowFile.INT, ArrowFile.DOUBLE, ArrowFile.INT, ArrowFile.INT, ArrowFile.INT, ArrowFile.INT};
+
+	/**
+	 * Main method for running a parameter sweep
+	 *
+	 * @param args
+	 *
+	 * @return void
+	 *
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		NestsSweep sweep;
+		Writer logFile;
+		String outputMode = "every", outputColumns = null;
+		int numThreads, l1;
+		long sweepId = 0;
+
+		if (args.length < 1)
+		{
+			System.out.println("Usage: NestsSweep <parameterfile> <outputfile <threads <sweepid <text|arrow|store|delta|none [smooth] [ensemble] [output=<every|change|stride:N|adaptive:N>] [columns=<name,...>] [metrics]>>>>");
+
+			return;
+		}
+		numThreads = Runtime.getRuntime().availableProcessors();
+		if (args.length >= 3)
+		{
+			numThreads = Integer.parseInt(args[2]);
+		}
+		if (args.length >= 4)
+		{
+			sweepId = Long.parseLong(args[3]);
+		}
+		sweep = new NestsSweep(new ParameterFile(args[0]).expand(new NestsParameters()), numThreads, sweepId, true, (args.length >= 5) ? args[4] : "text");
+		for (l1 = 5; l1 < args.length; l1++)
+		{
+			if (args[l1].equals("smooth"))
+			{
+				sweep.setSmoothResults(true);
+			}
+			else if (args[l1].equals("ensemble"))
+			{
+				sweep.setEnsembleResults(true);
+			}
+			else if (args[l1].equals("metrics"))
+			{
+				SweepMetrics.register();
+			}
+			else if (args[l1].startsWith("output="))
+			{
+				outputMode = args[l1].substring("output=".length());
+			}
+			else if (args[l1].startsWith("columns="))
+			{
+				outputColumns = args[l1].substring("columns=".length());
+			}
+			else
+			{
+				throw new IllegalArgumentException("NestsSweep.main called with an unknown option (" + args[l1] + ")");
+			}
+		}
+		sweep.setOutputPolicy(OutputPolicy.parse(outputMode, outputColumns));
+		if (args.length >= 2)
+		{
+			logFile = new FileWriter(args[1]);
+		}
+		else
+		{
+			logFile = new PrintWriter(System.out);
+		}
+		sweep.run(logFile);
+		logFile.close();
+	}
+
+	/**
+	 * Performs a single run of the sweep
+	 *
+	 * @param run (!= null)
+	 *
+	 * @return run's summary
+	 *
+	 */
+	private String performRun(ParameterFile.Run run)
+	{
+		PrintWriter resultsWriter = null;
+		ArrowFile resultsTable = null;
+		DeltaCodec.Sink deltaSink = null;
+		EmigrationEngine engine;
+		RandomStream random;
+
+		random = RandomStream.forRun(mSweepId, run.getConfigIndex(), run.getReplicate());
+		if (mWriteResults && mFormat.equals("arrow"))
+		{
+			try
+			{
+				resultsTable = new ArrowFile("ahha_results/results_" + run.getRunIndex() + ".arrow");
+			}
+			catch (IOException exception)
+			{
+				throw new RuntimeException("NestsSweep.performRun: error creating results table", exception);
+			}
+		}
+		else if (mWriteResults && mFormat.equals("delta"))
+		{
+			try
+			{
+				deltaSink = new DeltaCodec.Sink("ahha_results/results_" + run.getRunIndex() + ".delta");
+			}
+			catch (IOException exception)
+			{
+				throw new RuntimeException("NestsSweep.performRun: error creating results file", exception);
+			}
+		}
+		else if (mWriteResults && mFormat.equals("text"))
+		{
+			resultsWriter = NestsEngine.create_file(run.getRunIndex());
+		}
+
+		// the summary is collected from the engine and written in run order by NestsSweep.run
+		if (run.getParameters().getEngine().equals("agent"))
+		{
+			engine = new NestsEngine(run.getParameters(), random, new NullWriter(), resultsWriter);
+		}
+		else
+		{
+			engine = new PopulationEngine(run.getParameters(), random, new NullWriter(), resultsWriter);
+		}
+		engine.setResultsTable(resultsTable, run.getRunIndex());
+		engine.setResultsStore(mStore, run.getRunIndex());
+		engine.setOutputPolicy(mOutputPolicy);
+		if (deltaSink != null)
+		{
+			engine.addResultsSink(deltaSink);
+		}
+		if (mSmoothing != null)
+		{
+			engine.addResultsSink(new SmoothingStage.Sink(mSmoothing, run.getRunIndex()));
+		}
+		if (mEnsemble != null)
+		{
+			engine.addResultsSink(new EnsembleStage.Sink(mEnsemble, run.getRunIndex()));
+		}
+
+		return engine.run();
+	}
+
+	/**
+	 * Sets whether each run's role counts are smoothed as it finishes (see SmoothingStage)
+	 *
+	 * @param smoothResults (only has an effect if results are written)
+	 *
+	 * @return void
+	 *
+	 */
+	public void setSmoothResults(boolean smoothResults)
+	{
+		mSmoothResults = smoothResults;
+	}
+
+	/**
+	 * Sets whether statistics are gathered across each configuration's replicates (see EnsembleStage)
+	 *
+	 * @param ensembleResults (only has an effect if results are written)
+	 *
+	 * @return void
+	 *
+	 */
+	public void setEnsembleResults(boolean ensembleResults)
+	{
+		mEnsembleResults = ensembleResults;
+	}
+
+	/**
+	 * Sets which ticks' role counts are recorded, and which role counts (see OutputPolicy)
+	 *
+	 * @param outputPolicy (!= null; must be OutputPolicy.DEFAULT, or equivalent, with smoothing,
+	 *   ensemble statistics or delta format)
+	 *
+	 * @return void
+	 *
+	 */
+	public void setOutputPolicy(OutputPolicy outputPolicy)
+	{
+		if (outputPolicy == null)
+		{
+			throw new IllegalArgumentException("NestsSweep.setOutputPolicy called with outputPolicy == null");
+		}
+
+		mOutputPolicy = outputPolicy;
+	}
+
+	/**
+	 * Performs all the runs of the sweep
+	 *
+	 * @param logFile to write the header and run summaries to (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void run(Writer logFile) throws IOException
+	{
+		if (logFile == null)
+		{
+			throw new IllegalArgumentException("NestsSweep.run called with logFile == null");
+		}
+		ExecutorService executor;
+		List<Future<String>> summaries = new ArrayList<Future<String>>();
+		PrintWriter runIndex;
+		ArrowFile summaryTable = null;
+		int l1;
+
+		if (mWriteResults && !mOutputPolicy.isDense() && (mSmoothResults || mEnsembleResults || mFormat.equals("delta")))
+		{
+			throw new IllegalStateException("NestsSweep.run called with an output policy other than every role count every tick (" + mOutputPolicy + ") and smoothing, ensemble statistics or delta format");
+		}
+		if (mWriteResults)
+		{
+			NestsEngine.delete_directory();
+			NestsEngine.create_folder();
+			runIndex = new PrintWriter("ahha_results/runs.txt", "UTF-8");
+			runIndex.printf("Run, Config, Replicate\n");
+			for (ParameterFile.Run run : mRuns)
+			{
+				runIndex.printf("%d, %d, %d\n", run.getRunIndex(), run.getConfigIndex(), run.getReplicate());
+			}
+			runIndex.close();
+		}
+		if (mWriteResults && mFormat.equals("arrow"))
+		{
+			summaryTable = createSummaryTable();
+		}
+		if (mWriteResults && mFormat.equals("store"))
+		{
+			mStore = new TrajectoryStore("ahha_results");
+		}
+		if (mWriteResults && mSmoothResults)
+		{
+			mSmoothing = new SmoothingStage("ahha_results", mRuns);
+		}
+		if (mWriteResults && mEnsembleResults)
+		{
+			mEnsemble = new EnsembleStage("ahha_results", mRuns, QuantileSketch.DEFAULT_MAX_BINS);
+		}
+		logFile.write(EmigrationEngine.getLogHeader() + "\n");
+		executor = Executors.newFixedThreadPool(mNumThreads);
+		try
+		{
+			for (final ParameterFile.Run run : mRuns)
+			{
+				summaries.add(executor.submit(new Callable<String>()
+				{
+					public String call()
+					{
+						return performRun(run);
+					}
+				}));
+			}
+			for (l1 = 0; l1 < summaries.size(); l1++)
+			{
+				logFile.write(summaries.get(l1).get() + "\n");
+				logFile.flush();
+				if (summaryTable != null)
+				{
+					addSummaryRows(summaryTable, mRuns.get(l1), summaries.get(l1).get());
+				}
+			}
+			if (summaryTable != null)
+			{
+				summaryTable.close();
+			}
+			if (mStore != null)
+			{
+				mStore.close();
+			}
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("NestsSweep.run: interrupted");
+		}
+		catch (ExecutionException exception)
+		{
+			throw new RuntimeException("NestsSweep.run: run failed", exception.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Creates the Arrow table of run summaries, with a column for each parameter typed as its getter is
+	 *
+	 * @return summary table
+	 *
+	 */
+	private static ArrowFile createSummaryTable() throws IOException
+	{
+		ArrowFile table = new ArrowFile("ahha_results/summaries.arrow");
+		Class<?> type;
+		int l1;
+
+		table.addColumn("Run", ArrowFile.INT);
+		table.addColumn("Config", ArrowFile.INT);
+		table.addColumn("Replicate", ArrowFile.INT);
+		table.addColumn("Colony", ArrowFile.INT);
+		for (String name : NestsParameters.getInitParam())
+		{
+			type = getGetter(name).getReturnType();
+			if (type == int.class)
+			{
+				table.addColumn(name, ArrowFile.INT);
+			}
+			else if (type == double.class)
+			{
+				table.addColumn(name, ArrowFile.DOUBLE);
+			}
+			else if (type == boolean.class)
+			{
+				table.addColumn(name, ArrowFile.BOOLEAN);
+			}
+			else
+			{
+				table.addColumn(name, ArrowFile.STRING);
+			}
+		}
+		for (l1 = 0; l1 < OUTCOMES.length; l1++)
+		{
+			table.addColumn(OUTCOMES[l1], OUTCOME_TYPES[l1]);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Adds a run's summary to the Arrow table of run summaries, one row per colony
+	 *
+	 * @param table created by NestsSweep.createSummaryTable (!= null)
+	 * @param run (!= null)
+	 * @param summary run's summary lines (one per colony, columns as EmigrationEngine.getLogHeader)
+	 *
+	 * @return void
+	 *
+	 */
+	private static void addSummaryRows(ArrowFile table, ParameterFile.Run run, String summary) throws IOException
+	{
+		String[] lines = summary.split("\n"), values;
+		String[] names = NestsParameters.getInitParam();
+		String outcome;
+		Object value;
+		int column, l1, l2;
+
+		for (l1 = 0; l1 < lines.length; l1++)
+		{
+			table.setInt(0, run.getRunIndex());
+			table.setInt(1, run.getConfigIndex());
+			table.setInt(2, run.getReplicate());
+			table.setInt(3, l1);
+			column = 4;
+			for (l2 = 0; l2 < names.length; l2++, column++)
+			{
+				try
+				{
+					value = getGetter(names[l2]).invoke(run.getParameters());
+				}
+				catch (ReflectiveOperationException exception)
+				{
+					throw new RuntimeException("NestsSweep.addSummaryRows: error getting " + names[l2], exception);
+				}
+				if (value instanceof Integer)
+				{
+					table.setInt(column, (Integer) value);
+				}
+				else if (value instanceof Double)
+				{
+					table.setDouble(column, (Double) value);
+				}
+				else if (value instanceof Boolean)
+				{
+					table.setBoolean(column, (Boolean) value);
+				}
+				else
+				{
+					table.setString(column, String.valueOf(value));
+				}
+			}
+			// the outcomes are the last columns of the summary line
+			values = lines[l1].split(",");
+			for (l2 = 0; l2 < OUTCOMES.length; l2++, column++)
+			{
+				outcome = values[values.length - OUTCOMES.length + l2];
+				switch (OUTCOME_TYPES[l2])
+				{
+					case ArrowFile.BOOLEAN:
+						table.setBoolean(column, Boolean.parseBoolean(outcome));
+						break;
+					case ArrowFile.DOUBLE:
+						table.setDouble(column, Double.parseDouble(outcome));
+						break;
+					default:
+						table.setInt(column, Integer.parseInt(outcome));
+						break;
+				}
+			}
+			table.endRow();
+		}
+	}
+
+	/**
+	 * Gets the getter of one of the model's parameters
+	 *
+	 * @param name of the parameter (as in NestsParameters.getInitParam)
+	 *
+	 * @return getter
+	 *
+	 */
+	private static Method getGetter(String name)
+	{
+		try
+		{
+			return NestsParameters.class.getMethod("get" + name);
+		}
+		catch (NoSuchMethodException exception)
+		{
+			throw new RuntimeException("NestsSweep: no getter for parameter " + name);
+		}
+	}
+
+	/**
+	 * Writer that discards its output (the engine's own summary logging is not needed)
+	 *
+	 */
+	private static class NullWriter extends Writer
+	{
+		public void write(char[] buffer, int offset, int length)
+		{
+		}
+
+		public void flush()
+		{
+		}
+
+		public void close()
+		{
+		}
+	}
+
+	/**
+	 * NestsSweep constructor
+	 *
+	 * @param runs to perform (!= null)
+	 * @param numThreads number of runs to perform at once (> 0)
+	 * @param sweepId identifies the sweep's random streams (same id, same results)
+	 * @param writeResults (true if per-tick role counts should be written to ahha_results, false otherwise)
+	 *
+	 */
+	public NestsSweep(List<ParameterFile.Run> runs, int numThreads, long sweepId, boolean writeResults)
+	{
+		this(runs, numThreads, sweepId, writeResults, "text");
+	}
+
+	/**
+	 * NestsSweep constructor
+	 *
+	 * @param runs to perform (!= null)
+	 * @param numThreads number of runs to perform at once (> 0)
+	 * @param sweepId identifies the sweep's random streams (same id, same results)
+	 * @param writeResults (true if per-tick role counts should be written to ahha_results, false otherwise)
+	 * @param arrowResults (true if the results should be written in Arrow IPC format, false for text)
+	 *
+	 */
+	public NestsSweep(List<ParameterFile.Run> runs, int numThreads, long sweepId, boolean writeResults, boolean arrowResults)
+	{
+		this(runs, numThreads, sweepId, writeResults, arrowResults ? "arrow" : "text");
+	}
+
+	/**
+	 * NestsSweep constructor
+	 *
+	 * @param runs to perform (!= null)
+	 * @param numThreads number of runs to perform at once (> 0)
+	 * @param sweepId identifies the sweep's random streams (same id, same results)
+	 * @param writeResults (true if per-tick role counts should be written to ahha_results, false otherwise)
+	 * @param format of the results ("text", "arrow", "store", "delta" or "none")
+	 *
+	 */
+	public NestsSweep(List<ParameterFile.Run> runs, int numThreads, long sweepId, boolean writeResults, String format)
+	{
+		if (runs == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct NestsSweep with runs == null");
+		}
+		if (numThreads <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct NestsSweep with numThreads <= 0 (numThreads == " + numThreads + ")");
+		}
+		if (format == null || !(format.equals("text") || format.equals("arrow") || format.equals("store") || format.equals("delta") || format.equals("none")))
+		{
+			throw new IllegalArgumentException("Attempt to construct NestsSweep with an unknown format (format == " + format + ")");
+		}
+
+		mRuns = runs;
+		mNumThreads = numThreads;
+		mSweepId = sweepId;
+		mWriteResults = writeResults;
+		mFormat = format;
+		mStore = null;
+		mSmoothResults = false;
+		mSmoothing = null;
+		mEnsembleResults = false;
+		mEnsemble = null;
+		mOutputPolicy = OutputPolicy.DEFAULT;
+	}
+}
@@ -0,0 +1,292 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which ticks' role counts a run writes, and which of the role counts.
+ *
+ * The modes are:
+ *
+ *   every: a row every tick (the default);
+ *   stride: a row every stride ticks, from the first;
+ *   change: a row whenever one of the chosen role counts has changed since the last row written;
+ *   adaptive: a row every tick while any nest's quorum size is changing, and every stride ticks
+ *     while none is.
+ *
+ * The role counts are chosen by name (see EmigrationEngine.getColumnNames), or are all of them by
+ * default. The engines only work out the chosen role counts, and only on ticks that may be
+ * written, so a sparse policy saves the census as well as the writing.
+ *
+ * Rows still start with the tick, and text results files get a Tick column (before the role
+ * counts) unless the policy is every tick, so sparse rows can be placed in time.
+ *
+ */
+public class OutputPolicy
+{
+	/** A row every tick */
+	public static final int EVERY = 0;
+	/** A row every stride ticks */
+	public static final int STRIDE = 1;
+	/** A row whenever the chosen role counts change */
+	public static final int CHANGE = 2;
+	/** A row every tick while quorum sizes change, every stride ticks otherwise */
+	public static final int ADAPTIVE = 3;
+	/** The names of the modes, by mode */
+	private static final String[] MODE_NAMES = {"every", "stride", "change", "adaptive"};
+	/** The policy of writing every role count every tick */
+	public static final OutputPolicy DEFAULT = new OutputPolicy(EVERY, 1, null);
+	/** The mode */
+	private final int mMode;
+	/** The number of ticks between rows (for STRIDE, and ADAPTIVE while quorum sizes are steady) */
+	private final int mStride;
+	/** The names of the chosen role counts (null indicates all) */
+	private final String[] mColumns;
+
+	/**
+	 * Makes a policy from its description
+	 *
+	 * @param mode "every", "change", "stride:<ticks>" or "adaptive:<ticks>" (!= null)
+	 * @param columns comma-separated names of the role counts (null or empty indicates all)
+	 *
+	 * @return policy
+	 *
+	 */
+	public static OutputPolicy parse(String mode, String columns)
+	{
+		if (mode == null)
+		{
+			throw new IllegalArgumentException("OutputPolicy.parse called with mode == null");
+		}
+		String[] parts = mode.split(":", 2);
+		int modeIndex = Arrays.asList(MODE_NAMES).indexOf(parts[0]), stride = 1;
+
+		if (modeIndex < 0)
+		{
+			throw new IllegalArgumentException("OutputPolicy.parse called with an unknown mode (mode == " + mode + ")");
+		}
+		if (parts.length == 2)
+		{
+			try
+			{
+				stride = Integer.parseInt(parts[1]);
+			}
+			catch (NumberFormatException exception)
+			{
+				throw new IllegalArgumentException("OutputPolicy.parse called with a stride that is not a number (mode == " + mode + ")");
+			}
+		}
+		else if (modeIndex == STRIDE || modeIndex == ADAPTIVE)
+		{
+			throw new IllegalArgumentException("OutputPolicy.parse called without a stride (mode == " + mode + ")");
+		}
+
+		return new OutputPolicy(modeIndex, stride, (columns == null || columns.length() == 0) ? null : columns.split(","));
+	}
+
+	/**
+	 * Gets the mode
+	 *
+	 * @return EVERY, STRIDE, CHANGE or ADAPTIVE
+	 *
+	 */
+	public int getMode()
+	{
+		return mMode;
+	}
+
+	/**
+	 * Does the policy write every role count every tick?
+	 *
+	 * @return true if it does, false otherwise
+	 *
+	 */
+	public boolean isDense()
+	{
+		return mMode == EVERY && mColumns == null;
+	}
+
+	/**
+	 * Does the policy choose a subset of the role counts?
+	 *
+	 * @return true if it does, false if it writes them all
+	 *
+	 */
+	public boolean hasColumns()
+	{
+		return mColumns != null;
+	}
+
+	/**
+	 * Gets the chosen role counts
+	 *
+	 * @param numNests number of nests (with the home nest, as EmigrationEngine.getColumnNames)
+	 *
+	 * @return index of each chosen role count among all of them (as EmigrationEngine.getColumnNames), in that order
+	 *
+	 */
+	public int[] getColumns(int numNests)
+	{
+		List<String> names = Arrays.asList(EmigrationEngine.getColumnNames(numNests));
+		List<Integer> chosen = new ArrayList<Integer>();
+		int[] columns;
+		int index, l1;
+
+		if (mColumns == null)
+		{
+			for (l1 = 0; l1 < names.size(); l1++)
+			{
+				chosen.add(l1);
+			}
+		}
+		else
+		{
+			for (String column : mColumns)
+			{
+				index = names.indexOf(column.trim());
+				if (index < 0)
+				{
+					throw new IllegalArgumentException("OutputPolicy.getColumns called with an unknown role count (" + column.trim() + ")");
+				}
+				if (!chosen.contains(index))
+				{
+					chosen.add(index);
+				}
+			}
+		}
+		columns = new int[chosen.size()];
+		for (l1 = 0; l1 < columns.length; l1++)
+		{
+			columns[l1] = chosen.get(l1);
+		}
+		Arrays.sort(columns);
+
+		return columns;
+	}
+
+	/**
+	 * Gets the names of the chosen role counts
+	 *
+	 * @param numNests number of nests (with the home nest)
+	 *
+	 * @return names, in the order of EmigrationEngine.getColumnNames
+	 *
+	 */
+	public String[] getColumnNames(int numNests)
+	{
+		String[] all = EmigrationEngine.getColumnNames(numNests), names;
+		int[] columns = getColumns(numNests);
+		int l1;
+
+		names = new String[columns.length];
+		for (l1 = 0; l1 < columns.length; l1++)
+		{
+			names[l1] = all[columns[l1]];
+		}
+
+		return names;
+	}
+
+	/**
+	 * Gets the header line of a text results file
+	 *
+	 * @param numNests number of nests (with the home nest)
+	 *
+	 * @return header, with its line ending
+	 *
+	 */
+	public String getHeader(int numNests)
+	{
+		StringBuilder header = new StringBuilder();
+
+		if (mMode != EVERY)
+		{
+			header.append("Tick, ");
+		}
+		for (String name : getColumnNames(numNests))
+		{
+			header.append(name).append(", ");
+		}
+
+		return header.append('\n').toString();
+	}
+
+	/**
+	 * Might a tick's row be written? (Under CHANGE, it is then only written if it has changed.)
+	 *
+	 * @param tick
+	 * @param lastTick tick of the last row written (< 0 if none has been)
+	 * @param quorumsChanging have the quorum sizes changed since the last tick? (only used by ADAPTIVE)
+	 *
+	 * @return true if the tick's row might be written, false if it will not be
+	 *
+	 */
+	public boolean isDue(int tick, int lastTick, boolean quorumsChanging)
+	{
+		if (lastTick < 0)
+		{
+			return true;
+		}
+		switch (mMode)
+		{
+			case STRIDE:
+				return tick - lastTick >= mStride;
+			case ADAPTIVE:
+				return quorumsChanging || tick - lastTick >= mStride;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Gets a description of the policy (as OutputPolicy.parse takes)
+	 *
+	 * @return description
+	 *
+	 */
+	public String toString()
+	{
+		return MODE_NAMES[mMode] + ((mMode == STRIDE || mMode == ADAPTIVE) ? ":" + mStride : "") + ((mColumns == null) ? "" : " " + String.join(",", mColumns));
+	}
+
+	/**
+	 * OutputPolicy constructor
+	 *
+	 * @param mode EVERY, STRIDE, CHANGE or ADAPTIVE
+	 * @param stride number of ticks between rows (> 0; for STRIDE and ADAPTIVE)
+	 * @param columns names of the role counts to write (null indicates all, otherwise not empty)
+	 *
+	 */
+	public OutputPolicy(int mode, int stride, String[] columns)
+	{
+		if (mode < EVERY || mode > ADAPTIVE)
+		{
+			throw new IllegalArgumentException("Attempt to construct OutputPolicy with an unknown mode (mode == " + mode + ")");
+		}
+		if (stride <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct OutputPolicy with stride <= 0 (stride == " + stride + ")");
+		}
+		if (columns != null && columns.length == 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct OutputPolicy with no columns");
+		}
+
+		mMode = mode;
+		mStride = stride;
+		mColumns = (columns == null) ? null : columns.clone();
+	}
+}
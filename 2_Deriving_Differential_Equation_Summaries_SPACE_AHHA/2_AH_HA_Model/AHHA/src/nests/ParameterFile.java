@@ -0,0 +1,399 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamTokenizer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Reads a Repast batch parameter file (e.g. training_set.pf) and expands it into the list of
+ * runs Repast's batch controller would perform, in the same order.
+ *
+ * Supported value specifications are set, set_list, set_boolean, set_list_boolean, set_string,
+ * set_list_string and start / end / incr. A "runs: n" line applies to the parameter that follows
+ * it; each of that parameter's values is run n times, with any nested block varying fastest.
+ *
+ */
+public class ParameterFile
+{
+	/**
+	 * Inner-class for representing one parameter of the file and the block nested within it
+	 *
+	 */
+	private static class Parameter
+	{
+		/** The parameter's name (as used by the model's getters and setters) */
+		public String mName;
+		/** The number of times each value of the parameter is run */
+		public int mRuns;
+		/** The parameter's values, as written in the file */
+		public List<String> mValues;
+		/** The parameters nested within this one */
+		public List<Parameter> mChildren;
+
+		public Parameter(String name, int runs)
+		{
+			mName = name;
+			mRuns = runs;
+			mValues = new ArrayList<String>();
+			mChildren = new ArrayList<Parameter>();
+		}
+	}
+
+	/**
+	 * A single run of an expanded sweep
+	 *
+	 */
+	public static class Run
+	{
+		/** The run's position in the sweep (the Repast batch run number) */
+		private final int mRunIndex;
+		/** The index of the run's parameter combination (runs with the same parameters share it) */
+		private final int mConfigIndex;
+		/** The run's replicate number within its parameter combination (from 0) */
+		private final int mReplicate;
+		/** The run's parameters */
+		private final NestsParameters mParameters;
+
+		public Run(int runIndex, int configIndex, int replicate, NestsParameters parameters)
+		{
+			mRunIndex = runIndex;
+			mConfigIndex = configIndex;
+			mReplicate = replicate;
+			mParameters = parameters;
+		}
+
+		public int getRunIndex()
+		{
+			return mRunIndex;
+		}
+
+		public int getConfigIndex()
+		{
+			return mConfigIndex;
+		}
+
+		public int getReplicate()
+		{
+			return mReplicate;
+		}
+
+		public NestsParameters getParameters()
+		{
+			return mParameters;
+		}
+	}
+
+	/** The top level parameters of the file */
+	private final List<Parameter> mParameters;
+	/** The tokenizer used while parsing */
+	private StreamTokenizer mTokens;
+
+	/**
+	 * Expands the file into the runs it describes
+	 *
+	 * @param defaults parameters for anything the file does not set (!= null)
+	 *
+	 * @return runs, in Repast batch order
+	 *
+	 */
+	public List<Run> expand(NestsParameters defaults)
+	{
+		if (defaults == null)
+		{
+			throw new IllegalArgumentException("ParameterFile.expand called with defaults == null");
+		}
+		List<NestsParameters> combinations = new ArrayList<NestsParameters>();
+		List<Run> runs = new ArrayList<Run>();
+		HashMap<String, Integer> configIndices = new HashMap<String, Integer>();
+		HashMap<String, Integer> replicates = new HashMap<String, Integer>();
+		Integer configIndex, replicate;
+		String key;
+		int l1;
+
+		expand(new LinkedList<Parameter>(mParameters), new NestsParameters(defaults), combinations);
+		for (l1 = 0; l1 < combinations.size(); l1++)
+		{
+			// runs with identical parameters are replicates of the same configuration
+			key = EmigrationEngine.getParameterString(combinations.get(l1)) + "," + combinations.get(l1).getLandscapeFile() + "," + combinations.get(l1).getNumColonies() + "," + combinations.get(l1).getEngine() + "," + combinations.get(l1).getLeapLength();
+			configIndex = configIndices.get(key);
+			if (configIndex == null)
+			{
+				configIndex = configIndices.size();
+				configIndices.put(key, configIndex);
+			}
+			replicate = replicates.get(key);
+			replicate = (replicate == null) ? 0 : replicate + 1;
+			replicates.put(key, replicate);
+			runs.add(new Run(l1, configIndex, replicate, combinations.get(l1)));
+		}
+
+		return runs;
+	}
+
+	/**
+	 * Recursively expands the remaining parameters, emitting a copy of the parameters for each run
+	 *
+	 * @param remaining parameters still to be set
+	 * @param current parameters set so far
+	 * @param combinations list to add the expanded runs to
+	 *
+	 * @return void
+	 *
+	 */
+	private void expand(LinkedList<Parameter> remaining, NestsParameters current, List<NestsParameters> combinations)
+	{
+		Parameter parameter;
+		LinkedList<Parameter> next;
+		int l1;
+
+		if (remaining.isEmpty())
+		{
+			combinations.add(new NestsParameters(current));
+
+			return;
+		}
+		parameter = remaining.getFirst();
+		for (String value : parameter.mValues)
+		{
+			setParameter(current, parameter.mName, value);
+			for (l1 = 0; l1 < parameter.mRuns; l1++)
+			{
+				next = new LinkedList<Parameter>(parameter.mChildren);
+				next.addAll(remaining.subList(1, remaining.size()));
+				expand(next, current, combinations);
+			}
+		}
+	}
+
+	/**
+	 * Sets a parameter by name through NestsParameters' setter
+	 *
+	 * @param parameters to set the value in
+	 * @param name of the parameter (as in NestsParameters.getInitParam, case-insensitive)
+	 * @param value as written in the parameter file
+	 *
+	 * @return void
+	 *
+	 */
+	private static void setParameter(NestsParameters parameters, String name, String value)
+	{
+		Class<?> type;
+
+		for (Method method : NestsParameters.class.getMethods())
+		{
+			if (method.getName().equalsIgnoreCase("set" + name) && method.getParameterTypes().length == 1)
+			{
+				type = method.getParameterTypes()[0];
+				try
+				{
+					if (type == int.class)
+					{
+						method.invoke(parameters, (int) Double.parseDouble(value));
+					}
+					else if (type == double.class)
+					{
+						method.invoke(parameters, Double.parseDouble(value));
+					}
+					else if (type == boolean.class)
+					{
+						method.invoke(parameters, Boolean.parseBoolean(value));
+					}
+					else if (type == String.class)
+					{
+						method.invoke(parameters, value);
+					}
+					else
+					{
+						throw new IllegalArgumentException("ParameterFile: unsupported parameter type for " + name);
+					}
+				}
+				catch (ReflectiveOperationException exception)
+				{
+					throw new RuntimeException("ParameterFile: error setting " + name + " to " + value);
+				}
+
+				return;
+			}
+		}
+
+		throw new IllegalArgumentException("ParameterFile: unknown parameter " + name);
+	}
+
+	/**
+	 * Parses a block of parameters (up to a closing brace or the end of the file)
+	 *
+	 * @return parameters in the block
+	 *
+	 */
+	private List<Parameter> parseBlock() throws IOException
+	{
+		List<Parameter> parameters = new ArrayList<Parameter>();
+		Parameter parameter;
+		int runs = 1;
+
+		while (mTokens.nextToken() != StreamTokenizer.TT_EOF && mTokens.ttype != '}')
+		{
+			if (mTokens.ttype != StreamTokenizer.TT_WORD)
+			{
+				throw new IllegalArgumentException("ParameterFile: expected a parameter name on line " + mTokens.lineno());
+			}
+			if (mTokens.sval.equals("runs:"))
+			{
+				runs = (int) Double.parseDouble(nextWord());
+				continue;
+			}
+			parameter = new Parameter(mTokens.sval, runs);
+			runs = 1;
+			expectToken('{');
+			parseValues(parameter);
+			parameters.add(parameter);
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * Parses a parameter's value specification and any nested block, up to the parameter's closing brace
+	 *
+	 * @param parameter to add the values and nested parameters to
+	 *
+	 * @return void
+	 *
+	 */
+	private void parseValues(Parameter parameter) throws IOException
+	{
+		String key;
+		double start = 0, end = 0, increment = 0, value;
+		boolean range = false;
+
+		while (mTokens.nextToken() != '}')
+		{
+			if (mTokens.ttype == '{')
+			{
+				parameter.mChildren.addAll(parseBlock());
+				continue;
+			}
+			if (mTokens.ttype == StreamTokenizer.TT_EOF)
+			{
+				throw new IllegalArgumentException("ParameterFile: unexpected end of file in " + parameter.mName);
+			}
+			key = mTokens.sval;
+			if (key.equals("set:") || key.equals("set_boolean:") || key.equals("set_string:"))
+			{
+				parameter.mValues.add(nextWord());
+			}
+			else if (key.equals("set_list:") || key.equals("set_list_boolean:") || key.equals("set_list_string:"))
+			{
+				while (mTokens.nextToken() == StreamTokenizer.TT_WORD && !mTokens.sval.endsWith(":"))
+				{
+					parameter.mValues.add(mTokens.sval);
+				}
+				mTokens.pushBack();
+			}
+			else if (key.equals("start:"))
+			{
+				start = Double.parseDouble(nextWord());
+				range = true;
+			}
+			else if (key.equals("end:"))
+			{
+				end = Double.parseDouble(nextWord());
+			}
+			else if (key.equals("incr:"))
+			{
+				increment = Double.parseDouble(nextWord());
+			}
+			else
+			{
+				throw new IllegalArgumentException("ParameterFile: unknown value specification " + key + " in " + parameter.mName);
+			}
+		}
+		if (range)
+		{
+			if (increment <= 0)
+			{
+				throw new IllegalArgumentException("ParameterFile: incr <= 0 in " + parameter.mName);
+			}
+			// small tolerance so that e.g. 0.1 increments reach the end value
+			for (value = start; value <= end + increment * 1e-9; value += increment)
+			{
+				parameter.mValues.add(Double.toString(value));
+			}
+		}
+		if (parameter.mValues.isEmpty())
+		{
+			throw new IllegalArgumentException("ParameterFile: no values for " + parameter.mName);
+		}
+	}
+
+	private String nextWord() throws IOException
+	{
+		if (mTokens.nextToken() != StreamTokenizer.TT_WORD)
+		{
+			throw new IllegalArgumentException("ParameterFile: expected a value on line " + mTokens.lineno());
+		}
+
+		return mTokens.sval;
+	}
+
+	private void expectToken(int token) throws IOException
+	{
+		if (mTokens.nextToken() != token)
+		{
+			throw new IllegalArgumentException("ParameterFile: expected '" + (char) token + "' on line " + mTokens.lineno());
+		}
+	}
+
+	/**
+	 * ParameterFile constructor
+	 *
+	 * @param reader for the parameter file's contents (!= null)
+	 *
+	 */
+	public ParameterFile(Reader reader) throws IOException
+	{
+		if (reader == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ParameterFile with reader == null");
+		}
+
+		mTokens = new StreamTokenizer(reader);
+		mTokens.resetSyntax();
+		mTokens.wordChars(33, 255);
+		mTokens.whitespaceChars(0, 32);
+		mTokens.ordinaryChar('{');
+		mTokens.ordinaryChar('}');
+		mTokens.commentChar('#');
+		mParameters = parseBlock();
+		mTokens = null;
+	}
+
+	/**
+	 * ParameterFile constructor
+	 *
+	 * @param fileName of the parameter file (!= null)
+	 *
+	 */
+	public ParameterFile(String fileName) throws IOException
+	{
+		this(new FileReader(fileName));
+	}
+}
@@ -0,0 +1,262 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import ahha.*;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Runs a single AH-HA nest selection emigration with population-level colonies (see PopulationColony),
+ * which follow the number of ants in each role rather than each ant, so a run costs the same
+ * whatever the colony size. The chain is simulated exactly ("gillespie") or by tau-leaping
+ * ("tauleap", see NestsParameters.getLeapLength), as set by NestsParameters.getEngine.
+ *
+ * The engine is a drop-in for NestsEngine: EmigrationEngine builds the nests, halts the run and
+ * records the per-tick role counts and the summary lines in the same way for both. At each tick
+ * every colony is simulated up to the tick's time.
+ *
+ */
+public class PopulationEngine extends EmigrationEngine
+{
+	/** The run's colonies (null before EmigrationEngine.begin) */
+	private PopulationColony[] mColonies;
+	/** Are the colonies simulated by tau-leaping (rather than exactly)? */
+	private final boolean mLeaping;
+
+	/**
+	 * Gets one of the run's colonies
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return colony
+	 *
+	 */
+	public PopulationColony getColony(int colony)
+	{
+		if (colony < 0 || colony >= mColonies.length)
+		{
+			throw new IllegalArgumentException("PopulationEngine.getColony called with colony out of range (0 <= " + colony + " < " + mColonies.length + ")");
+		}
+
+		return mColonies[colony];
+	}
+
+	/**
+	 * Gets the number of the colonies' ants in or committed to one of the run's nests
+	 *
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 *
+	 * @return quorum size (over all colonies)
+	 *
+	 */
+	public int getQuorumSize(int nestNumber)
+	{
+		int quorumSize = 0, l1;
+
+		for (l1 = 0; l1 < mColonies.length; l1++)
+		{
+			quorumSize += mColonies[l1].getQuorumSize(nestNumber - 1);
+		}
+
+		return quorumSize;
+	}
+
+	/**
+	 * Gets the number of a colony's ants in or committed to one of the run's nests
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 * @param nestNumber (1 to EmigrationEngine.getNumNests)
+	 * @param active (true for all the colony's ants, false for its passive ants only)
+	 *
+	 * @return quorum size
+	 *
+	 */
+	int getColonyQuorumSize(int colony, int nestNumber, boolean active)
+	{
+		if (active)
+		{
+			return mColonies[colony].getQuorumSize(nestNumber - 1);
+		}
+
+		return mColonies[colony].getQuorumSize(nestNumber - 1, false);
+	}
+
+	/**
+	 * Gets a colony's quorum threshold
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return quorum threshold (0 once the colony has completed its emigration)
+	 *
+	 */
+	int getColonyQuorumThreshold(int colony)
+	{
+		return mColonies[colony].getQuorumThreshold();
+	}
+
+	/**
+	 * Gets the number of a colony's recruitment acts so far
+	 *
+	 * @param colony index (0 <= colony < EmigrationEngine.getNumColonies)
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	int getColonyRecruitmentActs(int colony)
+	{
+		return mColonies[colony].getNumRecruitmentActs();
+	}
+
+	/**
+	 * Works out one role count over all colonies (see EmigrationEngine.printInfo): the colony size,
+	 * the quorum threshold of the colonies still emigrating, the scouts neither recruiting from nest 1 nor assessing, the passive ants
+	 * in each nest, then the recruiters from nest 1 to and the assessors of each other nest
+	 *
+	 * @param column index of the role count (as EmigrationEngine.getColumnNames)
+	 *
+	 * @return role count
+	 *
+	 */
+	int getRoleCount(int column)
+	{
+		NestsParameters p = getParameters();
+		int numNests = getNumNests(), count = 0, l1, l2;
+
+		if (column == 0)
+		{
+			return p.getColonySize() * mColonies.length;
+		}
+		if (column == 1)
+		{
+			return getQuorumThreshold();
+		}
+		for (l1 = 0; l1 < mColonies.length; l1++)
+		{
+			if (column == 2)
+			{
+				count += p.getNumScouts();
+				for (l2 = 1; l2 < numNests; l2++)
+				{
+					count -= mColonies[l1].getNumRecruitersBetweenSites(0, l2) + mColonies[l1].getNumAssessingSite(l2);
+				}
+			}
+			else if (column < 3 + numNests)
+			{
+				count += mColonies[l1].getQuorumSize(column - 3, false);
+			}
+			else if (column < 2 + 2 * numNests)
+			{
+				count += mColonies[l1].getNumRecruitersBetweenSites(0, column - 2 - numNests);
+			}
+			else
+			{
+				count += mColonies[l1].getNumAssessingSite(column - 1 - 2 * numNests);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Passes a tick's time and the colonies' running totals of random draws and recruitment acts to
+	 * the run's live metrics (there are no single ant updates or quorum operations to count)
+	 *
+	 * @param metricsRun (!= null)
+	 * @param nanos time taken by the tick
+	 *
+	 * @return void
+	 *
+	 */
+	void recordTickMetrics(SweepMetrics.Run metricsRun, long nanos)
+	{
+		long randomDraws = 0, recruitmentActs = 0;
+		int l1;
+
+		for (l1 = 0; l1 < mColonies.length; l1++)
+		{
+			randomDraws += mColonies[l1].getRandom().getNumDraws();
+			recruitmentActs += mColonies[l1].getNumRecruitmentActs();
+		}
+		metricsRun.tick(nanos, 0, randomDraws, recruitmentActs, 0);
+	}
+
+	/**
+	 * Builds the run's colonies, each starting in nest 1
+	 *
+	 * @param landscape of the run's nests (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	void createColonies(Landscape landscape)
+	{
+		NestsParameters p = getParameters();
+		int l1;
+
+		mColonies = new PopulationColony[p.getNumColonies()];
+		for (l1 = 0; l1 < mColonies.length; l1++)
+		{
+			mColonies[l1] = new PopulationColony(l1, p.getColonySize(), p.getNumScouts(), p.getNormalQuorumThreshold(), p.getEmergencyQuorumThreshold(), p.getHostileQuorumThreshold(), p.getPreferenceSwitchProb(), p.getStartScoutingProb(), p.getStopScoutingProb(), p.getReverseTandemRunProb(), p.getChangeNestProb(), p.getMaxNestQuality(), p.getAssessmentDelay(), p.getTandemRunSpeed(), p.getCarryingSpeed(), landscape, 0, getNestQualities(), p.getNestQualityStdDev(), p.getNestQualityRequirement(), p.getEnvironmentHostile(), p.getDistanceSignificant(), p.getCompareNestSiteQualities(), p.getPrattEbmEquivalent(), getRandom().split());
+		}
+	}
+
+	/**
+	 * Simulates each colony that has not completed its emigration up to the end of the timestep
+	 *
+	 * @return void
+	 *
+	 */
+	void updateColonies()
+	{
+		int l1;
+
+		for (l1 = 0; l1 < mColonies.length; l1++)
+		{
+			if (hasCompletedEmigration(l1))
+			{
+				// colony has completed its emigration
+				continue;
+			}
+			if (mLeaping)
+			{
+				mColonies[l1].leap(getTickCount(), getParameters().getLeapLength());
+			}
+			else
+			{
+				mColonies[l1].advance(getTickCount());
+			}
+		}
+	}
+
+	/**
+	 * PopulationEngine constructor
+	 *
+	 * @param parameters for the run (!= null, copied so later changes do not affect the run, engine "gillespie" or "tauleap")
+	 * @param random number stream for the run (!= null, e.g. from RandomStream.forRun)
+	 * @param logFile to write the run's summary to (null indicates send summary to stdout)
+	 * @param resultsWriter to write the per-tick role counts to (null indicates they are not recorded, closed when the run halts)
+	 *
+	 */
+	public PopulationEngine(NestsParameters parameters, RandomStream random, Writer logFile, PrintWriter resultsWriter)
+	{
+		super(parameters, random, logFile, resultsWriter);
+		if (parameters.getEngine().equals("agent"))
+		{
+			throw new IllegalArgumentException("Attempt to construct PopulationEngine with the agent engine (see NestsEngine)");
+		}
+
+		mColonies = null;
+		mLeaping = parameters.getEngine().equals("tauleap");
+	}
+}
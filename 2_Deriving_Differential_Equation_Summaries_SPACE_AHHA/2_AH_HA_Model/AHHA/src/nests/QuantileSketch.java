@@ -0,0 +1,239 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch of bounded size: a histogram of the values added, each bin a value
+ * and the number of times it has been added (Ben-Haim and Tom-Tov's streaming histogram).
+ *
+ * While there are no more distinct values than the sketch has bins, it is exact, and as role
+ * counts are whole numbers that is usual. Beyond that, the two nearest bins are merged into one
+ * at their weighted mean each time a new value would overflow the sketch, so it never takes more
+ * than its bins' worth of memory however many values are added. There is then no guaranteed
+ * bound on the error, but a quantile is usually within one bin width ((largest value - smallest)
+ * / bins) of the exact one, whether the values were added to one sketch or merged from several;
+ * QuantileSketchCheck holds it to one and a half.
+ *
+ * Quantiles are found as R's quantile (type 7): interpolating between the order statistics either
+ * side of (count - 1) * p.
+ *
+ */
+public class QuantileSketch
+{
+	/** The default number of bins */
+	public static final int DEFAULT_MAX_BINS = 32;
+	/** The value of each bin (ascending) */
+	private double[] mValues;
+	/** The number of values in each bin */
+	private long[] mCounts;
+	/** The number of bins in use */
+	private int mNumBins;
+	/** The most bins the sketch may have */
+	private final int mMaxBins;
+	/** The number of values added */
+	private long mCount;
+
+	/**
+	 * Adds a value
+	 *
+	 * @param value
+	 *
+	 * @return void
+	 *
+	 */
+	public void add(double value)
+	{
+		add(value, 1);
+	}
+
+	/**
+	 * Adds a value a number of times
+	 *
+	 * @param value
+	 * @param count (> 0)
+	 *
+	 * @return void
+	 *
+	 */
+	private void add(double value, long count)
+	{
+		int low = 0, high = mNumBins, middle;
+
+		while (low < high)
+		{
+			middle = (low + high) >>> 1;
+			if (mValues[middle] < value)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		mCount += count;
+		if (low < mNumBins && mValues[low] == value)
+		{
+			mCounts[low] += count;
+
+			return;
+		}
+		if (mNumBins == mValues.length)
+		{
+			// one spare bin, so a new value can be inserted before merging
+			mValues = Arrays.copyOf(mValues, Math.min(mValues.length * 2, mMaxBins + 1));
+			mCounts = Arrays.copyOf(mCounts, mValues.length);
+		}
+		System.arraycopy(mValues, low, mValues, low + 1, mNumBins - low);
+		System.arraycopy(mCounts, low, mCounts, low + 1, mNumBins - low);
+		mValues[low] = value;
+		mCounts[low] = count;
+		mNumBins++;
+		if (mNumBins > mMaxBins)
+		{
+			mergeNearest();
+		}
+	}
+
+	/**
+	 * Merges the two nearest bins into one
+	 *
+	 * @return void
+	 *
+	 */
+	private void mergeNearest()
+	{
+		int nearest = 0, l1;
+		long count;
+
+		for (l1 = 1; l1 < mNumBins - 1; l1++)
+		{
+			if (mValues[l1 + 1] - mValues[l1] < mValues[nearest + 1] - mValues[nearest])
+			{
+				nearest = l1;
+			}
+		}
+		count = mCounts[nearest] + mCounts[nearest + 1];
+		mValues[nearest] = (mValues[nearest] * mCounts[nearest] + mValues[nearest + 1] * mCounts[nearest + 1]) / count;
+		mCounts[nearest] = count;
+		System.arraycopy(mValues, nearest + 2, mValues, nearest + 1, mNumBins - nearest - 2);
+		System.arraycopy(mCounts, nearest + 2, mCounts, nearest + 1, mNumBins - nearest - 2);
+		mNumBins--;
+	}
+
+	/**
+	 * Adds all the values of another sketch
+	 *
+	 * @param other (!= null)
+	 *
+	 * @return void
+	 *
+	 */
+	public void merge(QuantileSketch other)
+	{
+		int l1;
+
+		for (l1 = 0; l1 < other.mNumBins; l1++)
+		{
+			add(other.mValues[l1], other.mCounts[l1]);
+		}
+	}
+
+	/**
+	 * Gets the number of values added
+	 *
+	 * @return count
+	 *
+	 */
+	public long getCount()
+	{
+		return mCount;
+	}
+
+	/**
+	 * Gets a quantile of the values added
+	 *
+	 * @param p probability (0 to 1)
+	 *
+	 * @return quantile (NaN if no values have been added)
+	 *
+	 */
+	public double getQuantile(double p)
+	{
+		if (p < 0 || p > 1)
+		{
+			throw new IllegalArgumentException("QuantileSketch.getQuantile called with p out of range (p == " + p + ")");
+		}
+		double position, lower, upper;
+		long rank, seen = 0;
+		int bin = 0;
+
+		if (mCount == 0)
+		{
+			return Double.NaN;
+		}
+		position = (mCount - 1) * p;
+		rank = (long) Math.floor(position);
+		// the bin holding order statistic rank (from 0), then the one holding rank + 1
+		while (seen + mCounts[bin] <= rank)
+		{
+			seen += mCounts[bin++];
+		}
+		lower = mValues[bin];
+		upper = (rank + 1 < seen + mCounts[bin] || bin == mNumBins - 1) ? lower : mValues[bin + 1];
+
+		return lower + (position - rank) * (upper - lower);
+	}
+
+	/**
+	 * QuantileSketch constructor
+	 *
+	 * @param maxBins most bins the sketch may have (> 1)
+	 *
+	 */
+	public QuantileSketch(int maxBins)
+	{
+		if (maxBins <= 1)
+		{
+			throw new IllegalArgumentException("Attempt to construct QuantileSketch with maxBins <= 1 (maxBins == " + maxBins + ")");
+		}
+
+		mValues = new double[Math.min(4, maxBins + 1)];
+		mCounts = new long[mValues.length];
+		mNumBins = 0;
+		mMaxBins = maxBins;
+		mCount = 0;
+	}
+
+	/**
+	 * QuantileSketch copy constructor
+	 *
+	 * @param other (!= null)
+	 *
+	 */
+	public QuantileSketch(QuantileSketch other)
+	{
+		if (other == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct QuantileSketch with other == null");
+		}
+
+		mValues = other.mValues.clone();
+		mCounts = other.mCounts.clone();
+		mNumBins = other.mNumBins;
+		mMaxBins = other.mMaxBins;
+		mCount = other.mCount;
+	}
+}
@@ -0,0 +1,429 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Passes a run's per-tick rows of role counts from the simulation thread to a writer thread,
+ * which formats them and writes them to the run's results file or table, so that slow disks do
+ * not hold up the simulation.
+ *
+ * The rows go through a preallocated ring of ints: ResultsRing.put copies a row in without
+ * allocating, and the writer thread drains every row waiting at once, in batches of up to the
+ * ring's capacity. If the ring is full, ResultsRing.put waits for the writer thread to make room
+ * (so a run is never more than a ring's worth of rows ahead of its output). There is one
+ * simulation thread and one writer thread per ring. A waiting thread parks until the other wakes
+ * it: ResultsRing.put wakes the writer thread when it puts a row into an empty ring, and the writer
+ * thread wakes the simulation thread whenever it has written a batch.
+ *
+ * Each row is the tick followed by the role counts (as EmigrationEngine.printInfo).
+ *
+ */
+public class ResultsRing
+{
+	/** The default number of rows the ring holds */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Somewhere the writer thread writes rows to
+	 *
+	 */
+	public interface Sink
+	{
+		/**
+		 * Writes a batch of rows
+		 *
+		 * @param rows ring holding the rows (!= null)
+		 * @param first index into rows of the first row's first value
+		 * @param numRows number of rows (stored one after another from first)
+		 * @param rowLength number of values in each row
+		 *
+		 * @return void
+		 *
+		 */
+		void write(int[] rows, int first, int numRows, int rowLength) throws IOException;
+
+		/**
+		 * Finishes writing (all rows have been written)
+		 *
+		 * @return void
+		 *
+		 */
+		void close() throws IOException;
+	}
+
+	/** The rows, one after another (capacity * row length ints) */
+	private final int[] mRows;
+	/** The number of values in each row */
+	private final int mRowLength;
+	/** The number of rows the ring holds */
+	private final int mCapacity;
+	/** Where the rows are written */
+	private final Sink[] mSinks;
+	/** The number of rows put into the ring so far (written only by the simulation thread) */
+	private volatile long mNumPut;
+	/** The number of rows written out so far (written only by the writer thread) */
+	private volatile long mNumWritten;
+	/** Have all rows been put? */
+	private volatile boolean mClosed;
+	/** The first error the writer thread met (null if none) */
+	private volatile Throwable mError;
+	/** The simulation thread (null until it first waits for room) */
+	private volatile Thread mProducer;
+	/** The writer thread */
+	private final Thread mWriter;
+
+	/**
+	 * Puts a row into the ring, waiting for room if the ring is full
+	 *
+	 * @param row tick, then role counts (!= null, length as given on construction; copied, so may be reused)
+	 *
+	 * @return void
+	 *
+	 */
+	public void put(int[] row)
+	{
+		if (row.length != mRowLength)
+		{
+			throw new IllegalArgumentException("ResultsRing.put called with a row of the wrong length (" + row.length + " != " + mRowLength + ")");
+		}
+		if (mClosed)
+		{
+			throw new IllegalStateException("ResultsRing.put called after ResultsRing.close");
+		}
+		long numPut = mNumPut;
+
+		while (numPut - mNumWritten >= mCapacity)
+		{
+			// backpressure: the writer thread is a whole ring behind
+			checkError();
+			mProducer = Thread.currentThread();
+			// check again once the writer thread can see this thread is waiting, so a batch written in between is not missed
+			if (numPut - mNumWritten >= mCapacity)
+			{
+				LockSupport.park(this);
+			}
+		}
+		checkError();
+		System.arraycopy(row, 0, mRows, (int) (numPut % mCapacity) * mRowLength, mRowLength);
+		mNumPut = numPut + 1;
+		if (numPut == mNumWritten)
+		{
+			// the ring was empty, so the writer thread may be waiting
+			LockSupport.unpark(mWriter);
+		}
+	}
+
+	/**
+	 * Waits for the writer thread to write every row put, then closes the sinks
+	 *
+	 * @return void
+	 *
+	 */
+	public void close()
+	{
+		if (mClosed)
+		{
+			return;
+		}
+		mClosed = true;
+		LockSupport.unpark(mWriter);
+		try
+		{
+			mWriter.join();
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("ResultsRing.close: interrupted");
+		}
+		checkError();
+	}
+
+	/**
+	 * Rethrows any error the writer thread has met
+	 *
+	 * @return void
+	 *
+	 */
+	private void checkError()
+	{
+		if (mError != null)
+		{
+			throw new RuntimeException("ResultsRing: error writing results", mError);
+		}
+	}
+
+	/**
+	 * Writer thread: writes the rows waiting in batches until the ring is closed and empty, then closes the sinks
+	 *
+	 * @return void
+	 *
+	 */
+	private void drain()
+	{
+		long numWritten = 0, numPut;
+		int first, numRows;
+		boolean closed;
+
+		try
+		{
+			while (true)
+			{
+				// read the closed flag first, so no row put before closing is missed
+				closed = mClosed;
+				numPut = mNumPut;
+				if (numPut == numWritten)
+				{
+					if (closed)
+					{
+						break;
+					}
+					// ResultsRing.put and ResultsRing.close wake this thread
+					LockSupport.park(this);
+					continue;
+				}
+				while (numWritten < numPut)
+				{
+					// (a batch wrapping round the end of the ring is written in two parts)
+					first = (int) (numWritten % mCapacity);
+					numRows = (int) Math.min(numPut - numWritten, mCapacity - first);
+					for (Sink sink : mSinks)
+					{
+						sink.write(mRows, first * mRowLength, numRows, mRowLength);
+					}
+					numWritten += numRows;
+				}
+				mNumWritten = numWritten;
+				if (mProducer != null)
+				{
+					LockSupport.unpark(mProducer);
+				}
+			}
+			for (Sink sink : mSinks)
+			{
+				sink.close();
+			}
+		}
+		catch (Throwable error)
+		{
+			mError = error;
+			// let a waiting simulation thread see the error
+			mNumWritten = Long.MAX_VALUE / 2;
+			if (mProducer != null)
+			{
+				LockSupport.unpark(mProducer);
+			}
+		}
+	}
+
+	/**
+	 * Sink writing rows as lines of the text results file (each count followed by ", ", without the tick)
+	 *
+	 */
+	public static class TextSink implements Sink
+	{
+		/** The results file */
+		private final PrintWriter mWriter;
+		/** The text of the batch being written */
+		private final StringBuilder mText;
+		/** The first value of each row written (0 to write the tick, 1 to leave it out) */
+		private final int mFirstValue;
+
+		/**
+		 * Writes a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength)
+		{
+			int l1, l2;
+
+			mText.setLength(0);
+			for (l1 = 0; l1 < numRows; l1++)
+			{
+				for (l2 = mFirstValue; l2 < rowLength; l2++)
+				{
+					mText.append(rows[first + l1 * rowLength + l2]).append(", ");
+				}
+				mText.append('\n');
+			}
+			mWriter.write(mText.toString());
+			SweepMetrics.recordOutputBytes(mText.length());
+		}
+
+		/**
+		 * Closes the results file
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			mWriter.close();
+			if (mWriter.checkError())
+			{
+				throw new IOException("ResultsRing.TextSink: error writing results file");
+			}
+		}
+
+		/**
+		 * TextSink constructor
+		 *
+		 * @param writer results file, with its header already written (!= null)
+		 *
+		 */
+		public TextSink(PrintWriter writer)
+		{
+			this(writer, false);
+		}
+
+		/**
+		 * TextSink constructor
+		 *
+		 * @param writer results file, with its header already written (!= null)
+		 * @param writeTick write each row's tick as its first value? (for rows that are not every tick)
+		 *
+		 */
+		public TextSink(PrintWriter writer, boolean writeTick)
+		{
+			if (writer == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct TextSink with writer == null");
+			}
+
+			mWriter = writer;
+			mText = new StringBuilder();
+			mFirstValue = writeTick ? 0 : 1;
+		}
+	}
+
+	/**
+	 * Sink adding rows to an Arrow results table (see EmigrationEngine.addColumns)
+	 *
+	 */
+	public static class ArrowSink implements Sink
+	{
+		/** The results table, with its columns already added */
+		private final ArrowFile mTable;
+		/** The run's id, for the table's Run column */
+		private final int mRunId;
+
+		/**
+		 * Writes a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength) throws IOException
+		{
+			int l1, l2;
+
+			for (l1 = 0; l1 < numRows; l1++)
+			{
+				mTable.setInt(0, mRunId);
+				for (l2 = 0; l2 < rowLength; l2++)
+				{
+					mTable.setInt(1 + l2, rows[first + l1 * rowLength + l2]);
+				}
+				mTable.endRow();
+			}
+		}
+
+		/**
+		 * Closes the results table
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			mTable.close();
+		}
+
+		/**
+		 * ArrowSink constructor
+		 *
+		 * @param table results table, with its columns already added (!= null)
+		 * @param runId
+		 *
+		 */
+		public ArrowSink(ArrowFile table, int runId)
+		{
+			if (table == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct ArrowSink with table == null");
+			}
+
+			mTable = table;
+			mRunId = runId;
+		}
+	}
+
+	/**
+	 * ResultsRing constructor (starts the writer thread)
+	 *
+	 * @param rowLength number of values in each row (> 0)
+	 * @param capacity number of rows the ring holds (> 0)
+	 * @param sinks to write each row to (!= null, owned by the ring from now on)
+	 *
+	 */
+	public ResultsRing(int rowLength, int capacity, Sink[] sinks)
+	{
+		if (rowLength <= 0)
+		{
+			throw new IllegalArgumentException("Attempt to construct ResultsRing with rowLength <= 0 (rowLength == " + rowLength + ")");
+		}
+		if (capacity <= 0 || (long) capacity * rowLength > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Attempt to construct ResultsRing with capacity out of range (capacity == " + capacity + ")");
+		}
+		if (sinks == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct ResultsRing with sinks == null");
+		}
+
+		mRows = new int[capacity * rowLength];
+		mRowLength = rowLength;
+		mCapacity = capacity;
+		mSinks = sinks.clone();
+		mNumPut = 0;
+		mNumWritten = 0;
+		mClosed = false;
+		mError = null;
+		mProducer = null;
+		mWriter = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				drain();
+			}
+		}, "results-writer");
+		mWriter.setDaemon(true);
+		mWriter.start();
+	}
+}
@@ -0,0 +1,473 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+/**
+ * Cubic smoothing spline fitted to a series at x = 1, 2, ..., n with a given number of (equivalent)
+ * degrees of freedom, as R's smooth.spline(x, y, df = df) used by 5_Smoothing_AHHA.
+ *
+ * As in R, x is scaled to [0, 1], the spline is a penalised regression on the cubic B-splines
+ * with knots at all of the x (or, for 50 or more points, at fewer of them, evenly spaced, see
+ * SmoothingSpline.getNumKnots), and the penalty is the integrated squared second derivative. The
+ * smoothing parameter is found so that the trace of the smoother matrix equals the degrees of
+ * freedom asked for; R searches for it by Brent's method over spar in [-1.5, 1.5], and this uses
+ * bisection over the same range, so fits agree with R's to within its tolerance.
+ *
+ * All the matrices involved are banded (the B-splines overlap at most 4 at a time), so a fit
+ * takes time proportional to the length of the series.
+ *
+ */
+public class SmoothingSpline
+{
+	/** The smallest value of spar searched (as R) */
+	private static final double MIN_SPAR = -1.5;
+	/** The largest value of spar searched (as R) */
+	private static final double MAX_SPAR = 1.5;
+	/** The number of bisections of the spar range */
+	private static final int NUM_BISECTIONS = 50;
+	/** The knots (the ends repeated 4 times) */
+	private final double[] mKnots;
+	/** The number of B-splines */
+	private final int mNumBasis;
+	/** The scaled x of each point */
+	private final double[] mX;
+	/** The index of the knot interval each point lies in */
+	private final int[] mInterval;
+	/** The values of the 4 B-splines that are non-zero at each point */
+	private final double[][] mBasis;
+	/** The band of X'X (mGram[d][i] is the entry at row i, column i + d) */
+	private final double[][] mGram;
+	/** The band of the penalty matrix (as mGram) */
+	private final double[][] mPenalty;
+	/** The scale of the smoothing parameter, tr(X'X) / tr(penalty) over the interior, as R */
+	private final double mRatio;
+
+	/**
+	 * Smooths a series (as R's smooth.spline(1:n, y, df = df)$y)
+	 *
+	 * @param y series (!= null, length >= 4)
+	 * @param df equivalent degrees of freedom (> 1)
+	 *
+	 * @return smoothed series
+	 *
+	 */
+	public static double[] smooth(double[] y, double df)
+	{
+		return new SmoothingSpline(y.length).fit(y, df);
+	}
+
+	/**
+	 * Gets the number of knots R's smooth.spline places among n distinct x (R's .nknots.smspl)
+	 *
+	 * @param n (> 0)
+	 *
+	 * @return number of knots
+	 *
+	 */
+	public static int getNumKnots(int n)
+	{
+		double a1 = Math.log(50) / Math.log(2), a2 = Math.log(100) / Math.log(2), a3 = Math.log(140) / Math.log(2), a4 = Math.log(200) / Math.log(2);
+
+		if (n < 50)
+		{
+			return n;
+		}
+		else if (n < 200)
+		{
+			return (int) Math.pow(2, a1 + (a2 - a1) * (n - 50) / 150.0);
+		}
+		else if (n < 800)
+		{
+			return (int) Math.pow(2, a2 + (a3 - a2) * (n - 200) / 600.0);
+		}
+		else if (n < 3200)
+		{
+			return (int) Math.pow(2, a3 + (a4 - a3) * (n - 800) / 2400.0);
+		}
+		return (int) (200 + Math.pow(n - 3200, 0.2));
+	}
+
+	/**
+	 * Fits the spline to a series
+	 *
+	 * @param y series (!= null, of the length given on construction)
+	 * @param df equivalent degrees of freedom (> 1; clamped to those of the spar range, as R)
+	 *
+	 * @return fitted value at each point
+	 *
+	 */
+	public double[] fit(double[] y, double df)
+	{
+		if (y == null || y.length != mX.length)
+		{
+			throw new IllegalArgumentException("SmoothingSpline.fit called with a series of the wrong length");
+		}
+		if (!(df > 1))
+		{
+			throw new IllegalArgumentException("SmoothingSpline.fit called with df <= 1 (df == " + df + ")");
+		}
+		double[] xty = new double[mNumBasis], coefficients, fitted = new double[mX.length];
+		double[][] factor;
+		double low = MIN_SPAR, high = MAX_SPAR, spar = 0;
+		int l1, l2;
+
+		// the degrees of freedom fall as spar rises
+		for (l1 = 0; l1 < NUM_BISECTIONS; l1++)
+		{
+			spar = (low + high) / 2;
+			if (getDegreesOfFreedom(factor(getLambda(spar))) > df)
+			{
+				low = spar;
+			}
+			else
+			{
+				high = spar;
+			}
+		}
+		for (l1 = 0; l1 < mX.length; l1++)
+		{
+			for (l2 = 0; l2 < 4; l2++)
+			{
+				xty[mInterval[l1] - 3 + l2] += mBasis[l1][l2] * y[l1];
+			}
+		}
+		factor = factor(getLambda(spar));
+		coefficients = solve(factor, xty);
+		for (l1 = 0; l1 < mX.length; l1++)
+		{
+			for (l2 = 0; l2 < 4; l2++)
+			{
+				fitted[l1] += mBasis[l1][l2] * coefficients[mInterval[l1] - 3 + l2];
+			}
+		}
+
+		return fitted;
+	}
+
+	/**
+	 * Converts spar to the smoothing parameter (as R)
+	 *
+	 * @param spar
+	 *
+	 * @return lambda
+	 *
+	 */
+	private double getLambda(double spar)
+	{
+		return mRatio * Math.pow(256, 3 * spar - 1);
+	}
+
+	/**
+	 * Factors X'X + lambda * penalty as L D L' (L unit lower triangular, bandwidth 3)
+	 *
+	 * @param lambda (>= 0)
+	 *
+	 * @return factor[0] is D, factor[d] is the d-th subdiagonal of L (factor[d][i] is the entry at row i + d, column i)
+	 *
+	 */
+	private double[][] factor(double lambda)
+	{
+		double[][] factor = new double[4][mNumBasis];
+		double value;
+		int i, d, k;
+
+		for (i = 0; i < mNumBasis; i++)
+		{
+			// row i of the matrix against the rows of L already found
+			value = mGram[0][i] + lambda * mPenalty[0][i];
+			for (k = 1; k <= 3 && i - k >= 0; k++)
+			{
+				value -= factor[k][i - k] * factor[k][i - k] * factor[0][i - k];
+			}
+			factor[0][i] = value;
+			for (d = 1; d <= 3 && i + d < mNumBasis; d++)
+			{
+				value = mGram[d][i] + lambda * mPenalty[d][i];
+				for (k = 1; k + d <= 3 && i - k >= 0; k++)
+				{
+					value -= factor[k][i - k] * factor[k + d][i - k] * factor[0][i - k];
+				}
+				factor[d][i] = value / factor[0][i];
+			}
+		}
+
+		return factor;
+	}
+
+	/**
+	 * Solves (L D L') c = b
+	 *
+	 * @param factor from SmoothingSpline.factor (!= null)
+	 * @param b (!= null)
+	 *
+	 * @return c
+	 *
+	 */
+	private double[] solve(double[][] factor, double[] b)
+	{
+		double[] c = b.clone();
+		int i, d;
+
+		for (i = 0; i < mNumBasis; i++)
+		{
+			for (d = 1; d <= 3 && i - d >= 0; d++)
+			{
+				c[i] -= factor[d][i - d] * c[i - d];
+			}
+		}
+		for (i = 0; i < mNumBasis; i++)
+		{
+			c[i] /= factor[0][i];
+		}
+		for (i = mNumBasis - 1; i >= 0; i--)
+		{
+			for (d = 1; d <= 3 && i + d < mNumBasis; d++)
+			{
+				c[i] -= factor[d][i] * c[i + d];
+			}
+		}
+
+		return c;
+	}
+
+	/**
+	 * Gets the trace of the smoother matrix, (X'X + lambda * penalty)^-1 X'X, from the band of the
+	 * inverse (only the band is needed, as X'X is banded)
+	 *
+	 * @param factor of X'X + lambda * penalty (!= null)
+	 *
+	 * @return equivalent degrees of freedom
+	 *
+	 */
+	private double getDegreesOfFreedom(double[][] factor)
+	{
+		double[][] inverse = new double[4][mNumBasis];
+		double trace = 0, value;
+		int i, d, k;
+
+		// the band of the inverse, from the last row up (Hutchinson and de Hoog)
+		for (i = mNumBasis - 1; i >= 0; i--)
+		{
+			for (d = 3; d >= 1; d--)
+			{
+				if (i + d >= mNumBasis)
+				{
+					continue;
+				}
+				value = 0;
+				for (k = 1; k <= 3 && i + k < mNumBasis; k++)
+				{
+					value -= factor[k][i] * ((k <= d) ? inverse[d - k][i + k] : inverse[k - d][i + d]);
+				}
+				inverse[d][i] = value;
+			}
+			value = 1 / factor[0][i];
+			for (k = 1; k <= 3 && i + k < mNumBasis; k++)
+			{
+				value -= factor[k][i] * inverse[k][i];
+			}
+			inverse[0][i] = value;
+		}
+		for (i = 0; i < mNumBasis; i++)
+		{
+			trace += mGram[0][i] * inverse[0][i];
+			for (d = 1; d <= 3 && i + d < mNumBasis; d++)
+			{
+				trace += 2 * mGram[d][i] * inverse[d][i];
+			}
+		}
+
+		return trace;
+	}
+
+	/**
+	 * Gets the index of the knot interval a point lies in (the last interval includes its right end)
+	 *
+	 * @param x in [0, 1]
+	 *
+	 * @return index i of the knots, with mKnots[i] <= x < mKnots[i + 1]
+	 *
+	 */
+	private int getInterval(double x)
+	{
+		int low = 3, high = mNumBasis - 1, middle;
+
+		while (low < high)
+		{
+			middle = (low + high + 1) / 2;
+			if (mKnots[middle] <= x)
+			{
+				low = middle;
+			}
+			else
+			{
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the values of the B-splines of an order that are non-zero in a knot interval (de Boor's recurrence)
+	 *
+	 * @param order (1 to 4)
+	 * @param interval index of the knot interval
+	 * @param x in the interval
+	 *
+	 * @return values of the B-splines starting at knots interval - order + 1 to interval
+	 *
+	 */
+	private double[] getBasis(int order, int interval, double x)
+	{
+		double[] values = new double[order];
+		double saved, term;
+		int j, r;
+
+		values[0] = 1;
+		for (j = 1; j < order; j++)
+		{
+			saved = 0;
+			for (r = 0; r < j; r++)
+			{
+				term = values[r] / (mKnots[interval + r + 1] - mKnots[interval + r + 1 - j]);
+				values[r] = saved + (mKnots[interval + r + 1] - x) * term;
+				saved = (x - mKnots[interval + r + 1 - j]) * term;
+			}
+			values[j] = saved;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Differentiates B-splines of one order less, giving the derivatives of those of an order
+	 *
+	 * @param lower values (or derivatives) of the B-splines of order - 1 starting at knots interval - order + 2 to interval (!= null)
+	 * @param order (2 to 4)
+	 * @param interval index of the knot interval
+	 *
+	 * @return derivatives of the B-splines of the order starting at knots interval - order + 1 to interval
+	 *
+	 */
+	private double[] differentiate(double[] lower, int order, int interval)
+	{
+		double[] derivatives = new double[order];
+		int j, first = interval - order + 1;
+
+		for (j = 0; j < order; j++)
+		{
+			// B'(j, k) = (k - 1) (B(j, k - 1) / (t[j + k - 1] - t[j]) - B(j + 1, k - 1) / (t[j + k] - t[j + 1]))
+			if (j >= 1)
+			{
+				derivatives[j] += (order - 1) * lower[j - 1] / (mKnots[first + j + order - 1] - mKnots[first + j]);
+			}
+			if (j < order - 1)
+			{
+				derivatives[j] -= (order - 1) * lower[j] / (mKnots[first + j + order] - mKnots[first + j + 1]);
+			}
+		}
+
+		return derivatives;
+	}
+
+	/**
+	 * Gets the second derivatives of the cubic B-splines that are non-zero in a knot interval
+	 *
+	 * @param interval index of the knot interval (of non-zero width)
+	 * @param x in the interval (or at its ends)
+	 *
+	 * @return second derivatives of the B-splines starting at knots interval - 3 to interval
+	 *
+	 */
+	private double[] getSecondDerivatives(int interval, double x)
+	{
+		return differentiate(differentiate(getBasis(2, interval, x), 3, interval), 4, interval);
+	}
+
+	/**
+	 * SmoothingSpline constructor (sets up the basis and penalty for series of a length)
+	 *
+	 * @param n length of the series (>= 4)
+	 *
+	 */
+	public SmoothingSpline(int n)
+	{
+		if (n < 4)
+		{
+			throw new IllegalArgumentException("Attempt to construct SmoothingSpline with n < 4 (n == " + n + ")");
+		}
+		int numKnots = getNumKnots(n), interval, l1, l2, l3;
+		double[] left, right;
+		double width, gramTrace = 0, penaltyTrace = 0;
+
+		mX = new double[n];
+		for (l1 = 0; l1 < n; l1++)
+		{
+			mX[l1] = l1 / (double) (n - 1);
+		}
+		mKnots = new double[numKnots + 6];
+		for (l1 = 0; l1 < 3; l1++)
+		{
+			mKnots[l1] = 0;
+			mKnots[numKnots + 3 + l1] = 1;
+		}
+		for (l1 = 0; l1 < numKnots; l1++)
+		{
+			// as R's xbar[seq.int(1, n, length.out = numKnots)]
+			mKnots[3 + l1] = (l1 == numKnots - 1) ? 1 : mX[(int) (l1 * ((n - 1) / (double) (numKnots - 1)))];
+		}
+		mNumBasis = numKnots + 2;
+		mInterval = new int[n];
+		mBasis = new double[n][];
+		mGram = new double[4][mNumBasis];
+		mPenalty = new double[4][mNumBasis];
+		for (l1 = 0; l1 < n; l1++)
+		{
+			mInterval[l1] = getInterval(mX[l1]);
+			mBasis[l1] = getBasis(4, mInterval[l1], mX[l1]);
+			for (l2 = 0; l2 < 4; l2++)
+			{
+				for (l3 = l2; l3 < 4; l3++)
+				{
+					mGram[l3 - l2][mInterval[l1] - 3 + l2] += mBasis[l1][l2] * mBasis[l1][l3];
+				}
+			}
+		}
+		for (interval = 3; interval < mNumBasis; interval++)
+		{
+			width = mKnots[interval + 1] - mKnots[interval];
+			if (width <= 0)
+			{
+				continue;
+			}
+			// the second derivatives are linear over the interval, so the integral of their product is exact
+			left = getSecondDerivatives(interval, mKnots[interval]);
+			right = getSecondDerivatives(interval, mKnots[interval + 1]);
+			for (l2 = 0; l2 < 4; l2++)
+			{
+				for (l3 = l2; l3 < 4; l3++)
+				{
+					mPenalty[l3 - l2][interval - 3 + l2] += width * (2 * left[l2] * left[l3] + left[l2] * right[l3] + right[l2] * left[l3] + 2 * right[l2] * right[l3]) / 6;
+				}
+			}
+		}
+		// R's i = 3, ..., nk - 3, counting from 1
+		for (l1 = 2; l1 < mNumBasis - 3; l1++)
+		{
+			gramTrace += mGram[0][l1];
+			penaltyTrace += mPenalty[0][l1];
+		}
+		mRatio = gramTrace / penaltyTrace;
+	}
+}
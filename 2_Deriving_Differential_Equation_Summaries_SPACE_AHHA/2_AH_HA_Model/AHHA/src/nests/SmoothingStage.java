@@ -0,0 +1,444 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Smooths each run's per-tick role counts as it finishes, as 5_Smoothing_AHHA/Smoothing_all_data.R
+ * does to the results files afterwards, and averages the smoothed series of each configuration's
+ * replicates once they have all finished.
+ *
+ * A run's smoothed series go to <directory>/AHHA_smoothed_<run>.txt, in the same form as the R
+ * script's output: N, Q and S unchanged, each P and R column smoothed by a smoothing spline with
+ * the script's degrees of freedom, each A column smoothed in two pieces either side of its peak,
+ * the last tick dropped, negative values set to 0 and the R and A columns starting at 0. A
+ * configuration's average goes to <directory>/AHHA_smoothed_config_<config>.txt, with a run
+ * that finished early taken as staying at its last values.
+ *
+ * The degrees of freedom are the script's, which are for two candidate nests; with more nests,
+ * the later nests' columns get those of nest 2.
+ *
+ */
+public class SmoothingStage
+{
+	/** The degrees of freedom for P_0, P_1 and P_2 (later nests as P_2) */
+	private static final double[] PASSIVE_DF = {10, 20, 4};
+	/** The degrees of freedom for R_1 and R_2 (later nests as R_2) */
+	private static final double[] RECRUITER_DF = {15, 7};
+	/** The degrees of freedom of an A column up to its peak */
+	private static final double PEAK_DF = 6;
+	/** The degrees of freedom of an A column after its peak */
+	private static final double TAIL_DF = 10;
+	/** The number of significant digits written (as R's write.csv) */
+	private static final MathContext DIGITS = new MathContext(15);
+	/** The directory the smoothed series are written to */
+	private final String mDirectory;
+	/** The configuration of each run (by run index) */
+	private final HashMap<Integer, Integer> mConfigs;
+	/** The number of each configuration's replicates still to finish */
+	private final HashMap<Integer, Integer> mRemaining;
+	/** The sum of each configuration's smoothed series so far (by tick, then column) */
+	private final HashMap<Integer, double[][]> mSums;
+	/** The sum of the last row of each configuration's smoothed series so far */
+	private final HashMap<Integer, double[]> mLastRowSums;
+
+	/**
+	 * Smooths a run's per-tick role counts (as smooth_files and write_to_file in Smoothing_all_data.R)
+	 *
+	 * @param rows tick, then the role counts (as EmigrationEngine.printInfo), one after another (!= null)
+	 * @param numRows (>= 1)
+	 * @param rowLength (as EmigrationEngine.getRowLength)
+	 *
+	 * @return smoothed series, by tick, then column (N, Q, S, P_0..., R_1..., A_1...), without the last tick
+	 *
+	 */
+	public static double[][] smooth(int[] rows, int numRows, int rowLength)
+	{
+		int numNests = (rowLength - 2) / 3, numColumns = rowLength - 1, column, l1;
+		double[][] smoothed;
+		double[] series, values;
+
+		if (numRows < 1 || numRows * rowLength > rows.length || EmigrationEngine.getRowLength(numNests) != rowLength)
+		{
+			throw new IllegalArgumentException("SmoothingStage.smooth called with rows out of range (" + numRows + " rows of " + rowLength + ")");
+		}
+		smoothed = new double[numRows - 1][numColumns];
+		series = new double[numRows];
+		for (column = 0; column < numColumns; column++)
+		{
+			for (l1 = 0; l1 < numRows; l1++)
+			{
+				series[l1] = rows[l1 * rowLength + 1 + column];
+			}
+			if (column < 3)
+			{
+				// N, Q and S
+				values = series;
+			}
+			else if (column < 3 + numNests)
+			{
+				values = smoothSeries(series, PASSIVE_DF[Math.min(column - 3, PASSIVE_DF.length - 1)]);
+			}
+			else if (column < 3 + numNests + numNests - 1)
+			{
+				values = smoothSeries(series, RECRUITER_DF[Math.min(column - 3 - numNests, RECRUITER_DF.length - 1)]);
+			}
+			else
+			{
+				values = smoothPeak(series);
+			}
+			for (l1 = 0; l1 < numRows - 1; l1++)
+			{
+				smoothed[l1][column] = Math.max(values[l1], 0);
+			}
+			if (column >= 3 + numNests && numRows > 1)
+			{
+				// the R and A columns start at 0
+				smoothed[0][column] = 0;
+			}
+		}
+
+		return smoothed;
+	}
+
+	/**
+	 * Smooths a series by a smoothing spline (left unsmoothed if too short to fit one)
+	 *
+	 * @param series (!= null)
+	 * @param df degrees of freedom
+	 *
+	 * @return smoothed series
+	 *
+	 */
+	private static double[] smoothSeries(double[] series, double df)
+	{
+		if (series.length < 4)
+		{
+			return series.clone();
+		}
+
+		return SmoothingSpline.smooth(series, df);
+	}
+
+	/**
+	 * Smooths a series in two pieces, up to and after its (last) peak, so the peak is kept (as
+	 * create_piecewise_smooth in Smoothing_all_data.R)
+	 *
+	 * @param series (!= null)
+	 *
+	 * @return smoothed series
+	 *
+	 */
+	private static double[] smoothPeak(double[] series)
+	{
+		double[] smoothed = new double[series.length], rise, fall;
+		int peak = 0, l1;
+
+		for (l1 = 1; l1 < series.length; l1++)
+		{
+			if (series[l1] >= series[peak])
+			{
+				peak = l1;
+			}
+		}
+		rise = smoothSeries(Arrays.copyOfRange(series, 0, peak + 1), PEAK_DF);
+		rise[0] = 0;
+		fall = smoothSeries(Arrays.copyOfRange(series, peak + 1, series.length), TAIL_DF);
+		if (fall.length > 0)
+		{
+			fall[0] = rise[rise.length - 1];
+		}
+		System.arraycopy(rise, 0, smoothed, 0, rise.length);
+		System.arraycopy(fall, 0, smoothed, rise.length, fall.length);
+
+		return smoothed;
+	}
+
+	/**
+	 * Writes smoothed series (as write_to_file in Smoothing_all_data.R)
+	 *
+	 * @param fileName (!= null)
+	 * @param smoothed by tick, then column (!= null)
+	 * @param numNests
+	 *
+	 * @return void
+	 *
+	 */
+	private static void write(String fileName, double[][] smoothed, int numNests) throws IOException
+	{
+		PrintWriter writer = new PrintWriter(fileName, "UTF-8");
+		StringBuilder line = new StringBuilder();
+		int nest, l1, l2;
+
+		line.append("\"N\",\"Q\",\"S\"");
+		for (nest = 0; nest < numNests; nest++)
+		{
+			line.append(",\"P").append(nest).append('"');
+		}
+		for (nest = 1; nest < numNests; nest++)
+		{
+			line.append(",\"R").append(nest).append('"');
+		}
+		for (nest = 1; nest < numNests; nest++)
+		{
+			line.append(",\"A").append(nest).append('"');
+		}
+		line.append(",\"t\"\n");
+		writer.write(line.toString());
+		for (l1 = 0; l1 < smoothed.length; l1++)
+		{
+			line.setLength(0);
+			for (l2 = 0; l2 < smoothed[l1].length; l2++)
+			{
+				line.append(format(smoothed[l1][l2])).append(',');
+			}
+			line.append(l1 + 1).append('\n');
+			writer.write(line.toString());
+		}
+		writer.close();
+		if (writer.checkError())
+		{
+			throw new IOException("SmoothingStage: error writing " + fileName);
+		}
+	}
+
+	/**
+	 * Formats a value as R's write.csv does (whole numbers without a decimal point, otherwise 15 significant digits)
+	 *
+	 * @param value
+	 *
+	 * @return formatted value
+	 *
+	 */
+	private static String format(double value)
+	{
+		if (value == Math.rint(value) && Math.abs(value) < 1e15)
+		{
+			return Long.toString((long) value);
+		}
+
+		return new BigDecimal(value).round(DIGITS).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Smooths a finished run's per-tick role counts, writes them and adds them to its configuration's average
+	 *
+	 * @param run index of the run (one of those given on construction)
+	 * @param rows tick, then the role counts, one after another (!= null)
+	 * @param numRows (>= 1)
+	 * @param rowLength
+	 *
+	 * @return void
+	 *
+	 */
+	public void add(int run, int[] rows, int numRows, int rowLength) throws IOException
+	{
+		if (!mConfigs.containsKey(run))
+		{
+			throw new IllegalArgumentException("SmoothingStage.add called with an unknown run (run == " + run + ")");
+		}
+		double[][] smoothed = smooth(rows, numRows, rowLength);
+		int config = mConfigs.get(run), numNests = (rowLength - 2) / 3;
+
+		write(mDirectory + "/AHHA_smoothed_" + run + ".txt", smoothed, numNests);
+		if (smoothed.length > 0)
+		{
+			addToAverage(config, smoothed, numNests);
+		}
+	}
+
+	/**
+	 * Adds a run's smoothed series to its configuration's sum, writing the average if it was the last replicate
+	 *
+	 * @param config
+	 * @param smoothed (!= null, at least one tick)
+	 * @param numNests
+	 *
+	 * @return void
+	 *
+	 */
+	private synchronized void addToAverage(int config, double[][] smoothed, int numNests) throws IOException
+	{
+		double[][] sums = mSums.get(config), average;
+		double[] lastRowSum = mLastRowSums.get(config), lastRow = smoothed[smoothed.length - 1];
+		int remaining = mRemaining.get(config) - 1, numReplicates, l1, l2;
+
+		if (sums == null)
+		{
+			sums = new double[0][];
+			lastRowSum = new double[lastRow.length];
+		}
+		if (smoothed.length > sums.length)
+		{
+			// the replicates already added stay at their last values over the new ticks
+			l1 = sums.length;
+			sums = Arrays.copyOf(sums, smoothed.length);
+			for (; l1 < sums.length; l1++)
+			{
+				sums[l1] = lastRowSum.clone();
+			}
+		}
+		for (l1 = 0; l1 < sums.length; l1++)
+		{
+			for (l2 = 0; l2 < lastRow.length; l2++)
+			{
+				sums[l1][l2] += (l1 < smoothed.length) ? smoothed[l1][l2] : lastRow[l2];
+			}
+		}
+		for (l2 = 0; l2 < lastRow.length; l2++)
+		{
+			lastRowSum[l2] += lastRow[l2];
+		}
+		mRemaining.put(config, remaining);
+		if (remaining > 0)
+		{
+			mSums.put(config, sums);
+			mLastRowSums.put(config, lastRowSum);
+
+			return;
+		}
+		numReplicates = 0;
+		for (Integer run : mConfigs.keySet())
+		{
+			numReplicates += (mConfigs.get(run) == config) ? 1 : 0;
+		}
+		average = new double[sums.length][lastRow.length];
+		for (l1 = 0; l1 < sums.length; l1++)
+		{
+			for (l2 = 0; l2 < lastRow.length; l2++)
+			{
+				average[l1][l2] = sums[l1][l2] / numReplicates;
+			}
+		}
+		mSums.remove(config);
+		mLastRowSums.remove(config);
+		write(mDirectory + "/AHHA_smoothed_config_" + config + ".txt", average, numNests);
+	}
+
+	/**
+	 * Results sink for a single run: collects the run's rows and smooths them when the run finishes
+	 *
+	 */
+	public static class Sink implements ResultsRing.Sink
+	{
+		/** The stage */
+		private final SmoothingStage mStage;
+		/** The run's index */
+		private final int mRun;
+		/** The rows so far, one after another */
+		private int[] mRows;
+		/** The number of ints of mRows in use */
+		private int mLength;
+		/** The number of ints in each row (0 until the first row) */
+		private int mRowLength;
+
+		/**
+		 * Collects a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength)
+		{
+			int length = numRows * rowLength;
+
+			if (mLength + length > mRows.length)
+			{
+				mRows = Arrays.copyOf(mRows, Math.max(mRows.length * 2, mLength + length));
+			}
+			System.arraycopy(rows, first, mRows, mLength, length);
+			mLength += length;
+			mRowLength = rowLength;
+		}
+
+		/**
+		 * Smooths the run's rows
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			if (mLength > 0)
+			{
+				mStage.add(mRun, mRows, mLength / mRowLength, mRowLength);
+			}
+			mRows = null;
+		}
+
+		/**
+		 * Sink constructor
+		 *
+		 * @param stage (!= null)
+		 * @param run index of the run (one of those given to the stage on construction)
+		 *
+		 */
+		public Sink(SmoothingStage stage, int run)
+		{
+			if (stage == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct SmoothingStage.Sink with stage == null");
+			}
+
+			mStage = stage;
+			mRun = run;
+			mRows = new int[1024];
+			mLength = 0;
+			mRowLength = 0;
+		}
+	}
+
+	/**
+	 * SmoothingStage constructor
+	 *
+	 * @param directory to write the smoothed series to (!= null, must exist)
+	 * @param runs of the sweep (!= null; a configuration's average is written once all its runs have been added)
+	 *
+	 */
+	public SmoothingStage(String directory, List<ParameterFile.Run> runs)
+	{
+		if (directory == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct SmoothingStage with directory == null");
+		}
+		if (runs == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct SmoothingStage with runs == null");
+		}
+		Integer remaining;
+
+		mDirectory = directory;
+		mConfigs = new HashMap<Integer, Integer>();
+		mRemaining = new HashMap<Integer, Integer>();
+		mSums = new HashMap<Integer, double[][]>();
+		mLastRowSums = new HashMap<Integer, double[]>();
+		for (ParameterFile.Run run : runs)
+		{
+			mConfigs.put(run.getRunIndex(), run.getConfigIndex());
+			remaining = mRemaining.get(run.getConfigIndex());
+			mRemaining.put(run.getConfigIndex(), (remaining == null) ? 1 : remaining + 1);
+		}
+	}
+}
@@ -0,0 +1,438 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live counters and gauges of the runs in a JVM, published over JMX so a sweep can be watched
+ * while it runs (with jconsole, VisualVM or any JMX client attached to the local JVM, under the
+ * MBean nests:type=SweepMetrics; see SweepMetricsMBean for the attributes).
+ *
+ * Nothing is counted until SweepMetrics.register is called (NestsSweep's metrics option), so runs
+ * without it pay nothing. Once it has been, each run (NestsEngine or PopulationEngine) takes a
+ * SweepMetrics.Run when it begins, and after every tick passes it the tick's time and its running
+ * totals of ant updates, random draws, recruitment acts and quorum operations, which its colonies
+ * keep as plain fields; the Run adds the differences to the shared counters. Results sinks add
+ * the bytes they write as they write each batch. The shared counters are LongAdders, so runs on
+ * many threads do not contend for them.
+ *
+ * Tick times go into a histogram of power-of-two buckets, from under 256 ns to over 2 s.
+ *
+ */
+public class SweepMetrics implements SweepMetricsMBean
+{
+	/** The name the metrics are published under */
+	public static final String OBJECT_NAME = "nests:type=SweepMetrics";
+	/** The first bucket of the tick latency histogram holds ticks shorter than 2 ^ LOWEST_SHIFT ns */
+	private static final int LOWEST_SHIFT = 8;
+	/** The number of buckets in the tick latency histogram (the last holds ticks of 2 ^ (LOWEST_SHIFT + NUM_BUCKETS - 2) ns or longer) */
+	private static final int NUM_BUCKETS = 25;
+	/** The registered metrics (null until SweepMetrics.register is called) */
+	private static volatile SweepMetrics mInstance = null;
+	/** The runs in flight */
+	private final Set<Run> mRunsInFlight;
+	/** The number of runs finished */
+	private final LongAdder mRunsCompleted;
+	/** The number of ticks completed */
+	private final LongAdder mTicks;
+	/** The total time taken by the ticks completed (ns) */
+	private final LongAdder mTickTime;
+	/** The number of ticks in each bucket of the tick latency histogram */
+	private final LongAdder[] mTickLatencies;
+	/** The number of single scout updates */
+	private final LongAdder mAntUpdates;
+	/** The number of random draws */
+	private final LongAdder mRandomDraws;
+	/** The number of recruitment acts */
+	private final LongAdder mRecruitmentActs;
+	/** The number of quorum operations */
+	private final LongAdder mQuorumOperations;
+	/** The number of bytes of results written */
+	private final LongAdder mOutputBytes;
+	/** The number of ticks when getTicksPerSecond was last read */
+	private long mLastReadTicks;
+	/** The time getTicksPerSecond was last read (System.nanoTime) */
+	private long mLastReadTime;
+
+	/**
+	 * Creates the metrics and publishes them over JMX, if that has not already been done
+	 *
+	 * @return metrics
+	 *
+	 */
+	public static synchronized SweepMetrics register()
+	{
+		SweepMetrics metrics;
+
+		if (mInstance == null)
+		{
+			metrics = new SweepMetrics();
+			try
+			{
+				ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+			}
+			catch (JMException exception)
+			{
+				throw new RuntimeException("SweepMetrics.register: error registering MBean " + OBJECT_NAME, exception);
+			}
+			mInstance = metrics;
+		}
+
+		return mInstance;
+	}
+
+	/**
+	 * Gets the registered metrics
+	 *
+	 * @return metrics (null if SweepMetrics.register has not been called)
+	 *
+	 */
+	public static SweepMetrics get()
+	{
+		return mInstance;
+	}
+
+	/**
+	 * Counts bytes of results written (nothing happens if the metrics are not registered)
+	 *
+	 * @param numBytes (>= 0)
+	 *
+	 * @return void
+	 *
+	 */
+	public static void recordOutputBytes(long numBytes)
+	{
+		SweepMetrics metrics = mInstance;
+
+		if (metrics != null)
+		{
+			metrics.mOutputBytes.add(numBytes);
+		}
+	}
+
+	/**
+	 * Starts counting a run
+	 *
+	 * @param runId identifies the run in SweepMetricsMBean.getRunsInFlightProgress
+	 *
+	 * @return run's metrics (SweepMetrics.Run.finish must be called when the run finishes)
+	 *
+	 */
+	public Run startRun(int runId)
+	{
+		Run run = new Run(this, runId);
+
+		mRunsInFlight.add(run);
+
+		return run;
+	}
+
+	/**
+	 * Gets the bucket of the tick latency histogram a tick belongs in
+	 *
+	 * @param nanos time taken by the tick (>= 0)
+	 *
+	 * @return bucket (0 <= bucket < NUM_BUCKETS)
+	 *
+	 */
+	private static int getBucket(long nanos)
+	{
+		return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos >>> LOWEST_SHIFT));
+	}
+
+	public long getRunsCompleted()
+	{
+		return mRunsCompleted.sum();
+	}
+
+	public int getRunsInFlight()
+	{
+		return mRunsInFlight.size();
+	}
+
+	public String[] getRunsInFlightProgress()
+	{
+		List<Run> runs = new ArrayList<Run>(mRunsInFlight);
+		String[] progress = new String[runs.size()];
+		long now = System.nanoTime();
+		int l1;
+
+		Collections.sort(runs, new Comparator<Run>()
+		{
+			public int compare(Run run1, Run run2)
+			{
+				return Long.compare(run1.mStartTime, run2.mStartTime);
+			}
+		});
+		for (l1 = 0; l1 < progress.length; l1++)
+		{
+			progress[l1] = String.format("run %d: tick %d, %.1f s running, %.3f s since last tick", runs.get(l1).mRunId, runs.get(l1).mTick.get(), (now - runs.get(l1).mStartTime) / 1e9, (now - runs.get(l1).mLastTickTime.get()) / 1e9);
+		}
+
+		return progress;
+	}
+
+	public double getLongestSecondsSinceTick()
+	{
+		long now = System.nanoTime(), longest = 0;
+
+		for (Run run : mRunsInFlight)
+		{
+			longest = Math.max(longest, now - run.mLastTickTime.get());
+		}
+
+		return longest / 1e9;
+	}
+
+	public long getTicks()
+	{
+		return mTicks.sum();
+	}
+
+	public synchronized double getTicksPerSecond()
+	{
+		long ticks = mTicks.sum(), now = System.nanoTime();
+		double rate = (now > mLastReadTime) ? (ticks - mLastReadTicks) * 1e9 / (now - mLastReadTime) : 0;
+
+		mLastReadTicks = ticks;
+		mLastReadTime = now;
+
+		return rate;
+	}
+
+	public double getTickLatencyMeanNanos()
+	{
+		long ticks = mTicks.sum();
+
+		return (ticks == 0) ? 0 : (double) mTickTime.sum() / ticks;
+	}
+
+	public long getTickLatencyP50Nanos()
+	{
+		return getTickLatencyPercentile(0.5);
+	}
+
+	public long getTickLatencyP99Nanos()
+	{
+		return getTickLatencyPercentile(0.99);
+	}
+
+	/**
+	 * Gets a percentile of the time taken by a tick, from the histogram
+	 *
+	 * @param p (0 < p <= 1)
+	 *
+	 * @return upper limit of the bucket holding the percentile (ns, 0 if no tick has completed)
+	 *
+	 */
+	private long getTickLatencyPercentile(double p)
+	{
+		long[] histogram = getTickLatencyHistogram(), limits = getTickLatencyBucketLimitsNanos();
+		long total = 0, seen = 0;
+		int l1;
+
+		for (long count : histogram)
+		{
+			total += count;
+		}
+		if (total == 0)
+		{
+			return 0;
+		}
+		for (l1 = 0; l1 < histogram.length - 1; l1++)
+		{
+			seen += histogram[l1];
+			if (seen >= p * total)
+			{
+				break;
+			}
+		}
+
+		return limits[l1];
+	}
+
+	public long[] getTickLatencyHistogram()
+	{
+		long[] histogram = new long[NUM_BUCKETS];
+		int l1;
+
+		for (l1 = 0; l1 < NUM_BUCKETS; l1++)
+		{
+			histogram[l1] = mTickLatencies[l1].sum();
+		}
+
+		return histogram;
+	}
+
+	public long[] getTickLatencyBucketLimitsNanos()
+	{
+		long[] limits = new long[NUM_BUCKETS];
+		int l1;
+
+		for (l1 = 0; l1 < NUM_BUCKETS - 1; l1++)
+		{
+			limits[l1] = 1L << (LOWEST_SHIFT + l1);
+		}
+		limits[NUM_BUCKETS - 1] = Long.MAX_VALUE;
+
+		return limits;
+	}
+
+	public long getAntUpdates()
+	{
+		return mAntUpdates.sum();
+	}
+
+	public long getRandomDraws()
+	{
+		return mRandomDraws.sum();
+	}
+
+	public long getRecruitmentActs()
+	{
+		return mRecruitmentActs.sum();
+	}
+
+	public long getQuorumOperations()
+	{
+		return mQuorumOperations.sum();
+	}
+
+	public long getOutputBytes()
+	{
+		return mOutputBytes.sum();
+	}
+
+	/**
+	 * The metrics of one run, passed its running totals by the run's thread after each tick
+	 *
+	 */
+	public static class Run
+	{
+		/** The metrics the run's counts are added to */
+		private final SweepMetrics mMetrics;
+		/** The run's id */
+		private final int mRunId;
+		/** The time the run began (System.nanoTime) */
+		private final long mStartTime;
+		/** The run's last tick (read by JMX threads) */
+		private final AtomicLong mTick;
+		/** The time the run's last tick was completed (System.nanoTime, read by JMX threads) */
+		private final AtomicLong mLastTickTime;
+		/** The run's totals when last passed, as SweepMetrics.Run.tick */
+		private long mAntUpdates, mRandomDraws, mRecruitmentActs, mQuorumOperations;
+
+		/**
+		 * Counts a tick
+		 *
+		 * @param nanos time taken by the tick (>= 0)
+		 * @param antUpdates run's total single scout updates so far
+		 * @param randomDraws run's total random draws so far
+		 * @param recruitmentActs run's total recruitment acts so far
+		 * @param quorumOperations run's total quorum operations so far
+		 *
+		 * @return void
+		 *
+		 */
+		public void tick(long nanos, long antUpdates, long randomDraws, long recruitmentActs, long quorumOperations)
+		{
+			SweepMetrics metrics = mMetrics;
+
+			metrics.mTicks.increment();
+			metrics.mTickTime.add(nanos);
+			metrics.mTickLatencies[getBucket(nanos)].increment();
+			metrics.mAntUpdates.add(antUpdates - mAntUpdates);
+			metrics.mRandomDraws.add(randomDraws - mRandomDraws);
+			metrics.mRecruitmentActs.add(recruitmentActs - mRecruitmentActs);
+			metrics.mQuorumOperations.add(quorumOperations - mQuorumOperations);
+			mAntUpdates = antUpdates;
+			mRandomDraws = randomDraws;
+			mRecruitmentActs = recruitmentActs;
+			mQuorumOperations = quorumOperations;
+			// ordered writes are enough for readers that only watch progress
+			mTick.lazySet(mTick.get() + 1);
+			mLastTickTime.lazySet(System.nanoTime());
+		}
+
+		/**
+		 * Counts the run as finished
+		 *
+		 * @return void
+		 *
+		 */
+		public void finish()
+		{
+			if (mMetrics.mRunsInFlight.remove(this))
+			{
+				mMetrics.mRunsCompleted.increment();
+			}
+		}
+
+		/**
+		 * Run constructor
+		 *
+		 * @param metrics (!= null)
+		 * @param runId
+		 *
+		 */
+		private Run(SweepMetrics metrics, int runId)
+		{
+			mMetrics = metrics;
+			mRunId = runId;
+			mStartTime = System.nanoTime();
+			mTick = new AtomicLong(0);
+			mLastTickTime = new AtomicLong(mStartTime);
+			mAntUpdates = 0;
+			mRandomDraws = 0;
+			mRecruitmentActs = 0;
+			mQuorumOperations = 0;
+		}
+	}
+
+	/**
+	 * SweepMetrics constructor (see SweepMetrics.register)
+	 *
+	 */
+	private SweepMetrics()
+	{
+		int l1;
+
+		mRunsInFlight = ConcurrentHashMap.<Run>newKeySet();
+		mRunsCompleted = new LongAdder();
+		mTicks = new LongAdder();
+		mTickTime = new LongAdder();
+		mTickLatencies = new LongAdder[NUM_BUCKETS];
+		for (l1 = 0; l1 < NUM_BUCKETS; l1++)
+		{
+			mTickLatencies[l1] = new LongAdder();
+		}
+		mAntUpdates = new LongAdder();
+		mRandomDraws = new LongAdder();
+		mRecruitmentActs = new LongAdder();
+		mQuorumOperations = new LongAdder();
+		mOutputBytes = new LongAdder();
+		mLastReadTicks = 0;
+		mLastReadTime = System.nanoTime();
+	}
+}
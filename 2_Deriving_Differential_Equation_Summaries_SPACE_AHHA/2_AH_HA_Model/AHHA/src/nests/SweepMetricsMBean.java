@@ -0,0 +1,152 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+/**
+ * The attributes SweepMetrics publishes over JMX (as nests:type=SweepMetrics). Counts are since
+ * SweepMetrics.register, over every run in the JVM.
+ *
+ */
+public interface SweepMetricsMBean
+{
+	/**
+	 * Gets the number of runs that have finished
+	 *
+	 * @return number of runs
+	 *
+	 */
+	long getRunsCompleted();
+
+	/**
+	 * Gets the number of runs that have begun and not yet finished
+	 *
+	 * @return number of runs
+	 *
+	 */
+	int getRunsInFlight();
+
+	/**
+	 * Gets the progress of each run in flight, longest running first: its id, tick, time running
+	 * and time since its last tick (a run whose last tick was long ago has stalled)
+	 *
+	 * @return one line per run
+	 *
+	 */
+	String[] getRunsInFlightProgress();
+
+	/**
+	 * Gets the longest time any run in flight has gone without completing a tick
+	 *
+	 * @return seconds (0 if no run is in flight)
+	 *
+	 */
+	double getLongestSecondsSinceTick();
+
+	/**
+	 * Gets the number of ticks completed
+	 *
+	 * @return number of ticks
+	 *
+	 */
+	long getTicks();
+
+	/**
+	 * Gets the rate ticks have been completed at, over all runs, since this attribute was last read
+	 * (or since SweepMetrics.register, the first time)
+	 *
+	 * @return ticks per second
+	 *
+	 */
+	double getTicksPerSecond();
+
+	/**
+	 * Gets the mean time taken by a tick
+	 *
+	 * @return nanoseconds (0 if no tick has completed)
+	 *
+	 */
+	double getTickLatencyMeanNanos();
+
+	/**
+	 * Gets the median time taken by a tick (to within a factor of two, see getTickLatencyHistogram)
+	 *
+	 * @return nanoseconds (upper limit of the histogram bucket holding the median)
+	 *
+	 */
+	long getTickLatencyP50Nanos();
+
+	/**
+	 * Gets the 99th percentile of the time taken by a tick (to within a factor of two)
+	 *
+	 * @return nanoseconds (upper limit of the histogram bucket holding the percentile)
+	 *
+	 */
+	long getTickLatencyP99Nanos();
+
+	/**
+	 * Gets the histogram of the time taken by a tick
+	 *
+	 * @return number of ticks in each bucket (see getTickLatencyBucketLimitsNanos)
+	 *
+	 */
+	long[] getTickLatencyHistogram();
+
+	/**
+	 * Gets the (exclusive) upper limit of each bucket of the tick latency histogram; each bucket
+	 * starts at the last one's limit, so all but the first and last are a power of two wide
+	 *
+	 * @return nanoseconds (Long.MAX_VALUE for the last bucket)
+	 *
+	 */
+	long[] getTickLatencyBucketLimitsNanos();
+
+	/**
+	 * Gets the number of single scout updates made by the agent engine
+	 *
+	 * @return number of ant updates
+	 *
+	 */
+	long getAntUpdates();
+
+	/**
+	 * Gets the number of draws made from the colonies' random number streams
+	 *
+	 * @return number of draws
+	 *
+	 */
+	long getRandomDraws();
+
+	/**
+	 * Gets the number of recruitment acts
+	 *
+	 * @return number of recruitment acts
+	 *
+	 */
+	long getRecruitmentActs();
+
+	/**
+	 * Gets the number of changes made to the colonies' quorums by the agent engine
+	 *
+	 * @return number of quorum operations
+	 *
+	 */
+	long getQuorumOperations();
+
+	/**
+	 * Gets the number of bytes written to results files, tables and stores
+	 *
+	 * @return number of bytes
+	 *
+	 */
+	long getOutputBytes();
+}
@@ -0,0 +1,447 @@
+// - James Collerton
+// - Student Number 46114
+// - Source Code for MSc Thesis
+
+// This is the modified AH-HA model used to generate the necessary data for the
+// project. It has been restructured to create data of the right form, and new
+// functionality is as indicated.
+
+// Building the model is documented in the supporting documents, and the
+// instructions for doing so can be read there. All the necessary libraries are
+// included in the required libs folder.
+
+package nests;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Stores the per-tick role counts of every run of a sweep in one memory-mapped file, instead of a
+ * results file per run, with an index giving where each run's rows are.
+ *
+ * The store file (trajectories.bin) starts with the 8 byte magic number "AHHATRJ1", followed by
+ * each run's rows as a contiguous block of little-endian 32-bit ints. A run's rows are fixed-width
+ * records: the tick, then the role counts (as EmigrationEngine.printInfo). The index file
+ * (trajectories.idx) has a line "Run, Offset, NumRows, RowLength" per run, in run order, where
+ * Offset is the byte offset of the run's block in the store file.
+ *
+ * Runs are appended as they finish (TrajectoryStore.append, safe to call from several threads),
+ * each into its own region of the mapped file, and the index is written when the store is closed.
+ * The file is mapped in chunks of TrajectoryStore.CHUNK_SIZE bytes (larger for a larger run), and
+ * a run never straddles two chunks. TrajectoryStore.Reader maps a closed store and gives each
+ * run's rows as a view of the mapping, without copying; a run's rows may be at most
+ * TrajectoryStore.MAX_RUN_SIZE bytes, so that the reader can map any run as one buffer.
+ *
+ */
+public class TrajectoryStore
+{
+	/** The name of the store file */
+	public static final String STORE_FILE = "trajectories.bin";
+	/** The name of the index file */
+	public static final String INDEX_FILE = "trajectories.idx";
+	/** The number of bytes mapped at a time */
+	public static final int CHUNK_SIZE = 64 << 20;
+	/** The largest size of a run's rows in bytes (TrajectoryStore.Reader maps the file in windows starting every MAX_RUN_SIZE bytes) */
+	public static final int MAX_RUN_SIZE = 1 << 30;
+	/** The store file's magic number */
+	private static final byte[] MAGIC = "AHHATRJ1".getBytes(StandardCharsets.US_ASCII);
+	/** The directory holding the store */
+	private final String mDirectory;
+	/** The store file */
+	private final RandomAccessFile mFile;
+	/** The mapped chunk being appended to */
+	private MappedByteBuffer mChunk;
+	/** The file offset of the start of mChunk */
+	private long mChunkStart;
+	/** The number of bytes of mChunk in use */
+	private int mChunkUsed;
+	/** Every chunk mapped so far (forced to disk on closing) */
+	private final List<MappedByteBuffer> mChunks;
+	/** The offset, number of rows and row length of each run appended (by run id) */
+	private final TreeMap<Integer, long[]> mIndex;
+	/** Has the store been closed? */
+	private boolean mClosed;
+
+	/**
+	 * Appends a run's rows
+	 *
+	 * @param run id of the run (not already appended)
+	 * @param rows one after another (!= null)
+	 * @param numRows (>= 0, numRows * rowLength * 4 <= TrajectoryStore.MAX_RUN_SIZE)
+	 * @param rowLength number of ints in each row (> 0)
+	 *
+	 * @return void
+	 *
+	 */
+	public void append(int run, int[] rows, int numRows, int rowLength) throws IOException
+	{
+		if (rows == null || numRows < 0 || rowLength <= 0 || (long) numRows * rowLength > rows.length)
+		{
+			throw new IllegalArgumentException("TrajectoryStore.append called with rows out of range (" + numRows + " rows of " + rowLength + ")");
+		}
+		if ((long) numRows * rowLength * 4 > MAX_RUN_SIZE)
+		{
+			throw new IllegalArgumentException("TrajectoryStore.append called with more than TrajectoryStore.MAX_RUN_SIZE bytes of rows (run == " + run + ", " + ((long) numRows * rowLength * 4) + " bytes)");
+		}
+		ByteBuffer region;
+
+		region = allocate(run, numRows, rowLength);
+		// (the region is this run's alone, so it is filled without holding the lock)
+		region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(rows, 0, numRows * rowLength);
+		SweepMetrics.recordOutputBytes(numRows * rowLength * 4L);
+	}
+
+	/**
+	 * Allocates a run's region of the store file and records it in the index
+	 *
+	 * @param run id of the run (not already appended)
+	 * @param numRows (>= 0)
+	 * @param rowLength (> 0)
+	 *
+	 * @return view of the region
+	 *
+	 */
+	private synchronized ByteBuffer allocate(int run, int numRows, int rowLength) throws IOException
+	{
+		if (mClosed)
+		{
+			throw new IllegalStateException("TrajectoryStore.append called after TrajectoryStore.close");
+		}
+		if (mIndex.containsKey(run))
+		{
+			throw new IllegalArgumentException("TrajectoryStore.append called with a run already appended (run == " + run + ")");
+		}
+		ByteBuffer region;
+		int length = numRows * rowLength * 4;
+
+		if (mChunk == null || length > mChunk.capacity() - mChunkUsed)
+		{
+			// start a new chunk at the end of the last (which wastes the rest of the last)
+			mChunkStart = (mChunk == null) ? MAGIC.length : mChunkStart + mChunkUsed;
+			mChunk = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, mChunkStart, Math.max(CHUNK_SIZE, length));
+			mChunks.add(mChunk);
+			mChunkUsed = 0;
+		}
+		mIndex.put(run, new long[] {mChunkStart + mChunkUsed, numRows, rowLength});
+		region = mChunk.duplicate();
+		region.position(mChunkUsed);
+		region.limit(mChunkUsed + length);
+		region = region.slice();
+		// keep each run's block 8 byte aligned
+		mChunkUsed += (length + 7) & ~7;
+
+		return region;
+	}
+
+	/**
+	 * Flushes the store to disk, trims the unused end of the file and writes the index
+	 *
+	 * @return void
+	 *
+	 */
+	public synchronized void close() throws IOException
+	{
+		if (mClosed)
+		{
+			return;
+		}
+		PrintWriter index;
+
+		mClosed = true;
+		for (MappedByteBuffer chunk : mChunks)
+		{
+			chunk.force();
+		}
+		try
+		{
+			mFile.getChannel().truncate((mChunk == null) ? MAGIC.length : mChunkStart + mChunkUsed);
+		}
+		catch (IOException exception)
+		{
+			// (some systems cannot truncate a mapped file; the unused end is then left as zeros)
+		}
+		mFile.close();
+		index = new PrintWriter(mDirectory + "/" + INDEX_FILE, "UTF-8");
+		index.printf("Run, Offset, NumRows, RowLength\n");
+		for (Integer run : mIndex.keySet())
+		{
+			index.printf("%d, %d, %d, %d\n", run, mIndex.get(run)[0], mIndex.get(run)[1], mIndex.get(run)[2]);
+		}
+		index.close();
+		if (index.checkError())
+		{
+			throw new IOException("TrajectoryStore.close: error writing index");
+		}
+	}
+
+	/**
+	 * Results sink for a single run: collects the run's rows and appends them to the store when the run finishes
+	 *
+	 */
+	public static class Sink implements ResultsRing.Sink
+	{
+		/** The store */
+		private final TrajectoryStore mStore;
+		/** The run's id */
+		private final int mRun;
+		/** The rows so far, one after another */
+		private int[] mRows;
+		/** The number of ints of mRows in use */
+		private int mLength;
+		/** The number of ints in each row (0 until the first row) */
+		private int mRowLength;
+
+		/**
+		 * Collects a batch of rows
+		 *
+		 * @param rows (!= null)
+		 * @param first index of the first row's first value
+		 * @param numRows
+		 * @param rowLength
+		 *
+		 * @return void
+		 *
+		 */
+		public void write(int[] rows, int first, int numRows, int rowLength)
+		{
+			int length = numRows * rowLength;
+
+			if (mLength + length > mRows.length)
+			{
+				mRows = Arrays.copyOf(mRows, Math.max(mRows.length * 2, mLength + length));
+			}
+			System.arraycopy(rows, first, mRows, mLength, length);
+			mLength += length;
+			mRowLength = rowLength;
+		}
+
+		/**
+		 * Appends the run's rows to the store
+		 *
+		 * @return void
+		 *
+		 */
+		public void close() throws IOException
+		{
+			if (mRowLength == 0)
+			{
+				return;
+			}
+
+			mStore.append(mRun, mRows, mLength / mRowLength, mRowLength);
+			mRows = null;
+		}
+
+		/**
+		 * Sink constructor
+		 *
+		 * @param store to append to (!= null)
+		 * @param run id of the run
+		 *
+		 */
+		public Sink(TrajectoryStore store, int run)
+		{
+			if (store == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct TrajectoryStore.Sink with store == null");
+			}
+
+			mStore = store;
+			mRun = run;
+			mRows = new int[1024];
+			mLength = 0;
+			mRowLength = 0;
+		}
+	}
+
+	/**
+	 * Reads a closed store, giving each run's rows as a view of the mapped store file
+	 *
+	 */
+	public static class Reader
+	{
+		/** The mapped store file, in windows starting every TrajectoryStore.MAX_RUN_SIZE bytes, each up to 2GB long (so any run lies within the window it starts in) */
+		private final List<MappedByteBuffer> mChunks;
+		/** The offset, number of rows and row length of each run (by run id) */
+		private final HashMap<Integer, long[]> mIndex;
+
+		/**
+		 * Gets the ids of the runs in the store
+		 *
+		 * @return run ids, in order
+		 *
+		 */
+		public int[] getRuns()
+		{
+			int[] runs = new int[mIndex.size()];
+			int l1 = 0;
+
+			for (Integer run : new TreeMap<Integer, long[]>(mIndex).keySet())
+			{
+				runs[l1++] = run;
+			}
+
+			return runs;
+		}
+
+		/**
+		 * Gets the number of rows (ticks) of a run
+		 *
+		 * @param run id
+		 *
+		 * @return number of rows
+		 *
+		 */
+		public int getNumRows(int run)
+		{
+			return (int) getEntry(run)[1];
+		}
+
+		/**
+		 * Gets the number of values in each of a run's rows
+		 *
+		 * @param run id
+		 *
+		 * @return row length (the tick, then the role counts)
+		 *
+		 */
+		public int getRowLength(int run)
+		{
+			return (int) getEntry(run)[2];
+		}
+
+		/**
+		 * Gets a run's rows, without copying (value r * row length + c is column c of row r)
+		 *
+		 * @param run id
+		 *
+		 * @return read-only view of the run's rows
+		 *
+		 */
+		public IntBuffer getRows(int run)
+		{
+			long[] entry = getEntry(run);
+			ByteBuffer rows;
+			int length = (int) (entry[1] * entry[2] * 4), start;
+
+			rows = mChunks.get((int) (entry[0] / MAX_RUN_SIZE)).duplicate();
+			start = (int) (entry[0] % MAX_RUN_SIZE);
+			if ((long) start + length > rows.capacity())
+			{
+				throw new IllegalStateException("TrajectoryStore.Reader: run " + run + " lies beyond the end of the store");
+			}
+			rows.position(start);
+			rows.limit(start + length);
+
+			return rows.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().asReadOnlyBuffer();
+		}
+
+		/**
+		 * Gets a run's index entry
+		 *
+		 * @param run id
+		 *
+		 * @return offset, number of rows and row length
+		 *
+		 */
+		private long[] getEntry(int run)
+		{
+			long[] entry = mIndex.get(run);
+
+			if (entry == null)
+			{
+				throw new IllegalArgumentException("TrajectoryStore.Reader: no run " + run + " in the store");
+			}
+
+			return entry;
+		}
+
+		/**
+		 * Reader constructor
+		 *
+		 * @param directory holding the store and index files (!= null)
+		 *
+		 */
+		public Reader(String directory) throws IOException
+		{
+			if (directory == null)
+			{
+				throw new IllegalArgumentException("Attempt to construct TrajectoryStore.Reader with directory == null");
+			}
+			BufferedReader index = new BufferedReader(new FileReader(directory + "/" + INDEX_FILE));
+			RandomAccessFile file = new RandomAccessFile(directory + "/" + STORE_FILE, "r");
+			String line;
+			String[] fields;
+			byte[] magic = new byte[MAGIC.length];
+			long size, start;
+
+			mIndex = new HashMap<Integer, long[]>();
+			mChunks = new ArrayList<MappedByteBuffer>();
+			try
+			{
+				file.readFully(magic);
+				if (!Arrays.equals(magic, MAGIC))
+				{
+					throw new IOException("TrajectoryStore.Reader: " + directory + "/" + STORE_FILE + " is not a trajectory store");
+				}
+				index.readLine();
+				while ((line = index.readLine()) != null)
+				{
+					fields = line.split(",");
+					mIndex.put(Integer.parseInt(fields[0].trim()), new long[] {Long.parseLong(fields[1].trim()), Long.parseLong(fields[2].trim()), Long.parseLong(fields[3].trim())});
+				}
+				// a run starts less than MAX_RUN_SIZE into its window, and windows are mapped up to
+				// 2GB - 1 long, so every run of up to MAX_RUN_SIZE bytes lies within its window
+				size = file.length();
+				for (start = 0; start < size; start += MAX_RUN_SIZE)
+				{
+					mChunks.add(file.getChannel().map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, Integer.MAX_VALUE)));
+				}
+			}
+			finally
+			{
+				index.close();
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * TrajectoryStore constructor (creates an empty store, replacing any already in the directory)
+	 *
+	 * @param directory to hold the store and index files (!= null, must exist)
+	 *
+	 */
+	public TrajectoryStore(String directory) throws IOException
+	{
+		if (directory == null)
+		{
+			throw new IllegalArgumentException("Attempt to construct TrajectoryStore with directory == null");
+		}
+
+		mDirectory = directory;
+		mFile = new RandomAccessFile(directory + "/" + STORE_FILE, "rw");
+		mFile.setLength(0);
+		mFile.write(MAGIC);
+		mChunk = null;
+		mChunkStart = 0;
+		mChunkUsed = 0;
+		mChunks = new ArrayList<MappedByteBuffer>();
+		mIndex = new TreeMap<Integer, long[]>();
+		mClosed = false;
+	}
+}